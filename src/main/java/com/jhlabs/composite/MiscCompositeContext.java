@@ -16,7 +16,8 @@ limitations under the License.
 
 package com.jhlabs.composite;
 
-import java.awt.Color;
+import pixelitor.colors.ColorSpaces;
+
 import java.awt.CompositeContext;
 import java.awt.image.ColorModel;
 import java.awt.image.Raster;
@@ -67,15 +68,15 @@ public class MiscCompositeContext implements CompositeContext {
         float alpha = this.alpha;
         int t;
 
-        float[] sHsv = null, diHsv = null, doHsv = null;
+        int[] sHsv = null, diHsv = null, doHsv = null;
         switch (rule) {
             case MiscComposite.HUE:
             case MiscComposite.SATURATION:
             case MiscComposite.VALUE:
             case MiscComposite.COLOR:
-                sHsv = new float[3];
-                diHsv = new float[3];
-                doHsv = new float[3];
+                sHsv = new int[3];
+                diHsv = new int[3];
+                doHsv = new int[3];
                 break;
         }
 
@@ -216,8 +217,8 @@ public class MiscCompositeContext implements CompositeContext {
                     case MiscComposite.SATURATION:
                     case MiscComposite.VALUE:
                     case MiscComposite.COLOR:
-                        Color.RGBtoHSB(sr, sg, sb, sHsv);
-                        Color.RGBtoHSB(dir, dig, dib, diHsv);
+                        ColorSpaces.rgbToHsb(sr << 16 | sg << 8 | sb, sHsv);
+                        ColorSpaces.rgbToHsb(dir << 16 | dig << 8 | dib, diHsv);
 
                         switch (rule) {
                             case MiscComposite.HUE:
@@ -242,7 +243,7 @@ public class MiscCompositeContext implements CompositeContext {
                                 break;
                         }
 
-                        int doRGB = Color.HSBtoRGB(doHsv[0], doHsv[1], doHsv[2]);
+                        int doRGB = ColorSpaces.hsbToRgb(doHsv[0], doHsv[1], doHsv[2]);
                         dor = (doRGB & 0xff0000) >> 16;
                         dog = (doRGB & 0xff00) >> 8;
                         dob = (doRGB & 0xff);
@@ -16,6 +16,8 @@ limitations under the License.
 
 package com.jhlabs.composite;
 
+import pixelitor.colors.ColorSpaces;
+
 import java.awt.*;
 import java.awt.image.ColorModel;
 
@@ -30,8 +32,8 @@ public final class ValueComposite extends RGBComposite {
     }
 
     static class Context extends RGBCompositeContext {
-        private final float[] sHSB = new float[3];
-        private final float[] dHSB = new float[3];
+        private final int[] sHSB = new int[3];
+        private final int[] dHSB = new int[3];
 
         public Context(float alpha, ColorModel srcColorModel, ColorModel dstColorModel) {
             super(alpha, srcColorModel, dstColorModel);
@@ -51,12 +53,12 @@ public final class ValueComposite extends RGBComposite {
                 int sa = src[i + 3];
                 int dia = dst[i + 3];
 
-                Color.RGBtoHSB(sr, sg, sb, sHSB);
-                Color.RGBtoHSB(dir, dig, dib, dHSB);
+                ColorSpaces.rgbToHsb(sr << 16 | sg << 8 | sb, sHSB);
+                ColorSpaces.rgbToHsb(dir << 16 | dig << 8 | dib, dHSB);
 
                 dHSB[2] = sHSB[2];
 
-                int doRGB = Color.HSBtoRGB(dHSB[0], dHSB[1], dHSB[2]);
+                int doRGB = ColorSpaces.hsbToRgb(dHSB[0], dHSB[1], dHSB[2]);
                 int dor = (doRGB & 0xff0000) >> 16;
                 int dog = (doRGB & 0xff00) >> 8;
                 int dob = (doRGB & 0xff);
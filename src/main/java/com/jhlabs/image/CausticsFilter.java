@@ -17,6 +17,7 @@ limitations under the License.
 package com.jhlabs.image;
 
 import com.jhlabs.math.Noise;
+import com.jhlabs.math.PerlinNoise;
 import pixelitor.ThreadPool;
 
 import java.awt.*;
@@ -37,6 +38,7 @@ public class CausticsFilter extends WholeImageFilter {
     private float time = 0.0f;
     private int samples = 2;
     private int bgColor = 0xff799fff;
+    private PerlinNoise noise;
 
 //    private float sin, cos;
 
@@ -237,6 +239,7 @@ public class CausticsFilter extends WholeImageFilter {
 
         float rs = 1.0f / scale;
         float d = 0.95f;
+        noise = Noise.getInstance();
 
         pt = createProgressTracker(outHeight);
 
@@ -255,16 +258,25 @@ public class CausticsFilter extends WholeImageFilter {
     }
 
     private void calculateLine(int outWidth, int outHeight, int[] pixels, int v, float rs, float d, int y) {
-        for (int x = 0; x < outWidth; x++) {
-            for (int s = 0; s < samples; s++) {
-                Random random = ThreadLocalRandom.current();
-                float sx = x + random.nextFloat();
-                float sy = y + random.nextFloat();
-                float nx = sx * rs;
-                float ny = sy * rs;
-                float focus = 0.1f + amount;
-                float xDisplacement = evaluate(nx - d, ny) - evaluate(nx + d, ny);
-                float yDisplacement = evaluate(nx, ny + d) - evaluate(nx, ny - d);
+        Random random = ThreadLocalRandom.current();
+        float focus = 0.1f + amount;
+        float[] sampleX = new float[outWidth];
+        float[] sampleY = new float[outWidth];
+        for (int s = 0; s < samples; s++) {
+            for (int x = 0; x < outWidth; x++) {
+                sampleX[x] = x + random.nextFloat();
+                sampleY[x] = y + random.nextFloat();
+            }
+            float[] left = evaluateLine(sampleX, sampleY, rs, -d, 0);
+            float[] right = evaluateLine(sampleX, sampleY, rs, d, 0);
+            float[] down = evaluateLine(sampleX, sampleY, rs, 0, d);
+            float[] up = evaluateLine(sampleX, sampleY, rs, 0, -d);
+
+            for (int x = 0; x < outWidth; x++) {
+                float sx = sampleX[x];
+                float sy = sampleY[x];
+                float xDisplacement = left[x] - right[x];
+                float yDisplacement = down[x] - up[x];
 
                 if (dispersion > 0) {
                     for (int c = 0; c < 3; c++) {
@@ -371,39 +383,51 @@ public class CausticsFilter extends WholeImageFilter {
 //        return 0xff000000 | (r << 16) | (g << 8) | b;
 //    }
 
-    private static float turbulence2(float x, float y, float time, float octaves) {
+    /**
+     * Evaluates the turbulence at the jittered sample points of a line,
+     * scaled by rs and shifted by the given offsets.
+     */
+    private float[] evaluateLine(float[] sampleX, float[] sampleY, float rs,
+                                 float offsetX, float offsetY) {
+        int length = sampleX.length;
+        float[] xs = new float[length];
+        float[] ys = new float[length];
+        float[] zs = new float[length];
+        for (int i = 0; i < length; i++) {
+            float x = sampleX[i] * rs + offsetX;
+            float y = sampleY[i] * rs + offsetY;
+
+            // the time moves the x and z coordinates in opposite directions,
+            // and the added constants prevent "cascading" effects
+            xs[i] = x + time + 371;
+            ys[i] = y + 529;
+            zs[i] = x - time;
+        }
+
+        float[] value = new float[length];
+        float[] octave = new float[length];
         float f = 1.0f;
-        int i;
-
-        // to prevent "cascading" effects
-        x += 371;
-        y += 529;
-
-        float value = 0.0f;
-        float lacunarity = 2.0f;
-        for (i = 0; i < (int) octaves; i++) {
-            value += Noise.noise3(x, y, time) / f;
-            x *= lacunarity;
-            y *= lacunarity;
+        int numOctaves = (int) turbulence;
+        for (int o = 0; o < numOctaves; o++) {
+            noise.noise3(xs, ys, zs, octave, length);
+            for (int i = 0; i < length; i++) {
+                value[i] += octave[i] / f;
+                xs[i] *= 2;
+                ys[i] *= 2;
+            }
             f *= 2;
         }
 
-        float remainder = octaves - (int) octaves;
+        float remainder = turbulence - numOctaves;
         if (remainder != 0) {
-            value += remainder * Noise.noise3(x, y, time) / f;
+            noise.noise3(xs, ys, zs, octave, length);
+            for (int i = 0; i < length; i++) {
+                value[i] += remainder * octave[i] / f;
+            }
         }
-
         return value;
     }
 
-    private float evaluate(float x, float y) {
-        float xt = x + time;
-        float tt = x - time;
-//        float f = turbulence == 0.0 ? Noise.noise3(xt, y, tt) : turbulence2(xt, y, tt, turbulence);
-        float f = turbulence2(xt, y, tt, turbulence);
-        return f;
-    }
-
     @Override
     public String toString() {
         return "Texture/Caustics...";
@@ -20,6 +20,7 @@ import net.jafama.FastMath;
 
 import java.awt.geom.Point2D;
 import java.awt.image.BufferedImage;
+import java.util.List;
 
 /**
  * A Filter which produces the effect of looking into a kaleidoscope.
@@ -197,6 +198,11 @@ public class KaleidoscopeFilter extends TransformFilter {
         return super.filter(src, dst);
     }
 
+    @Override
+    protected Object getGeometryKey() {
+        return List.of(angle, angle2, centreX, centreY, sides, radius, zoom);
+    }
+
     @Override
     protected void transformInverse(int x, int y, float[] out) {
         double dx = x - icentreX;
@@ -17,6 +17,7 @@ limitations under the License.
 package com.jhlabs.image;
 
 import com.jhlabs.math.Noise;
+import com.jhlabs.math.PerlinNoise;
 
 import java.awt.image.BufferedImage;
 
@@ -29,6 +30,7 @@ public class MarbleFilter extends TransformFilter {
     private float amount = 4;
     private float turbulence = 1;
     private float time;
+    private PerlinNoise noise;
 
     public MarbleFilter(String filterName) {
         super(filterName);
@@ -114,7 +116,11 @@ public class MarbleFilter extends TransformFilter {
     }
 
     private int displacementMap(int x, int y) {
-        float noise = Noise.noise3(x / scale, y / scale, time); // mostly between -1 and 1 but not distributed uniformly
+        return toDisplacement(noise.noise3(x / scale, y / scale, time));
+    }
+
+    // the noise is mostly between -1 and 1 but not distributed uniformly
+    private static int toDisplacement(float noise) {
         return PixelUtils.clamp((int) (127 * (1 + noise)));
     }
 
@@ -126,9 +132,22 @@ public class MarbleFilter extends TransformFilter {
         out[1] = y + cosTable[displacement];
     }
 
+    @Override
+    protected void transformInverseLine(int y, int width, float[] out) {
+        float[] noiseLine = new float[width];
+        noise.noise3Line(0, y / scale, time, 1 / scale, 0, 0, noiseLine, width);
+
+        for (int x = 0; x < width; x++) {
+            int displacement = toDisplacement(noiseLine[x]);
+            out[2 * x] = x + sinTable[displacement];
+            out[2 * x + 1] = y + cosTable[displacement];
+        }
+    }
+
     @Override
     public BufferedImage filter(BufferedImage src, BufferedImage dst) {
         initialize();
+        noise = Noise.getInstance();
         return super.filter(src, dst);
     }
 
@@ -17,6 +17,7 @@ limitations under the License.
 package com.jhlabs.image;
 
 import pixelitor.ThreadPool;
+import pixelitor.utils.BufferPool;
 
 import java.awt.*;
 import java.util.concurrent.Future;
@@ -68,7 +69,7 @@ public class OilFilter extends WholeImageFilter {
 
     @Override
     protected int[] filterPixels(int width, int height, int[] inPixels, Rectangle transformedSpace) {
-        int[] outPixels = new int[width * height];
+        int[] outPixels = BufferPool.leaseInts(width * height);
 
         pt = createProgressTracker(height);
         Future<?>[] futures = new Future[height];
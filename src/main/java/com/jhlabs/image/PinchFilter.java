@@ -23,6 +23,7 @@ import java.awt.Shape;
 import java.awt.geom.Ellipse2D;
 import java.awt.geom.Point2D;
 import java.awt.image.BufferedImage;
+import java.util.List;
 
 /**
  * A filter which performs the popular whirl-and-pinch distortion effect.
@@ -187,6 +188,11 @@ public class PinchFilter extends TransformFilter implements SwirlMethod {
         return super.filter(src, dst);
     }
 
+    @Override
+    protected Object getGeometryKey() {
+        return List.of(angle, centreX, centreY, radius, pinchBulgeAmount, zoom, rotateResultAngle);
+    }
+
     @Override
     protected void transformInverse(int x, int y, float[] out) {
         float dx = x - icentreX;
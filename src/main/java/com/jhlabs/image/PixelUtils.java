@@ -16,7 +16,8 @@ limitations under the License.
 
 package com.jhlabs.image;
 
-import java.awt.Color;
+import pixelitor.colors.ColorSpaces;
+
 import java.util.Random;
 
 /**
@@ -108,9 +109,6 @@ public class PixelUtils {
         return Math.abs(r1 - r2) <= tolerance && Math.abs(g1 - g2) <= tolerance && Math.abs(b1 - b2) <= tolerance;
     }
 
-    private static final float[] hsb1 = new float[3];//FIXME-not thread safe
-    private static final float[] hsb2 = new float[3];//FIXME-not thread safe
-
     // Return rgb1 painted onto rgb2
 
     public static int combinePixels(int rgb1, int rgb2, int op) {
@@ -213,24 +211,18 @@ public class PixelUtils {
             case SATURATION:
             case VALUE:
             case COLOR:
-                Color.RGBtoHSB(r1, g1, b1, hsb1);
-                Color.RGBtoHSB(r2, g2, b2, hsb2);
-                switch (op) {
-                    case HUE:
-                        hsb2[0] = hsb1[0];
-                        break;
-                    case SATURATION:
-                        hsb2[1] = hsb1[1];
-                        break;
-                    case VALUE:
-                        hsb2[2] = hsb1[2];
-                        break;
-                    case COLOR:
-                        hsb2[0] = hsb1[0];
-                        hsb2[1] = hsb1[1];
-                        break;
-                }
-                rgb1 = Color.HSBtoRGB(hsb2[0], hsb2[1], hsb2[2]);
+                int c1 = r1 << 16 | g1 << 8 | b1;
+                int c2 = r2 << 16 | g2 << 8 | b2;
+                rgb1 = switch (op) {
+                    case HUE -> ColorSpaces.hsbToRgb(ColorSpaces.hue(c1),
+                        ColorSpaces.saturation(c2), ColorSpaces.brightness(c2));
+                    case SATURATION -> ColorSpaces.hsbToRgb(ColorSpaces.hue(c2),
+                        ColorSpaces.saturation(c1), ColorSpaces.brightness(c2));
+                    case VALUE -> ColorSpaces.hsbToRgb(ColorSpaces.hue(c2),
+                        ColorSpaces.saturation(c2), ColorSpaces.brightness(c1));
+                    default -> ColorSpaces.hsbToRgb(ColorSpaces.hue(c1),
+                        ColorSpaces.saturation(c1), ColorSpaces.brightness(c2));
+                };
                 r1 = (rgb1 >> 16) & 0xff;
                 g1 = (rgb1 >> 8) & 0xff;
                 b1 = rgb1 & 0xff;
@@ -53,12 +53,8 @@ public abstract class PointFilter extends AbstractBufferedImageOp {
         Future<?>[] futures = new Future[height];
         for (int y = 0; y < height; y++) {
             int finalY = y;
-            Runnable calculateLineTask = () -> {
-                for (int x = 0; x < width; x++) {
-                    int index = finalY * width + x;
-                    outPixels[index] = filterRGB(x, finalY, inPixels[index]);
-                }
-            };
+            Runnable calculateLineTask = () ->
+                filterLine(finalY, width, inPixels, outPixels, finalY * width);
             futures[y] = ThreadPool.submit(calculateLineTask);
         }
 
@@ -79,9 +75,7 @@ public abstract class PointFilter extends AbstractBufferedImageOp {
             Runnable calculateLineTask = () -> {
                 int[] inPixels = new int[width];
                 src.getRGB(0, finalY, width, 1, inPixels, 0, width);
-                for (int x = 0; x < width; x++) {
-                    inPixels[x] = filterRGB(x, finalY, inPixels[x]);
-                }
+                filterLine(finalY, width, inPixels, inPixels, 0);
                 dst.setRGB(0, finalY, width, 1, inPixels, 0, width);
             };
             futures[y] = ThreadPool.submit(calculateLineTask);
@@ -95,5 +89,17 @@ public abstract class PointFilter extends AbstractBufferedImageOp {
     public void setDimensions(int width, int height) {
     }
 
+    /**
+     * Filters the pixels of a line, starting at the given offset in
+     * both arrays (which can be the same array). Subclasses can override
+     * it if a whole line can be calculated faster than pixel by pixel.
+     */
+    protected void filterLine(int y, int width, int[] inPixels, int[] outPixels, int offset) {
+        for (int x = 0; x < width; x++) {
+            int index = offset + x;
+            outPixels[index] = filterRGB(x, y, inPixels[index]);
+        }
+    }
+
     public abstract int filterRGB(int x, int y, int rgb);
 }
@@ -19,6 +19,7 @@ package com.jhlabs.image;
 import net.jafama.FastMath;
 
 import java.awt.image.BufferedImage;
+import java.util.List;
 
 /**
  * A filter which distorts and image by performing coordinate conversions between rectangular and polar coordinates.
@@ -94,6 +95,11 @@ public class PolarFilter extends TransformFilter {
         return x * x;
     }
 
+    @Override
+    protected Object getGeometryKey() {
+        return List.of(type, zoom, angle, relativeCentreX, relativeCentreY);
+    }
+
     @Override
     protected void transformInverse(int x, int y, float[] out) {
         float theta;
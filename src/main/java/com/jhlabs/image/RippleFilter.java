@@ -17,9 +17,12 @@ limitations under the License.
 package com.jhlabs.image;
 
 import com.jhlabs.math.Noise;
+import com.jhlabs.math.PerlinNoise;
 import net.jafama.FastMath;
 
 import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.List;
 
 /**
  * A filter which distorts an image by rippling it in the X or Y directions.
@@ -34,6 +37,8 @@ public class RippleFilter extends TransformFilter {
     private float phaseX;
     private float phaseY;
 
+    private PerlinNoise noise;
+
     /**
      * Construct a RippleFilter.
      */
@@ -156,6 +161,22 @@ public class RippleFilter extends TransformFilter {
 //		}
     }
 
+    @Override
+    public BufferedImage filter(BufferedImage src, BufferedImage dst) {
+        // the same noise must be used for the whole image and for the key
+        noise = Noise.getInstance();
+        return super.filter(src, dst);
+    }
+
+    @Override
+    protected Object getGeometryKey() {
+        if (waveType == WaveType.NOISE) {
+            return List.of(xAmplitude, yAmplitude, xWavelength, yWavelength,
+                waveType, phaseX, phaseY, noise.getSeed());
+        }
+        return List.of(xAmplitude, yAmplitude, xWavelength, yWavelength, waveType, phaseX, phaseY);
+    }
+
     @Override
     protected void transformInverse(int x, int y, float[] out) {
         float nx = y / xWavelength;
@@ -176,8 +197,8 @@ public class RippleFilter extends TransformFilter {
                 fy = ImageMath.sinLikeTriangle(ny - phaseX);
                 break;
             case WaveType.NOISE:
-                fx = Noise.sinLikeNoise1(nx - phaseY);
-                fy = Noise.sinLikeNoise1(ny - phaseX);
+                fx = noise.sinLikeNoise1(nx - phaseY);
+                fy = noise.sinLikeNoise1(ny - phaseX);
                 break;
         }
         out[0] = x + xAmplitude * fx;
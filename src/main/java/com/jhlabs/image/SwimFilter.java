@@ -17,6 +17,9 @@ limitations under the License.
 package com.jhlabs.image;
 
 import com.jhlabs.math.Noise;
+import com.jhlabs.math.PerlinNoise;
+
+import java.awt.image.BufferedImage;
 
 /**
  * A filter which distorts an image as if it were underwater.
@@ -32,6 +35,7 @@ public class SwimFilter extends TransformFilter {
     private float m01 = 0.0f;
     private float m10 = 0.0f;
     private float m11 = 1.0f;
+    private PerlinNoise noise;
 
     public SwimFilter(String filterName) {
         super(filterName);
@@ -151,6 +155,12 @@ public class SwimFilter extends TransformFilter {
         return time;
     }
 
+    @Override
+    public BufferedImage filter(BufferedImage src, BufferedImage dst) {
+        noise = Noise.getInstance();
+        return super.filter(src, dst);
+    }
+
     @Override
     protected void transformInverse(int x, int y, float[] out) {
         float nx = m00 * x + m01 * y;
@@ -158,13 +168,32 @@ public class SwimFilter extends TransformFilter {
         nx /= scale;
         ny /= scale * stretch;
 
-        float noise3x = Noise.noise3(nx + 0.5f, ny, time);
-        float noise3y = Noise.noise3(nx, ny + 0.5f, time);
+        float noise3x = noise.noise3(nx + 0.5f, ny, time);
+        float noise3y = noise.noise3(nx, ny + 0.5f, time);
 
         out[0] = x + amount * noise3x;
         out[1] = y + amount * noise3y;
     }
 
+    @Override
+    protected void transformInverseLine(int y, int width, float[] out) {
+        // the noise coordinates of the first pixel and their change along the line
+        float nx0 = m01 * y / scale;
+        float ny0 = m11 * y / (scale * stretch);
+        float dnx = m00 / scale;
+        float dny = m10 / (scale * stretch);
+
+        float[] noise3x = new float[width];
+        float[] noise3y = new float[width];
+        noise.noise3Line(nx0 + 0.5f, ny0, time, dnx, dny, 0, noise3x, width);
+        noise.noise3Line(nx0, ny0 + 0.5f, time, dnx, dny, 0, noise3y, width);
+
+        for (int x = 0; x < width; x++) {
+            out[2 * x] = x + amount * noise3x[x];
+            out[2 * x + 1] = y + amount * noise3y[x];
+        }
+    }
+
     @Override
     public String toString() {
         return "Distort/Swim...";
@@ -18,10 +18,14 @@ package com.jhlabs.image;
 
 import net.jafama.FastMath;
 import pixelitor.ThreadPool;
+import pixelitor.utils.BufferPool;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.awt.image.ColorModel;
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Future;
 
@@ -79,6 +83,25 @@ public abstract class TransformFilter extends AbstractBufferedImageOp {
      */
     protected int interpolation = BILINEAR;
 
+    /**
+     * Images with more pixels don't get a cached displacement map.
+     */
+    private static final int MAX_CACHED_PIXELS = 1 << 23;
+
+    // The inverse-transformed (x, y) source positions of all pixels
+    // calculated with the geometry identified by the key.
+    // The map is not modified after it was cached, but it can be
+    // released at any time, therefore it's accessed only while
+    // holding the lock of this filter.
+    private float[] displacementMap;
+    private Object displacementMapKey;
+    private int displacementMapWidth;
+    private int displacementMapHeight;
+
+    // the filters that currently hold a displacement map
+    private static final Set<TransformFilter> filtersWithMaps =
+        Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+
     /**
      * The output image rectangle.
      */
@@ -141,6 +164,94 @@ public abstract class TransformFilter extends AbstractBufferedImageOp {
      */
     protected abstract void transformInverse(int x, int y, float[] out);
 
+    /**
+     * Inverse transforms all the pixels of an output line: out[2 * x] and
+     * out[2 * x + 1] will be the results of {@link #transformInverse}
+     * for the pixel (x, y). Subclasses can override it if a whole
+     * line can be calculated faster than the pixels one by one.
+     */
+    protected void transformInverseLine(int y, int width, float[] out) {
+        float[] point = new float[2];
+        for (int x = 0; x < width; x++) {
+            transformInverse(x, y, point);
+            out[2 * x] = point[0];
+            out[2 * x + 1] = point[1];
+        }
+    }
+
+    /**
+     * Returns an object that identifies the geometry of the transformation:
+     * two keys must be equal only if {@link #transformInverse} gives the same
+     * results for all pixels of images of the same size. It's called
+     * after the subclass has prepared the filtering of the image.
+     *
+     * If it returns a non-null key, the results of {@link #transformInverse}
+     * are cached as a displacement map and reused while the key and the image
+     * size remain the same, for example when only the edge action or the
+     * interpolation changes, or when the same distortion is applied to many
+     * images. By default there is no caching.
+     */
+    protected Object getGeometryKey() {
+        return null;
+    }
+
+    private synchronized float[] getCachedMap(Object key) {
+        if (displacementMap != null
+            && displacementMapWidth == srcWidth
+            && displacementMapHeight == srcHeight
+            && key.equals(displacementMapKey)) {
+            return displacementMap;
+        }
+        return null;
+    }
+
+    private synchronized void cacheMap(float[] map, Object key) {
+        displacementMap = map;
+        displacementMapKey = key;
+        displacementMapWidth = srcWidth;
+        displacementMapHeight = srcHeight;
+        filtersWithMaps.add(this);
+    }
+
+    private synchronized long releaseMap() {
+        long freed = displacementMap == null ? 0 : displacementMap.length * 4L;
+        displacementMap = null;
+        displacementMapKey = null;
+        return freed;
+    }
+
+    private synchronized long getMapBytes() {
+        return displacementMap == null ? 0 : displacementMap.length * 4L;
+    }
+
+    /**
+     * Returns the memory used by the cached displacement maps of all filters, in bytes.
+     */
+    public static long getDisplacementMapBytes() {
+        long sum = 0;
+        synchronized (filtersWithMaps) {
+            for (TransformFilter filter : filtersWithMaps) {
+                sum += filter.getMapBytes();
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Drops the cached displacement maps of all filters,
+     * and returns the number of freed bytes.
+     */
+    public static long releaseDisplacementMaps() {
+        long freed = 0;
+        synchronized (filtersWithMaps) {
+            for (TransformFilter filter : filtersWithMaps) {
+                freed += filter.releaseMap();
+            }
+            filtersWithMaps.clear();
+        }
+        return freed;
+    }
+
     /**
      * Forward transform a rectangle. Used to determine the size of the output image.
      *
@@ -170,19 +281,41 @@ public abstract class TransformFilter extends AbstractBufferedImageOp {
         }
 //		WritableRaster dstRaster = dst.getRaster();
 
-        int[] inPixels = getRGB(src, 0, 0, srcWidth, srcHeight, null);
+        int[] inPixels = getRGB(src, 0, 0, srcWidth, srcHeight, BufferPool.leaseInts(srcWidth * srcHeight));
+
+        if (interpolation == BILINEAR || interpolation == NEAREST_NEIGHBOUR) {
+            Object key = getGeometryKey();
+            boolean cached = false;
+            float[] map = null;
+            if (key != null && srcWidth * (long) srcHeight <= MAX_CACHED_PIXELS) {
+                map = getCachedMap(key);
+                cached = map != null;
+                if (!cached) {
+                    // it will be filled in while filtering
+                    map = new float[2 * srcWidth * srcHeight];
+                }
+            }
+
+            if (interpolation == BILINEAR) {
+                dst = filterPixelsBilinear(dst, srcWidth, srcHeight, inPixels, map, cached);
+            } else {
+                dst = filterPixelsNN(dst, srcWidth, srcHeight, inPixels, map, cached);
+            }
 
-        if (interpolation == BILINEAR) {
-            return filterPixelsBilinear(dst, srcWidth, srcHeight, inPixels);
-        } else if (interpolation == NEAREST_NEIGHBOUR) {
-            return filterPixelsNN(dst, srcWidth, srcHeight, inPixels);
+            if (map != null && !cached) {
+                cacheMap(map, key);
+            }
         } else if (interpolation == BILINEAR_OLD) {
-            return filterPixelsBilinearOLD(dst, srcWidth, srcHeight, inPixels);
+            dst = filterPixelsBilinearOLD(dst, srcWidth, srcHeight, inPixels);
         } else if (interpolation == NEAREST_NEIGHBOUR_OLD) {
-            return filterPixelsNNOLD(dst, srcWidth, srcHeight, inPixels);
+            dst = filterPixelsNNOLD(dst, srcWidth, srcHeight, inPixels);
+        } else {
+            throw new IllegalStateException("should not get here");
         }
 
-        throw new IllegalStateException("should not get here");
+        // all line tasks have finished at this point
+        BufferPool.release(inPixels);
+        return dst;
     }
 
     private BufferedImage filterPixelsBilinearOLD(BufferedImage dst, int width, int height, int[] inPixels) {
@@ -252,7 +385,8 @@ public abstract class TransformFilter extends AbstractBufferedImageOp {
         return dst;
     }
 
-    protected BufferedImage filterPixelsNN(BufferedImage dst, int width, int height, int[] inPixels) {
+    protected BufferedImage filterPixelsNN(BufferedImage dst, int width, int height, int[] inPixels,
+                                           float[] map, boolean mapFilled) {
         int srcWidth = width;
         int srcHeight = height;
         int outWidth = width;
@@ -270,8 +404,13 @@ public abstract class TransformFilter extends AbstractBufferedImageOp {
                 int srcX, srcY;
                 int[] outPixels = new int[outWidth];
 
+                // a filled map is read directly, without copying the line
+                boolean useMap = map != null && mapFilled;
+                float[] positions = useMap ? map : calcSourcePositions(finalY, outWidth, map);
+                int offset = useMap ? 2 * finalY * outWidth : 0;
                 for (int x = 0; x < outWidth; x++) {
-                    transformInverse(x, finalY, out);
+                    out[0] = positions[offset + 2 * x];
+                    out[1] = positions[offset + 2 * x + 1];
                     srcX = (int) out[0];
                     srcY = (int) out[1];
                     // int casting rounds towards zero, so we check out[0] < 0, not srcX < 0
@@ -289,7 +428,8 @@ public abstract class TransformFilter extends AbstractBufferedImageOp {
         return dst;
     }
 
-    private BufferedImage filterPixelsBilinear(BufferedImage dst, int width, int height, int[] inPixels) {
+    private BufferedImage filterPixelsBilinear(BufferedImage dst, int width, int height, int[] inPixels,
+                                               float[] map, boolean mapFilled) {
         int srcWidth = width;
         int srcHeight = height;
         int srcWidth1 = width - 1;
@@ -309,8 +449,13 @@ public abstract class TransformFilter extends AbstractBufferedImageOp {
             int finalY = y;
             Callable<int[]> calculateLineTask = () -> {
                 int[] outPixels = new int[outWidth];
+                // a filled map is read directly, without copying the line
+                boolean useMap = map != null && mapFilled;
+                float[] positions = useMap ? map : calcSourcePositions(finalY, outWidth, map);
+                int offset = useMap ? 2 * finalY * outWidth : 0;
                 for (int x = 0; x < outWidth; x++) {
-                    transformInverse(x, finalY, out);
+                    out[0] = positions[offset + 2 * x];
+                    out[1] = positions[offset + 2 * x + 1];
                     int srcX = (int) FastMath.floor(out[0]);
                     int srcY = (int) FastMath.floor(out[1]);
                     float xWeight = out[0] - srcX;
@@ -344,6 +489,20 @@ public abstract class TransformFilter extends AbstractBufferedImageOp {
         return dst;
     }
 
+    /**
+     * Calculates the source positions of the given output line
+     * (x and y for each pixel), and also stores them in the
+     * displacement map, if there is one.
+     */
+    private float[] calcSourcePositions(int y, int width, float[] map) {
+        float[] positions = new float[2 * width];
+        transformInverseLine(y, width, positions);
+        if (map != null) {
+            System.arraycopy(positions, 0, map, 2 * y * width, positions.length);
+        }
+        return positions;
+    }
+
     private int getPixelBL(int[] pixels, int x, int y, int width, int height) {
         if ((x < 0) || (x >= width)) {  // x out of range
             if ((y < 0) || (y >= height)) { // y also out of range {
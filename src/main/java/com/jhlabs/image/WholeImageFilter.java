@@ -16,6 +16,8 @@ limitations under the License.
 
 package com.jhlabs.image;
 
+import pixelitor.utils.BufferPool;
+
 import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.awt.image.ColorModel;
@@ -61,9 +63,15 @@ public abstract class WholeImageFilter extends AbstractBufferedImageOp {
         }
 //		WritableRaster dstRaster = dst.getRaster();
 
-        int[] inPixels = getRGB(src, 0, 0, width, height, null);
-        inPixels = filterPixels(width, height, inPixels, transformedSpace);
-        setRGB(dst, 0, 0, transformedSpace.width, transformedSpace.height, inPixels);
+        int[] inPixels = getRGB(src, 0, 0, width, height, BufferPool.leaseInts(width * height));
+        int[] outPixels = filterPixels(width, height, inPixels, transformedSpace);
+        setRGB(dst, 0, 0, transformedSpace.width, transformedSpace.height, outPixels);
+
+        // the subclasses don't keep references to the pixel arrays
+        BufferPool.release(inPixels);
+        if (outPixels != inPixels) {
+            BufferPool.release(outPixels);
+        }
 
         return dst;
     }
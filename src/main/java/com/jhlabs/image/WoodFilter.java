@@ -17,6 +17,9 @@ limitations under the License.
 package com.jhlabs.image;
 
 import com.jhlabs.math.Noise;
+import com.jhlabs.math.PerlinNoise;
+
+import java.awt.image.BufferedImage;
 
 /**
  * A filter which produces a simulated wood texture. This is a bit of a hack, but might be usefult to some people.
@@ -34,6 +37,7 @@ public class WoodFilter extends PointFilter {
     private float m10 = 0.0f;
     private float m11 = 1.0f;
     private Colormap colormap = new LinearColormap(0xffe5c494, 0xff987b51);
+    private PerlinNoise noise;
 
     /**
      * Construct a WoodFilter.
@@ -221,21 +225,58 @@ public class WoodFilter extends PointFilter {
         return colormap;
     }
 
+    @Override
+    public BufferedImage filter(BufferedImage src, BufferedImage dst) {
+        noise = Noise.getInstance();
+        return super.filter(src, dst);
+    }
+
     @Override
     public int filterRGB(int x, int y, int rgb) {
         float nx = m00 * x + m01 * y;
         float ny = m10 * x + m11 * y;
         nx /= scale;
         ny /= scale * stretch;
-        float f = Noise.noise2(nx, ny);
-        f += 0.1f * turbulence * Noise.noise2(nx * 0.05f, ny * 20);
+
+        float ringsNoise = noise.noise2(nx, ny);
+        float turbulenceNoise = noise.noise2(nx * 0.05f, ny * 20);
+        float fibresNoise = noise.noise2(nx * scale, ny * 50);
+        return calcColor(x, y, rgb, ringsNoise, turbulenceNoise, fibresNoise);
+    }
+
+    @Override
+    protected void filterLine(int y, int width, int[] inPixels, int[] outPixels, int offset) {
+        // the noise coordinates of the first pixel and their change along the line
+        float nx0 = m01 * y / scale;
+        float ny0 = m11 * y / (scale * stretch);
+        float dnx = m00 / scale;
+        float dny = m10 / (scale * stretch);
+
+        float[] ringsNoise = new float[width];
+        float[] turbulenceNoise = new float[width];
+        float[] fibresNoise = new float[width];
+        noise.noise2Line(nx0, ny0, dnx, dny, ringsNoise, width);
+        noise.noise2Line(nx0 * 0.05f, ny0 * 20, dnx * 0.05f, dny * 20, turbulenceNoise, width);
+        noise.noise2Line(nx0 * scale, ny0 * 50, dnx * scale, dny * 50, fibresNoise, width);
+
+        for (int x = 0; x < width; x++) {
+            int index = offset + x;
+            outPixels[index] = calcColor(x, y, inPixels[index],
+                ringsNoise[x], turbulenceNoise[x], fibresNoise[x]);
+        }
+    }
+
+    private int calcColor(int x, int y, int rgb, float ringsNoise,
+                          float turbulenceNoise, float fibresNoise) {
+        float f = ringsNoise;
+        f += 0.1f * turbulence * turbulenceNoise;
         f = (f * 0.5f) + 0.5f;
 
         f *= rings * 50;
         f = f - (int) f;
         f *= 1 - ImageMath.smoothStep(gain, 1.0f, f);
 
-        f += fibres * Noise.noise2(nx * scale, ny * 50);
+        f += fibres * fibresNoise;
 
         // happened during robot tests
         if (Float.isNaN(f)) {
@@ -0,0 +1,582 @@
+/*
+Copyright 2006 Jerry Huxtable
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.jhlabs.math;
+
+import com.jhlabs.image.ImageMath;
+
+import java.util.Random;
+
+/**
+ * Perlin noise with its own permutation and gradient tables.
+ *
+ * The tables are calculated from the seed in the constructor and
+ * never change afterwards, therefore an instance can be shared
+ * between threads, and the same seed always produces the same noise.
+ *
+ * Besides the point evaluation methods, whole lines of (fractal)
+ * noise can be evaluated at once. The gradients are looked up only
+ * when the line enters a new lattice cell, and for horizontal lines
+ * the values depending on y are calculated only once per octave.
+ */
+public final class PerlinNoise implements Function1D, Function2D, Function3D {
+    private static final int B = 0x100;
+    private static final int BM = 0xff;
+    private static final int N = 0x1000;
+    private static final int TABLE_SIZE = B + B + 2;
+
+    private final long seed;
+
+    private final int[] p = new int[TABLE_SIZE];
+    private final float[] g1 = new float[TABLE_SIZE];
+    // the gradients are stored in flat arrays: x, y (, z) for each index
+    private final float[] g2 = new float[TABLE_SIZE * 2];
+    private final float[] g3 = new float[TABLE_SIZE * 3];
+
+    public PerlinNoise(long seed) {
+        this.seed = seed;
+        init(new Random(seed));
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    @Override
+    public float evaluate(float x) {
+        return noise1(x);
+    }
+
+    @Override
+    public float evaluate(float x, float y) {
+        return noise2(x, y);
+    }
+
+    @Override
+    public float evaluate(float x, float y, float z) {
+        return noise3(x, y, z);
+    }
+
+    /**
+     * Compute turbulence using Perlin noise.
+     *
+     * @param x       the x value
+     * @param y       the y value
+     * @param octaves number of octaves of turbulence
+     * @return turbulence value at (x,y)
+     */
+    public float turbulence2(float x, float y, float octaves) {
+        float t = 0.0f;
+
+        for (float f = 1.0f; f <= octaves; f *= 2) {
+            t += Math.abs(noise2(f * x, f * y)) / f;
+        }
+        return t;
+    }
+
+    /**
+     * Same as above but without abs, results in a smoother look
+     */
+    public float turbulence2B(float x, float y, float octaves) {
+        float t = 0.0f;
+
+        for (float f = 1.0f; f <= octaves; f *= 2) {
+            t += noise2(f * x, f * y) / f;
+        }
+        return t;
+    }
+
+    /**
+     * Compute turbulence using Perlin noise.
+     *
+     * @param x       the x value
+     * @param y       the y value
+     * @param octaves number of octaves of turbulence
+     * @return turbulence value at (x,y)
+     */
+    public float turbulence3(float x, float y, float z, float octaves) {
+        float t = 0.0f;
+
+        for (float f = 1.0f; f <= octaves; f *= 2) {
+            t += Math.abs(noise3(f * x, f * y, f * z)) / f;
+        }
+        return t;
+    }
+
+    /**
+     * A noise function with a "period" of 2 PI and values between -1 and 1
+     */
+    public float sinLikeNoise1(float x) {
+        return 2 * noise1(x / ImageMath.PI);
+    }
+
+    /**
+     * Compute 1-dimensional Perlin noise.
+     *
+     * @param x the x value
+     * @return noise value at x in the range -1..1
+     */
+    public float noise1(float x) {
+        float t = x + N;
+        int bx0 = ((int) t) & BM;
+        int bx1 = (bx0 + 1) & BM;
+        float rx0 = t - (int) t;
+        float rx1 = rx0 - 1.0f;
+
+        float sx = ImageMath.smoothStep01(rx0);
+
+        float u = rx0 * g1[p[bx0]];
+        float v = rx1 * g1[p[bx1]];
+        return 2.3f * lerp(sx, u, v);
+    }
+
+    /**
+     * Compute 2-dimensional Perlin noise.
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return noise value at (x,y) - a value between -1 and 1, but it can be a bit smaller like -1.0362637
+     */
+    public float noise2(float x, float y) {
+        float t = x + N;
+        int bx0 = ((int) t) & BM;
+        int bx1 = (bx0 + 1) & BM;
+        float rx0 = t - (int) t;
+        float rx1 = rx0 - 1.0f;
+
+        t = y + N;
+        int by0 = ((int) t) & BM;
+        int by1 = (by0 + 1) & BM;
+        float ry0 = t - (int) t;
+        float ry1 = ry0 - 1.0f;
+
+        int i = p[bx0];
+        int j = p[bx1];
+
+        int b00 = p[i + by0] << 1;
+        int b10 = p[j + by0] << 1;
+        int b01 = p[i + by1] << 1;
+        int b11 = p[j + by1] << 1;
+
+        float sx = ImageMath.smoothStep01(rx0);
+        float sy = ImageMath.smoothStep01(ry0);
+
+        float u = rx0 * g2[b00] + ry0 * g2[b00 + 1];
+        float v = rx1 * g2[b10] + ry0 * g2[b10 + 1];
+        float a = lerp(sx, u, v);
+
+        u = rx0 * g2[b01] + ry1 * g2[b01 + 1];
+        v = rx1 * g2[b11] + ry1 * g2[b11 + 1];
+        float b = lerp(sx, u, v);
+
+        return checkNaN(1.5f * lerp(sy, a, b), x, y);
+    }
+
+    /**
+     * Compute 3-dimensional Perlin noise.
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @param z the z coordinate
+     * @return noise value at (x,y,z)
+     */
+    public float noise3(float x, float y, float z) {
+        float t = x + N;
+        int bx0 = ((int) t) & BM;
+        int bx1 = (bx0 + 1) & BM;
+        float rx0 = t - (int) t;
+        float rx1 = rx0 - 1.0f;
+
+        t = y + N;
+        int by0 = ((int) t) & BM;
+        int by1 = (by0 + 1) & BM;
+        float ry0 = t - (int) t;
+        float ry1 = ry0 - 1.0f;
+
+        t = z + N;
+        int bz0 = ((int) t) & BM;
+        int bz1 = (bz0 + 1) & BM;
+        float rz0 = t - (int) t;
+        float rz1 = rz0 - 1.0f;
+
+        int i = p[bx0];
+        int j = p[bx1];
+
+        int b00 = p[i + by0];
+        int b10 = p[j + by0];
+        int b01 = p[i + by1];
+        int b11 = p[j + by1];
+
+        t = ImageMath.smoothStep01(rx0);
+        float sy = ImageMath.smoothStep01(ry0);
+        float sz = ImageMath.smoothStep01(rz0);
+
+        int q = (b00 + bz0) * 3;
+        float u = rx0 * g3[q] + ry0 * g3[q + 1] + rz0 * g3[q + 2];
+        q = (b10 + bz0) * 3;
+        float v = rx1 * g3[q] + ry0 * g3[q + 1] + rz0 * g3[q + 2];
+        float a = lerp(t, u, v);
+
+        q = (b01 + bz0) * 3;
+        u = rx0 * g3[q] + ry1 * g3[q + 1] + rz0 * g3[q + 2];
+        q = (b11 + bz0) * 3;
+        v = rx1 * g3[q] + ry1 * g3[q + 1] + rz0 * g3[q + 2];
+        float b = lerp(t, u, v);
+
+        float c = lerp(sy, a, b);
+
+        q = (b00 + bz1) * 3;
+        u = rx0 * g3[q] + ry0 * g3[q + 1] + rz1 * g3[q + 2];
+        q = (b10 + bz1) * 3;
+        v = rx1 * g3[q] + ry0 * g3[q + 1] + rz1 * g3[q + 2];
+        a = lerp(t, u, v);
+
+        q = (b01 + bz1) * 3;
+        u = rx0 * g3[q] + ry1 * g3[q + 1] + rz1 * g3[q + 2];
+        q = (b11 + bz1) * 3;
+        v = rx1 * g3[q] + ry1 * g3[q + 1] + rz1 * g3[q + 2];
+        b = lerp(t, u, v);
+
+        float d = lerp(sy, a, b);
+
+        return 1.5f * lerp(sz, c, d);
+    }
+
+    /**
+     * Evaluates 2-dimensional noise along a line: out[i] will be
+     * the same as noise2(x0 + i * dx, y0 + i * dy).
+     */
+    public void noise2Line(float x0, float y0, float dx, float dy,
+                           float[] out, int length) {
+        fractal2Line(x0, y0, dx, dy, 1.0f, false, false, out, length);
+    }
+
+    /**
+     * Evaluates turbulence along a line: out[i] will be the same as
+     * turbulence2(x0 + i * dx, y0 + i * dy, octaves) if abs is true,
+     * and the same as turbulence2B(...) otherwise.
+     */
+    public void turbulence2Line(float x0, float y0, float dx, float dy,
+                                float octaves, boolean abs,
+                                float[] out, int length) {
+        fractal2Line(x0, y0, dx, dy, octaves, abs, true, out, length);
+    }
+
+    private void fractal2Line(float x0, float y0, float dx, float dy,
+                              float octaves, boolean abs, boolean scaled,
+                              float[] out, int length) {
+        for (int k = 0; k < length; k++) {
+            out[k] = 0.0f;
+        }
+        for (float f = 1.0f; f <= octaves; f *= 2) {
+            if (dy == 0) {
+                addHorizontalOctave(x0, y0, dx, f, abs, out, length);
+            } else {
+                addLineOctave(x0, y0, dx, dy, f, abs, out, length);
+            }
+            if (!scaled) {
+                break; // a single octave was requested
+            }
+        }
+    }
+
+    /**
+     * Adds one octave of noise2 for a horizontal line to the output.
+     * The y-dependent part of the calculation is done only once,
+     * and the gradient products are reused within a lattice cell.
+     */
+    private void addHorizontalOctave(float x0, float y, float dx, float f,
+                                     boolean abs, float[] out, int length) {
+        float fy = f * y;
+        float t = fy + N;
+        int by0 = ((int) t) & BM;
+        int by1 = (by0 + 1) & BM;
+        float ry0 = t - (int) t;
+        float ry1 = ry0 - 1.0f;
+        float sy = ImageMath.smoothStep01(ry0);
+
+        int cell = -1;
+        // the gradients of the current cell, with the y components
+        // already multiplied by the relative y coordinates
+        float g00x = 0, g10x = 0, g01x = 0, g11x = 0;
+        float g00y = 0, g10y = 0, g01y = 0, g11y = 0;
+
+        for (int k = 0; k < length; k++) {
+            float fx = f * (x0 + k * dx);
+            t = fx + N;
+            int bx0 = ((int) t) & BM;
+            float rx0 = t - (int) t;
+            float rx1 = rx0 - 1.0f;
+
+            if (bx0 != cell) {
+                cell = bx0;
+                int i = p[bx0];
+                int j = p[(bx0 + 1) & BM];
+
+                int b00 = p[i + by0] << 1;
+                int b10 = p[j + by0] << 1;
+                int b01 = p[i + by1] << 1;
+                int b11 = p[j + by1] << 1;
+
+                g00x = g2[b00];
+                g00y = ry0 * g2[b00 + 1];
+                g10x = g2[b10];
+                g10y = ry0 * g2[b10 + 1];
+                g01x = g2[b01];
+                g01y = ry1 * g2[b01 + 1];
+                g11x = g2[b11];
+                g11y = ry1 * g2[b11 + 1];
+            }
+
+            float sx = ImageMath.smoothStep01(rx0);
+            float a = lerp(sx, rx0 * g00x + g00y, rx1 * g10x + g10y);
+            float b = lerp(sx, rx0 * g01x + g01y, rx1 * g11x + g11y);
+
+            float n = checkNaN(1.5f * lerp(sy, a, b), fx, fy);
+            out[k] += (abs ? Math.abs(n) : n) / f;
+        }
+    }
+
+    /**
+     * Adds one octave of noise2 for an arbitrary line to the output.
+     * The gradients are looked up only when the line enters a new lattice cell.
+     */
+    private void addLineOctave(float x0, float y0, float dx, float dy, float f,
+                               boolean abs, float[] out, int length) {
+        int cellX = -1;
+        int cellY = -1;
+        float g00x = 0, g10x = 0, g01x = 0, g11x = 0;
+        float g00y = 0, g10y = 0, g01y = 0, g11y = 0;
+
+        for (int k = 0; k < length; k++) {
+            float fx = f * (x0 + k * dx);
+            float fy = f * (y0 + k * dy);
+
+            float t = fx + N;
+            int bx0 = ((int) t) & BM;
+            float rx0 = t - (int) t;
+            float rx1 = rx0 - 1.0f;
+
+            t = fy + N;
+            int by0 = ((int) t) & BM;
+            float ry0 = t - (int) t;
+            float ry1 = ry0 - 1.0f;
+
+            if (bx0 != cellX || by0 != cellY) {
+                cellX = bx0;
+                cellY = by0;
+                int i = p[bx0];
+                int j = p[(bx0 + 1) & BM];
+                int by1 = (by0 + 1) & BM;
+
+                int b00 = p[i + by0] << 1;
+                int b10 = p[j + by0] << 1;
+                int b01 = p[i + by1] << 1;
+                int b11 = p[j + by1] << 1;
+
+                g00x = g2[b00];
+                g00y = g2[b00 + 1];
+                g10x = g2[b10];
+                g10y = g2[b10 + 1];
+                g01x = g2[b01];
+                g01y = g2[b01 + 1];
+                g11x = g2[b11];
+                g11y = g2[b11 + 1];
+            }
+
+            float sx = ImageMath.smoothStep01(rx0);
+            float sy = ImageMath.smoothStep01(ry0);
+            float a = lerp(sx, rx0 * g00x + ry0 * g00y, rx1 * g10x + ry0 * g10y);
+            float b = lerp(sx, rx0 * g01x + ry1 * g01y, rx1 * g11x + ry1 * g11y);
+
+            float n = checkNaN(1.5f * lerp(sy, a, b), fx, fy);
+            out[k] += (abs ? Math.abs(n) : n) / f;
+        }
+    }
+
+    /**
+     * Evaluates 3-dimensional noise along a line: out[i] will be the
+     * same as noise3(x0 + i * dx, y0 + i * dy, z0 + i * dz).
+     */
+    public void noise3Line(float x0, float y0, float z0,
+                           float dx, float dy, float dz,
+                           float[] out, int length) {
+        float[] xs = new float[length];
+        float[] ys = new float[length];
+        float[] zs = new float[length];
+        for (int k = 0; k < length; k++) {
+            xs[k] = x0 + k * dx;
+            ys[k] = y0 + k * dy;
+            zs[k] = z0 + k * dz;
+        }
+        noise3(xs, ys, zs, out, length);
+    }
+
+    /**
+     * Evaluates 3-dimensional noise at a sequence of points: out[i] will be
+     * the same as noise3(xs[i], ys[i], zs[i]). If the consecutive points
+     * are close to each other (for example along an image row, even with
+     * some jitter), the gradients are looked up only when a new lattice
+     * cell is entered.
+     */
+    public void noise3(float[] xs, float[] ys, float[] zs, float[] out, int length) {
+        int cellX = -1;
+        int cellY = -1;
+        int cellZ = -1;
+        // the gradient table indices of the corners of the current cell
+        int q000 = 0, q100 = 0, q010 = 0, q110 = 0;
+        int q001 = 0, q101 = 0, q011 = 0, q111 = 0;
+
+        for (int k = 0; k < length; k++) {
+            float t = xs[k] + N;
+            int bx0 = ((int) t) & BM;
+            float rx0 = t - (int) t;
+            float rx1 = rx0 - 1.0f;
+
+            t = ys[k] + N;
+            int by0 = ((int) t) & BM;
+            float ry0 = t - (int) t;
+            float ry1 = ry0 - 1.0f;
+
+            t = zs[k] + N;
+            int bz0 = ((int) t) & BM;
+            float rz0 = t - (int) t;
+            float rz1 = rz0 - 1.0f;
+
+            if (bx0 != cellX || by0 != cellY || bz0 != cellZ) {
+                cellX = bx0;
+                cellY = by0;
+                cellZ = bz0;
+                int bz1 = (bz0 + 1) & BM;
+                int by1 = (by0 + 1) & BM;
+                int i = p[bx0];
+                int j = p[(bx0 + 1) & BM];
+
+                int b00 = p[i + by0];
+                int b10 = p[j + by0];
+                int b01 = p[i + by1];
+                int b11 = p[j + by1];
+
+                q000 = (b00 + bz0) * 3;
+                q100 = (b10 + bz0) * 3;
+                q010 = (b01 + bz0) * 3;
+                q110 = (b11 + bz0) * 3;
+                q001 = (b00 + bz1) * 3;
+                q101 = (b10 + bz1) * 3;
+                q011 = (b01 + bz1) * 3;
+                q111 = (b11 + bz1) * 3;
+            }
+
+            t = ImageMath.smoothStep01(rx0);
+            float sy = ImageMath.smoothStep01(ry0);
+            float sz = ImageMath.smoothStep01(rz0);
+
+            float u = rx0 * g3[q000] + ry0 * g3[q000 + 1] + rz0 * g3[q000 + 2];
+            float v = rx1 * g3[q100] + ry0 * g3[q100 + 1] + rz0 * g3[q100 + 2];
+            float a = lerp(t, u, v);
+
+            u = rx0 * g3[q010] + ry1 * g3[q010 + 1] + rz0 * g3[q010 + 2];
+            v = rx1 * g3[q110] + ry1 * g3[q110 + 1] + rz0 * g3[q110 + 2];
+            float b = lerp(t, u, v);
+
+            float c = lerp(sy, a, b);
+
+            u = rx0 * g3[q001] + ry0 * g3[q001 + 1] + rz1 * g3[q001 + 2];
+            v = rx1 * g3[q101] + ry0 * g3[q101 + 1] + rz1 * g3[q101 + 2];
+            a = lerp(t, u, v);
+
+            u = rx0 * g3[q011] + ry1 * g3[q011 + 1] + rz1 * g3[q011 + 2];
+            v = rx1 * g3[q111] + ry1 * g3[q111 + 1] + rz1 * g3[q111 + 2];
+            b = lerp(t, u, v);
+
+            float d = lerp(sy, a, b);
+
+            out[k] = 1.5f * lerp(sz, c, d);
+        }
+    }
+
+    private static float checkNaN(float value, float x, float y) {
+        if (Float.isNaN(value)) {
+            // it seems that this is very rarely, but happening when rendering marble
+            System.out.printf("PerlinNoise::noise2: failed for x = %.5f, y = %.5f%n", x, y);
+            return 0.0f;
+        }
+        return value;
+    }
+
+    private static float lerp(float t, float a, float b) {
+        return a + t * (b - a);
+    }
+
+    private void init(Random random) {
+        float[] v2 = new float[2];
+        float[] v3 = new float[3];
+
+        for (int i = 0; i < B; i++) {
+            p[i] = i;
+
+            g1[i] = randomGradientComponent(random);
+
+            for (int j = 0; j < 2; j++) {
+                v2[j] = randomGradientComponent(random);
+            }
+            normalize(v2);
+            g2[2 * i] = v2[0];
+            g2[2 * i + 1] = v2[1];
+
+            for (int j = 0; j < 3; j++) {
+                v3[j] = randomGradientComponent(random);
+            }
+            normalize(v3);
+            g3[3 * i] = v3[0];
+            g3[3 * i + 1] = v3[1];
+            g3[3 * i + 2] = v3[2];
+        }
+
+        for (int i = B - 1; i >= 0; i--) {
+            int k = p[i];
+            int j = nextPositiveInt(random) % B;
+            p[i] = p[j];
+            p[j] = k;
+        }
+
+        for (int i = 0; i < B + 2; i++) {
+            p[B + i] = p[i];
+            g1[B + i] = g1[i];
+            System.arraycopy(g2, 2 * i, g2, 2 * (B + i), 2);
+            System.arraycopy(g3, 3 * i, g3, 3 * (B + i), 3);
+        }
+    }
+
+    private static float randomGradientComponent(Random random) {
+        return (float) ((nextPositiveInt(random) % (B + B)) - B) / B;
+    }
+
+    private static int nextPositiveInt(Random random) {
+        return random.nextInt() & 0x7fffffff;
+    }
+
+    private static void normalize(float[] v) {
+        float sum = 0;
+        for (float c : v) {
+            sum += c * c;
+        }
+        float s = (float) Math.sqrt(sum);
+        for (int i = 0; i < v.length; i++) {
+            v[i] = v[i] / s;
+        }
+    }
+}
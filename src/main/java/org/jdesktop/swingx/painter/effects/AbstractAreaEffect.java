@@ -208,7 +208,6 @@ public class AbstractAreaEffect implements AreaEffect {
     protected void paintBorderGlow(Graphics2D g2,
                                    Shape clipShape, int width, int height) {
 
-        int steps = getBrushSteps();
         boolean inside = isRenderInsideShape();
 
         g2.setPaint(getBrushColor());
@@ -231,27 +230,40 @@ public class AbstractAreaEffect implements AreaEffect {
             }
         }
 
-        // set the inside/outside mode
-        /*
-        if(inside) {
-            g2.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_ATOP, brushAlpha));
-        } else {
-            g2.setComposite(AlphaComposite.getInstance(AlphaComposite.DST_OVER, brushAlpha));
-        }*/
-        float brushAlpha = 1.0f / steps;
-        g2.setComposite(AlphaComposite.getInstance(AlphaComposite.DST_OVER, brushAlpha));
-
         // draw the effect
-        for (float i = 0; i < steps; i = i + 1f) {
-            float brushWidth = (float) (i * effectWidthDouble / steps);
-            g2.setStroke(new BasicStroke(brushWidth,
-                BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
-            g2.draw(clipShape);
-        }
+        DistanceGlow.paint(g2, clipShape, createGlowLUT(),
+            AlphaComposite.getInstance(AlphaComposite.DST_OVER));
         g2.translate(-offset.getX(), -offset.getY());
 
     }
 
+    /**
+     * Returns the colors of the glow as a function of the distance from
+     * the outline. The falloff is the same as if the outline was stroked
+     * brushSteps times with increasing widths (up to the effect width)
+     * and an alpha of 1/brushSteps, as it was done in earlier versions.
+     */
+    protected int[] createGlowLUT() {
+        // a stroke extends to half of its width on both sides
+        double reach = effectWidthDouble / 2;
+        if (reach <= 0) {
+            return new int[0];
+        }
+        int steps = Math.max(1, getBrushSteps());
+        double strokeAlpha = brushColor.getAlpha() / 255.0 / steps;
+        int rgb = brushColor.getRGB() & 0x00_FF_FF_FF;
+
+        int[] lut = new int[(int) Math.ceil(reach * DistanceGlow.LUT_RESOLUTION)];
+        for (int i = 0; i < lut.length; i++) {
+            double dist = i / (double) DistanceGlow.LUT_RESOLUTION;
+            // the number of strokes that reach this distance
+            double numStrokes = steps * (1 - dist / reach);
+            double alpha = 1 - Math.pow(1 - strokeAlpha, numStrokes);
+            lut[i] = (int) (alpha * 255 + 0.5) << 24 | rgb;
+        }
+        return lut;
+    }
+
     /**
      * Holds value of property brushColor.
      */
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2021 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jdesktop.swingx.painter.effects;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+
+import static java.awt.RenderingHints.KEY_ANTIALIASING;
+import static java.awt.RenderingHints.VALUE_ANTIALIAS_ON;
+import static pixelitor.utils.DistanceTransform.INF;
+import static pixelitor.utils.DistanceTransform.calcSquaredDistances;
+
+/**
+ * Paints glow-like effects based on the Euclidean distance
+ * from the outline of a shape. The shape is rasterized into a mask,
+ * the distances are calculated with a linear-time distance transform,
+ * and the colors are looked up in a table indexed by the distance.
+ * The cost doesn't depend on the width of the effect.
+ */
+class DistanceGlow {
+    // the number of lookup table entries per pixel of distance
+    static final int LUT_RESOLUTION = 8;
+
+    private DistanceGlow() {
+        // do not instantiate
+    }
+
+    /**
+     * Paints the effect around the outline of the given shape.
+     *
+     * @param lut       the ARGB colors as a function of the distance
+     *                  from the outline, see {@link #LUT_RESOLUTION}
+     * @param composite the composite used for drawing the effect
+     */
+    static void paint(Graphics2D g, Shape shape, int[] lut, Composite composite) {
+        AffineTransform at = g.getTransform();
+        // the lookup table is in user space, the distances in device space
+        double scale = Math.sqrt(Math.abs(at.getDeterminant()));
+        if (scale == 0 || lut.length == 0) {
+            return;
+        }
+        double reach = lut.length / (double) LUT_RESOLUTION;
+        int margin = (int) Math.ceil(reach * scale) + 2;
+
+        Shape devShape = at.createTransformedShape(shape);
+        Rectangle bounds = devShape.getBounds();
+        bounds.grow(margin, margin);
+        bounds = limitToTarget(g, bounds);
+        if (bounds.isEmpty()) {
+            return;
+        }
+
+        int width = bounds.width;
+        int height = bounds.height;
+        int[] coverage = rasterize(devShape, bounds);
+
+        int numPixels = width * height;
+        float[] outside = new float[numPixels];
+        float[] inside = new float[numPixels];
+        for (int i = 0; i < numPixels; i++) {
+            boolean in = coverage[i] >= 128;
+            outside[i] = in ? 0 : INF; // the distance from the inside
+            inside[i] = in ? INF : 0; // the distance from the outside
+        }
+        calcSquaredDistances(outside, width, height);
+        calcSquaredDistances(inside, width, height);
+
+        BufferedImage glow = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        int[] glowPixels = ((DataBufferInt) glow.getRaster().getDataBuffer()).getData();
+        double lutScale = LUT_RESOLUTION / scale;
+        int lastIndex = lut.length - 1;
+        for (int i = 0; i < numPixels; i++) {
+            int a = coverage[i];
+            double dist;
+            if (a > 0 && a < 255) {
+                // the outline goes through this pixel
+                dist = Math.abs(a - 127.5) / 255.0;
+            } else {
+                float sqDist = a == 0 ? outside[i] : inside[i];
+                dist = Math.sqrt(sqDist) - 0.5;
+            }
+            int index = (int) (dist * lutScale + 0.5);
+            if (index <= lastIndex) {
+                glowPixels[i] = lut[Math.max(0, index)];
+            }
+        }
+
+        Composite origComposite = g.getComposite();
+        g.setTransform(new AffineTransform());
+        g.setComposite(composite);
+        g.drawImage(glow, bounds.x, bounds.y, null);
+        g.setTransform(at);
+        g.setComposite(origComposite);
+    }
+
+    private static Rectangle limitToTarget(Graphics2D g, Rectangle bounds) {
+        Shape clip = g.getClip();
+        if (clip != null) {
+            Rectangle devClip = g.getTransform()
+                .createTransformedShape(clip).getBounds();
+            bounds = bounds.intersection(devClip);
+        }
+        GraphicsConfiguration gc = g.getDeviceConfiguration();
+        if (gc.getDevice().getType() == GraphicsDevice.TYPE_IMAGE_BUFFER) {
+            bounds = bounds.intersection(gc.getBounds());
+        }
+        return bounds;
+    }
+
+    /**
+     * Returns the antialiased coverage of the
+     * given shape (0-255) within the given bounds.
+     */
+    private static int[] rasterize(Shape devShape, Rectangle bounds) {
+        var mask = new BufferedImage(bounds.width, bounds.height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D mg = mask.createGraphics();
+        mg.setRenderingHint(KEY_ANTIALIASING, VALUE_ANTIALIAS_ON);
+        mg.translate(-bounds.x, -bounds.y);
+        mg.setColor(Color.WHITE);
+        mg.fill(devShape);
+        mg.dispose();
+
+        int[] pixels = ((DataBufferInt) mask.getRaster().getDataBuffer()).getData();
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = pixels[i] >>> 24;
+        }
+        return pixels;
+    }
+}
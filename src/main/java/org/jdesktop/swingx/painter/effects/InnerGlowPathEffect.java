@@ -120,22 +120,11 @@ public class InnerGlowPathEffect extends AbstractAreaEffect {
         g.setComposite(savedComposite);
     }
 
-    // copied from superclass in order to simplify
+    // simplified version of the superclass method: no offset and no fill
     @Override
     protected void paintBorderGlow(Graphics2D g2,
                                    Shape clipShape, int width, int height) {
-        g2.setPaint(getBrushColor());
-
-        int steps = getBrushSteps();
-        float brushAlpha = 1.0f / steps;
-        g2.setComposite(AlphaComposite.getInstance(AlphaComposite.DST_OVER, brushAlpha));
-
-        // draw the effect
-        for (float i = 0; i < steps; i = i + 1.0f) {
-            float brushWidth = (float) (i * effectWidthDouble / steps);
-            g2.setStroke(new BasicStroke(brushWidth,
-                    BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
-            g2.draw(clipShape);
-        }
+        DistanceGlow.paint(g2, clipShape, createGlowLUT(),
+            AlphaComposite.getInstance(AlphaComposite.DST_OVER));
     }
 }
@@ -92,34 +92,69 @@ public class NeonBorderEffect extends AbstractAreaEffect {
        }
         */
         gfx.translate(getOffset().getX(), getOffset().getY());
-        gfx.setComposite(AlphaComposite.SrcOver);
         int steps = getEffectWidthInt();
         if (borderPosition == BorderPosition.Centered) {
             steps = steps / 2;
         }
-        for (int i = 0; i < steps; i++) {
-            // make the brush width smaller each time until there is nothing left
-            float brushWidth = steps + 1 - i;
-            float half = steps / 2.0f;
+        DistanceGlow.paint(gfx, clipShape, createNeonLUT(steps), AlphaComposite.SrcOver);
+        gfx.translate(-getOffset().getX(), -getOffset().getY());
 
+    }
+
+    /**
+     * Returns the colors as a function of the distance from the outline.
+     * The result is the same as stroking the outline with the given
+     * number of antialiased strokes, each narrower than the previous one,
+     * and with the color changing between the edge and center colors.
+     */
+    private int[] createNeonLUT(int steps) {
+        if (steps <= 0) {
+            return new int[0];
+        }
+        float[][] strokeColors = new float[steps][];
+        float half = steps / 2.0f;
+        for (int i = 0; i < steps; i++) {
+            Color color;
             if (borderPosition == BorderPosition.Centered) {
-                gfx.setPaint(interpolateColor((float) (steps - i) / steps, getEdgeColor(), getCenterColor()));
+                color = interpolateColor((float) (steps - i) / steps, getEdgeColor(), getCenterColor());
+            } else if (i < half) {
+                color = interpolateColor((half - i) / half, getEdgeColor(), getCenterColor());
             } else {
-                if (i < half) {
-                    gfx.setPaint(interpolateColor((half - i) / half, getEdgeColor(), getCenterColor()));
-                } else {
-                    gfx.setPaint(interpolateColor((i - half) / half, getEdgeColor(), getCenterColor()));
-                }
+                color = interpolateColor((i - half) / half, getEdgeColor(), getCenterColor());
             }
+            strokeColors[i] = color.getRGBComponents(null);
+        }
 
-            // to make the effect softer use a different stroke
-            gfx.setStroke(new BasicStroke(brushWidth,
-                    BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
-            //gfx.setStroke(new BasicStroke(brushWidth));
-            gfx.draw(clipShape);
+        // the widest stroke has a width of steps + 1
+        double reach = (steps + 1) / 2.0 + 0.5;
+        int[] lut = new int[(int) Math.ceil(reach * DistanceGlow.LUT_RESOLUTION)];
+        for (int j = 0; j < lut.length; j++) {
+            double dist = j / (double) DistanceGlow.LUT_RESOLUTION;
+
+            // composite the strokes with premultiplied components
+            double r = 0, g = 0, b = 0, a = 0;
+            for (int i = 0; i < steps; i++) {
+                double halfWidth = (steps + 1 - i) / 2.0;
+                double coverage = Math.min(1.0, halfWidth - dist + 0.5);
+                if (coverage <= 0) {
+                    break; // the next strokes are even narrower
+                }
+                float[] c = strokeColors[i];
+                double srcAlpha = c[3] * coverage;
+                r = c[0] * srcAlpha + r * (1 - srcAlpha);
+                g = c[1] * srcAlpha + g * (1 - srcAlpha);
+                b = c[2] * srcAlpha + b * (1 - srcAlpha);
+                a = srcAlpha + a * (1 - srcAlpha);
+            }
+            if (a > 0) {
+                lut[j] = toInt(a) << 24 | toInt(r / a) << 16 | toInt(g / a) << 8 | toInt(b / a);
+            }
         }
-        gfx.translate(-getOffset().getX(), -getOffset().getY());
+        return lut;
+    }
 
+    private static int toInt(double component) {
+        return (int) (Math.min(1.0, component) * 255 + 0.5);
     }
 
     private static Color interpolateColor(float t, Color start, Color end) {
@@ -8,6 +8,7 @@
 package pd;
 
 import net.jafama.FastMath;
+import pixelitor.utils.BufferPool;
 import pixelitor.utils.ProgressTracker;
 import pixelitor.utils.StatusBarProgressTracker;
 
@@ -299,21 +300,44 @@ public class CannyEdgeDetector {
         pt.unitDone();
 
         writeEdges(data);
+        releaseArrays();
         pt.finished();
     }
 
     // private utility methods
 
     private void initArrays() {
-        if (data == null || picsize != data.length) {
-            data = new int[picsize];
-            magnitude = new int[picsize];
-
-            xConv = new float[picsize];
-            yConv = new float[picsize];
-            xGradient = new float[picsize];
-            yGradient = new float[picsize];
-        }
+        data = BufferPool.leaseInts(picsize);
+        magnitude = BufferPool.leaseInts(picsize);
+
+        xConv = BufferPool.leaseFloats(picsize);
+        yConv = BufferPool.leaseFloats(picsize);
+        xGradient = BufferPool.leaseFloats(picsize);
+        yGradient = BufferPool.leaseFloats(picsize);
+
+        // the pooled arrays can contain old values,
+        // but the borders are not written by every step
+        Arrays.fill(magnitude, 0);
+        Arrays.fill(xConv, 0);
+        Arrays.fill(yConv, 0);
+        Arrays.fill(xGradient, 0);
+        Arrays.fill(yGradient, 0);
+    }
+
+    private void releaseArrays() {
+        BufferPool.release(data);
+        BufferPool.release(magnitude);
+        BufferPool.release(xConv);
+        BufferPool.release(yConv);
+        BufferPool.release(xGradient);
+        BufferPool.release(yGradient);
+
+        data = null;
+        magnitude = null;
+        xConv = null;
+        yConv = null;
+        xGradient = null;
+        yGradient = null;
     }
 
     //NOTE: The elements of the method below (specifically the technique for
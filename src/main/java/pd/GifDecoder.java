@@ -16,14 +16,14 @@
 
 package pd;
 
-import java.awt.Color;
-import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBufferInt;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.stream.IntStream;
 
 import static java.lang.System.arraycopy;
 
@@ -89,56 +89,92 @@ public final class GifDecoder {
         }
     }
 
-    static final class CodeTable {
-        private final int[][] tbl; // Maps codes to lists of colors
-        private int initTableSize; // Number of colors +2 for CLEAR + EOI
-        private int initCodeSize; // Initial code size
-        private int initCodeLimit; // First code limit
-        private int codeSize; // Current code size, maximum is 12 bits
-        private int nextCode; // Next available code for a new entry
-        private int nextCodeLimit; // Increase codeSize when nextCode == limit
-        private BitReader br; // Notify when code sizes increases
-
-        public CodeTable() {
-            tbl = new int[4096][1];
-        }
+    /**
+     * Decodes the LZW data of a frame into color indices. Each code is
+     * stored as the code of its prefix and its last color index, so that
+     * adding a code to the table doesn't allocate memory.
+     */
+    private static final class LzwDecoder {
+        private static final int MAX_CODES = 4096;
+        private final short[] prefix = new short[MAX_CODES]; // Code of the string without its last index
+        private final byte[] suffix = new byte[MAX_CODES]; // Last color index of the string
+        private final byte[] first = new byte[MAX_CODES]; // First color index of the string
+        private final byte[] stack = new byte[MAX_CODES + 1]; // A string in reverse order
+        private final BitReader br = new BitReader();
 
-        private int add(int[] indices) {
-            if (nextCode < 4096) {
-                if (nextCode == nextCodeLimit && codeSize < 12) {
-                    codeSize++; // Max code size is 12
-                    br.setNumBits(codeSize);
-                    nextCodeLimit = (1 << codeSize) - 1; // 2^codeSize - 1
-                }
-                tbl[nextCode++] = indices;
+        /**
+         * Fills the given array with the color indices of the frame, and
+         * returns the number of decoded indices, which is less than the
+         * number of pixels for truncated or corrupt data. The rest of the
+         * array is left unchanged.
+         */
+        private int decode(GifFrame fr, byte[] out, int wh) {
+            int clearCode = fr.clearCode, endCode = fr.endOfInfoCode;
+            for (int c = 0; c < clearCode; c++) {
+                suffix[c] = (byte) c;
+                first[c] = (byte) c;
             }
-            return codeSize;
-        }
-
-        private int clear() {
-            codeSize = initCodeSize;
+            br.init(fr.data);
+            int codeSize = fr.firstCodeSize;
             br.setNumBits(codeSize);
-            nextCodeLimit = initCodeLimit;
-            nextCode = initTableSize; // Don't recreate table, reset pointer
-            return codeSize;
-        }
-
-        private void init(GifFrame fr, int[] activeColTbl, BitReader br) {
-            this.br = br;
-            int numColors = activeColTbl.length;
-            initCodeSize = fr.firstCodeSize;
-            initCodeLimit = (1 << initCodeSize) - 1; // 2^initCodeSize - 1
-            initTableSize = fr.endOfInfoCode + 1;
-            nextCode = initTableSize;
-            for (int c = numColors - 1; c >= 0; c--) {
-                tbl[c][0] = activeColTbl[c]; // Translated color
-            } // A gap may follow with no colors assigned if numCols < CLEAR
-            tbl[fr.clearCode] = new int[]{fr.clearCode}; // CLEAR
-            tbl[fr.endOfInfoCode] = new int[]{fr.endOfInfoCode}; // EOI
-            // Locate transparent color in code table and set to 0
-            if (fr.transpColFlag && fr.transpColIndex < numColors) {
-                tbl[fr.transpColIndex][0] = 0;
+            int nextCode = endCode + 1;
+            int prevCode = -1; // No previous code after a CLEAR
+            int outPos = 0;
+            try {
+                while (outPos < wh) {
+                    int code = br.read();
+                    if (code == clearCode) {
+                        codeSize = fr.firstCodeSize;
+                        br.setNumBits(codeSize);
+                        nextCode = endCode + 1;
+                        prevCode = -1;
+                        continue;
+                    } else if (code == endCode) {
+                        break;
+                    }
+                    if (prevCode == -1) {
+                        if (code > endCode) {
+                            break; // Corrupt data
+                        }
+                        out[outPos++] = (byte) code;
+                        prevCode = code;
+                        continue;
+                    }
+                    int inCode = code;
+                    int sp = 0;
+                    if (code >= nextCode) {
+                        if (code > nextCode) {
+                            break; // Corrupt data
+                        }
+                        // The string of the previous code + its first index
+                        stack[sp++] = first[prevCode];
+                        code = prevCode;
+                    }
+                    while (code > endCode) {
+                        stack[sp++] = suffix[code];
+                        code = prefix[code];
+                    }
+                    byte firstIndex = suffix[code];
+                    stack[sp++] = firstIndex;
+                    while (sp > 0 && outPos < wh) {
+                        out[outPos++] = stack[--sp];
+                    }
+                    if (nextCode < MAX_CODES) {
+                        prefix[nextCode] = (short) prevCode;
+                        suffix[nextCode] = firstIndex;
+                        first[nextCode] = first[prevCode];
+                        nextCode++;
+                        if (nextCode == 1 << codeSize && codeSize < 12) {
+                            codeSize++; // Max code size is 12
+                            br.setNumBits(codeSize);
+                        }
+                    }
+                    prevCode = inCode;
+                }
+            } catch (ArrayIndexOutOfBoundsException e) {
+                // Truncated data, use what was decoded so far
             }
+            return outPos;
         }
     }
 
@@ -166,7 +202,6 @@ public final class GifDecoder {
         private int clearCode;
         private int endOfInfoCode;
         private byte[] data; // Holds LZW encoded data
-        private BufferedImage img; // Full drawn image, not just the frame area
     }
 
     public static final class GifImage {
@@ -185,127 +220,121 @@ public final class GifDecoder {
         public String appId = ""; // 8 Bytes at in[i+3], usually "NETSCAPE"
         public String appAuthCode = ""; // 3 Bytes at in[i+11], usually "2.0"
         public int repetitions = 0; // 0: infinite loop, N: number of loops
-        private BufferedImage img = null; // Currently drawn frame
-        private int[] prevPx = null; // Previous frame's pixels
-        private final BitReader bits = new BitReader();
-        private final CodeTable codes = new CodeTable();
-        private Graphics2D g;
-
-        private int[] decode(GifFrame fr, int[] activeColTbl) {
-            codes.init(fr, activeColTbl, bits);
-            bits.init(fr.data); // Incoming codes
-            int clearCode = fr.clearCode, endCode = fr.endOfInfoCode;
-            int[] out = new int[wh]; // Target image pixel array
-            int[][] tbl = codes.tbl; // Code table
-            int outPos = 0; // Next pixel position in the output image array
-            codes.clear(); // Init code table
-            bits.read(); // Skip leading clear code
-            int code = bits.read(); // Read first code
-            int[] pixels = tbl[code]; // Output pixel for first code
-            arraycopy(pixels, 0, out, outPos, pixels.length);
-            outPos += pixels.length;
-            try {
-                while (true) {
-                    int prevCode = code;
-                    code = bits.read(); // Get next code in stream
-                    if (code == clearCode) { // After a CLEAR table, there is
-                        codes.clear(); // no previous code, we need to read
-                        code = bits.read(); // a new one
-                        pixels = tbl[code]; // Output pixels
-                        arraycopy(pixels, 0, out, outPos, pixels.length);
-                        outPos += pixels.length;
-                        continue; // Back to the loop with a valid previous code
-                    } else if (code == endCode) {
-                        break;
-                    }
-                    int[] prevVals = tbl[prevCode];
-                    int[] prevValsAndK = new int[prevVals.length + 1];
-                    arraycopy(prevVals, 0, prevValsAndK, 0, prevVals.length);
-                    if (code < codes.nextCode) { // Code table contains code
-                        pixels = tbl[code]; // Output pixels
-                        arraycopy(pixels, 0, out, outPos, pixels.length);
-                        outPos += pixels.length;
-                        prevValsAndK[prevVals.length] = tbl[code][0]; // K
-                    } else {
-                        prevValsAndK[prevVals.length] = prevVals[0]; // K
-                        arraycopy(prevValsAndK, 0, out, outPos, prevValsAndK.length);
-                        outPos += prevValsAndK.length;
-                    }
-                    codes.add(prevValsAndK); // Previous indices + K
+        private int[] canvas; // The pixels of the last drawn frame, after its disposal
+        private int lastDrawn = -1; // Index of the last drawn frame
+        private int[] prevPx; // Reused copy of the canvas for "restore previous"
+        private byte[] indices; // Reused buffer for the color indices of a frame
+        private final LzwDecoder lzw = new LzwDecoder();
+
+        /**
+         * Draws the given frame on the canvas, and returns the canvas
+         * pixels before the disposal of the frame is applied.
+         */
+        private BufferedImage drawFrame(GifFrame fr) {
+            if (indices == null || indices.length < fr.wh) {
+                indices = new byte[fr.wh];
+            }
+            // The indices after the decoded ones are left over from
+            // a previous frame, therefore they must not be drawn
+            int numDecoded = lzw.decode(fr, indices, fr.wh);
+
+            if (fr.disposalMethod == 3) {
+                // Keep a copy of the canvas to restore it after this frame
+                if (prevPx == null) {
+                    prevPx = new int[wh];
                 }
-            } catch (ArrayIndexOutOfBoundsException e) {
+                arraycopy(canvas, 0, prevPx, 0, wh);
             }
-            return out;
-        }
+            composite(fr, createPalette(fr), numDecoded);
 
-        private static int[] deinterlace(int[] src, GifFrame fr) {
-            int w = fr.w, h = fr.h, wh = fr.wh;
-            int[] dest = new int[src.length];
-            // Interlaced images are organized in 4 sets of pixel lines
-            int set2Y = (h + 7) >>> 3; // Line no. = ceil(h/8.0)
-            int set3Y = set2Y + ((h + 3) >>> 3); // ceil(h-4/8.0)
-            int set4Y = set3Y + ((h + 1) >>> 2); // ceil(h-2/4.0)
-            // Sets' start indices in source array
-            int set2 = w * set2Y, set3 = w * set3Y, set4 = w * set4Y;
-            // Line skips in destination array
-            int w2 = w << 1, w4 = w2 << 1, w8 = w4 << 1;
-            // Group 1 contains every 8th line starting from 0
-            int from = 0, to = 0;
-            for (; from < set2; from += w, to += w8) {
-                arraycopy(src, from, dest, to, w);
-            } // Group 2 contains every 8th line starting from 4
-            for (to = w4; from < set3; from += w, to += w8) {
-                arraycopy(src, from, dest, to, w);
-            } // Group 3 contains every 4th line starting from 2
-            for (to = w2; from < set4; from += w, to += w4) {
-                arraycopy(src, from, dest, to, w);
-            } // Group 4 contains every 2nd line starting from 1 (biggest group)
-            for (to = w; from < wh; from += w, to += w2) {
-                arraycopy(src, from, dest, to, w);
+            // Create a copy for the end user to not expose internal state
+            BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+            arraycopy(canvas, 0, ((DataBufferInt) img.getRaster().getDataBuffer()).getData(), 0, wh);
+
+            // Handle disposal of current frame
+            if (fr.disposalMethod == 2) {
+                // Restore to background color (clear frame area only)
+                int minX = Math.max(fr.x, 0), maxX = Math.min(fr.x + fr.w, w);
+                int minY = Math.max(fr.y, 0), maxY = Math.min(fr.y + fr.h, h);
+                for (int y = minY; y < maxY && minX < maxX; y++) {
+                    Arrays.fill(canvas, y * w + minX, y * w + maxX, 0);
+                }
+            } else if (fr.disposalMethod == 3) {
+                // Restore previous frame
+                arraycopy(prevPx, 0, canvas, 0, wh);
             }
-            return dest; // All pixel lines have now been rearranged
+            return img;
         }
 
-        private void drawFrame(GifFrame fr) {
+        /**
+         * Returns the colors of all 256 possible indices, with 0 for
+         * the transparent index and for the indices outside the color table.
+         */
+        private int[] createPalette(GifFrame fr) {
             // Determine the color table that will be active for this frame
             int[] activeColTbl = fr.hasLocColTbl ? fr.localColTbl : globalColTbl;
-            // Get pixels from data stream
-            int[] pixels = decode(fr, activeColTbl);
-            if (fr.interlaceFlag) {
-                pixels = deinterlace(pixels, fr); // Rearrange pixel lines
+            int[] palette = new int[256];
+            if (activeColTbl != null) {
+                arraycopy(activeColTbl, 0, palette, 0, Math.min(256, activeColTbl.length));
             }
-            // Create image of type 2=ARGB for frame area
-            BufferedImage frame = new BufferedImage(fr.w, fr.h, 2);
-            arraycopy(pixels, 0, ((DataBufferInt) frame.getRaster().getDataBuffer()).getData(), 0, fr.wh);
-            // Draw frame area on top of working image
-            g.drawImage(frame, fr.x, fr.y, null);
-
-            // Visualize frame boundaries during testing
-            // if (DEBUG_MODE) {
-            // if (prev != null) {
-            // g.setColor(Color.RED); // Previous frame color
-            // g.drawRect(prev.x, prev.y, prev.w - 1, prev.h - 1);
-            // }
-            // g.setColor(Color.GREEN); // New frame color
-            // g.drawRect(fr.x, fr.y, fr.w - 1, fr.h - 1);
-            // }
-
-            // Keep one copy as "previous frame" in case we need to restore it
-            prevPx = new int[wh];
-            arraycopy(((DataBufferInt) img.getRaster().getDataBuffer()).getData(), 0, prevPx, 0, wh);
-
-            // Create another copy for the end user to not expose internal state
-            fr.img = new BufferedImage(w, h, 2); // 2 = ARGB
-            arraycopy(prevPx, 0, ((DataBufferInt) fr.img.getRaster().getDataBuffer()).getData(), 0, wh);
+            if (fr.transpColFlag) {
+                palette[fr.transpColIndex] = 0;
+            }
+            return palette;
+        }
 
-            // Handle disposal of current frame
-            if (fr.disposalMethod == 2) {
-                // Restore to background color (clear frame area only)
-                g.clearRect(fr.x, fr.y, fr.w, fr.h);
-            } else if (fr.disposalMethod == 3 && prevPx != null) {
-                // Restore previous frame
-                arraycopy(prevPx, 0, ((DataBufferInt) img.getRaster().getDataBuffer()).getData(), 0, wh);
+        /**
+         * Draws the given number of decoded color indices of the frame over the
+         * canvas. The rows are independent, so large frames are processed in parallel.
+         */
+        private void composite(GifFrame fr, int[] palette, int numDecoded) {
+            int[] destRows = fr.interlaceFlag ? interlacedRows(fr.h) : null;
+            int minX = Math.max(fr.x, 0), maxX = Math.min(fr.x + fr.w, w);
+            if (minX >= maxX) {
+                return;
+            }
+            IntStream rows = IntStream.range(0, fr.h);
+            if (fr.wh >= PARALLEL_PIXELS) {
+                rows = rows.parallel();
             }
+            rows.forEach(row -> {
+                int y = fr.y + (destRows == null ? row : destRows[row]);
+                if (y < 0 || y >= h) {
+                    return;
+                }
+                int src = row * fr.w + minX - fr.x;
+                int dest = y * w;
+                int endX = Math.min(maxX, minX + numDecoded - src);
+                for (int x = minX; x < endX; x++) {
+                    int color = palette[indices[src++] & 0xFF];
+                    if (color != 0) { // The table colors are opaque
+                        canvas[dest + x] = color;
+                    }
+                }
+            });
+        }
+
+        /**
+         * Interlaced images are organized in 4 sets of pixel lines.
+         * Returns the destination line of each decoded line.
+         */
+        private static int[] interlacedRows(int h) {
+            int[] rows = new int[h];
+            int i = 0;
+            // Group 1 contains every 8th line starting from 0
+            for (int y = 0; y < h; y += 8) {
+                rows[i++] = y;
+            } // Group 2 contains every 8th line starting from 4
+            for (int y = 4; y < h; y += 8) {
+                rows[i++] = y;
+            } // Group 3 contains every 4th line starting from 2
+            for (int y = 2; y < h; y += 4) {
+                rows[i++] = y;
+            } // Group 4 contains every 2nd line starting from 1 (biggest group)
+            for (int y = 1; y < h; y += 2) {
+                rows[i++] = y;
+            }
+            return rows;
         }
 
         /**
@@ -342,30 +371,24 @@ public final class GifDecoder {
          * @param index Index of the frame to return as image, starting from 0.
          *              For incremental calls such as [0, 1, 2, ...] the method's
          *              run time is O(1) as only one frame is drawn per call. For
-         *              random access calls such as [7, 12, ...] the run time is
-         *              O(N+1) with N being the number of previous frames that
-         *              need to be drawn before N+1 can be drawn on top. Once a
-         *              frame has been drawn it is being cached and the run time
-         *              is more or less O(0) to retrieve it from the list.
-         * @return A BufferedImage for the specified frame.
+         *              other calls such as [7, 12, 3, ...] the run time is O(N+1)
+         *              with N being the number of previous frames that need to be
+         *              drawn before N+1 can be drawn on top. The frames are not
+         *              cached, so the memory use doesn't depend on the number
+         *              of frames.
+         * @return A new BufferedImage for the specified frame.
          */
         public final BufferedImage getFrame(int index) {
-            if (img == null) { // Init
-                img = new BufferedImage(w, h, 2); // 2 = ARGB
-                g = img.createGraphics();
-                g.setBackground(new Color(0, true)); // Transparent color
+            if (canvas == null || index <= lastDrawn) {
+                // Start drawing from the first frame
+                canvas = new int[wh];
+                lastDrawn = -1;
             }
-            GifFrame fr = frames.get(index);
-            if (fr.img == null) {
-                // Draw all frames until and including the requested frame
-                for (int i = 0; i <= index; i++) {
-                    fr = frames.get(i);
-                    if (fr.img == null) {
-                        drawFrame(fr);
-                    }
-                }
+            BufferedImage img = null;
+            while (lastDrawn < index) {
+                img = drawFrame(frames.get(++lastDrawn));
             }
-            return fr.img;
+            return img;
         }
 
         /**
@@ -390,7 +413,8 @@ public final class GifDecoder {
         }
     }
 
-    static final boolean DEBUG_MODE = false;
+    // Frames with at least this many pixels are drawn in parallel
+    private static final int PARALLEL_PIXELS = 1 << 16;
 
     /**
      * @param in Raw image data as a byte[] array
@@ -477,9 +501,7 @@ public final class GifDecoder {
      *                     specification or the GIF is truncated.
      */
     public static GifImage read(InputStream is) throws IOException {
-        byte[] data = new byte[is.available()];
-        is.read(data, 0, data.length);
-        return read(data);
+        return read(is.readAllBytes());
     }
 
     /**
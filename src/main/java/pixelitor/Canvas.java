@@ -18,13 +18,14 @@
 package pixelitor;
 
 import pixelitor.gui.View;
+import pixelitor.selection.SelectionMask;
+import pixelitor.selection.ShapeCombination;
 import pixelitor.tools.Symmetry;
 import pixelitor.utils.ImageUtils;
 
 import java.awt.Dimension;
 import java.awt.Rectangle;
 import java.awt.Shape;
-import java.awt.geom.Area;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.io.Serial;
@@ -157,10 +158,7 @@ public class Canvas implements Serializable {
     }
 
     public Shape invertShape(Shape shape) {
-        Area area = new Area(shape);
-        Area fullArea = new Area(getBounds());
-        fullArea.subtract(area);
-        return fullArea;
+        return ShapeCombination.SUBTRACT.combine(getBounds(), shape);
     }
 
     public Shape clip(Shape shape) {
@@ -175,11 +173,12 @@ public class Canvas implements Serializable {
             return ((Rectangle2D) shape).createIntersection(canvasBounds);
         }
 
-        Area canvasArea = new Area(canvasBounds);
-        Area shapeArea = new Area(shape);
-        shapeArea.intersect(canvasArea);
+        if (SelectionMask.isComplex(shape) && canvasBounds.contains(shape.getBounds2D())) {
+            // avoid recalculating a complex shape that is already inside
+            return shape;
+        }
 
-        return shapeArea;
+        return ShapeCombination.INTERSECT.combine(shape, canvasBounds);
     }
 
     /**
@@ -40,8 +40,10 @@ import pixelitor.tools.pen.Paths;
 import pixelitor.tools.util.PPoint;
 import pixelitor.tools.util.PRectangle;
 import pixelitor.utils.ImageUtils;
+import pixelitor.utils.MemoryManager;
 import pixelitor.utils.Messages;
 import pixelitor.utils.VisibleForTesting;
+import pixelitor.utils.perf.Probe;
 
 import javax.swing.*;
 import java.awt.*;
@@ -92,6 +94,10 @@ public class Composition implements Serializable {
 
     private transient BufferedImage compositeImage;
 
+    // a composite image at the resolution of the preview proxy
+    // of the active layer, see ImageLayer.changePreviewProxy
+    private transient BufferedImage proxyCompositeImage;
+
     private transient View view;
 
     private transient Selection selection;
@@ -198,6 +204,7 @@ public class Composition implements Serializable {
     private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
         // init transient variables
         compositeImage = null; // will be set when needed
+        proxyCompositeImage = null;
         file = null; // will be set later
         dirty = false;
         view = null; // will be set later
@@ -335,8 +342,10 @@ public class Composition implements Serializable {
     }
 
     public void addNewLayerFromComposite() {
+        // the cached composite image might be shared with the
+        // clipboard, and the layer images are modified in place
         var newLayer = new ImageLayer(this,
-            getCompositeImage(), "Composite");
+            ImageUtils.copyImage(getCompositeImage()), "Composite");
 
         new LayerAdder(this)
             .withHistory("New Layer from Visible")
@@ -365,7 +374,9 @@ public class Composition implements Serializable {
         }
 
         int numLayers = getNumLayers();
-        BufferedImage bi = getCompositeImage();
+        // copied, because the cached composite image
+        // might be shared with the clipboard
+        BufferedImage bi = ImageUtils.copyImage(getCompositeImage());
 
         Layer flattened = new ImageLayer(this, bi, "flattened");
         new LayerAdder(this)
@@ -788,6 +799,17 @@ public class Composition implements Serializable {
     }
 
     public BufferedImage calculateCompositeImage() {
+        return calculateCompositeImage(1.0);
+    }
+
+    /**
+     * Calculates the composite image at the given scale.
+     * Scales smaller than 1.0 give an approximate result and
+     * are only used for painting interactive previews.
+     */
+    private BufferedImage calculateCompositeImage(double scale) {
+        long startTime = System.nanoTime();
+
         // TODO why is this not working
 //        if(layerList.size() == 1) {
 //            Layer firstLayer = layerList.get(0);
@@ -803,8 +825,15 @@ public class Composition implements Serializable {
 //        BufferedImage imageSoFar = ImageUtils.createCompatibleImage(getCanvasWidth(), getCanvasHeight());
 
         var imageSoFar = new BufferedImage(
-            canvas.getWidth(), canvas.getHeight(), TYPE_INT_ARGB_PRE);
+            (int) Math.ceil(canvas.getWidth() * scale),
+            (int) Math.ceil(canvas.getHeight() * scale),
+            TYPE_INT_ARGB_PRE);
         Graphics2D g = imageSoFar.createGraphics();
+        if (scale != 1.0) {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.scale(scale, scale);
+        }
 
         boolean firstVisibleLayer = true;
         for (Layer layer : layerList) {
@@ -823,6 +852,7 @@ public class Composition implements Serializable {
 
         g.dispose();
 
+        Probe.COMPOSITE_IMAGE.recordSince(startTime);
         return imageSoFar;
     }
 
@@ -831,7 +861,7 @@ public class Composition implements Serializable {
     }
 
     public void repaintRegion(PPoint start, PPoint end, double thickness) {
-        invalidateCompositeCache();
+        invalidateCompositeCache(calcImRegion(start, end, thickness));
         if (view != null) { // during reload image it can be null
             view.repaintRegion(start, end, thickness);
             view.repaintNavigator(false);
@@ -839,13 +869,26 @@ public class Composition implements Serializable {
     }
 
     public void repaintRegion(PRectangle area) {
-        invalidateCompositeCache();
+        invalidateCompositeCache(area.getIm().getBounds());
         if (view != null) { // during reload image it can be null
             view.repaintRegion(area);
             view.repaintNavigator(false);
         }
     }
 
+    private static Rectangle calcImRegion(PPoint start, PPoint end, double thickness) {
+        double minX = Math.min(start.getImX(), end.getImX()) - thickness;
+        double minY = Math.min(start.getImY(), end.getImY()) - thickness;
+        double maxX = Math.max(start.getImX(), end.getImX()) + thickness;
+        double maxY = Math.max(start.getImY(), end.getImY()) + thickness;
+
+        int x = (int) Math.floor(minX);
+        int y = (int) Math.floor(minY);
+        return new Rectangle(x, y,
+            (int) Math.ceil(maxX) - x + 1,
+            (int) Math.ceil(maxY) - y + 1);
+    }
+
     public void dispose() {
         if (selection != null) {
             // stop the timer thread
@@ -1144,6 +1187,98 @@ public class Composition implements Serializable {
         return compositeImage;
     }
 
+    /**
+     * Paints the composite image on the given Graphics2D, which
+     * is in image space. While the active layer shows a downscaled
+     * preview, the composite is calculated only at the resolution
+     * of the preview, so that dragging a filter control stays fast.
+     */
+    public void paintCompositeImage(Graphics2D g) {
+        double proxyScale = getProxyCompositeScale();
+        if (proxyScale == 1.0) {
+            g.drawImage(getCompositeImage(), 0, 0, null);
+            return;
+        }
+
+        if (proxyCompositeImage == null) {
+            proxyCompositeImage = calculateCompositeImage(proxyScale);
+        }
+        Graphics2D pg = (Graphics2D) g.create();
+        pg.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+            RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        pg.scale(1.0 / proxyScale, 1.0 / proxyScale);
+        pg.drawImage(proxyCompositeImage, 0, 0, null);
+        pg.dispose();
+    }
+
+    /**
+     * Returns the scale of the downscaled preview of the active layer,
+     * or 1.0 if the full-resolution composite image should be used.
+     */
+    private double getProxyCompositeScale() {
+        if (!(activeLayer instanceof ImageLayer)) {
+            return 1.0;
+        }
+        ImageLayer layer = (ImageLayer) activeLayer;
+        if (!layer.hasPreviewProxy() || !layer.isVisible()) {
+            return 1.0;
+        }
+        for (Layer l : layerList) {
+            if (l.isVisible() && l.isAdjustment()) {
+                // adjustments and their masks work only at full resolution
+                return 1.0;
+            }
+        }
+        return layer.getPreviewProxyScale();
+    }
+
+    /**
+     * Called when the downscaled preview of the active layer changed.
+     * Only the view is repainted, the full-resolution composite,
+     * the navigator and the histograms are updated when
+     * the full-quality preview arrives.
+     */
+    public void previewProxyChanged() {
+        proxyCompositeImage = null;
+        if (view != null) {
+            view.repaint();
+        }
+    }
+
+    /**
+     * Returns the approximate number of bytes used by the
+     * images of the layers and by the cached composite image.
+     */
+    public long getMemoryUsage() {
+        long sum = MemoryManager.getMemoryUsage(compositeImage)
+            + MemoryManager.getMemoryUsage(proxyCompositeImage);
+        for (Layer layer : layerList) {
+            if (layer instanceof ImageLayer) {
+                sum += ((ImageLayer) layer).getMemoryUsage();
+            }
+            if (layer.hasMask()) {
+                sum += layer.getMask().getMemoryUsage();
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Drops the cached composite image without repainting,
+     * and returns the number of freed bytes. The composite image
+     * will be recalculated when it's needed again.
+     */
+    public long releaseCompositeCache() {
+        long freed = MemoryManager.getMemoryUsage(compositeImage)
+            + MemoryManager.getMemoryUsage(proxyCompositeImage);
+        if (compositeImage != null) {
+            compositeImage.flush();
+            compositeImage = null;
+        }
+        proxyCompositeImage = null;
+        return freed;
+    }
+
     public void imageChanged() {
         imageChanged(FULL);
     }
@@ -1172,10 +1307,23 @@ public class Composition implements Serializable {
     }
 
     private void invalidateCompositeCache() {
+        invalidateCompositeCache(null);
+    }
+
+    /**
+     * Invalidates the cached composite image. The dirty region
+     * is in image space, null means that everything changed.
+     */
+    private void invalidateCompositeCache(Rectangle imDirty) {
         if (compositeImage != null) {
             compositeImage.flush();
         }
         compositeImage = null;
+        proxyCompositeImage = null;
+
+        if (view != null) {
+            view.compositeChanged(imDirty);
+        }
     }
 
     public boolean isActive() {
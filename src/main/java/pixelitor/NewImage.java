@@ -22,6 +22,7 @@ import pixelitor.filters.Fill;
 import pixelitor.gui.utils.*;
 import pixelitor.utils.AppPreferences;
 import pixelitor.utils.ImageUtils;
+import pixelitor.utils.MemoryManager;
 
 import javax.swing.*;
 import java.awt.Color;
@@ -156,17 +157,15 @@ public final class NewImage {
                             "<br>%dx%d would be %d pixels.",
                         Integer.MAX_VALUE, width, height, numPixels));
                 } else if (numPixels > 1_000_000) { // don't check for smaller images
-                    Runtime rt = Runtime.getRuntime();
-                    long allocatedMemory = rt.totalMemory() - rt.freeMemory();
-                    long availableMemory = rt.maxMemory() - allocatedMemory;
-                    if (numPixels * 4 > availableMemory) {
+                    if (!MemoryManager.ensureAvailable(numPixels * 4)) {
+                        long availableMemory = MemoryManager.getBudget() - MemoryManager.getTrackedUsage();
                         return retVal.addError(format(
                             "The image would not fit into memory." +
                                 "<br>An image of %dx%d pixels needs at least %d megabytes." +
                                 "<br>Available memory is at most %d megabytes.",
                             width, height,
                             numPixels * 4 / ONE_MEGABYTE,
-                            availableMemory / ONE_MEGABYTE));
+                            Math.max(0, availableMemory) / ONE_MEGABYTE));
                     }
                 }
             }
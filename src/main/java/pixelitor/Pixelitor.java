@@ -28,11 +28,14 @@ import pixelitor.gui.utils.Dialogs;
 import pixelitor.gui.utils.Themes;
 import pixelitor.io.IO;
 import pixelitor.io.IOTasks;
+import pixelitor.tools.gui.ToolSettingsPanelContainer;
 import pixelitor.tools.util.DragDisplay;
 import pixelitor.utils.AppPreferences;
 import pixelitor.utils.Language;
 import pixelitor.utils.Messages;
+import pixelitor.utils.StartupTimer;
 import pixelitor.utils.Utils;
+import pixelitor.utils.perf.Gauges;
 
 import java.awt.EventQueue;
 import java.awt.GraphicsEnvironment;
@@ -58,6 +61,8 @@ public class Pixelitor {
     }
 
     public static void main(String[] args) {
+        StartupTimer.start();
+
         // the app can be put into development mode by
         // adding -Dpixelitor.development=true to the command line
         if ("true".equals(System.getProperty("pixelitor.development"))) {
@@ -75,6 +80,7 @@ public class Pixelitor {
         }
 
         Language.load();
+        StartupTimer.phaseEnded("language");
 
         System.setProperty("com.apple.mrj.application.apple.menu.about.name", "Pixelitor");
 
@@ -91,6 +97,9 @@ public class Pixelitor {
 
         ExceptionHandler.INSTANCE.addHandler((t, e) -> Messages.showException(e, t));
 
+        // records the performance gauges if the app runs with a flight recording
+        Gauges.registerJFREvent();
+
         EventQueue.invokeLater(() -> {
             try {
                 createAndShowGUI(args);
@@ -116,9 +125,19 @@ public class Pixelitor {
 
         Themes.install(AppPreferences.getDefaultTheme(),
             false, true);
+        StartupTimer.phaseEnded("theme");
 
         var pw = PixelitorWindow.get();
         Dialogs.setMainWindowInitialized(true);
+        StartupTimer.phaseEnded("main window shown");
+
+        // the settings panels of the inactive tools are created
+        // after the window is shown, but before any other queued
+        // work on the EDT, such as adding the opened files
+        EventQueue.invokeLater(() -> {
+            ToolSettingsPanelContainer.get().initAllSettingsPanels();
+            StartupTimer.phaseEnded("tool settings");
+        });
 
         // Just to make 100% sure that at the end of GUI
         // initialization the focus is not grabbed by
@@ -135,11 +154,28 @@ public class Pixelitor {
         // and on the same IO thread
         openCLFilesAsync(args)
             .exceptionally(throwable -> null) // recover
-            .thenAcceptAsync(v -> afterStartTestActions(), onEDT)
+            .thenAcceptAsync(v -> startupFinished(), onEDT)
             .thenRunAsync(Utils::preloadFontNames, onIOThread)
+            .thenRunAsync(Pixelitor::exitIfTrainingRun, onEDT)
             .exceptionally(Messages::showExceptionOnEDT);
     }
 
+    private static void startupFinished() {
+        StartupTimer.startupFinished("files opened");
+        afterStartTestActions();
+    }
+
+    /**
+     * The training run for the class data sharing archive
+     * (see the appcds profile in pom.xml) exits without saving
+     * the preferences as soon as the startup is finished.
+     */
+    private static void exitIfTrainingRun() {
+        if (Boolean.getBoolean("pixelitor.exitAfterStartup")) {
+            System.exit(0);
+        }
+    }
+
     /**
      * Schedules the opening of the files given as command-line arguments
      */
@@ -27,6 +27,7 @@ import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
 
 /**
  * A thread pool for parallel execution on multiple CPU cores
@@ -117,4 +118,11 @@ public class ThreadPool {
     public static Executor getExecutor() {
         return executorService;
     }
+
+    /**
+     * Returns the number of tasks waiting for a free thread.
+     */
+    public static int getQueueSize() {
+        return ((ThreadPoolExecutor) executorService).getQueue().size();
+    }
 }
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2021 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.colors;
+
+/**
+ * Fast, allocation-free conversions of packed RGB colors to
+ * other color spaces, intended to be called for every pixel.
+ *
+ * The HSB components are fixed-point integers: the hue is in the
+ * [0, {@link #HUE_RANGE}) interval, the saturation in [0, {@link #ONE}]
+ * and the brightness in [0, {@link #MAX_BRIGHTNESS}]. Unlike with
+ * {@link java.awt.Color#RGBtoHSB}, converting a color to HSB and
+ * back gives the same color. For the luminance see
+ * {@link pixelitor.filters.lookup.LuminanceLookup}.
+ */
+public final class ColorSpaces {
+    /**
+     * The fixed-point representation of 1.0 for the saturation
+     * and for the hue within one of the six color sectors.
+     */
+    public static final int ONE = 1 << 16;
+
+    /**
+     * The hue of a full circle, in six sectors of {@link #ONE}.
+     */
+    public static final int HUE_RANGE = 6 * ONE;
+
+    /**
+     * The brightness of white: 255 with 8 fractional bits.
+     */
+    public static final int MAX_BRIGHTNESS = 255 << 8;
+
+    // 2^23 / i, so that the divisions by color
+    // differences can be replaced by multiplications
+    private static final int[] RECIPROCALS = new int[256];
+
+    // the linear values of the sRGB components
+    private static final float[] LINEAR = new float[256];
+
+    // the reference white (D65) of the Lab color space
+    private static final double WHITE_X = 0.95047;
+    private static final double WHITE_Z = 1.08883;
+
+    static {
+        for (int i = 1; i < 256; i++) {
+            RECIPROCALS[i] = (int) Math.round((double) (1 << 23) / i);
+        }
+        for (int i = 0; i < 256; i++) {
+            double v = i / 255.0;
+            LINEAR[i] = (float) (v <= 0.04045 ? v / 12.92 : Math.pow((v + 0.055) / 1.055, 2.4));
+        }
+    }
+
+    private ColorSpaces() {
+        // do not instantiate
+    }
+
+    /**
+     * Puts the fixed-point hue, saturation and brightness of
+     * the given color into the first three elements of the array.
+     */
+    public static void rgbToHsb(int rgb, int[] hsb) {
+        int r = (rgb >>> 16) & 0xFF;
+        int g = (rgb >>> 8) & 0xFF;
+        int b = rgb & 0xFF;
+
+        int max = Math.max(r, Math.max(g, b));
+        int min = Math.min(r, Math.min(g, b));
+        int delta = max - min;
+
+        hsb[0] = hue(r, g, b, max, delta);
+        hsb[1] = max == 0 ? 0 : Math.min(ONE, (delta * RECIPROCALS[max] + 64) >> 7);
+        hsb[2] = max << 8;
+    }
+
+    /**
+     * Returns the fixed-point hue of the given color.
+     */
+    public static int hue(int rgb) {
+        int r = (rgb >>> 16) & 0xFF;
+        int g = (rgb >>> 8) & 0xFF;
+        int b = rgb & 0xFF;
+
+        int max = Math.max(r, Math.max(g, b));
+        int min = Math.min(r, Math.min(g, b));
+        return hue(r, g, b, max, max - min);
+    }
+
+    private static int hue(int r, int g, int b, int max, int delta) {
+        if (delta == 0) {
+            return 0;
+        }
+        // the products fit into an int, because the
+        // absolute values of the differences are at most delta
+        int recip = RECIPROCALS[delta];
+        int hue;
+        if (r == max) {
+            hue = ((g - b) * recip + 64) >> 7;
+        } else if (g == max) {
+            hue = 2 * ONE + (((b - r) * recip + 64) >> 7);
+        } else {
+            hue = 4 * ONE + (((r - g) * recip + 64) >> 7);
+        }
+        if (hue < 0) {
+            hue += HUE_RANGE;
+        } else if (hue >= HUE_RANGE) {
+            hue -= HUE_RANGE;
+        }
+        return hue;
+    }
+
+    /**
+     * Returns the fixed-point saturation of the given color.
+     */
+    public static int saturation(int rgb) {
+        int r = (rgb >>> 16) & 0xFF;
+        int g = (rgb >>> 8) & 0xFF;
+        int b = rgb & 0xFF;
+
+        int max = Math.max(r, Math.max(g, b));
+        if (max == 0) {
+            return 0;
+        }
+        int min = Math.min(r, Math.min(g, b));
+        return Math.min(ONE, ((max - min) * RECIPROCALS[max] + 64) >> 7);
+    }
+
+    /**
+     * Returns the fixed-point brightness of the given color.
+     */
+    public static int brightness(int rgb) {
+        int r = (rgb >>> 16) & 0xFF;
+        int g = (rgb >>> 8) & 0xFF;
+        int b = rgb & 0xFF;
+        return Math.max(r, Math.max(g, b)) << 8;
+    }
+
+    /**
+     * Returns the opaque RGB color with the given fixed-point components.
+     * The hue is taken modulo {@link #HUE_RANGE}, and the
+     * saturation and brightness are clamped to their valid range.
+     */
+    public static int hsbToRgb(int hue, int sat, int bri) {
+        hue %= HUE_RANGE;
+        if (hue < 0) {
+            hue += HUE_RANGE;
+        }
+        sat = Math.max(0, Math.min(ONE, sat));
+        bri = Math.max(0, Math.min(MAX_BRIGHTNESS, bri));
+
+        int sector = hue >> 16;
+        int f = hue & (ONE - 1);
+
+        // all values have 8 fractional bits
+        int v = bri;
+        int p = (int) (((long) bri * (ONE - sat)) >> 16);
+        int q = (int) (((long) bri * (ONE - (int) (((long) sat * f) >> 16))) >> 16);
+        int t = (int) (((long) bri * (ONE - (int) (((long) sat * (ONE - f)) >> 16))) >> 16);
+
+        return switch (sector) {
+            case 0 -> toRGB(v, t, p);
+            case 1 -> toRGB(q, v, p);
+            case 2 -> toRGB(p, v, t);
+            case 3 -> toRGB(p, q, v);
+            case 4 -> toRGB(t, p, v);
+            default -> toRGB(v, p, q);
+        };
+    }
+
+    private static int toRGB(int r, int g, int b) {
+        return 0xFF_00_00_00
+            | ((r + 128) >> 8) << 16
+            | ((g + 128) >> 8) << 8
+            | ((b + 128) >> 8);
+    }
+
+    /**
+     * Returns the hue difference (taking into account that the hue is an
+     * angle) as a fraction of the full circle, between -0.5 and 0.5.
+     */
+    public static float hueDifference(int hue1, int hue2) {
+        int diff = hue1 - hue2;
+        if (diff > HUE_RANGE / 2) {
+            diff -= HUE_RANGE;
+        } else if (diff < -HUE_RANGE / 2) {
+            diff += HUE_RANGE;
+        }
+        return diff / (float) HUE_RANGE;
+    }
+
+    /**
+     * Puts the CIE L*a*b* components (D65 white point) of the given
+     * color into the first three elements of the array.
+     * L is between 0 and 100, a and b are roughly between -128 and 128.
+     */
+    public static void rgbToLab(int rgb, float[] lab) {
+        float r = LINEAR[(rgb >>> 16) & 0xFF];
+        float g = LINEAR[(rgb >>> 8) & 0xFF];
+        float b = LINEAR[rgb & 0xFF];
+
+        double x = (0.4124564 * r + 0.3575761 * g + 0.1804375 * b) / WHITE_X;
+        double y = 0.2126729 * r + 0.7151522 * g + 0.0721750 * b;
+        double z = (0.0193339 * r + 0.1191920 * g + 0.9503041 * b) / WHITE_Z;
+
+        double fx = labF(x);
+        double fy = labF(y);
+        double fz = labF(z);
+
+        lab[0] = (float) (116 * fy - 16);
+        lab[1] = (float) (500 * (fx - fy));
+        lab[2] = (float) (200 * (fy - fz));
+    }
+
+    private static double labF(double t) {
+        if (t > 216.0 / 24389.0) {
+            return Math.cbrt(t);
+        }
+        return (24389.0 / 27.0 * t + 16) / 116;
+    }
+}
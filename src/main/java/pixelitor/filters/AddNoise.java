@@ -18,6 +18,7 @@
 package pixelitor.filters;
 
 import com.jhlabs.image.ImageMath;
+import pixelitor.colors.ColorSpaces;
 import pixelitor.filters.gui.IntChoiceParam;
 import pixelitor.filters.gui.IntChoiceParam.Item;
 import pixelitor.filters.gui.RangeParam;
@@ -26,7 +27,6 @@ import pixelitor.utils.ImageUtils;
 import pixelitor.utils.ReseedSupport;
 import pixelitor.utils.StatusBarProgressTracker;
 
-import java.awt.Color;
 import java.awt.image.BufferedImage;
 import java.util.Random;
 
@@ -50,8 +50,6 @@ public class AddNoise extends ParametrizedFilter {
         new Item("Smooth Coverage Animation", METHOD_COVERAGE_ANIM),
     });
 
-    private final float[] tmpHSV = new float[3];
-
     public AddNoise() {
         super(ShowOriginal.YES);
 
@@ -85,7 +83,8 @@ public class AddNoise extends ParametrizedFilter {
         boolean fullOpacity = opacityParam.getValue() == 100;
 
         float opacityPercentage = opacityParam.getPercentageValF();
-        float saturationPercentage = saturationParam.getPercentageValF();
+        int saturationMultiplier = (int) (saturationParam.getPercentageValF() * ColorSpaces.ONE);
+        int[] hsb = new int[3];
         float coveragePercentage = coverageParam.getPercentageValF();
 
         int workUnit = 100_000;
@@ -141,13 +140,9 @@ public class AddNoise extends ParametrizedFilter {
                     destData[i] = ImageMath.mixColors(opacityPercentage, srcRGB, randomInt);
                 }
             } else { // desaturate the random pixel
-                int r = (randomInt >>> 16) & 0xFF;
-                int g = (randomInt >>> 8) & 0xFF;
-                int b = randomInt & 0xFF;
-
-                Color.RGBtoHSB(r, g, b, tmpHSV);
-                float newSaturation = ImageMath.lerp(saturationPercentage, 0.0f, tmpHSV[1]);
-                randomInt = Color.HSBtoRGB(tmpHSV[0], newSaturation, tmpHSV[2]);
+                ColorSpaces.rgbToHsb(randomInt, hsb);
+                int newSaturation = (int) (((long) hsb[1] * saturationMultiplier) >> 16);
+                randomInt = ColorSpaces.hsbToRgb(hsb[0], newSaturation, hsb[2]);
 
                 // make the alpha channel the same as for the source
                 randomInt |= sourceAlpha;
@@ -22,6 +22,7 @@ import pixelitor.filters.gui.BooleanParam;
 import pixelitor.filters.gui.RangeParam;
 import pixelitor.filters.gui.ShowOriginal;
 import pixelitor.utils.MemoryInfo;
+import pixelitor.utils.MemoryManager;
 import pixelitor.utils.Messages;
 
 import java.awt.Color;
@@ -74,12 +75,8 @@ public class Canny extends ParametrizedFilter {
         }
 
         long estimatedMemoryMB = estimateNeededMemoryMB(src);
-        System.gc(); // needed for the memory estimation
-        var memoryInfo = new MemoryInfo();
-        long availableMemoryMB = memoryInfo.getAvailableMemoryMB();
-
-        if (estimatedMemoryMB > availableMemoryMB) {
-            showNotEnoughMemoryDialog(estimatedMemoryMB, availableMemoryMB);
+        if (!MemoryManager.ensureAvailable(estimatedMemoryMB * MemoryInfo.ONE_MEGABYTE)) {
+            showNotEnoughMemoryDialog(estimatedMemoryMB);
             dest = src;
             return dest;
         }
@@ -105,11 +102,11 @@ public class Canny extends ParametrizedFilter {
         return dest;
     }
 
-    private static void showNotEnoughMemoryDialog(long estimatedMemoryMB,
-                                                  long availableMemoryMB) {
+    private static void showNotEnoughMemoryDialog(long estimatedMemoryMB) {
+        long budgetMB = MemoryManager.getBudget() / MemoryInfo.ONE_MEGABYTE;
         String msg = "This image is too large for the Canny edge detection algorithm.\n" +
                 "Press Cancel in the following dialog and try with smaller images.\n" +
-                "Available memory is " + availableMemoryMB +
+                "The memory budget is " + budgetMB +
                 " megabytes, memory needed for this image is " + estimatedMemoryMB
                 + " megabytes.";
         Messages.showInfo("Not enough memory", msg);
@@ -17,15 +17,19 @@
 
 package pixelitor.filters;
 
+import pixelitor.colors.ColorSpaces;
 import pixelitor.filters.gui.IntChoiceParam;
 import pixelitor.filters.gui.IntChoiceParam.Item;
 import pixelitor.filters.gui.ShowOriginal;
 import pixelitor.gui.GUIText;
 import pixelitor.utils.ImageUtils;
 
-import java.awt.Color;
 import java.awt.image.BufferedImage;
 
+import static pixelitor.colors.ColorSpaces.HUE_RANGE;
+import static pixelitor.colors.ColorSpaces.MAX_BRIGHTNESS;
+import static pixelitor.colors.ColorSpaces.ONE;
+
 /**
  * Inverts only some of the RGB or HSB channels
  */
@@ -123,7 +127,7 @@ public class ChannelInvert extends ParametrizedFilter {
         int[] srcData = ImageUtils.getPixelsAsArray(src);
         int[] destData = ImageUtils.getPixelsAsArray(dest);
 
-        float[] hsb = {0.0f, 0.0f, 0.0f};
+        int[] hsb = new int[3];
 
         for (int i = 0; i < destData.length; i++) {
             int srcPixel = srcData[i];
@@ -132,18 +136,18 @@ public class ChannelInvert extends ParametrizedFilter {
                 destData[i] = srcPixel;
                 continue;
             }
-            int r = (srcPixel >>> 16) & 0xFF;
-            int g = (srcPixel >>> 8) & 0xFF;
-            int b = srcPixel & 0xFF;
-            hsb = Color.RGBtoHSB(r, g, b, hsb);
+            ColorSpaces.rgbToHsb(srcPixel, hsb);
+            int invHue = hsb[0] + HUE_RANGE / 2;
+            int invSat = ONE - hsb[1];
+            int invBri = MAX_BRIGHTNESS - hsb[2];
             int newRGB = switch (invertType) {
-                case HUE_ONLY -> Color.HSBtoRGB(0.5f + hsb[0], hsb[1], hsb[2]);
-                case BRI_ONLY -> Color.HSBtoRGB(hsb[0], hsb[1], 1.0f - hsb[2]);
-                case SATURATION_ONLY -> Color.HSBtoRGB(hsb[0], 1.0f - hsb[1], hsb[2]);
-                case HUE_BRI -> Color.HSBtoRGB(0.5f + hsb[0], hsb[1], 1.0f - hsb[2]);
-                case HUE_SAT -> Color.HSBtoRGB(0.5f + hsb[0], 1.0f - hsb[1], hsb[2]);
-                case SAT_BRI -> Color.HSBtoRGB(hsb[0], 1.0f - hsb[1], 1.0f - hsb[2]);
-                case HUE_SAT_BRI -> Color.HSBtoRGB(0.5f + hsb[0], 1.0f - hsb[1], 1.0f - hsb[2]);
+                case HUE_ONLY -> ColorSpaces.hsbToRgb(invHue, hsb[1], hsb[2]);
+                case BRI_ONLY -> ColorSpaces.hsbToRgb(hsb[0], hsb[1], invBri);
+                case SATURATION_ONLY -> ColorSpaces.hsbToRgb(hsb[0], invSat, hsb[2]);
+                case HUE_BRI -> ColorSpaces.hsbToRgb(invHue, hsb[1], invBri);
+                case HUE_SAT -> ColorSpaces.hsbToRgb(invHue, invSat, hsb[2]);
+                case SAT_BRI -> ColorSpaces.hsbToRgb(hsb[0], invSat, invBri);
+                case HUE_SAT_BRI -> ColorSpaces.hsbToRgb(invHue, invSat, invBri);
                 default -> 0;
             };
 
@@ -17,7 +17,7 @@
 
 package pixelitor.filters;
 
-import com.jhlabs.image.ImageMath;
+import com.jhlabs.math.PerlinNoise;
 import pixelitor.ThreadPool;
 import pixelitor.filters.gui.ColorParam;
 import pixelitor.filters.gui.RangeParam;
@@ -28,7 +28,6 @@ import pixelitor.utils.StatusBarProgressTracker;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.util.Random;
 import java.util.concurrent.Future;
 
 import static java.awt.Color.BLACK;
@@ -43,11 +42,8 @@ import static pixelitor.gui.GUIText.ZOOM;
 public class Clouds extends ParametrizedFilter {
     public static final String NAME = "Clouds";
 
-    private static int[] p;
-
-    static {
-        reseed();
-    }
+    // replaced (not modified) when reseeding, because renderings might still use it
+    private volatile PerlinNoise noise = new PerlinNoise(System.nanoTime());
 
     private final RangeParam scaleParam = new RangeParam(ZOOM, 3, 100, 300);
     private final RangeParam roughnessParam = new RangeParam("Roughness (%)", 0, 50, 100);
@@ -63,14 +59,14 @@ public class Clouds extends ParametrizedFilter {
                 roughnessParam,
                 color1,
                 color2
-        ).withAction(reseedByCalling(Clouds::reseed));
+        ).withAction(reseedByCalling(this::reseed));
     }
 
     @Override
     public BufferedImage doTransform(BufferedImage src, BufferedImage dest) {
         var pt = new StatusBarProgressTracker(NAME, src.getHeight());
 
-        renderClouds(dest,
+        renderClouds(dest, noise,
                 scaleParam.getValueAsFloat(),
                 roughnessParam.getPercentageValF(),
                 color1.getColor(),
@@ -81,7 +77,7 @@ public class Clouds extends ParametrizedFilter {
         return dest;
     }
 
-    public static void renderClouds(BufferedImage dest,
+    public static void renderClouds(BufferedImage dest, PerlinNoise noise,
                                     float scale, float roughness,
                                     Color c1, Color c2, ProgressTracker pt) {
         int width = dest.getWidth();
@@ -93,108 +89,57 @@ public class Clouds extends ParametrizedFilter {
         Future<?>[] futures = new Future[height];
         for (int y = 0; y < height; y++) {
             int finalY = y;
-            Runnable lineTask = () -> calculateLine(scale, roughness, width, finalY, destData, color1, color2);
+            Runnable lineTask = () -> {
+                float[] line = new float[width];
+                calcNoiseLine(noise, scale, roughness, finalY, line);
+                int offset = finalY * width;
+                for (int x = 0; x < width; x++) {
+                    destData[offset + x] = ImageUtils.lerpAndPremultiply(
+                            line[x], color1, color2);
+                }
+            };
             futures[y] = ThreadPool.submit(lineTask);
         }
         ThreadPool.waitFor(futures, pt);
     }
 
-    private static void calculateLine(float startingScale, float roughness,
-                                      int width, int y, int[] destData,
-                                      int[] color1, int[] color2) {
+    /**
+     * Calculates the fractal noise values (in the range 0..1)
+     * for a whole line, using the line evaluation of the noise.
+     */
+    static void calcNoiseLine(PerlinNoise noise, float startingScale, float roughness,
+                              int y, float[] out) {
+        int width = out.length;
         for (int x = 0; x < width; x++) {
-            float scale = startingScale;
-            float noiseValue = 0.0f;
-            float contribution = 1.0f;
-
-            for (int i = 0; i < 8 && contribution > 0.03f && scale > 0; i++) {
-                float scaledX = x / scale;
-                float scaledY = y / scale;
-                float n = perlinNoise2D(scaledX, scaledY);
-                noiseValue += contribution * n;
-                scale /= 2;
-                contribution *= roughness;
+            out[x] = 0.0f;
+        }
+
+        float[] octave = new float[width];
+        float scale = startingScale;
+        float contribution = 1.0f;
+        for (int i = 0; i < 8 && contribution > 0.03f && scale > 0; i++) {
+            // noise is in the range [-1..1]
+            noise.noise2Line(0, y / scale, 1 / scale, 0, octave, width);
+            for (int x = 0; x < width; x++) {
+                out[x] += contribution * octave[x];
             }
+            scale /= 2;
+            contribution *= roughness;
+        }
 
-            noiseValue = (1.0f + noiseValue) / 2.0f;
+        for (int x = 0; x < width; x++) {
+            float noiseValue = (1.0f + out[x]) / 2.0f;
             if (noiseValue < 0.0f) {
                 noiseValue = 0.0f;
             } else if (noiseValue > 1.0f) {
                 noiseValue = 1.0f;
             }
-
-            destData[x + y * width] = ImageUtils.lerpAndPremultiply(
-                    noiseValue, color1, color2);
+            out[x] = noiseValue;
         }
     }
 
-    /**
-     * A 2D version of the algorithm from http://mrl.nyu.edu/~perlin/noise/
-     */
-    private static float perlinNoise2D(float x, float y) {
-        // find unit grid cell containing point + wrap the integer cells at 255
-        int gridX = ((int) x) & 255;
-        int gridY = ((int) y) & 255;
-
-        // get relative coordinates of point within cell
-        x -= ((int) x);
-        y -= ((int) y);
-
-        // compute the fade curves for x and y
-        float u = ImageMath.smootherStep01(x);
-        float v = ImageMath.smootherStep01(y);
-
-        // calculate hashed gradient indices
-        int a = p[gridX] + gridY;
-        int aa = p[a];
-        int ab = p[a + 1];
-        int b = p[gridX + 1] + gridY;
-        int ba = p[b];
-        int bb = p[b + 1];
-
-        float noiseSE = grad2D(p[aa], x, y);
-        float noiseSW = grad2D(p[ba], x - 1, y);
-        float noiseNE = grad2D(p[ab], x, y - 1);
-        float noiseNW = grad2D(p[bb], x - 1, y - 1);
-
-        float noiseS = ImageMath.lerp(u, noiseSE, noiseSW);
-        float noiseN = ImageMath.lerp(u, noiseNE, noiseNW);
-
-        float noise = ImageMath.lerp(v, noiseS, noiseN);
-
-        // noise is in the range [-1..1]
-        return noise;
-    }
-
-    private static float grad2D(int hash, float x, float y) {
-        int h = hash & 15;
-        float u = h < 8 ? x : y;
-        float v = h < 4 ? y : x;
-
-        return ((h & 1) == 0 ? u : -u) + ((h & 2) == 0 ? v : -v);
-    }
-
-    /**
-     * Fill the permutation table is with all the values with between 1 to 256,
-     * in random order, and duplicate that
-     */
-    public static void reseed() {
-        p = new int[512];
-        for (int i = 0; i < 256; i++) {
-            p[i] = i;
-        }
-
-        Random random = new Random();
-
-        for (int i = 0; i < 256; i++) {
-            int j = random.nextInt(256);
-            int tmp = p[i];
-            p[i] = p[j];
-            p[j] = tmp;
-
-            // duplicate
-            p[i + 256] = p[i];
-        }
+    private void reseed() {
+        noise = new PerlinNoise(System.nanoTime());
     }
 
     @Override
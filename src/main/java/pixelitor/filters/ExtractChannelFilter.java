@@ -17,13 +17,16 @@
 
 package pixelitor.filters;
 
+import pixelitor.colors.ColorSpaces;
 import pixelitor.filters.util.FilterAction;
 import pixelitor.filters.util.FilterUtils;
 import pixelitor.gui.GUIText;
 
-import java.awt.Color;
 import java.awt.image.BufferedImage;
 
+import static pixelitor.colors.ColorSpaces.HUE_RANGE;
+import static pixelitor.colors.ColorSpaces.MAX_BRIGHTNESS;
+import static pixelitor.colors.ColorSpaces.ONE;
 import static pixelitor.utils.Texts.i18n;
 
 /**
@@ -118,14 +121,9 @@ public class ExtractChannelFilter extends Filter {
 
     public static FilterAction getHueChannelFA() {
         var rgbOp = new RGBPixelOp() {
-            private float[] tmpHSBArray = {0.0f, 0.0f, 0.0f};
-
             @Override
             public int changeRGB(int a, int r, int g, int b) {
-                tmpHSBArray = Color.RGBtoHSB(r, g, b, tmpHSBArray);
-
-                // Color.RGBtoHSB return all values in the 0..1 interval
-                int hue = (int) (tmpHSBArray[0] * 255);
+                int hue = (int) ((long) ColorSpaces.hue(r << 16 | g << 8 | b) * 255 / HUE_RANGE);
 
                 r = hue;
                 g = hue;
@@ -139,18 +137,16 @@ public class ExtractChannelFilter extends Filter {
 
     public static FilterAction getHueInColorsChannelFA() {
         var rgbOp = new RGBPixelOp() {
-            private static final float DEFAULT_SATURATION = 0.9f;
-            private static final float DEFAULT_BRIGHTNESS = 0.75f;
-
-            private float[] tmpHSBArray = {0.0f, 0.0f, 0.0f};
+            private static final int DEFAULT_SATURATION = (int) (0.9f * ONE);
+            private static final int DEFAULT_BRIGHTNESS = (int) (0.75f * MAX_BRIGHTNESS);
 
             @Override
             public int changeRGB(int a, int r, int g, int b) {
                 if (a == 0) {
                     return 0; // for premultiplied images
                 }
-                tmpHSBArray = Color.RGBtoHSB(r, g, b, tmpHSBArray);
-                int newRGB = Color.HSBtoRGB(tmpHSBArray[0],
+                int hue = ColorSpaces.hue(r << 16 | g << 8 | b);
+                int newRGB = ColorSpaces.hsbToRgb(hue,
                         DEFAULT_SATURATION, DEFAULT_BRIGHTNESS); // alpha is 255
                 newRGB &= 0x00FFFFFF;  // set alpha to 0
                 return a << 24 | newRGB; // add the real alpha
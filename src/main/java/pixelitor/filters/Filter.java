@@ -26,8 +26,11 @@ import pixelitor.gui.utils.GUIUtils;
 import pixelitor.layers.Drawable;
 import pixelitor.layers.Layer;
 import pixelitor.layers.LayerMask;
+import pixelitor.utils.BufferPool;
 import pixelitor.utils.ImageUtils;
+import pixelitor.utils.MemoryManager;
 import pixelitor.utils.Messages;
+import pixelitor.utils.perf.Probe;
 import pixelitor.utils.test.RandomGUITest;
 
 import java.awt.*;
@@ -100,16 +103,26 @@ public abstract class Filter implements Serializable {
                 throw new IllegalStateException("not image layer or mask");
             }
 
+            long startTime = System.nanoTime();
             BufferedImage src = dr.getFilterSourceImage();
+            Probe.FILTER_SOURCE.recordSince(startTime);
+
+            // make room for the result before the filter starts
+            MemoryManager.ensureAvailable(MemoryManager.getMemoryUsage(src));
+
+            startTime = System.nanoTime();
             BufferedImage dest = transformImage(src);
+            Probe.FILTER_TRANSFORM.recordSince(startTime);
 
             assert dest != null;
 
+            startTime = System.nanoTime();
             if (cr.isPreview()) {
                 dr.changePreviewImage(dest, getName(), cr);
             } else {
                 dr.filterWithoutDialogFinished(dest, cr, getName());
             }
+            Probe.FILTER_APPLY.recordSince(startTime);
         } catch (OutOfMemoryError e) {
             Dialogs.showOutOfMemoryDialog(e);
         } catch (Throwable e) {
@@ -146,7 +159,7 @@ public abstract class Filter implements Serializable {
 
         BufferedImage dest = null;
         if (createDefaultDestImg()) {
-            dest = ImageUtils.createImageWithSameCM(src);
+            dest = BufferPool.leaseImageWithSameCM(src);
         }
 
         dest = transform(src, dest);
@@ -18,12 +18,15 @@
 package pixelitor.filters;
 
 import com.jhlabs.image.PointFilter;
+import pixelitor.colors.ColorSpaces;
 import pixelitor.filters.gui.RangeParam;
 import pixelitor.filters.gui.ShowOriginal;
 
-import java.awt.Color;
 import java.awt.image.BufferedImage;
 
+import static pixelitor.colors.ColorSpaces.HUE_RANGE;
+import static pixelitor.colors.ColorSpaces.MAX_BRIGHTNESS;
+import static pixelitor.colors.ColorSpaces.ONE;
 import static pixelitor.gui.GUIText.*;
 
 /**
@@ -78,56 +81,29 @@ public class HueSat extends ParametrizedFilter {
     }
 
     private static class Impl extends PointFilter {
-        private final float hueShift;
-        private final float satShift;
-        private final float briShift;
+        // the shifts in the fixed-point units of ColorSpaces
+        private final int hueShift;
+        private final int satShift;
+        private final int briShift;
 
         protected Impl(float hueShift, float satShift, float briShift) {
             super(NAME);
-            this.hueShift = hueShift;
-            this.satShift = satShift;
-            this.briShift = briShift;
+            this.hueShift = Math.round(hueShift * HUE_RANGE);
+            this.satShift = Math.round(satShift * ONE);
+            this.briShift = Math.round(briShift * MAX_BRIGHTNESS);
         }
 
         @Override
         public int filterRGB(int x, int y, int rgb) {
             int a = rgb & 0xFF000000;
-            int r = (rgb >>> 16) & 0xFF;
-            int g = (rgb >>> 8) & 0xFF;
-            int b = rgb & 0xFF;
-
-            // for the multithreaded performance it is better to
-            // create this array here instead of reusing it as a class field
-            float[] tmpHSBArray = {0.0f, 0.0f, 0.0f};
-
-            tmpHSBArray = Color.RGBtoHSB(r, g, b, tmpHSBArray);
-
-            float shiftedHue = tmpHSBArray[0] + hueShift;
-            float shiftedSat = tmpHSBArray[1] + satShift;
-            float shiftedBri = tmpHSBArray[2] + briShift;
-
-            if (shiftedSat < 0.0f) {
-                shiftedSat = 0.0f;
-            }
-            if (shiftedSat > 1.0f) {
-                shiftedSat = 1.0f;
-            }
-
-            if (shiftedBri < 0.0f) {
-                shiftedBri = 0.0f;
-            }
-            if (shiftedBri > 1.0f) {
-                shiftedBri = 1.0f;
-            }
-
-            if (shiftedHue < 0 && shiftedHue > -0.00000003) {
-                // workaround for a bug in Color.HSBtoRGB, see issue #87
-                shiftedHue = 0;
-            }
-
-            int newRGB = Color.HSBtoRGB(shiftedHue, shiftedSat, shiftedBri);  // alpha is 255 here
+
+            // the hue is wrapped around, the others are clamped
+            int newRGB = ColorSpaces.hsbToRgb(
+                ColorSpaces.hue(rgb) + hueShift,
+                ColorSpaces.saturation(rgb) + satShift,
+                ColorSpaces.brightness(rgb) + briShift);  // alpha is 255 here
             newRGB &= 0x00FFFFFF;  // set alpha to 0
             return a | newRGB; // add the real alpha
         }
     }
-}
\ No newline at end of file
+}
@@ -73,11 +73,11 @@ class JuliaSetImpl extends ComplexFractalImpl {
     }
 
     @Override
-    public int filterRGB(int x, int y, int rgb) {
+    protected int calcIterations(int x, int y) {
         double zx = cxStart + x * xMultiplier;
         double zy = cyStart + y * yMultiplier;
 
-        return calcIteratedColor(zx, zy, cx, cy);
+        return iterate(zx, zy, cx, cy);
     }
 
     public void setCx(double cx) {
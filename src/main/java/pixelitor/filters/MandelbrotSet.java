@@ -57,7 +57,7 @@ class MandelbrotSetImpl extends ComplexFractalImpl {
     }
 
     @Override
-    public int filterRGB(int x, int y, int rgb) {
+    protected int calcIterations(int x, int y) {
         // start with the complex number (0, 0)
         double zx = 0;
         double zy = 0;
@@ -72,7 +72,7 @@ class MandelbrotSetImpl extends ComplexFractalImpl {
         // 1. check if the point is in the period-2 bulb
         if (cx < -0.75 && cx > -1.25 && cy < 0.28 && cy > -0.28) { // approx. check
             if ((cx + 1) * (cx + 1) + cy * cy < 1 / 16.0) { // exact check
-                return colors[0];
+                return 0;
             }
         }
 
@@ -82,11 +82,11 @@ class MandelbrotSetImpl extends ComplexFractalImpl {
             double cy2 = cy * cy;
             double q = cm * cm + cy2;
             if (q * (q + cm) < cy2 / 4.0) { // exact check
-                return colors[0];
+                return 0;
             }
         }
 
-        return calcIteratedColor(zx, zy, cx, cy);
+        return iterate(zx, zy, cx, cy);
     }
 }
 
@@ -19,6 +19,8 @@ package pixelitor.filters;
 
 import com.jhlabs.image.Colormap;
 import com.jhlabs.image.PointFilter;
+import com.jhlabs.math.Noise;
+import com.jhlabs.math.PerlinNoise;
 import pixelitor.filters.gui.*;
 import pixelitor.filters.gui.IntChoiceParam.Item;
 import pixelitor.gui.GUIText;
@@ -28,7 +30,6 @@ import java.awt.image.BufferedImage;
 
 import static com.jhlabs.image.WaveType.wave;
 import static com.jhlabs.image.WaveType.wave01;
-import static com.jhlabs.math.Noise.*;
 import static net.jafama.FastMath.*;
 import static pixelitor.filters.gui.ReseedActions.reseedNoise;
 import static pixelitor.gui.GUIText.ZOOM;
@@ -132,6 +133,7 @@ public class Marble extends ParametrizedFilter {
         private int waveType;
         private boolean smoothDetails;
         private float time;
+        private PerlinNoise noise;
 
         protected Impl() {
             super(NAME);
@@ -179,6 +181,7 @@ public class Marble extends ParametrizedFilter {
         public BufferedImage filter(BufferedImage src, BufferedImage dst) {
             cx = src.getWidth() / 2.0f;
             cy = src.getHeight() / 2.0f;
+            noise = Noise.getInstance();
             return super.filter(src, dst);
         }
 
@@ -191,37 +194,83 @@ public class Marble extends ParametrizedFilter {
             nx /= zoom;
             ny /= zoom;
 
-            float f = strength * noise2(nx * 0.1f, ny * 0.1f);
+            float f = strength * noise.noise2(nx * 0.1f, ny * 0.1f);
             if (smoothDetails) {
-                f += detailsStrength * turbulence2B(nx * 0.2f, ny * 0.2f, octaves);
+                f += detailsStrength * noise.turbulence2B(nx * 0.2f, ny * 0.2f, octaves);
             } else {
-                f += detailsStrength * turbulence2(nx * 0.2f, ny * 0.2f, octaves);
+                f += detailsStrength * noise.turbulence2(nx * 0.2f, ny * 0.2f, octaves);
             }
-            f += time;
 
-            float c = switch (type) {
+            float f2 = 0;
+            if (type == TYPE_GRID) {
+                f2 = strength * noise.noise2(ny * -0.1f, nx * -0.1f);
+                if (smoothDetails) {
+                    f2 += detailsStrength * noise.turbulence2B(ny * -0.2f, nx * -0.2f, octaves);
+                } else {
+                    f2 += detailsStrength * noise.turbulence2(ny * -0.2f, nx * -0.2f, octaves);
+                }
+            }
+
+            return colormap.getColor(calcColor(dx, dy, nx, ny, f + time, f2));
+        }
+
+        @Override
+        protected void filterLine(int y, int width, int[] inPixels, int[] outPixels, int offset) {
+            double dy = y - cy;
+
+            // the coordinates of the first pixel and their change along the line
+            float nx0 = (float) (m00 * -cx + m01 * dy) / zoom;
+            float ny0 = (float) (m10 * -cx + m11 * dy) / zoom;
+            float dnx = m00 / zoom;
+            float dny = m10 / zoom;
+
+            float[] f = calcNoiseLine(nx0, ny0, dnx, dny, width);
+            float[] f2 = null;
+            if (type == TYPE_GRID) {
+                f2 = calcNoiseLine(-ny0, -nx0, -dny, -dnx, width);
+            }
+
+            for (int x = 0; x < width; x++) {
+                float nx = nx0 + x * dnx;
+                float ny = ny0 + x * dny;
+                float c = calcColor(x - cx, dy, nx, ny, f[x] + time, f2 == null ? 0 : f2[x]);
+                outPixels[offset + x] = colormap.getColor(c);
+            }
+        }
+
+        /**
+         * Calculates the noise displacements along a line
+         * starting at the given (rotated and zoomed) coordinates.
+         */
+        private float[] calcNoiseLine(float x0, float y0, float dx, float dy, int width) {
+            float[] out = new float[width];
+            noise.noise2Line(x0 * 0.1f, y0 * 0.1f, dx * 0.1f, dy * 0.1f, out, width);
+
+            float[] details = new float[width];
+            noise.turbulence2Line(x0 * 0.2f, y0 * 0.2f, dx * 0.2f, dy * 0.2f,
+                octaves, !smoothDetails, details, width);
+
+            for (int x = 0; x < width; x++) {
+                out[x] = strength * out[x] + detailsStrength * details[x];
+            }
+            return out;
+        }
+
+        private float calcColor(double dx, double dy, float nx, float ny, float f, float f2) {
+            return switch (type) {
                 case TYPE_LINES -> calcLinesColor(nx, f);
-                case TYPE_GRID -> calcGridColor(nx, ny, f);
+                case TYPE_GRID -> calcGridColor(nx, ny, f, f2);
                 case TYPE_RINGS -> calcRingsColor(dy, dx, f);
                 case TYPE_STAR -> calcStarColor(dy, dx, f);
                 default -> throw new IllegalStateException();
             };
-
-            return colormap.getColor(c);
         }
 
         private float calcLinesColor(float nx, float f) {
             return (float) wave01(nx + f, waveType);
         }
 
-        private float calcGridColor(float nx, float ny, float f) {
-            float f2 = strength * noise2(ny * -0.1f, nx * -0.1f);
-            if (smoothDetails) {
-                f2 += detailsStrength * turbulence2B(ny * -0.2f, nx * -0.2f, octaves);
-            } else {
-                f2 += detailsStrength * turbulence2(ny * -0.2f, nx * -0.2f, octaves);
-            }
-
+        private float calcGridColor(float nx, float ny, float f, float f2) {
             return (float) (wave01(nx + f, waveType) + wave01(ny + f2, waveType)) / 2.0f;
         }
 
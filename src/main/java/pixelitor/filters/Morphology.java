@@ -39,10 +39,11 @@ public class Morphology extends ParametrizedFilter {
     private static final int OP_OPEN = 10;
     private static final int OP_CLOSE = 11;
 
-    private final RangeParam radius = new RangeParam(GUIText.RADIUS, 1, 1, 21);
+    private final RangeParam radius = new RangeParam(GUIText.RADIUS, 1, 1, 100);
     private final IntChoiceParam kernel = new IntChoiceParam("Kernel Shape", new Item[]{
         new Item("Diamond", MorphologyFilter.KERNEL_DIAMOND),
         new Item("Square", MorphologyFilter.KERNEL_SQUARE),
+        new Item("Disc", MorphologyFilter.KERNEL_DISC),
     });
     private final IntChoiceParam op = new IntChoiceParam("Operation", new Item[]{
         new Item("Maximum (Dilate)", OP_DILATE),
@@ -61,8 +62,7 @@ public class Morphology extends ParametrizedFilter {
     public BufferedImage doTransform(BufferedImage src, BufferedImage dest) {
         var filter = new MorphologyFilter(NAME);
 
-        int iterations = radius.getValue();
-        filter.setIterations(iterations);
+        filter.setRadius(radius.getValue());
         filter.setKernel(kernel.getValue());
 
         int selectedOp = op.getValue();
@@ -71,7 +71,7 @@ public class Morphology extends ParametrizedFilter {
             filter.setOp(selectedOp);
             dest = filter.filter(src, dest);
         } else {
-            var pt = new StatusBarProgressTracker(NAME, 2 * iterations);
+            var pt = new StatusBarProgressTracker(NAME, 2);
             filter.setProgressTracker(pt);
 
             if (selectedOp == OP_OPEN) {
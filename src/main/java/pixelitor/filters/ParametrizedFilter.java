@@ -17,14 +17,20 @@
 
 package pixelitor.filters;
 
+import pixelitor.ChangeReason;
 import pixelitor.filters.gui.*;
+import pixelitor.filters.util.FilterUtils;
+import pixelitor.gui.View;
 import pixelitor.gui.utils.Dialogs;
 import pixelitor.layers.Drawable;
-import pixelitor.utils.ImageUtils;
-import pixelitor.utils.Utils;
+import pixelitor.utils.*;
 
 import java.awt.Shape;
 import java.awt.image.BufferedImage;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static pixelitor.utils.Threads.*;
 
 /**
  * A filter that keeps its settings in a ParamSet object
@@ -42,6 +48,15 @@ public abstract class ParametrizedFilter extends FilterWithGUI {
     // the area affected by a filter
     private Shape[] affectedAreaShapes;
 
+    // interactive previews are not calculated at a resolution lower than this
+    private static final int MIN_PROXY_SIZE = 256;
+
+    // incremented for every preview request, so that the result of an
+    // outdated full-quality preview calculation can be discarded
+    private transient long previewGeneration;
+    private transient long appliedPreviewGeneration;
+    private transient CompletableFuture<BufferedImage> backgroundPreview;
+
     protected ParametrizedFilter(ShowOriginal addShowOriginal) {
         this.addShowOriginal = addShowOriginal;
     }
@@ -74,6 +89,123 @@ public abstract class ParametrizedFilter extends FilterWithGUI {
 
     public abstract BufferedImage doTransform(BufferedImage src, BufferedImage dest);
 
+    /**
+     * Returns true if the preview can be updated while the user is
+     * dragging a control, which is the case for {@link ProxyPreviewing} filters.
+     */
+    public final boolean supportsInteractivePreview() {
+        return this instanceof ProxyPreviewing;
+    }
+
+    /**
+     * Shows a fast, downscaled preview while the user is dragging a control.
+     * The full-quality preview will be calculated when the dragging ends.
+     */
+    public void runInteractivePreview(Drawable dr) {
+        assert calledOnEDT() : threadInfo();
+        assert supportsInteractivePreview();
+
+        // a full-quality preview that is still calculated is outdated now
+        previewGeneration++;
+
+        if (dr.getComp().hasSelection() || dr.isMaskEditing()) {
+            // the preview is calculated only at the end of the dragging
+            return;
+        }
+
+        BufferedImage src = dr.getFilterSourceImage();
+        double scale = calcProxyScale(dr.getComp().getView(), src);
+        BufferedImage proxy = ((ProxyPreviewing) this).transformProxy(src, scale);
+        dr.changePreviewProxy(proxy, scale);
+    }
+
+    /**
+     * The scale of the proxy is the zoom level of the view,
+     * because more details wouldn't be visible anyway.
+     */
+    private static double calcProxyScale(View view, BufferedImage src) {
+        if (view == null) {
+            return 1.0;
+        }
+        double scale = Math.min(1.0, view.getScaling());
+
+        // don't create tiny proxies for small images
+        int minSize = Math.min(src.getWidth(), src.getHeight());
+        if (minSize * scale < MIN_PROXY_SIZE) {
+            scale = Math.min(1.0, MIN_PROXY_SIZE / (double) minSize);
+        }
+        return scale;
+    }
+
+    /**
+     * Calculates the full-quality preview on a pool thread,
+     * so that the GUI isn't blocked at the end of a dragging.
+     */
+    public void runPreviewInBackground(Drawable dr) {
+        assert calledOnEDT() : threadInfo();
+
+        long generation = ++previewGeneration;
+        BufferedImage src = dr.getFilterSourceImage();
+        MemoryManager.ensureAvailable(MemoryManager.getMemoryUsage(src));
+
+        var future = CompletableFuture.supplyAsync(
+            () -> transformImage(src), onPool);
+        backgroundPreview = future;
+        future.whenCompleteAsync((dest, e) ->
+            backgroundPreviewFinished(dr, generation, dest, e), onEDT);
+    }
+
+    private void backgroundPreviewFinished(Drawable dr, long generation,
+                                           BufferedImage dest, Throwable e) {
+        if (generation == appliedPreviewGeneration) {
+            // already applied when the dialog was accepted
+            return;
+        }
+        if (e != null) {
+            if (generation == previewGeneration) {
+                backgroundPreview = null;
+                Messages.showException(e);
+            }
+            return;
+        }
+        if (generation != previewGeneration) {
+            // the params were changed in the meantime
+            BufferPool.release(dest);
+            return;
+        }
+        applyBackgroundPreview(dr, generation, dest);
+    }
+
+    private void applyBackgroundPreview(Drawable dr, long generation, BufferedImage dest) {
+        backgroundPreview = null;
+        appliedPreviewGeneration = generation;
+        dr.changePreviewImage(dest, getName(), ChangeReason.PREVIEWING);
+        FilterUtils.setLastFilter(this);
+    }
+
+    @Override
+    protected void dialogClosing(Drawable dr, boolean accepted) {
+        if (accepted && backgroundPreview != null
+            && previewGeneration != appliedPreviewGeneration) {
+            // the accepted image must contain the latest settings
+            BufferedImage dest;
+            try {
+                dest = backgroundPreview.join();
+            } catch (CompletionException e) {
+                // don't report it again when the future's callback runs
+                previewGeneration++;
+                backgroundPreview = null;
+                Messages.showException(e.getCause());
+                return;
+            }
+            applyBackgroundPreview(dr, previewGeneration, dest);
+        } else {
+            // discard whatever is still calculated
+            previewGeneration++;
+            backgroundPreview = null;
+        }
+    }
+
     private void setParamSet(ParamSet paramSet) {
         this.paramSet = paramSet;
         // switch the affected area functionality here on-off
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2021 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.filters;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Implemented by the parametrized filters that can calculate a fast,
+ * approximate preview while the user is dragging a control.
+ */
+public interface ProxyPreviewing {
+    /**
+     * Calculates an approximate result at the given scale. The returned
+     * image can be reused by the next call, because it is only painted.
+     */
+    BufferedImage transformProxy(BufferedImage src, double scale);
+}
@@ -18,15 +18,22 @@
 package pixelitor.filters;
 
 import pixelitor.OpenImages;
+import pixelitor.ThreadPool;
 import pixelitor.colors.Colors;
 import pixelitor.filters.gui.*;
 import pixelitor.gui.GUIText;
 import pixelitor.layers.Drawable;
+import pixelitor.utils.ImageUtils;
+import pixelitor.utils.ProgressTracker;
 
+import java.awt.AlphaComposite;
 import java.awt.Graphics2D;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
 import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.FutureTask;
 
 import static java.awt.RenderingHints.*;
 import static pixelitor.colors.Colors.TRANSPARENT_COLOR;
@@ -35,13 +42,19 @@ import static pixelitor.filters.gui.ColorParam.TransparencyPolicy.USER_ONLY_TRAN
 /**
  * Arbitrary Rotate
  */
-public class TransformLayer extends ParametrizedFilter {
+public class TransformLayer extends ParametrizedFilter implements ProxyPreviewing {
     private final ImagePositionParam centerParam = new ImagePositionParam("Pivot Point");
     private final AngleParam angleParam = new AngleParam("Rotate Angle", 0);
     private final ColorParam bgColorParam = new ColorParam(GUIText.BG_COLOR, TRANSPARENT_COLOR, USER_ONLY_TRANSPARENCY);
     private final GroupedRangeParam scaleParam = new GroupedRangeParam("Scale (%)", 1, 100, 501);
     private final GroupedRangeParam shearParam = new GroupedRangeParam("Shear", -500, 0, 500, false);
 
+    // the downscaled source and the result buffer of the interactive previews
+    private transient BufferedImage proxySrc;
+    private transient WeakReference<BufferedImage> proxySrcOrigin;
+    private transient double proxySrcScale;
+    private transient BufferedImage proxyDest;
+
     public TransformLayer() {
         super(ShowOriginal.YES);
 
@@ -57,25 +70,123 @@ public class TransformLayer extends ParametrizedFilter {
 
     @Override
     public BufferedImage doTransform(BufferedImage src, BufferedImage dest) {
-        Graphics2D g = createDestGraphics(dest);
-        fillWithBgColor(dest, g);
+        renderFullQuality(src, dest, calcTransform(src));
+        return dest;
+    }
+
+    /**
+     * Renders the bicubic result in horizontal stripes on multiple threads.
+     * Every stripe is drawn into its own subimage, so that the
+     * threads don't share a Graphics2D or a BufferedImage.
+     */
+    private void renderFullQuality(BufferedImage src, BufferedImage dest, AffineTransform transform) {
+        int width = dest.getWidth();
+        int height = dest.getHeight();
+        int numStripes = Math.min(height, Runtime.getRuntime().availableProcessors());
+        int stripeHeight = (height + numStripes - 1) / numStripes;
+
+        FutureTask<?>[] tasks = new FutureTask<?>[numStripes];
+        for (int i = 0; i < numStripes; i++) {
+            int stripeStart = i * stripeHeight;
+            int stripeEnd = Math.min(height, stripeStart + stripeHeight);
+            if (stripeStart >= stripeEnd) {
+                tasks[i] = new FutureTask<>(() -> {}, null);
+                continue;
+            }
+            BufferedImage stripe = dest.getSubimage(0, stripeStart, width, stripeEnd - stripeStart);
+            tasks[i] = new FutureTask<>(() -> {
+                Graphics2D g = createDestGraphics(stripe, VALUE_INTERPOLATION_BICUBIC);
+                g.translate(0, -stripeStart);
+                fillWithBgColor(g, width, height);
+                g.drawImage(src, transform, null);
+                g.dispose();
+            }, null);
+            if (i > 0) {
+                ThreadPool.getExecutor().execute(tasks[i]);
+            }
+        }
 
-        AffineTransform transform = calcTransform(src);
-        g.drawImage(src, transform, null);
+        // This can run on a pool thread, therefore the stripes that
+        // weren't started yet are rendered here instead of waiting for them.
+        // Running an already started or finished task does nothing.
+        for (FutureTask<?> task : tasks) {
+            task.run();
+        }
+        ThreadPool.waitFor(tasks, ProgressTracker.NULL_TRACKER);
+    }
+
+    /**
+     * Renders a fast preview at the resolution of the view: the source
+     * is downscaled only once for an interactive session, and it's
+     * transformed with bilinear interpolation into a reused buffer.
+     */
+    @Override
+    public BufferedImage transformProxy(BufferedImage src, double scale) {
+        BufferedImage scaledSrc = getProxySrc(src, scale);
+
+        // the transform in the coordinate system of the proxy
+        AffineTransform proxyTransform = AffineTransform.getScaleInstance(scale, scale);
+        proxyTransform.concatenate(calcTransform(src));
+        proxyTransform.scale(1.0 / scale, 1.0 / scale);
+
+        int proxyWidth = Math.max(1, (int) Math.ceil(src.getWidth() * scale));
+        int proxyHeight = Math.max(1, (int) Math.ceil(src.getHeight() * scale));
+        ColorModel cm = src.getColorModel();
+        if (proxyDest == null || proxyDest.getWidth() != proxyWidth
+            || proxyDest.getHeight() != proxyHeight
+            || !proxyDest.getColorModel().equals(cm)) {
+            proxyDest = new BufferedImage(cm,
+                cm.createCompatibleWritableRaster(proxyWidth, proxyHeight),
+                cm.isAlphaPremultiplied(), null);
+        }
 
+        Graphics2D g = createDestGraphics(proxyDest, VALUE_INTERPOLATION_BILINEAR);
+        g.setComposite(AlphaComposite.Clear);
+        g.fillRect(0, 0, proxyWidth, proxyHeight);
+        g.setComposite(AlphaComposite.SrcOver);
+        fillWithBgColor(g, proxyWidth, proxyHeight);
+        g.drawImage(scaledSrc, proxyTransform, null);
         g.dispose();
-        return dest;
+
+        return proxyDest;
+    }
+
+    private BufferedImage getProxySrc(BufferedImage src, double scale) {
+        if (scale == 1.0) {
+            return src;
+        }
+        if (proxySrc != null && proxySrcScale == scale
+            && proxySrcOrigin != null && proxySrcOrigin.get() == src) {
+            return proxySrc;
+        }
+        int proxyWidth = Math.max(1, (int) Math.ceil(src.getWidth() * scale));
+        int proxyHeight = Math.max(1, (int) Math.ceil(src.getHeight() * scale));
+        proxySrc = ImageUtils.getFasterScaledInstance(src,
+            proxyWidth, proxyHeight, VALUE_INTERPOLATION_BILINEAR, true);
+        proxySrcOrigin = new WeakReference<>(src);
+        proxySrcScale = scale;
+        return proxySrc;
+    }
+
+    @Override
+    protected void dialogClosing(Drawable dr, boolean accepted) {
+        super.dialogClosing(dr, accepted);
+
+        // the proxies are needed only while the dialog is shown
+        proxySrc = null;
+        proxySrcOrigin = null;
+        proxyDest = null;
     }
 
-    private static Graphics2D createDestGraphics(BufferedImage dest) {
+    private static Graphics2D createDestGraphics(BufferedImage dest, Object interpolation) {
         Graphics2D g = dest.createGraphics();
         g.setRenderingHint(KEY_ANTIALIASING, VALUE_ANTIALIAS_ON);
-        g.setRenderingHint(KEY_INTERPOLATION, VALUE_INTERPOLATION_BICUBIC);
+        g.setRenderingHint(KEY_INTERPOLATION, interpolation);
         return g;
     }
 
-    private void fillWithBgColor(BufferedImage dest, Graphics2D g) {
-        Colors.fillWith(bgColorParam.getColor(), g, dest.getWidth(), dest.getHeight());
+    private void fillWithBgColor(Graphics2D g, int width, int height) {
+        Colors.fillWith(bgColorParam.getColor(), g, width, height);
     }
 
     private AffineTransform calcTransform(BufferedImage src) {
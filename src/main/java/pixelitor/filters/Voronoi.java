@@ -81,10 +81,6 @@ public class Voronoi extends ParametrizedFilter {
             filter.showPoints(dest);
         }
 
-        if (false) {
-            filter.debugGrid(dest);
-        }
-
         return dest;
     }
 }
\ No newline at end of file
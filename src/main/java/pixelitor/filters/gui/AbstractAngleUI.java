@@ -101,6 +101,9 @@ public abstract class AbstractAngleUI extends JComponent
         double angle = Math.atan2(y - cy, x - cx);
         repaint();
         model.setValue(angle, trigger);
+        if (!trigger) {
+            model.fireAdjusting();
+        }
     }
 
     @Override
@@ -52,6 +52,16 @@ public abstract class AbstractFilterParam implements FilterParam {
         }
     }
 
+    /**
+     * Called when the value changed while the user is still dragging
+     * the GUI control, therefore the filter is not triggered yet.
+     */
+    protected void fireAdjusting() {
+        if (adjustmentListener != null) {
+            adjustmentListener.paramAdjusting();
+        }
+    }
+
     public FilterParam withAction(FilterButtonModel action) {
         this.action = action;
         return this;
@@ -80,6 +80,9 @@ public class AngleParamGUI extends JPanel implements ParamGUI {
 
             int value = sliderModel.getValue();
             angleParam.setValueInDegrees(value, trigger);
+            if (!trigger) {
+                angleParam.fireAdjusting();
+            }
         }
     }
 
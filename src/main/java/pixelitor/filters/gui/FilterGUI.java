@@ -40,4 +40,8 @@ public abstract class FilterGUI extends JPanel implements PreviewExecutor {
     public void runFilterPreview() {
         filter.run(dr, PREVIEWING, this);
     }
+
+    protected Drawable getDrawable() {
+        return dr;
+    }
 }
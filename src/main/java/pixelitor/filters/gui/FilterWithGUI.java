@@ -90,8 +90,22 @@ public abstract class FilterWithGUI extends Filter {
             .content(gui)
             .align(FRAME_RIGHT)
             .withScrollbars()
-            .okAction(() -> dr.onFilterDialogAccepted(getName()))
-            .cancelAction(dr::onFilterDialogCanceled)
+            .okAction(() -> {
+                dialogClosing(dr, true);
+                dr.onFilterDialogAccepted(getName());
+            })
+            .cancelAction(() -> {
+                dialogClosing(dr, false);
+                dr.onFilterDialogCanceled();
+            })
             .show();
     }
+
+    /**
+     * Called right before the filter dialog is closed.
+     * Filters calculating their previews in the background
+     * must finish or discard the pending preview here.
+     */
+    protected void dialogClosing(Drawable dr, boolean accepted) {
+    }
 }
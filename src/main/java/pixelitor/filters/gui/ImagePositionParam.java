@@ -92,8 +92,12 @@ public class ImagePositionParam extends AbstractFilterParam {
         if (updateGUI && paramGUI != null) {
             paramGUI.updateGUI();
         }
-        if (trigger && !isAdjusting) {
-            adjustmentListener.paramAdjusted();
+        if (trigger) {
+            if (isAdjusting) {
+                fireAdjusting();
+            } else {
+                adjustmentListener.paramAdjusted();
+            }
         }
     }
 
@@ -25,4 +25,12 @@ public interface ParamAdjustmentListener {
      * triggered, typically the calculation of a new filter preview.
      */
     void paramAdjusted();
+
+    /**
+     * The user modified the GUI, but is still dragging the control,
+     * and {@link #paramAdjusted()} will be called when the dragging ends.
+     * This can be used for a fast, approximate update.
+     */
+    default void paramAdjusting() {
+    }
 }
@@ -123,7 +123,27 @@ public class ParametrizedFilterGUI extends FilterGUI implements ParamAdjustmentL
             // mode should be automatically stopped
             showOriginalCB.deselectWithoutTriggering();
         }
-        runFilterPreview();
+        ParametrizedFilter pf = (ParametrizedFilter) filter;
+        if (pf.supportsInteractivePreview()) {
+            // the fast preview is already shown, don't block
+            // the GUI while the full-quality one is calculated
+            pf.runPreviewInBackground(getDrawable());
+        } else {
+            runFilterPreview();
+        }
+    }
+
+    @Override
+    public void paramAdjusting() {
+        ParametrizedFilter pf = (ParametrizedFilter) filter;
+        if (!pf.supportsInteractivePreview()) {
+            // the preview is calculated only at the end of the dragging
+            return;
+        }
+        if (hasShowOriginal()) {
+            showOriginalCB.deselectWithoutTriggering();
+        }
+        pf.runInteractivePreview(getDrawable());
     }
 
     private boolean hasShowOriginal() {
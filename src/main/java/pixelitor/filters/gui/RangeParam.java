@@ -281,8 +281,12 @@ public class RangeParam extends AbstractFilterParam implements BoundedRangeModel
                 paramGUI.updateGUI();
             }
 
-            if (!adjusting && trigger && adjustmentListener != null) {
-                adjustmentListener.paramAdjusted(); // run the filter
+            if (trigger && adjustmentListener != null) {
+                if (adjusting) {
+                    fireAdjusting();
+                } else {
+                    adjustmentListener.paramAdjusted(); // run the filter
+                }
             }
         }
     }
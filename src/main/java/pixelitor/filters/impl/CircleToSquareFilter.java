@@ -23,6 +23,7 @@ import pixelitor.utils.Shapes;
 
 import java.awt.Shape;
 import java.awt.geom.Rectangle2D;
+import java.util.List;
 
 /**
  * The implementation of the {@link CircleToSquare} filter.
@@ -55,6 +56,11 @@ public class CircleToSquareFilter extends CenteredTransformFilter {
         return new Shape[]{rect, ellipse};
     }
 
+    @Override
+    protected Object getGeometryKey() {
+        return List.of(cx, cy, radiusX, radiusY, amount);
+    }
+
     @Override
     protected void transformInverse(int x, int y, float[] out) {
         float dx = x - cx;
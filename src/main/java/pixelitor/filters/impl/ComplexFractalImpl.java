@@ -17,11 +17,38 @@
 
 package pixelitor.filters.impl;
 
-import com.jhlabs.image.PointFilter;
+import com.jhlabs.image.AbstractBufferedImageOp;
+import pixelitor.ThreadPool;
 
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+import java.util.concurrent.Future;
+
+/**
+ * Escape-time renderer for the Mandelbrot and Julia sets.
+ *
+ * The image is divided into blocks, which are rendered in parallel.
+ * Within a block the Mariani-Silver algorithm is used: if all the pixels
+ * on the boundary of a rectangle have the same iteration count,
+ * then the whole rectangle is filled without iterating, otherwise
+ * it is subdivided until the rectangles become small.
+ * Points inside the set are detected early when their orbit becomes
+ * periodic, so that they don't have to use up the whole iteration budget.
+ */
+public abstract class ComplexFractalImpl extends AbstractBufferedImageOp {
+    private static final int BLOCK_SIZE = 64;
+
+    // rectangles smaller than this are always fully calculated
+    private static final int MIN_SUBDIVISION_SIZE = 6;
+
+    // the tolerance for deciding that an orbit became periodic
+    private static final double PERIODICITY_EPSILON = 1.0e-13;
+
+    // marks the not yet calculated pixels
+    private static final int UNKNOWN = -1;
 
-public abstract class ComplexFractalImpl extends PointFilter {
     // the bounds in the complex space
     private final double cxMin;
     private final double cxMax;
@@ -95,19 +122,133 @@ public abstract class ComplexFractalImpl extends PointFilter {
             cyStart =  cyZoomedMin;
         }
 
-        return super.filter(src, dst);
+        int width = src.getWidth();
+        int height = src.getHeight();
+        if (dst == null) {
+            dst = createCompatibleDestImage(src, null);
+        }
+
+        int[] iterations = new int[width * height];
+        Arrays.fill(iterations, UNKNOWN);
+
+        int numBlocksX = (width + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        int numBlocksY = (height + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        pt = createProgressTracker(numBlocksX * numBlocksY);
+        Future<?>[] futures = new Future[numBlocksX * numBlocksY];
+        int index = 0;
+        for (int by = 0; by < numBlocksY; by++) {
+            int y0 = by * BLOCK_SIZE;
+            // neighboring blocks share their boundary pixels
+            int y1 = Math.min(y0 + BLOCK_SIZE, height - 1);
+            for (int bx = 0; bx < numBlocksX; bx++) {
+                int x0 = bx * BLOCK_SIZE;
+                int x1 = Math.min(x0 + BLOCK_SIZE, width - 1);
+                futures[index++] = ThreadPool.submit(() ->
+                    renderRect(iterations, width, x0, y0, x1, y1));
+            }
+        }
+        ThreadPool.waitFor(futures, pt);
+
+        writeColors(iterations, dst);
+        finishProgressTracker();
+
+        return dst;
     }
 
-    protected int calcIteratedColor(double zx, double zy, double cx, double cy) {
-        int it = iterate(zx, zy, cx, cy, maxIterations);
-        return colors[it];
+    /**
+     * Renders the rectangle between the given inclusive
+     * coordinates with the Mariani-Silver algorithm.
+     */
+    private void renderRect(int[] iterations, int width,
+                            int x0, int y0, int x1, int y1) {
+        if (x1 - x0 < MIN_SUBDIVISION_SIZE || y1 - y0 < MIN_SUBDIVISION_SIZE) {
+            for (int y = y0; y <= y1; y++) {
+                for (int x = x0; x <= x1; x++) {
+                    getIterations(iterations, width, x, y);
+                }
+            }
+            return;
+        }
+
+        // check whether the boundary is uniform
+        int first = getIterations(iterations, width, x0, y0);
+        boolean uniform = true;
+        for (int x = x0; x <= x1; x++) {
+            uniform &= getIterations(iterations, width, x, y0) == first;
+            uniform &= getIterations(iterations, width, x, y1) == first;
+        }
+        for (int y = y0 + 1; y < y1; y++) {
+            uniform &= getIterations(iterations, width, x0, y) == first;
+            uniform &= getIterations(iterations, width, x1, y) == first;
+        }
+
+        if (uniform) {
+            for (int y = y0 + 1; y < y1; y++) {
+                int offset = y * width;
+                Arrays.fill(iterations, offset + x0 + 1, offset + x1, first);
+            }
+            return;
+        }
+
+        // subdivide into four rectangles sharing the middle lines
+        int midX = (x0 + x1) / 2;
+        int midY = (y0 + y1) / 2;
+        renderRect(iterations, width, x0, y0, midX, midY);
+        renderRect(iterations, width, midX, y0, x1, midY);
+        renderRect(iterations, width, x0, midY, midX, y1);
+        renderRect(iterations, width, midX, midY, x1, y1);
+    }
+
+    private int getIterations(int[] iterations, int width, int x, int y) {
+        int index = y * width + x;
+        int it = iterations[index];
+        if (it == UNKNOWN) {
+            // if two threads calculate the same pixel,
+            // then they will store the same value
+            it = calcIterations(x, y);
+            iterations[index] = it;
+        }
+        return it;
     }
 
-    private static int iterate(double x, double y, double cx, double cy, int maxIt) {
-        int it = maxIt;
+    private void writeColors(int[] iterations, BufferedImage dst) {
+        int width = dst.getWidth();
+        int height = dst.getHeight();
+        WritableRaster raster = dst.getRaster();
+        boolean packedInts = raster.getDataBuffer() instanceof DataBufferInt;
+        int[] line = new int[width];
+        for (int y = 0; y < height; y++) {
+            int offset = y * width;
+            for (int x = 0; x < width; x++) {
+                line[x] = colors[iterations[offset + x]];
+            }
+            if (packedInts) {
+                raster.setDataElements(0, y, width, 1, line);
+            } else { // gray image
+                dst.setRGB(0, y, width, 1, line, 0, width);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of remaining iterations for the given
+     * pixel, which is zero for the points inside the set.
+     */
+    protected abstract int calcIterations(int x, int y);
+
+    protected int iterate(double x, double y, double cx, double cy) {
+        int it = maxIterations;
         double x2 = 0;
         double y2 = 0;
         double xy;
+
+        // the orbit is compared with a saved point, which is
+        // updated at exponentially growing intervals (Brent's method)
+        double savedX = x;
+        double savedY = y;
+        int period = 0;
+        int checkInterval = 8;
+
         while (x2 + y2 <= 4 && it > 0) {
             it--;
             xy = x * y;
@@ -115,22 +256,17 @@ public abstract class ComplexFractalImpl extends PointFilter {
             y2 = y * y;
             x = x2 - y2 + cx;
             y = xy + xy + cy;
-        }
-        return it;
-    }
 
-    private static int iterateUnOpt(double x, double y, double cx, double cy, int maxIt) {
-        int it = maxIt;
-        while (x * x + y * y < 4 && it > 0) {
-            it--;
-            double xTmp = x * x - y * y + cx;
-            double yTmp = 2.0 * x * y + cy;
-            if (x == xTmp && y == yTmp) {
-                it = 0;
-                break;
+            if (Math.abs(x - savedX) < PERIODICITY_EPSILON
+                && Math.abs(y - savedY) < PERIODICITY_EPSILON) {
+                return 0; // periodic orbit: inside the set
+            }
+            if (++period == checkInterval) {
+                period = 0;
+                checkInterval *= 2;
+                savedX = x;
+                savedY = y;
             }
-            y = yTmp;
-            x = xTmp;
         }
         return it;
     }
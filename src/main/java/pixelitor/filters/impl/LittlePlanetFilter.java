@@ -21,6 +21,8 @@ import net.jafama.FastMath;
 import pixelitor.filters.LittlePlanet;
 import pixelitor.utils.Utils;
 
+import java.util.List;
+
 /**
  * The implementation of the {@link LittlePlanet} filter.
  * This is actually a rectangular -> polar filter with some extra features
@@ -35,6 +37,11 @@ public class LittlePlanetFilter extends CenteredTransformFilter {
         super(LittlePlanet.NAME);
     }
 
+    @Override
+    protected Object getGeometryKey() {
+        return List.of(cx, cy, rotateResult, zoom, innerZoom, inverted);
+    }
+
     @Override
     protected void transformInverse(int x, int y, float[] out) {
         float dx = x - cx;
@@ -19,14 +19,25 @@ package pixelitor.filters.impl;
 
 import com.jhlabs.image.WholeImageFilter;
 import pixelitor.filters.Morphology;
+import pixelitor.utils.BufferPool;
 
-import java.awt.*;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.stream.IntStream;
+
+import static java.awt.image.BufferedImage.TYPE_BYTE_GRAY;
 
 /**
  * The implementation of the {@link Morphology} filter.
+ *
+ * The structuring elements are decomposed into line segments, and the
+ * maximum over each segment is calculated with the van Herk/Gil-Werman
+ * algorithm, which needs three comparisons per pixel, regardless of the
+ * length of the segment. Erosion is calculated as the dilation of the
+ * inverted values.
  */
 public class MorphologyFilter extends WholeImageFilter {
-    private int iterations = 1;
+    private int radius = 1;
 
     public static final int OP_ERODE = 1;
     public static final int OP_DILATE = 2;
@@ -34,8 +45,15 @@ public class MorphologyFilter extends WholeImageFilter {
 
     public static final int KERNEL_DIAMOND = 3;
     public static final int KERNEL_SQUARE = 4;
+    public static final int KERNEL_DISC = 5;
     private int kernel;
 
+    // the directions of the line segments
+    private static final int HORIZONTAL = 0;
+    private static final int VERTICAL = 1;
+    private static final int DIAGONAL = 2; // towards the bottom right
+    private static final int ANTI_DIAGONAL = 3; // towards the top right
+
     public MorphologyFilter(String filterName) {
         super(filterName);
     }
@@ -48,94 +66,310 @@ public class MorphologyFilter extends WholeImageFilter {
         this.op = op;
     }
 
-    public void setIterations(int iterations) {
-        this.iterations = iterations;
+    public void setRadius(int radius) {
+        this.radius = radius;
+    }
+
+    @Override
+    public BufferedImage filter(BufferedImage src, BufferedImage dst) {
+        if (src.getType() != TYPE_BYTE_GRAY) {
+            return super.filter(src, dst);
+        }
+
+        // layer masks are processed directly as bytes
+        pt = createProgressTracker(1);
+        int width = src.getWidth();
+        int height = src.getHeight();
+        byte[] channel = (byte[]) src.getRaster().getDataElements(0, 0, width, height, null);
+        byte[] result = filterChannel(channel, width, height, op, kernel, radius);
+        if (dst == null) {
+            dst = createCompatibleDestImage(src, null);
+        }
+        dst.getRaster().setDataElements(0, 0, width, height, result);
+        pt.unitDone();
+        finishProgressTracker();
+        return dst;
     }
 
     @Override
     protected int[] filterPixels(int width, int height, int[] inPixels, Rectangle transformedSpace) {
+        pt = createProgressTracker(1);
         int numPixels = inPixels.length;
-        short[] inA = new short[numPixels];
-        short[] inR = new short[numPixels];
-        short[] inG = new short[numPixels];
-        short[] inB = new short[numPixels];
-
-        pt = createProgressTracker(iterations);
-        int[] outPixels = new int[width * height];
-        for (int it = 0; it < iterations; it++) {
-            if (it > 0) {
-                System.arraycopy(outPixels, 0, inPixels, 0, numPixels);
-            }
-            for (int i = 0; i < numPixels; i++) {
+        byte[] a = new byte[numPixels];
+        byte[] r = new byte[numPixels];
+        byte[] g = new byte[numPixels];
+        byte[] b = new byte[numPixels];
+        forEachStripe(height, (fromY, toY) -> {
+            for (int i = fromY * width, end = toY * width; i < end; i++) {
                 int rgb = inPixels[i];
-                inA[i] = (short) ((rgb >> 24) & 0xff);
-                inR[i] = (short) ((rgb >> 16) & 0xff);
-                inG[i] = (short) ((rgb >> 8) & 0xff);
-                inB[i] = (short) (rgb & 0xff);
+                a[i] = (byte) (rgb >>> 24);
+                r[i] = (byte) (rgb >>> 16);
+                g[i] = (byte) (rgb >>> 8);
+                b[i] = (byte) rgb;
             }
+        });
 
-            int index = 0;
-            for (int y = 0; y < height; y++) {
-                for (int x = 0; x < width; x++) {
-                    short a = 0xff;
-                    short r = 0xff;
-                    short g = 0xff;
-                    short b = 0xff;
-
-                    if (op == OP_DILATE) {
-                        r = 0;
-                        g = 0;
-                        b = 0;
+        // the dilation has always produced opaque pixels
+        byte[] outA = op == OP_DILATE ? null : filterChannel(a, width, height, op, kernel, radius);
+        byte[] outR = filterChannel(r, width, height, op, kernel, radius);
+        byte[] outG = filterChannel(g, width, height, op, kernel, radius);
+        byte[] outB = filterChannel(b, width, height, op, kernel, radius);
+
+        int[] outPixels = BufferPool.leaseInts(numPixels);
+        forEachStripe(height, (fromY, toY) -> {
+            for (int i = fromY * width, end = toY * width; i < end; i++) {
+                int alpha = outA == null ? 0xFF : outA[i] & 0xFF;
+                outPixels[i] = alpha << 24
+                    | (outR[i] & 0xFF) << 16
+                    | (outG[i] & 0xFF) << 8
+                    | (outB[i] & 0xFF);
+            }
+        });
+        pt.unitDone();
+        finishProgressTracker();
+        return outPixels;
+    }
+
+    /**
+     * Applies the operation to the unsigned byte values of a single channel.
+     * The pixels outside the image are ignored.
+     */
+    static byte[] filterChannel(byte[] channel, int width, int height,
+                                int op, int kernel, int radius) {
+        boolean erode = op == OP_ERODE;
+        byte[] data = erode ? invert(channel) : channel.clone();
+        if (radius > 0) {
+            data = switch (kernel) {
+                case KERNEL_SQUARE -> maxSquare(data, width, height, radius);
+                case KERNEL_DIAMOND -> maxDiamond(data, width, height, radius);
+                case KERNEL_DISC -> maxDisc(data, width, height, radius);
+                default -> throw new IllegalStateException("kernel = " + kernel);
+            };
+        }
+        return erode ? invert(data) : data;
+    }
+
+    private static byte[] maxSquare(byte[] data, int width, int height, int radius) {
+        maxLines(data, width, height, HORIZONTAL, radius);
+        maxLines(data, width, height, VERTICAL, radius);
+        return data;
+    }
+
+    /**
+     * The diamond is decomposed into two diagonal segments, which
+     * result in the even points of a larger diamond, and one or two
+     * 3x3 crosses, which fill in the odd points.
+     */
+    private static byte[] maxDiamond(byte[] data, int width, int height, int radius) {
+        int numCrosses = radius % 2 == 1 ? 1 : 2;
+        int diagonalRadius = (radius - numCrosses) / 2;
+
+        // with a margin, the intermediate results of the
+        // decomposition falling outside the image are not lost
+        int pw = width + 2 * radius;
+        int ph = height + 2 * radius;
+        byte[] padded = new byte[pw * ph];
+        for (int y = 0; y < height; y++) {
+            System.arraycopy(data, y * width, padded, (y + radius) * pw + radius, width);
+        }
+
+        maxLines(padded, pw, ph, DIAGONAL, diagonalRadius);
+        maxLines(padded, pw, ph, ANTI_DIAGONAL, diagonalRadius);
+        for (int i = 0; i < numCrosses; i++) {
+            maxCross(padded, pw, ph);
+        }
+
+        for (int y = 0; y < height; y++) {
+            System.arraycopy(padded, (y + radius) * pw + radius, data, y * width, width);
+        }
+        return data;
+    }
+
+    /**
+     * The disc is the union of rectangles, one for each
+     * distinct chord width. Each rectangle is separable.
+     *
+     * The rectangles are processed from the narrowest to the widest,
+     * so that the horizontal maximums can be widened in place (the maximum
+     * over a segment of radius r2 is the maximum over a segment of radius
+     * r2 - r1 of the maximums of radius r1). Each rectangle is then
+     * calculated from a copy of them in a single leased buffer.
+     */
+    private static byte[] maxDisc(byte[] data, int width, int height, int radius) {
+        int numPixels = data.length;
+        byte[] result = new byte[numPixels];
+        byte[] rect = BufferPool.leaseBytes(numPixels);
+        int prevHalfWidth = 0;
+        for (int dy = radius; dy >= 0; dy--) {
+            int halfWidth = calcHalfChord(radius, dy);
+            if (dy < radius && calcHalfChord(radius, dy + 1) == halfWidth) {
+                continue; // a taller rectangle with the same width was already added
+            }
+            maxLines(data, width, height, HORIZONTAL, halfWidth - prevHalfWidth);
+            prevHalfWidth = halfWidth;
+
+            System.arraycopy(data, 0, rect, 0, numPixels);
+            maxLines(rect, width, height, VERTICAL, dy);
+            forEachStripe(height, (fromY, toY) -> {
+                for (int i = fromY * width, end = toY * width; i < end; i++) {
+                    if ((rect[i] & 0xFF) > (result[i] & 0xFF)) {
+                        result[i] = rect[i];
                     }
+                }
+            });
+        }
+        BufferPool.release(rect);
+        return result;
+    }
 
-                    for (int dy = -1; dy <= 1; dy++) {
-                        int iy = y + dy;
-                        if (0 <= iy && iy < height) {
-                            int xOffset = iy * width;
-                            for (int dx = -1; dx <= 1; dx++) {
-                                if (kernel == KERNEL_DIAMOND) {
-                                    if (dx == dy && dx != 0) {
-                                        continue;
-                                    }
-                                    if (dx == -dy && dx != 0) {
-                                        continue;
-                                    }
-                                }
-
-                                int ix = x + dx;
-                                if (0 <= ix && ix < width) {
-                                    int comparedIndex = xOffset + ix;
-
-                                    if (op == OP_ERODE) {
-                                        a = min(a, inA[comparedIndex]);
-                                        r = min(r, inR[comparedIndex]);
-                                        g = min(g, inG[comparedIndex]);
-                                        b = min(b, inB[comparedIndex]);
-                                    } else {
-                                        a = max(a, inA[comparedIndex]);
-                                        r = max(r, inR[comparedIndex]);
-                                        g = max(g, inG[comparedIndex]);
-                                        b = max(b, inB[comparedIndex]);
-                                    }
-                                }
-                            }
-                        }
+    private static int calcHalfChord(int radius, int dy) {
+        // r * (r + 1) approximates (r + 0.5)^2, which gives rounder discs
+        return (int) Math.sqrt(radius * (radius + 1) - dy * dy);
+    }
+
+    /**
+     * Replaces each value with the maximum of the segment
+     * of the given radius around it in the given direction.
+     */
+    private static void maxLines(byte[] data, int width, int height, int direction, int radius) {
+        if (radius <= 0) {
+            return;
+        }
+        int numLines = switch (direction) {
+            case HORIZONTAL -> height;
+            case VERTICAL -> width;
+            default -> width + height - 1;
+        };
+        int bufferSize = Math.max(width, height) + 2 * radius;
+        forEachStripe(numLines, (fromLine, toLine) -> {
+            int[] padded = new int[bufferSize];
+            int[] left = new int[bufferSize];
+            int[] right = new int[bufferSize];
+            for (int line = fromLine; line < toLine; line++) {
+                int startX;
+                int startY;
+                int step;
+                int length;
+                switch (direction) {
+                    case HORIZONTAL -> {
+                        startX = 0;
+                        startY = line;
+                        step = 1;
+                        length = width;
+                    }
+                    case VERTICAL -> {
+                        startX = line;
+                        startY = 0;
+                        step = width;
+                        length = height;
+                    }
+                    case DIAGONAL -> {
+                        // the lines are indexed by x - y + height - 1
+                        int d = line - height + 1;
+                        startX = Math.max(d, 0);
+                        startY = Math.max(-d, 0);
+                        step = width + 1;
+                        length = Math.min(width - startX, height - startY);
+                    }
+                    default -> {
+                        // the lines are indexed by x + y
+                        startY = Math.min(line, height - 1);
+                        startX = line - startY;
+                        step = 1 - width;
+                        length = Math.min(width - startX, startY + 1);
                     }
-                    outPixels[index++] = a << 24 | r << 16 | g << 8 | b;
                 }
+                maxLine(data, startY * width + startX, step, length,
+                    radius, padded, left, right);
             }
-            pt.unitDone();
+        });
+    }
+
+    /**
+     * The van Herk/Gil-Werman algorithm: the maximum of each window is
+     * the maximum of a suffix and a prefix of two neighboring blocks,
+     * where the blocks have the same size as the windows.
+     */
+    private static void maxLine(byte[] data, int start, int step, int length,
+                                int radius, int[] padded, int[] left, int[] right) {
+        int windowSize = 2 * radius + 1;
+        int n = length + 2 * radius;
+
+        // the values outside the image are 0, which is ignored by the maximum
+        for (int i = 0; i < radius; i++) {
+            padded[i] = 0;
+            padded[n - 1 - i] = 0;
         }
-        finishProgressTracker();
-        return outPixels;
+        for (int i = 0, pos = start; i < length; i++, pos += step) {
+            padded[radius + i] = data[pos] & 0xFF;
+        }
+
+        for (int blockStart = 0; blockStart < n; blockStart += windowSize) {
+            int blockEnd = Math.min(blockStart + windowSize, n);
+            left[blockStart] = padded[blockStart];
+            for (int j = blockStart + 1; j < blockEnd; j++) {
+                left[j] = Math.max(left[j - 1], padded[j]);
+            }
+            right[blockEnd - 1] = padded[blockEnd - 1];
+            for (int j = blockEnd - 2; j >= blockStart; j--) {
+                right[j] = Math.max(right[j + 1], padded[j]);
+            }
+        }
+
+        for (int i = 0, pos = start; i < length; i++, pos += step) {
+            data[pos] = (byte) Math.max(right[i], left[i + windowSize - 1]);
+        }
+    }
+
+    /**
+     * Dilation with the 3x3 cross.
+     */
+    private static void maxCross(byte[] data, int width, int height) {
+        byte[] src = data.clone();
+        forEachStripe(height, (fromY, toY) -> {
+            for (int y = fromY; y < toY; y++) {
+                for (int x = 0; x < width; x++) {
+                    int i = y * width + x;
+                    int max = src[i] & 0xFF;
+                    if (x > 0) {
+                        max = Math.max(max, src[i - 1] & 0xFF);
+                    }
+                    if (x < width - 1) {
+                        max = Math.max(max, src[i + 1] & 0xFF);
+                    }
+                    if (y > 0) {
+                        max = Math.max(max, src[i - width] & 0xFF);
+                    }
+                    if (y < height - 1) {
+                        max = Math.max(max, src[i + width] & 0xFF);
+                    }
+                    data[i] = (byte) max;
+                }
+            }
+        });
     }
 
-    private static short min(short a, short b) {
-        return (a <= b) ? a : b;
+    private static byte[] invert(byte[] data) {
+        byte[] inverted = new byte[data.length];
+        for (int i = 0; i < data.length; i++) {
+            inverted[i] = (byte) ~data[i];
+        }
+        return inverted;
+    }
+
+    /**
+     * Processes the given number of independent lines in parallel stripes.
+     */
+    private static void forEachStripe(int numLines, LineRange range) {
+        int numStripes = Math.min(numLines,
+            4 * Runtime.getRuntime().availableProcessors());
+        IntStream.range(0, numStripes).parallel().forEach(stripe ->
+            range.process(stripe * numLines / numStripes,
+                (stripe + 1) * numLines / numStripes));
     }
 
-    private static short max(short a, short b) {
-        return (a >= b) ? a : b;
+    private interface LineRange {
+        void process(int fromLine, int toLine);
     }
 
     @Override
@@ -143,4 +377,3 @@ public class MorphologyFilter extends WholeImageFilter {
         return "Blur/Minimum";
     }
 }
-
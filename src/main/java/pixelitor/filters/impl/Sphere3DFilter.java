@@ -19,6 +19,8 @@ package pixelitor.filters.impl;
 import net.jafama.FastMath;
 import pixelitor.filters.Sphere3D;
 
+import java.util.List;
+
 /**
  * The implementation of the {@link Sphere3D} filter.
  *
@@ -33,6 +35,11 @@ public class Sphere3DFilter extends CenteredTransformFilter {
         super(Sphere3D.NAME);
     }
 
+    @Override
+    protected Object getGeometryKey() {
+        return List.of(cx, cy, alpha, beta, gamma);
+    }
+
     @Override
     protected void transformInverse(int x, int y, float[] out) {
         float dx = x - cx;
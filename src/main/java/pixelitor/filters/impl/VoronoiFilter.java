@@ -17,40 +17,41 @@
 
 package pixelitor.filters.impl;
 
-import com.jhlabs.image.PointFilter;
+import com.jhlabs.image.AbstractBufferedImageOp;
 import pixelitor.utils.ImageUtils;
 import pixelitor.utils.Metric;
-import pixelitor.utils.Metric.DistanceFunction;
 import pixelitor.utils.ReseedSupport;
 import pixelitor.utils.Shapes;
+import pixelitor.utils.VoronoiDiagram;
 
 import java.awt.Color;
 import java.awt.Graphics2D;
-import java.awt.geom.Line2D;
 import java.awt.image.BufferedImage;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Random;
-import java.util.StringJoiner;
-import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import static java.awt.RenderingHints.KEY_ANTIALIASING;
 import static java.awt.RenderingHints.VALUE_ANTIALIAS_ON;
+import static java.awt.image.BufferedImage.TYPE_BYTE_GRAY;
 
 /**
  * Voronoi Diagram filter implementation
  */
-public class VoronoiFilter extends PointFilter {
+public class VoronoiFilter extends AbstractBufferedImageOp {
     private int numPoints = 10;
     private Metric metric;
     private boolean useImageColors;
 
     private int aaRes = 2;
     private int aaRes2 = aaRes * aaRes;
-    private double gridPixelWidth;
-    private double gridPixelHeight;
-    private GridCell[][] cells;
+
+    private double[] pointsX;
+    private double[] pointsY;
+    private int[] colors;
+    private VoronoiDiagram diagram;
+
+    // the index of the nearest point for each pixel
+    private int[] nearestPoints;
 
     public VoronoiFilter(String filterName) {
         super(filterName);
@@ -77,102 +78,47 @@ public class VoronoiFilter extends PointFilter {
     public BufferedImage filter(BufferedImage src, BufferedImage dst) {
         int width = src.getWidth();
         int height = src.getHeight();
-
-        Random rand = ReseedSupport.reInitialize();
-
-        double aspectRatio = width / (double) height;
-        int numVerGridCells = (int) (1 + Math.sqrt(numPoints / 10.0));
-        int numHorGridCells = (int) (1 + (numVerGridCells * aspectRatio));
-
-        gridPixelWidth = width / (double) numHorGridCells;
-        gridPixelHeight = height / (double) numVerGridCells;
-
-        cells = new GridCell[numHorGridCells][numVerGridCells];
-        for (int i = 0; i < numHorGridCells; i++) {
-            GridCell[] column = new GridCell[numVerGridCells];
-            cells[i] = column;
-            for (int j = 0; j < numVerGridCells; j++) {
-                column[j] = new GridCell(i, j);
-            }
+        if (dst == null) {
+            dst = createCompatibleDestImage(src, null);
         }
 
-        for (int i = 0; i < numHorGridCells; i++) {
-            GridCell[] column = cells[i];
-            GridCell[] leftCol = null;
-            if (i > 0) {
-                leftCol = cells[i - 1];
-            }
-            GridCell[] rightCol = null;
-            if (i < numHorGridCells - 1) {
-                rightCol = cells[i + 1];
-            }
-
-            for (int j = 0; j < numVerGridCells; j++) {
-                GridCell cell = column[j];
-                if (leftCol != null) {
-                    cell.addNeighbour(leftCol[j]); // west
-                    if (j > 0) {
-                        cell.addNeighbour(leftCol[j - 1]); // north-west
-                    }
-                    if (j < numVerGridCells - 1) {
-                        cell.addNeighbour(leftCol[j + 1]); // south-west
-                    }
-                }
-                if (j > 0) {
-                    cell.addNeighbour(column[j - 1]); // north
-                }
-                if (j < numVerGridCells - 1) {
-                    cell.addNeighbour(column[j + 1]); // south
-                }
-                if (rightCol != null) {
-                    cell.addNeighbour(rightCol[j]); // east
-                    if (j > 0) {
-                        cell.addNeighbour(rightCol[j - 1]); // north-east
-                    }
-                    if (j < numVerGridCells - 1) {
-                        cell.addNeighbour(rightCol[j + 1]); // south-east
-                    }
-                }
-            }
-        }
+        Random rand = ReseedSupport.reInitialize();
 
+        pointsX = new double[numPoints];
+        pointsY = new double[numPoints];
+        colors = new int[numPoints];
         for (int i = 0; i < numPoints; i++) {
             int x = rand.nextInt(width);
             int y = rand.nextInt(height);
-            int color;
 
+            pointsX[i] = x;
+            pointsY[i] = y;
             if (useImageColors) {
-                color = src.getRGB(x, y);
+                colors[i] = src.getRGB(x, y);
             } else {
-                color = 0xFF_00_00_00 | rand.nextInt(0xFF_FF_FF);
+                colors[i] = 0xFF_00_00_00 | rand.nextInt(0xFF_FF_FF);
             }
-            VorPoint point = new VorPoint(x, y, color);
-
-            int gridIndexX = (int) (x / gridPixelWidth);
-            int gridIndexY = (int) (y / gridPixelHeight);
-            cells[gridIndexX][gridIndexY].points.add(point);
         }
+        diagram = new VoronoiDiagram(pointsX, pointsY, width, height, metric);
 
-        return super.filter(src, dst);
-    }
+        pt = createProgressTracker(height);
+        nearestPoints = diagram.findNearestForPixels(width, height, pt);
+        finishProgressTracker();
 
-    public void debugGrid(BufferedImage img) {
-        int width = img.getWidth();
-        int height = img.getHeight();
-        Graphics2D rg = img.createGraphics();
-        double yy = 0;
-        while (yy < height) {
-            yy += gridPixelHeight;
-            Line2D.Double line = new Line2D.Double(0, yy, width, yy);
-            rg.draw(line);
-        }
-        double xx = 0;
-        while (xx < width) {
-            xx += gridPixelWidth;
-            Line2D.Double line = new Line2D.Double(xx, 0, xx, height);
-            rg.draw(line);
+        if (dst.getType() == TYPE_BYTE_GRAY) {
+            int[] rgb = new int[width * height];
+            for (int i = 0; i < rgb.length; i++) {
+                rgb[i] = colors[nearestPoints[i]];
+            }
+            dst.setRGB(0, 0, width, height, rgb, 0, width);
+        } else {
+            int[] outPixels = ImageUtils.getPixelsAsArray(dst);
+            for (int i = 0; i < outPixels.length; i++) {
+                outPixels[i] = colors[nearestPoints[i]];
+            }
         }
-        rg.dispose();
+
+        return dst;
     }
 
     public void showPoints(BufferedImage img) {
@@ -186,57 +132,13 @@ public class VoronoiFilter extends PointFilter {
         if (useImageColors) {
             g.setXORMode(Color.WHITE);
         }
-        for (GridCell[] cols : cells) {
-            for (GridCell cell : cols) {
-                for (VorPoint point : cell.points) {
-                    g.fill(Shapes.createCircle(point.x, point.y, radius));
-                }
-            }
+        for (int i = 0; i < numPoints; i++) {
+            g.fill(Shapes.createCircle(pointsX[i], pointsY[i], radius));
         }
         g.dispose();
     }
 
-    @Override
-    public int filterRGB(int x, int y, int rgb) {
-        int gridIndexX = (int) (x / gridPixelWidth);
-        int gridIndexY = (int) (y / gridPixelHeight);
-        VorPoint closest = cells[gridIndexX][gridIndexY].findClosestPointTo(x, y,
-            metric.asIntPrecisionDistance());
-        return closest.color;
-    }
-
-    /**
-     * Check whether the pixel is different from its neighbours.
-     */
-    private static boolean isEdge(int[] allPixels, int pixelIndex, int width) {
-        int color = allPixels[pixelIndex];
-        int colorLeft = allPixels[pixelIndex - 1];
-        int colorRight = allPixels[pixelIndex + 1];
-        if (color != colorLeft || color != colorRight) {
-            return true;
-        }
-        int colorUp = allPixels[pixelIndex - width];
-        int colorDown = allPixels[pixelIndex + width];
-        if (color != colorUp || color != colorDown) {
-            return true;
-        }
-        return false;
-    }
-
-    private static boolean tryIsEdge(int width, int[] pixelsCopy, int i) {
-        boolean edge;
-        try {
-            edge = isEdge(pixelsCopy, i, width);
-        } catch (ArrayIndexOutOfBoundsException e) {
-            edge = false;
-        }
-        return edge;
-    }
-
-    private int calcSuperSampledColor(int pixelIndex, int width) {
-        int x = pixelIndex % width;
-        int y = pixelIndex / width;
-
+    private int calcSuperSampledColor(int x, int y) {
         int r = 0;
         int g = 0;
         int b = 0;
@@ -246,11 +148,7 @@ public class VoronoiFilter extends PointFilter {
             for (int j = 0; j < aaRes; j++) {
                 double xx = x + 1.0 / aaRes * j - 0.5;
                 // xx and yy are the supersampling coordinates
-                int gridIndexX = (int) (xx / gridPixelWidth);
-                int gridIndexY = (int) (yy / gridPixelHeight);
-                VorPoint closest = cells[gridIndexX][gridIndexY].findClosestPointTo(xx, yy,
-                    metric.asDoublePrecisionDistance());
-                int color = closest.color;
+                int color = colors[diagram.findNearest(xx, yy)];
                 r += (color >>> 16) & 0xFF;
                 g += (color >>> 8) & 0xFF;
                 b += color & 0xFF;
@@ -266,96 +164,17 @@ public class VoronoiFilter extends PointFilter {
     public void antiAlias(BufferedImage imgSoFar) {
         assert aaRes != 0;
         int width = imgSoFar.getWidth();
+        int height = imgSoFar.getHeight();
         int[] pixels = ImageUtils.getPixelsAsArray(imgSoFar);
 
-        // since this code runs outside the superclass-powered
-        // parallelization, use parallel streams
-        int[] aaPixels = IntStream.range(0, pixels.length).parallel()
-            .map(i -> {
-                // only pixels at the edges are supersampled
-                if (tryIsEdge(width, pixels, i)) {
-                    return calcSuperSampledColor(i, width);
-                } else {
-                    return pixels[i];
-                }
-            }).toArray();
-        System.arraycopy(aaPixels, 0, pixels, 0, pixels.length);
-    }
-
-    private static class VorPoint {
-        final int x;
-        final int y;
-        final int color;
-
-        public VorPoint(int x, int y, int color) {
-            this.x = x;
-            this.y = y;
-            this.color = color;
-        }
-
-        @Override
-        public String toString() {
-            return "{x=" + x + ", y=" + y + '}';
-        }
-    }
-
-    private static class GridCell {
-        final List<VorPoint> points = new ArrayList<>();
-        final List<GridCell> neighbours = new ArrayList<>();
-        final int horPos;
-        final int verPos;
-
-        public GridCell(int horPos, int verPos) {
-            this.horPos = horPos;
-            this.verPos = verPos;
-        }
-
-        public void addNeighbour(GridCell n) {
-            if (n == this) {
-                throw new IllegalStateException();
-            }
-            neighbours.add(n);
-        }
-
-        public VorPoint findClosestPointTo(double x, double y, DistanceFunction distFunc) {
-            double minDistSoFar = Double.POSITIVE_INFINITY;
-            VorPoint closest = null;
-
-            for (VorPoint point : points) {
-                double dist = distFunc.apply(x, point.x, y, point.y);
-                if (dist < minDistSoFar) {
-                    minDistSoFar = dist;
-                    closest = point;
+        // only the pixels at the edges are supersampled. Since the pixels
+        // are modified only at the edges, they can be updated in place
+        IntStream.range(0, height).parallel().forEach(y -> {
+            for (int x = 0; x < width; x++) {
+                if (VoronoiDiagram.isEdge(nearestPoints, width, height, x, y)) {
+                    pixels[x + y * width] = calcSuperSampledColor(x, y);
                 }
             }
-
-            for (GridCell neighbour : neighbours) {
-                for (VorPoint point : neighbour.points) {
-                    double dist = distFunc.apply(x, point.x, y, point.y);
-                    if (dist < minDistSoFar) {
-                        minDistSoFar = dist;
-                        closest = point;
-                    }
-                }
-            }
-
-            return closest;
-        }
-
-        public String toPosString() {
-            return new StringJoiner(", ", "Cell(", ")")
-                .add("" + horPos)
-                .add("" + verPos)
-                .toString();
-        }
-
-        @Override
-        public String toString() {
-            return new StringJoiner(", ", "Cell[", "]")
-                .add("" + horPos)
-                .add("" + verPos)
-                .add("neighbours=" + neighbours.stream().map(GridCell::toPosString).collect(Collectors.joining(",")))
-                .toString();
-        }
+        });
     }
 }
@@ -27,7 +27,6 @@ import pixelitor.utils.ImageUtils;
 
 import java.awt.Color;
 import java.awt.Graphics2D;
-import java.awt.Paint;
 import java.awt.RadialGradientPaint;
 import java.awt.image.BufferedImage;
 
@@ -68,16 +67,17 @@ public class JHConcentricHalftone extends JHMaskedHalftone {
         float cy = src.getHeight() * center.getRelativeY();
         float radius = stripesDistance.getValueAsFloat() / distanceCorrection;
         int type = gradientType.getValue();
-        Paint paint;
         if (type == TYPE_CONCENTRIC) {
             float[] fractions = {0.0f, 1.0f};
             Color[] colors = {BLACK, WHITE};
-            paint = new RadialGradientPaint(cx, cy,
-                    radius, fractions, colors, cycleMethod);
+            g.setPaint(new RadialGradientPaint(cx, cy,
+                    radius, fractions, colors, cycleMethod));
+            g.fillRect(0, 0, src.getWidth(), src.getHeight());
         } else {
             ImDrag imDrag = new ImDrag(cx, cy, cx + 2 * radius, cy);
             Color startColor = BLACK;
             Color endColor = WHITE;
+            SpiralGradientPaint paint;
             if (type == TYPE_SPIRAL_CW) {
                 paint = new SpiralGradientPaint(true,
                         imDrag, startColor, endColor, cycleMethod);
@@ -87,10 +87,9 @@ public class JHConcentricHalftone extends JHMaskedHalftone {
             } else {
                 throw new IllegalStateException("type = " + type);
             }
+            // the spiral is rendered in parallel
+            g.drawImage(paint.createImage(src.getWidth(), src.getHeight(), false), 0, 0, null);
         }
-
-        g.setPaint(paint);
-        g.fillRect(0, 0, src.getWidth(), src.getHeight());
         g.dispose();
         return stripes;
     }
@@ -22,6 +22,8 @@ import org.jdesktop.swingx.painter.effects.AreaEffect;
 import pixelitor.Canvas;
 
 import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.NoninvertibleTransformException;
 import java.awt.image.BufferedImage;
 import java.io.Serial;
 
@@ -116,13 +118,30 @@ public class TransformedTextPainter extends TextPainter {
         if (effects.length != 0) {
             // provideShape must be called on an untransformed shape
             Shape shape = provideShape(g, component, canvasWidth, canvasHeight);
-            Shape transformedShape = tx.createTransformedShape(shape);
+            Shape transformedShape = calcTextTransform(origTransform, tx)
+                .createTransformedShape(shape);
             for (AreaEffect ef : effects) {
                 ef.apply(g, transformedShape, canvasWidth, canvasHeight);
             }
         }
     }
 
+    /**
+     * Returns the transform that was added to the original
+     * transform of the Graphics2D in order to paint the text.
+     */
+    private static AffineTransform calcTextTransform(AffineTransform origTransform,
+                                                     AffineTransform textTransform) {
+        try {
+            AffineTransform at = origTransform.createInverse();
+            at.concatenate(textTransform);
+            return at;
+        } catch (NoninvertibleTransformException e) {
+            // the text can't be visible anyway
+            return textTransform;
+        }
+    }
+
     // sets up the given Graphics2D so that it is usable
     // from both doPaint and getTextShape
     private FontMetrics setupGraphics(Graphics2D g, int canvasWidth, int canvasHeight, String text) {
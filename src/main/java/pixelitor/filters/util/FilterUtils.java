@@ -21,6 +21,7 @@ import pixelitor.filters.Fade;
 import pixelitor.filters.Filter;
 import pixelitor.filters.RGBPixelOp;
 import pixelitor.filters.RepeatLast;
+import pixelitor.menus.LazyMenu;
 import pixelitor.utils.ImageUtils;
 import pixelitor.utils.Rnd;
 
@@ -46,19 +47,19 @@ public class FilterUtils {
 
     // it returns an array because JComboBox does not accept Lists as constructor arguments
     public static FilterAction[] getAllFiltersSorted() {
-        FilterAction[] filters = allFilters.toArray(EMPTY_FA_ARRAY);
+        FilterAction[] filters = getAllFilters().toArray(EMPTY_FA_ARRAY);
         Arrays.sort(filters, comparing(FilterAction::getName));
         return filters;
     }
 
     public static FilterAction[] getAnimationFilters() {
-        return allFilters.stream()
+        return getAllFilters().stream()
             .filter(FilterAction::isAnimationFilter)
             .toArray(FilterAction[]::new);
     }
 
     public static FilterAction[] getAnimationFiltersSorted() {
-        return allFilters.stream()
+        return getAllFilters().stream()
             .filter(FilterAction::isAnimationFilter)
             .sorted(comparing(FilterAction::getListName))
             .toArray(FilterAction[]::new);
@@ -69,7 +70,7 @@ public class FilterUtils {
         FilterAction filterAction;
         do {
             // try a random filter until all conditions are true
-            filterAction = Rnd.chooseFrom(allFilters);
+            filterAction = Rnd.chooseFrom(getAllFilters());
         } while (!conditions.test(filterAction.getFilter()));
 
         return filterAction.getFilter();
@@ -77,7 +78,7 @@ public class FilterUtils {
 
     public static Filter[] getFiltersShuffled(Predicate<Filter> predicate) {
         // used only in test code, no problem if all filters are instantiated
-        Filter[] filters = allFilters.stream()
+        Filter[] filters = getAllFilters().stream()
             .map(FilterAction::getFilter)
             .filter(predicate).toArray(Filter[]::new);
 
@@ -122,10 +123,17 @@ public class FilterUtils {
         allFilters.add(filter);
     }
 
+    private static List<FilterAction> getAllFilters() {
+        // some filters are registered only when their menu items are created
+        LazyMenu.createAllItems();
+
+        return allFilters;
+    }
+
     public static void createAllFilters() {
         long startTime = System.nanoTime();
 
-        allFilters.forEach(FilterAction::getFilter);
+        getAllFilters().forEach(FilterAction::getFilter);
 
         double estimatedSeconds = (System.nanoTime() - startTime) / 1_000_000_000.0;
         System.out.printf("FilterUtils::createAllFilters: estimatedSeconds = '%.2f'%n", estimatedSeconds);
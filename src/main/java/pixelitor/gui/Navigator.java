@@ -75,6 +75,8 @@ public class Navigator extends JComponent
 
     private static Navigator navigatorPanel;
 
+    private final NavigatorCache cache = new NavigatorCache(this::repaint);
+
     private Navigator(View view) {
         adjListener = e ->
             SwingUtilities.invokeLater(this::updateViewBoxPosition);
@@ -196,6 +198,7 @@ public class Navigator extends JComponent
             if (this.view != null) {
                 releaseImage();
             }
+            cache.invalidate(false);
 
             this.view = view;
             scrollPane = view.getViewContainer().getScrollPane();
@@ -212,6 +215,7 @@ public class Navigator extends JComponent
             recalculateScaling(view, DEFAULT_NAVIGATOR_SIZE, DEFAULT_NAVIGATOR_SIZE);
         } else if (viewSizeChanged || navigatorResized) {
             recalculateScaling(view, getWidth(), getHeight());
+            cache.invalidate(true);
         } else {
             throw new IllegalStateException();
         }
@@ -237,6 +241,15 @@ public class Navigator extends JComponent
         repaint();
     }
 
+    /**
+     * Called when the composite image of the navigated view
+     * has been invalidated. The dirty region is in image space,
+     * and null means that the whole image has changed.
+     */
+    public void compositeChanged(Rectangle imDirty) {
+        cache.compositeChanged(imDirty);
+    }
+
     private void releaseImage() {
         view.setNavigator(null);
         scrollPane.getHorizontalScrollBar().removeAdjustmentListener(adjListener);
@@ -295,11 +308,8 @@ public class Navigator extends JComponent
 
         checkerBoardPainter.paint(g2, null, thumbWidth, thumbHeight);
 
-        var origTransform = g2.getTransform();
-
-        g2.scale(imgScalingRatio, imgScalingRatio);
-        g2.drawImage(view.getComp().getCompositeImage(), 0, 0, null);
-        g2.setTransform(origTransform);
+        cache.paint(g2, view.getComp().getCompositeImage(),
+            imgScalingRatio, thumbWidth, thumbHeight);
 
         g2.setStroke(VIEW_BOX_STROKE);
         g2.setColor(viewBoxColor);
@@ -428,6 +438,7 @@ public class Navigator extends JComponent
 
     private void dispose() {
         OpenImages.removeActivationListener(this);
+        cache.invalidate(false);
     }
 
     @Override
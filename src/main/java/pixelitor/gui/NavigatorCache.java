@@ -0,0 +1,295 @@
+/*
+ * Copyright 2021 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.gui;
+
+import pixelitor.utils.Messages;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.concurrent.CompletableFuture;
+
+import static java.awt.RenderingHints.KEY_INTERPOLATION;
+import static java.awt.RenderingHints.VALUE_INTERPOLATION_BILINEAR;
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB_PRE;
+import static pixelitor.utils.Threads.calledOnEDT;
+import static pixelitor.utils.Threads.onEDT;
+import static pixelitor.utils.Threads.onPool;
+import static pixelitor.utils.Threads.threadInfo;
+
+/**
+ * The downsampled copy of a composite image shown by the {@link Navigator}.
+ *
+ * The thumbnail is regenerated only if the composite image has changed.
+ * Small changes (brush strokes) are applied synchronously only
+ * to the affected region of the thumbnail, while full
+ * regenerations run on the thread pool.
+ * All methods must be called on the EDT.
+ */
+class NavigatorCache {
+    // if a dirty region is larger than this fraction of the
+    // canvas, then the thumbnail is regenerated asynchronously
+    private static final double MAX_SYNC_UPDATE_AREA = 0.25;
+
+    private BufferedImage thumb;
+
+    // the composite image which is currently reflected by the thumb
+    private BufferedImage thumbSrc;
+
+    // the changes since thumbSrc was calculated,
+    // in image space. Null if there are no known changes.
+    private Rectangle dirty;
+    private boolean allDirty = true;
+
+    // the state of the asynchronous regeneration
+    private BufferedImage pendingSrc;
+    private Rectangle pendingDirty;
+    private boolean pendingAllDirty;
+    private int generation;
+
+    private final Runnable repaintCallback;
+
+    NavigatorCache(Runnable repaintCallback) {
+        this.repaintCallback = repaintCallback;
+    }
+
+    /**
+     * Called when the composite image has been invalidated.
+     * If the dirty region is null, then the whole image is considered changed.
+     */
+    void compositeChanged(Rectangle imDirty) {
+        assert calledOnEDT() : threadInfo();
+
+        if (imDirty == null) {
+            allDirty = true;
+            dirty = null;
+        } else if (!allDirty) {
+            dirty = union(dirty, imDirty);
+        }
+
+        if (pendingSrc != null) {
+            if (imDirty == null) {
+                pendingAllDirty = true;
+                pendingDirty = null;
+            } else if (!pendingAllDirty) {
+                pendingDirty = union(pendingDirty, imDirty);
+            }
+        }
+    }
+
+    /**
+     * Called when the thumbnail size changes, or when
+     * the navigator starts to show a different view.
+     */
+    void invalidate(boolean keepStaleThumb) {
+        assert calledOnEDT() : threadInfo();
+
+        if (!keepStaleThumb) {
+            thumb = null;
+        }
+        thumbSrc = null;
+        allDirty = true;
+        dirty = null;
+
+        // discard the result of a running regeneration
+        pendingSrc = null;
+        generation++;
+    }
+
+    /**
+     * Paints a thumbnail of the given composite image at the given size,
+     * starting an asynchronous regeneration if the cached one is outdated.
+     */
+    void paint(Graphics2D g2, BufferedImage src, double scaling,
+               int thumbWidth, int thumbHeight) {
+        assert calledOnEDT() : threadInfo();
+
+        if (thumbWidth <= 0 || thumbHeight <= 0) {
+            return;
+        }
+
+        boolean sizeMatches = thumb != null
+            && thumb.getWidth() == thumbWidth
+            && thumb.getHeight() == thumbHeight;
+
+        // The same composite image can still have pending changes, because
+        // the notifications of changes made outside the EDT arrive later,
+        // possibly after the image was already recalculated.
+        boolean upToDate = src == thumbSrc && !allDirty && dirty == null;
+        if (sizeMatches && upToDate) {
+            g2.drawImage(thumb, 0, 0, null);
+            return;
+        }
+
+        if (sizeMatches && canUpdateRegion(src)) {
+            updateRegion(src, scaling);
+            g2.drawImage(thumb, 0, 0, null);
+            return;
+        }
+
+        if (thumb != null) {
+            // paint the stale thumb until the new one arrives
+            g2.drawImage(thumb, 0, 0, thumbWidth, thumbHeight, null);
+        } else {
+            // there is nothing cached yet
+            var origTransform = g2.getTransform();
+            g2.scale(scaling, scaling);
+            g2.drawImage(src, 0, 0, null);
+            g2.setTransform(origTransform);
+        }
+
+        if (pendingSrc != src) {
+            regenerateAsync(src, scaling, thumbWidth, thumbHeight);
+        }
+    }
+
+    private boolean canUpdateRegion(BufferedImage src) {
+        if (allDirty || dirty == null || thumbSrc == null) {
+            return false;
+        }
+        if (src.getWidth() != thumbSrc.getWidth()
+            || src.getHeight() != thumbSrc.getHeight()) {
+            return false;
+        }
+        double dirtyArea = (double) dirty.width * dirty.height;
+        double fullArea = (double) src.getWidth() * src.getHeight();
+        return dirtyArea <= MAX_SYNC_UPDATE_AREA * fullArea;
+    }
+
+    private void updateRegion(BufferedImage src, double scaling) {
+        int tx1 = (int) Math.floor(dirty.x * scaling);
+        int ty1 = (int) Math.floor(dirty.y * scaling);
+        int tx2 = (int) Math.ceil((dirty.x + dirty.width) * scaling);
+        int ty2 = (int) Math.ceil((dirty.y + dirty.height) * scaling);
+        Rectangle thumbRegion = new Rectangle(tx1, ty1, tx2 - tx1, ty2 - ty1)
+            .intersection(new Rectangle(0, 0, thumb.getWidth(), thumb.getHeight()));
+        if (!thumbRegion.isEmpty()) {
+            downsample(src, thumb, scaling, thumbRegion);
+        }
+
+        thumbSrc = src;
+        dirty = null;
+    }
+
+    private void regenerateAsync(BufferedImage src, double scaling,
+                                 int thumbWidth, int thumbHeight) {
+        pendingSrc = src;
+        pendingDirty = null;
+        pendingAllDirty = false;
+        int requestGeneration = ++generation;
+
+        CompletableFuture.supplyAsync(() -> {
+            var newThumb = new BufferedImage(thumbWidth, thumbHeight, TYPE_INT_ARGB_PRE);
+            downsample(src, newThumb, scaling,
+                new Rectangle(0, 0, thumbWidth, thumbHeight));
+            return newThumb;
+        }, onPool).thenAcceptAsync(newThumb -> {
+            if (requestGeneration != generation) {
+                return; // superseded
+            }
+            thumb = newThumb;
+            thumbSrc = pendingSrc;
+            dirty = pendingDirty;
+            allDirty = pendingAllDirty;
+            pendingSrc = null;
+            repaintCallback.run();
+        }, onEDT).exceptionally(Messages::showExceptionOnEDT);
+    }
+
+    /**
+     * Calculates the given region of the destination by
+     * averaging all source pixels that fall into a destination pixel.
+     */
+    static void downsample(BufferedImage src, BufferedImage dst,
+                           double scaling, Rectangle dstRegion) {
+        if (src.getType() != TYPE_INT_ARGB_PRE || dst.getType() != TYPE_INT_ARGB_PRE
+            || scaling >= 1.0) {
+            // no averaging is necessary (or possible) in these cases
+            Graphics2D g = dst.createGraphics();
+            g.setClip(dstRegion);
+            g.setComposite(AlphaComposite.Src);
+            g.setRenderingHint(KEY_INTERPOLATION, VALUE_INTERPOLATION_BILINEAR);
+            g.scale(scaling, scaling);
+            g.drawImage(src, 0, 0, null);
+            g.dispose();
+            return;
+        }
+
+        int srcWidth = src.getWidth();
+        int srcHeight = src.getHeight();
+        int dstWidth = dst.getWidth();
+        int[] srcPixels = ((DataBufferInt) src.getRaster().getDataBuffer()).getData();
+        int[] dstPixels = ((DataBufferInt) dst.getRaster().getDataBuffer()).getData();
+
+        // the source column range of every destination column in the region
+        int[] colStart = new int[dstRegion.width];
+        int[] colEnd = new int[dstRegion.width];
+        for (int i = 0; i < dstRegion.width; i++) {
+            int dx = dstRegion.x + i;
+            colStart[i] = srcStart(dx, scaling, srcWidth);
+            colEnd[i] = srcEnd(dx, scaling, srcWidth, colStart[i]);
+        }
+
+        for (int dy = dstRegion.y; dy < dstRegion.y + dstRegion.height; dy++) {
+            int rowStart = srcStart(dy, scaling, srcHeight);
+            int rowEnd = srcEnd(dy, scaling, srcHeight, rowStart);
+            int dstOffset = dy * dstWidth;
+
+            for (int i = 0; i < dstRegion.width; i++) {
+                int x1 = colStart[i];
+                int x2 = colEnd[i];
+                long a = 0, r = 0, g = 0, b = 0;
+                for (int sy = rowStart; sy < rowEnd; sy++) {
+                    int srcOffset = sy * srcWidth;
+                    for (int sx = x1; sx < x2; sx++) {
+                        int rgb = srcPixels[srcOffset + sx];
+                        a += rgb >>> 24;
+                        r += (rgb >>> 16) & 0xFF;
+                        g += (rgb >>> 8) & 0xFF;
+                        b += rgb & 0xFF;
+                    }
+                }
+                long count = (long) (x2 - x1) * (rowEnd - rowStart);
+                long half = count / 2;
+                dstPixels[dstOffset + dstRegion.x + i] =
+                    (int) ((a + half) / count) << 24
+                        | (int) ((r + half) / count) << 16
+                        | (int) ((g + half) / count) << 8
+                        | (int) ((b + half) / count);
+            }
+        }
+    }
+
+    private static int srcStart(int dstCoord, double scaling, int srcSize) {
+        return Math.min(srcSize - 1, (int) (dstCoord / scaling));
+    }
+
+    private static int srcEnd(int dstCoord, double scaling, int srcSize, int start) {
+        int end = (int) ((dstCoord + 1) / scaling);
+        return Math.max(start + 1, Math.min(srcSize, end));
+    }
+
+    private static Rectangle union(Rectangle r, Rectangle newRect) {
+        if (r == null) {
+            return new Rectangle(newRect);
+        }
+        return r.union(newRect);
+    }
+}
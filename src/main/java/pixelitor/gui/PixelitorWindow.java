@@ -31,6 +31,7 @@ import pixelitor.tools.Tools;
 import pixelitor.tools.gui.ToolSettingsPanelContainer;
 import pixelitor.tools.gui.ToolsPanel;
 import pixelitor.utils.AppPreferences;
+import pixelitor.utils.StartupTimer;
 
 import javax.swing.*;
 import java.awt.*;
@@ -66,10 +67,13 @@ public class PixelitorWindow extends JFrame {
         setupWindowClosing();
 
         addMenus();
+        StartupTimer.phaseEnded("menus");
         addImagesArea();
         addLayersAndHistograms();
+        StartupTimer.phaseEnded("layers and histograms");
         addToolsPanel(screenSize);
         Tools.setDefaultTool();
+        StartupTimer.phaseEnded("tools");
         addStatusBar();
 
         setupIcons();
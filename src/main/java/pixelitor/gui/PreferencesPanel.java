@@ -25,10 +25,12 @@ import pixelitor.gui.utils.*;
 import pixelitor.guides.GuideStrokeType;
 import pixelitor.guides.GuideStyle;
 import pixelitor.history.History;
+import pixelitor.io.OpenRaster;
 import pixelitor.layers.LayerButtonLayout;
 import pixelitor.utils.AppPreferences;
 import pixelitor.utils.Cursors;
 import pixelitor.utils.Language;
+import pixelitor.utils.MemoryManager;
 
 import javax.swing.*;
 import javax.swing.border.Border;
@@ -46,6 +48,7 @@ public class PreferencesPanel extends JPanel {
     private static final Border EMPTY_BORDER =
         BorderFactory.createEmptyBorder(0, 10, 5, 0);
     private JTextField undoLevelsTF;
+    private JTextField memoryBudgetTF;
     private JComboBox<IntChoiceParam.Item> thumbSizeCB;
     private JComboBox<MouseZoomMethod> zoomMethodCB;
     private JComboBox<PanMethod> panMethodCB;
@@ -82,7 +85,9 @@ public class PreferencesPanel extends JPanel {
 //        addThemeChooser(gbh);
         addUIChooser(gbh);
         addUndoLevelsChooser(gbh);
+        addMemoryBudgetChooser(gbh);
         addThumbSizeChooser(gbh);
+        addORAMergedImageChooser(gbh);
 
         generalPanel.setBorder(EMPTY_BORDER);
         return generalPanel;
@@ -148,6 +153,17 @@ public class PreferencesPanel extends JPanel {
                 undoLevelsTF, true));
     }
 
+    private void addMemoryBudgetChooser(GridBagHelper gbh) {
+        memoryBudgetTF = new JTextField(3);
+        memoryBudgetTF.setName("memoryBudgetTF");
+        memoryBudgetTF.setText(String.valueOf(MemoryManager.getBudgetPercent()));
+        memoryBudgetTF.setToolTipText("<html>The percentage of the maximum memory that can be used by images." +
+            "<br>Above it, the caches are freed and old undo images are moved into temporary files.");
+        gbh.addLabelAndControl("Memory Budget (%): ",
+            TextFieldValidator.createPositiveIntLayer("Memory Budget",
+                memoryBudgetTF, false));
+    }
+
     private void addThumbSizeChooser(GridBagHelper gbh) {
         IntChoiceParam.Item[] thumbSizes = {
             new IntChoiceParam.Item("24x24 pixels", 24),
@@ -165,6 +181,16 @@ public class PreferencesPanel extends JPanel {
         thumbSizeCB.addActionListener(e -> updateThumbSize());
     }
 
+    private static void addORAMergedImageChooser(GridBagHelper gbh) {
+        var mergedImageCB = new JCheckBox("", OpenRaster.isAddMergedImage());
+        mergedImageCB.setName("oraMergedImageCB");
+        mergedImageCB.setToolTipText("<html>Other programs might use it for thumbnails." +
+            "<br>Leaving it out makes saving faster.");
+        gbh.addLabelAndControl("Save Merged Image in ORA Files: ", mergedImageCB);
+        mergedImageCB.addActionListener(e ->
+            OpenRaster.setAddMergedImage(mergedImageCB.isSelected()));
+    }
+
     private static JPanel createGuidesPanel() {
         var guidesPanel = new JPanel(new GridBagLayout());
         var gbh = new GridBagHelper(guidesPanel);
@@ -264,6 +290,21 @@ public class PreferencesPanel extends JPanel {
             return false;
         }
 
+        int memoryBudget;
+        try {
+            memoryBudget = parseInt(memoryBudgetTF.getText().trim());
+        } catch (NumberFormatException ex) {
+            memoryBudget = -1;
+        }
+        if (memoryBudget < MemoryManager.MIN_BUDGET_PERCENT
+            || memoryBudget > MemoryManager.MAX_BUDGET_PERCENT) {
+            Dialogs.showErrorDialog(d, "Error", String.format(
+                "<html>The <b>Memory Budget</b> must be between %d and %d.",
+                MemoryManager.MIN_BUDGET_PERCENT, MemoryManager.MAX_BUDGET_PERCENT));
+            return false;
+        }
+        MemoryManager.setBudgetPercent(memoryBudget);
+
         // the mouse zoom and pan can't be set interactively => set it here
         MouseZoomMethod.changeTo((MouseZoomMethod) zoomMethodCB.getSelectedItem());
         PanMethod.changeTo((PanMethod) panMethodCB.getSelectedItem());
@@ -35,6 +35,7 @@ import pixelitor.utils.ImageUtils;
 import pixelitor.utils.Lazy;
 import pixelitor.utils.Messages;
 import pixelitor.utils.debug.DebugNodes;
+import pixelitor.utils.perf.Probe;
 import pixelitor.utils.test.Assertions;
 
 import javax.swing.*;
@@ -45,7 +46,6 @@ import java.awt.event.MouseMotionListener;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
-import java.awt.image.BufferedImage;
 
 import static java.awt.Color.BLACK;
 import static java.lang.String.format;
@@ -298,6 +298,7 @@ public class View extends JComponent implements MouseListener, MouseMotionListen
 
     @Override
     public void paintComponent(Graphics g) {
+        long startTime = System.nanoTime();
         Shape originalClip = g.getClip();
 
         Graphics2D g2 = (Graphics2D) g;
@@ -330,8 +331,7 @@ public class View extends JComponent implements MouseListener, MouseMotionListen
             assert mask != null : "no mask in " + maskViewMode;
             mask.paintLayerOnGraphics(g2, true);
         } else {
-            BufferedImage compositeImage = comp.getCompositeImage();
-            g2.drawImage(compositeImage, 0, 0, null);
+            comp.paintCompositeImage(g2);
 
             if (maskViewMode.showRuby()) {
                 LayerMask mask = comp.getActiveLayer().getMask();
@@ -364,6 +364,7 @@ public class View extends JComponent implements MouseListener, MouseMotionListen
         }
 
         g2.setClip(originalClip);
+        Probe.VIEW_PAINT.recordSince(startTime);
     }
 
     public void paintImmediately() {
@@ -813,6 +814,24 @@ public class View extends JComponent implements MouseListener, MouseMotionListen
         this.navigator = navigator;
     }
 
+    /**
+     * Informs the navigator (if there is one) that the composite image
+     * has changed in the given image-space region (null means everything).
+     */
+    public void compositeChanged(Rectangle imDirty) {
+        if (navigator != null) {
+            if (calledOnEDT()) {
+                navigator.compositeChanged(imDirty);
+            } else {
+                SwingUtilities.invokeLater(() -> {
+                    if (navigator != null) {
+                        navigator.compositeChanged(imDirty);
+                    }
+                });
+            }
+        }
+    }
+
     public void repaintNavigator(boolean viewSizeChanged) {
         assert calledOnEDT() : threadInfo();
 
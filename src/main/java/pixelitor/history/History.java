@@ -24,6 +24,7 @@ import pixelitor.layers.Drawable;
 import pixelitor.menus.MenuAction;
 import pixelitor.utils.AppPreferences;
 import pixelitor.utils.Icons;
+import pixelitor.utils.MemoryManager;
 import pixelitor.utils.Messages;
 import pixelitor.utils.VisibleForTesting;
 import pixelitor.utils.debug.DebugNode;
@@ -94,6 +95,11 @@ public class History {
 
         if (edit.canUndo()) {
             undoManager.addEdit(edit);
+            if (edit.getImageMemoryUsage() > 0) {
+                // the old edits might have to be spilled to disk,
+                // which happens on the IO thread
+                MemoryManager.ensureAvailable(0);
+            }
         } else {
             undoManager.discardAllEdits();
         }
@@ -209,6 +215,22 @@ public class History {
         return undoManager.getLimit();
     }
 
+    /**
+     * Returns the approximate number of bytes in the
+     * image data kept for undo/redo in all compositions.
+     */
+    public static long getImageMemoryUsage() {
+        return undoManager.getImageMemoryUsage();
+    }
+
+    /**
+     * Moves the images of the oldest edits into temporary files,
+     * and returns the number of freed bytes.
+     */
+    public static long spillOldEdits(long bytesToFree) {
+        return undoManager.spillOldEdits(bytesToFree);
+    }
+
     public static boolean canRepeatFilter() {
         if (numUndoneEdits > 0) {
             return false;
@@ -76,6 +76,16 @@ public class ImageAndMaskEdit extends ImageEdit {
         maskImageEdit.die();
     }
 
+    @Override
+    public long getImageMemoryUsage() {
+        return super.getImageMemoryUsage() + maskImageEdit.getImageMemoryUsage();
+    }
+
+    @Override
+    public long spillToDisk() {
+        return super.spillToDisk() + maskImageEdit.spillToDisk();
+    }
+
     private void updateGUI() {
         // the two edits are set to embedded, so we update - except
         // if this edit is also embedded
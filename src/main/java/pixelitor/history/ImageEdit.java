@@ -19,12 +19,19 @@ package pixelitor.history;
 
 import pixelitor.Composition;
 import pixelitor.layers.Drawable;
+import pixelitor.utils.Messages;
 import pixelitor.utils.debug.DebugNode;
 
 import javax.swing.undo.CannotRedoException;
 import javax.swing.undo.CannotUndoException;
 import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.lang.ref.SoftReference;
+import java.util.concurrent.CompletableFuture;
+
+import static pixelitor.utils.Threads.onEDT;
+import static pixelitor.utils.Threads.onIOThread;
 
 /**
  * A PixelitorEdit that represents the changes made to an image.
@@ -34,6 +41,12 @@ public class ImageEdit extends FadeableEdit {
     private SoftReference<BufferedImage> imgRef;
     protected Drawable dr;
 
+    // not null if the backup image was moved to a temporary file
+    private SpilledImage spilledImg;
+
+    // not null while the backup image is written on the IO thread
+    private BufferedImage spillingImg;
+
     private final boolean canRepeat;
 
     public ImageEdit(String name, Composition comp, Drawable dr,
@@ -99,10 +112,11 @@ public class ImageEdit extends FadeableEdit {
      * Returns true if successful
      */
     private boolean swapImages()  {
-        BufferedImage backupImage = imgRef.get();
+        BufferedImage backupImage = getBackupImage();
         if(backupImage == null) {
             return false;
         }
+        deleteSpilledImage();
 
         BufferedImage tmp;
         if (ignoreSelection) {
@@ -132,6 +146,7 @@ public class ImageEdit extends FadeableEdit {
         if(backupImage != null) {
             backupImage.flush();
         }
+        deleteSpilledImage();
 
         imgRef = null;
         dr = null;
@@ -139,6 +154,14 @@ public class ImageEdit extends FadeableEdit {
 
     @Override
     public BufferedImage getBackupImage() {
+        if (spilledImg != null) {
+            try {
+                return spilledImg.read();
+            } catch (IOException e) {
+                Messages.showException(e);
+                return null;
+            }
+        }
         if(imgRef != null) {
             // this still could be null
             return imgRef.get();
@@ -146,11 +169,72 @@ public class ImageEdit extends FadeableEdit {
         return null;
     }
 
+    /**
+     * Starts writing the backup image to a temporary file on the IO thread,
+     * and returns the number of bytes that will be freed when it's done.
+     */
+    @Override
+    public long spillToDisk() {
+        if (spilledImg != null || spillingImg != null || imgRef == null) {
+            return 0;
+        }
+        BufferedImage backupImage = imgRef.get();
+        if (backupImage == null || !SpilledImage.canWrite(backupImage)) {
+            return 0;
+        }
+
+        spillingImg = backupImage;
+        CompletableFuture.supplyAsync(() -> {
+            try {
+                return SpilledImage.write(backupImage);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, onIOThread).whenCompleteAsync((spilled, e) ->
+            spillFinished(backupImage, spilled, e), onEDT);
+        return getMemoryUsage(backupImage.getRaster());
+    }
+
+    private void spillFinished(BufferedImage backupImage, SpilledImage spilled, Throwable e) {
+        spillingImg = null;
+        if (e != null) {
+            // the backup image remains in memory
+            Messages.showException(e);
+            return;
+        }
+        if (imgRef == null || imgRef.get() != backupImage) {
+            // the edit died, or it was undone/redone in the meantime
+            spilled.delete();
+            return;
+        }
+        spilledImg = spilled;
+        imgRef.clear();
+    }
+
+    private void deleteSpilledImage() {
+        if (spilledImg != null) {
+            spilledImg.delete();
+            spilledImg = null;
+        }
+    }
+
     @Override
     public boolean canRepeat() {
         return canRepeat;
     }
 
+    @Override
+    public long getImageMemoryUsage() {
+        if (spillingImg != null) {
+            // it will be freed soon, and it shouldn't
+            // cause the spilling of other edits
+            return 0;
+        }
+        // a spilled backup image is not read back here
+        BufferedImage backupImage = imgRef == null ? null : imgRef.get();
+        return backupImage == null ? 0 : getMemoryUsage(backupImage.getRaster());
+    }
+
     @Override
     public DebugNode getDebugNode() {
         var node = super.getDebugNode();
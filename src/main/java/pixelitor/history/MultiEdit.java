@@ -95,6 +95,24 @@ public class MultiEdit extends PixelitorEdit {
         }
     }
 
+    @Override
+    public long getImageMemoryUsage() {
+        long sum = 0;
+        for (PixelitorEdit edit : edits) {
+            sum += edit.getImageMemoryUsage();
+        }
+        return sum;
+    }
+
+    @Override
+    public long spillToDisk() {
+        long sum = 0;
+        for (PixelitorEdit edit : edits) {
+            sum += edit.spillToDisk();
+        }
+        return sum;
+    }
+
     @Override
     public DebugNode getDebugNode() {
         var node = super.getDebugNode();
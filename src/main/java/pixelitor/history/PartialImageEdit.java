@@ -170,6 +170,14 @@ public class PartialImageEdit extends FadeableEdit {
         return previousImage;
     }
 
+    @Override
+    public long getImageMemoryUsage() {
+        if (backupRasterRef == null) {
+            return 0;
+        }
+        return getMemoryUsage(backupRasterRef.get());
+    }
+
     @Override
     public DebugNode getDebugNode() {
         var node = super.getDebugNode();
@@ -24,6 +24,8 @@ import pixelitor.utils.debug.DebugNode;
 import javax.swing.undo.AbstractUndoableEdit;
 import javax.swing.undo.CannotRedoException;
 import javax.swing.undo.CannotUndoException;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
 
 /**
  * The abstract superclass for all edits in Pixelitor
@@ -121,6 +123,31 @@ public abstract class PixelitorEdit extends AbstractUndoableEdit {
         return false;
     }
 
+    /**
+     * Returns the approximate number of bytes in
+     * the image data kept by this edit for undo/redo.
+     */
+    public long getImageMemoryUsage() {
+        return 0;
+    }
+
+    /**
+     * Moves the image data kept by this edit into temporary files,
+     * and returns the approximate number of freed bytes.
+     */
+    public long spillToDisk() {
+        return 0;
+    }
+
+    protected static long getMemoryUsage(Raster raster) {
+        if (raster == null) {
+            return 0;
+        }
+        DataBuffer buffer = raster.getDataBuffer();
+        return (long) buffer.getSize() * buffer.getNumBanks()
+            * DataBuffer.getDataTypeSize(buffer.getDataType()) / 8;
+    }
+
     @Override
     public String toString() {
         return name;
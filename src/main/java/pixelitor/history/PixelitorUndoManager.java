@@ -78,6 +78,32 @@ public class PixelitorUndoManager extends UndoManager implements ListModel<Pixel
         return (PixelitorEdit) edit;
     }
 
+    public synchronized long getImageMemoryUsage() {
+        long sum = 0;
+        for (UndoableEdit edit : edits) {
+            sum += ((PixelitorEdit) edit).getImageMemoryUsage();
+        }
+        return sum;
+    }
+
+    /**
+     * Moves the images of the old edits into temporary files, starting with
+     * the oldest one, until at least the given number of bytes is freed.
+     * The edit which would be undone next is kept in memory.
+     * Returns the number of freed bytes.
+     */
+    public synchronized long spillOldEdits(long bytesToFree) {
+        PixelitorEdit nextUndo = getEditToBeUndone();
+        long freed = 0;
+        for (UndoableEdit edit : edits) {
+            if (freed >= bytesToFree || edit == nextUndo) {
+                break;
+            }
+            freed += ((PixelitorEdit) edit).spillToDisk();
+        }
+        return freed;
+    }
+
     @Override
     public synchronized boolean addEdit(UndoableEdit edit) {
         assert edit instanceof PixelitorEdit;
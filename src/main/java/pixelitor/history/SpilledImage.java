@@ -0,0 +1,214 @@
+/*
+ * Copyright 2021 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.history;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The pixels of an undo backup image, moved to a temporary file
+ * in order to free memory. The image can be read back in its
+ * original format when it's needed for an undo or redo.
+ */
+class SpilledImage {
+    // the pixels are copied through a buffer of this size
+    private static final int CHUNK_BYTES = 4 * 1024 * 1024;
+
+    private final File file;
+    private final ColorModel cm;
+    private final int width;
+    private final int height;
+    private final int dataType;
+
+    private SpilledImage(File file, ColorModel cm, int width, int height, int dataType) {
+        this.file = file;
+        this.cm = cm;
+        this.width = width;
+        this.height = height;
+        this.dataType = dataType;
+    }
+
+    /**
+     * Returns true if the given image has one int or byte
+     * data element per pixel, which is needed for spilling it.
+     */
+    static boolean canWrite(BufferedImage img) {
+        Raster raster = img.getRaster();
+        int dataType = raster.getTransferType();
+        return raster.getNumDataElements() == 1
+            && (dataType == DataBuffer.TYPE_INT || dataType == DataBuffer.TYPE_BYTE);
+    }
+
+    /**
+     * Writes the pixels of the given image to a temporary file.
+     * Returns null if the image can't be spilled, see {@link #canWrite}.
+     * The pixels are copied in bands of rows, because this is called
+     * when the memory is low.
+     */
+    static SpilledImage write(BufferedImage img) throws IOException {
+        if (!canWrite(img)) {
+            return null;
+        }
+        Raster raster = img.getRaster();
+        int dataType = raster.getTransferType();
+        int width = img.getWidth();
+        int height = img.getHeight();
+        int elementBytes = dataType == DataBuffer.TYPE_INT ? 4 : 1;
+        int bandHeight = calcBandHeight(width, elementBytes);
+
+        File file = File.createTempFile("pixelitor_undo_", ".raw");
+        file.deleteOnExit();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(bandHeight * width * elementBytes);
+            Object band = null;
+            for (int y = 0; y < height; y += bandHeight) {
+                int rows = Math.min(bandHeight, height - y);
+                int length = rows * width;
+                // also works for subimages, because the raster offsets are considered
+                band = raster.getDataElements(0, y, width, rows, band);
+
+                buffer.clear();
+                if (dataType == DataBuffer.TYPE_INT) {
+                    buffer.asIntBuffer().put((int[]) band, 0, length);
+                } else {
+                    buffer.put((byte[]) band, 0, length);
+                }
+                buffer.position(0);
+                buffer.limit(length * elementBytes);
+                writeFully(channel, buffer);
+            }
+        } catch (IOException e) {
+            file.delete();
+            throw e;
+        }
+        return new SpilledImage(file, img.getColorModel(), width, height, dataType);
+    }
+
+    // the number of rows that fit into a chunk, but at least one
+    private static int calcBandHeight(int width, int elementBytes) {
+        return Math.max(1, CHUNK_BYTES / (width * elementBytes));
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Reads back the image. The file is kept until {@link #delete()} is called.
+     */
+    BufferedImage read() throws IOException {
+        WritableRaster raster = cm.createCompatibleWritableRaster(width, height);
+        Object data = getData(raster.getDataBuffer());
+        int numPixels = width * height;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (data != null && getLength(data) == numPixels) {
+                // one element per pixel, row by row, so
+                // the pixels can be read directly into the raster
+                readDirectly(channel, data, numPixels);
+            } else {
+                // for example packed pixels
+                readInBands(channel, raster);
+            }
+        }
+        return new BufferedImage(cm, raster, cm.isAlphaPremultiplied(), null);
+    }
+
+    private void readDirectly(FileChannel channel, Object data, int numPixels) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(CHUNK_BYTES);
+        if (dataType == DataBuffer.TYPE_INT) {
+            int[] ints = (int[]) data;
+            int chunkInts = CHUNK_BYTES / 4;
+            for (int i = 0; i < numPixels; i += chunkInts) {
+                int length = Math.min(chunkInts, numPixels - i);
+                readFully(channel, buffer, length * 4);
+                buffer.asIntBuffer().get(ints, i, length);
+            }
+        } else {
+            byte[] bytes = (byte[]) data;
+            for (int i = 0; i < numPixels; i += CHUNK_BYTES) {
+                int length = Math.min(CHUNK_BYTES, numPixels - i);
+                readFully(channel, buffer, length);
+                buffer.get(bytes, i, length);
+            }
+        }
+    }
+
+    private void readInBands(FileChannel channel, WritableRaster raster) throws IOException {
+        int elementBytes = dataType == DataBuffer.TYPE_INT ? 4 : 1;
+        int bandHeight = calcBandHeight(width, elementBytes);
+        ByteBuffer buffer = ByteBuffer.allocate(bandHeight * width * elementBytes);
+        Object band = dataType == DataBuffer.TYPE_INT
+            ? new int[bandHeight * width]
+            : new byte[bandHeight * width];
+        for (int y = 0; y < height; y += bandHeight) {
+            int rows = Math.min(bandHeight, height - y);
+            int length = rows * width;
+            readFully(channel, buffer, length * elementBytes);
+            if (dataType == DataBuffer.TYPE_INT) {
+                buffer.asIntBuffer().get((int[]) band, 0, length);
+            } else {
+                buffer.get((byte[]) band, 0, length);
+            }
+            raster.setDataElements(0, y, width, rows, band);
+        }
+    }
+
+    // returns the data array of a single-bank int or byte buffer
+    private static Object getData(DataBuffer dataBuffer) {
+        if (dataBuffer.getNumBanks() != 1 || dataBuffer.getOffset() != 0) {
+            return null;
+        }
+        if (dataBuffer instanceof DataBufferInt) {
+            return ((DataBufferInt) dataBuffer).getData();
+        } else if (dataBuffer instanceof DataBufferByte) {
+            return ((DataBufferByte) dataBuffer).getData();
+        }
+        return null;
+    }
+
+    private static int getLength(Object data) {
+        return data instanceof int[] ? ((int[]) data).length : ((byte[]) data).length;
+    }
+
+    private void readFully(FileChannel channel, ByteBuffer buffer, int length) throws IOException {
+        buffer.clear();
+        buffer.limit(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("unexpected end of " + file.getName());
+            }
+        }
+        buffer.flip();
+    }
+
+    void delete() {
+        file.delete();
+    }
+}
@@ -25,16 +25,29 @@ import pixelitor.utils.SubtaskProgressTracker;
 import javax.imageio.ImageIO;
 import javax.imageio.stream.ImageInputStream;
 import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.ImageOutputStreamImpl;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.util.function.BooleanSupplier;
+
+import static java.awt.image.BufferedImage.TYPE_INT_RGB;
 
 /**
  * Utility class with static methods related to writing JPEG images
  */
 public final class JpegOutput {
+    // the size of the minimum coded unit with 2x2 chroma subsampling
+    private static final int MCU_SIZE = 16;
+
+    // the size estimation encodes at most ESTIMATE_TILES x ESTIMATE_TILES tiles
+    private static final int ESTIMATE_TILES = 8;
+    private static final int ESTIMATE_TILE_SIZE = 64;
+
     private JpegOutput() {
     }
 
@@ -58,6 +71,18 @@ public final class JpegOutput {
 //    }
 
     public static ImageWithSize writeJPGtoPreviewImage(BufferedImage image, JpegInfo config, ProgressTracker pt) {
+        return writeJPGtoPreviewImage(image, config, pt, () -> false);
+    }
+
+    /**
+     * Returns null if the preview was cancelled
+     * before it could be finished.
+     */
+    private static ImageWithSize writeJPGtoPreviewImage(BufferedImage image, JpegInfo config,
+                                                        ProgressTracker pt, BooleanSupplier cancelled) {
+        if (cancelled.getAsBoolean()) {
+            return null;
+        }
         var bos = new ByteArrayOutputStream(32768);
         BufferedImage previewImage = null;
         byte[] bytes = null;
@@ -66,7 +91,12 @@ public final class JpegOutput {
             // approximately 70% of the total time is spent here
             ImageOutputStream ios = ImageIO.createImageOutputStream(bos);
             var pt1 = new SubtaskProgressTracker(0.7, pt);
-            writeJPGtoStream(image, ios, config, pt1);
+            writeJPGtoStream(image, ios, config, pt1, cancelled);
+            if (cancelled.getAsBoolean()) {
+                // the written stream might be incomplete
+                pt.finished();
+                return null;
+            }
 
             // ...then reads it back into an image
             // approximately 30% of the total time is spent here
@@ -87,18 +117,126 @@ public final class JpegOutput {
         return new ImageWithSize(previewImage, sizeInBytes);
     }
 
+    /**
+     * Encodes and decodes only the given region of the image.
+     * The region is expanded to the JPEG block grid, so that the result
+     * is the same as the corresponding part of the fully encoded image.
+     * The returned size is the size of the encoded region.
+     * Returns null if the preview was cancelled before it could be finished.
+     */
+    public static ImageWithSize writeJPGtoPreviewImage(BufferedImage image, Rectangle region,
+                                                       JpegInfo config, ProgressTracker pt,
+                                                       BooleanSupplier cancelled) {
+        Rectangle aligned = alignToBlocks(region, image.getWidth(), image.getHeight());
+        BufferedImage crop = crop(image, aligned);
+        ImageWithSize result = writeJPGtoPreviewImage(crop, config, pt, cancelled);
+        if (result != null) {
+            result.region = aligned;
+        }
+        return result;
+    }
+
+    /**
+     * Quickly estimates the size of the encoded image by encoding
+     * a mosaic of evenly distributed tiles and extrapolating
+     * the result to the area of the whole image.
+     */
+    public static int estimateSize(BufferedImage image, JpegInfo config) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+
+        int tilesPerRow = Math.min(ESTIMATE_TILES, Math.max(1, width / ESTIMATE_TILE_SIZE));
+        int tilesPerColumn = Math.min(ESTIMATE_TILES, Math.max(1, height / ESTIMATE_TILE_SIZE));
+        if (tilesPerRow * tilesPerColumn * ESTIMATE_TILE_SIZE * ESTIMATE_TILE_SIZE
+            >= (long) width * height / 2) {
+            // small image, an exact calculation is cheap enough
+            return calcExactSize(image, config, () -> false);
+        }
+
+        int mosaicWidth = tilesPerRow * ESTIMATE_TILE_SIZE;
+        int mosaicHeight = tilesPerColumn * ESTIMATE_TILE_SIZE;
+        var mosaic = new BufferedImage(mosaicWidth, mosaicHeight, TYPE_INT_RGB);
+        Graphics2D g = mosaic.createGraphics();
+        for (int row = 0; row < tilesPerColumn; row++) {
+            int srcY = (int) ((row + 0.5) * height / tilesPerColumn) - ESTIMATE_TILE_SIZE / 2;
+            srcY = Math.max(0, Math.min(srcY, height - ESTIMATE_TILE_SIZE));
+            for (int col = 0; col < tilesPerRow; col++) {
+                int srcX = (int) ((col + 0.5) * width / tilesPerRow) - ESTIMATE_TILE_SIZE / 2;
+                srcX = Math.max(0, Math.min(srcX, width - ESTIMATE_TILE_SIZE));
+                int dstX = col * ESTIMATE_TILE_SIZE;
+                int dstY = row * ESTIMATE_TILE_SIZE;
+                g.drawImage(image,
+                    dstX, dstY, dstX + ESTIMATE_TILE_SIZE, dstY + ESTIMATE_TILE_SIZE,
+                    srcX, srcY, srcX + ESTIMATE_TILE_SIZE, srcY + ESTIMATE_TILE_SIZE, null);
+            }
+        }
+        g.dispose();
+
+        int mosaicSize = calcExactSize(mosaic, config, () -> false);
+        int headerSize = calcExactSize(new BufferedImage(8, 8, TYPE_INT_RGB), config, () -> false);
+        double areaRatio = (double) width * height / (mosaicWidth * mosaicHeight);
+        return (int) (headerSize + Math.max(0, mosaicSize - headerSize) * areaRatio);
+    }
+
+    /**
+     * Calculates the exact size of the encoded image without keeping
+     * the encoded bytes. Returns -1 if the calculation was cancelled.
+     */
+    public static int calcExactSize(BufferedImage image, JpegInfo config, BooleanSupplier cancelled) {
+        var counter = new CountingImageOutputStream(cancelled);
+        try {
+            writeJPGtoStream(image, counter, config, null);
+        } catch (CancelledException e) {
+            return -1;
+        } catch (IOException e) {
+            if (cancelled.getAsBoolean()) {
+                return -1;
+            }
+            Messages.showException(e);
+            return -1;
+        }
+        return (int) counter.length();
+    }
+
+    private static Rectangle alignToBlocks(Rectangle region, int width, int height) {
+        int x1 = Math.max(0, region.x / MCU_SIZE * MCU_SIZE);
+        int y1 = Math.max(0, region.y / MCU_SIZE * MCU_SIZE);
+        int x2 = Math.min(width, (region.x + region.width + MCU_SIZE - 1) / MCU_SIZE * MCU_SIZE);
+        int y2 = Math.min(height, (region.y + region.height + MCU_SIZE - 1) / MCU_SIZE * MCU_SIZE);
+        return new Rectangle(x1, y1, Math.max(1, x2 - x1), Math.max(1, y2 - y1));
+    }
+
+    private static BufferedImage crop(BufferedImage image, Rectangle region) {
+        var crop = new BufferedImage(region.width, region.height, TYPE_INT_RGB);
+        Graphics2D g = crop.createGraphics();
+        g.drawImage(image, -region.x, -region.y, null);
+        g.dispose();
+        return crop;
+    }
+
     private static void writeJPGtoStream(BufferedImage image,
                                          ImageOutputStream ios,
                                          JpegInfo config,
                                          ProgressTracker tracker) throws IOException {
+        writeJPGtoStream(image, ios, config, tracker, () -> false);
+    }
+
+    private static void writeJPGtoStream(BufferedImage image,
+                                         ImageOutputStream ios,
+                                         JpegInfo config,
+                                         ProgressTracker tracker,
+                                         BooleanSupplier cancelled) throws IOException {
         TrackedIO.writeDetailedToStream(image, ios, tracker, "jpg",
-            config.isProgressive(), config.getQuality());
+            config.isProgressive(), config.getQuality(), cancelled);
     }
 
     static class ImageWithSize {
         final BufferedImage image;
         final int size;
 
+        // the image region, if only a part of the image was encoded
+        private Rectangle region;
+
         private ImageWithSize(BufferedImage image, int size) {
             this.image = image;
             this.size = size;
@@ -111,5 +249,62 @@ public final class JpegOutput {
         public int getSize() {
             return size;
         }
+
+        public Rectangle getRegion() {
+            return region;
+        }
+    }
+
+    /**
+     * Counts the written bytes without storing them,
+     * and aborts the writing when it is cancelled.
+     */
+    private static class CountingImageOutputStream extends ImageOutputStreamImpl {
+        private final BooleanSupplier cancelled;
+        private long length;
+
+        CountingImageOutputStream(BooleanSupplier cancelled) {
+            this.cancelled = cancelled;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            checkCancelled();
+            flushBits();
+            streamPos++;
+            length = Math.max(length, streamPos);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            checkCancelled();
+            flushBits();
+            streamPos += len;
+            length = Math.max(length, streamPos);
+        }
+
+        @Override
+        public int read() {
+            return -1; // the written bytes are not stored
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            return -1;
+        }
+
+        @Override
+        public long length() {
+            return length;
+        }
+
+        private void checkCancelled() throws CancelledException {
+            if (cancelled.getAsBoolean()) {
+                throw new CancelledException();
+            }
+        }
+    }
+
+    private static class CancelledException extends IOException {
     }
 }
\ No newline at end of file
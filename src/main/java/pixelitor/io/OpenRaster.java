@@ -24,16 +24,23 @@ import org.w3c.dom.NodeList;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 import pixelitor.Composition;
+import pixelitor.ThreadPool;
 import pixelitor.layers.BlendingMode;
 import pixelitor.layers.ImageLayer;
 import pixelitor.layers.Layer;
 import pixelitor.utils.*;
+import pixelitor.utils.perf.Probe;
 
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import java.awt.image.BufferedImage;
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipOutputStream;
@@ -49,10 +56,28 @@ import static java.nio.charset.StandardCharsets.UTF_8;
  */
 public class OpenRaster {
     private static final String MERGED_IMAGE_NAME = "mergedimage.png";
+    private static final String MIME_TYPE = "image/openraster";
+
+    // New encodings are started only as long as the encoded PNG files
+    // waiting to be written fit into this limit, but the next image
+    // to be written is always encoded, even if it is larger.
+    private static final long MAX_WAITING_BYTES = 64L * 1024 * 1024;
+
+    // the merged image is not used by Pixelitor, but
+    // other programs might need it (for example for thumbnails)
+    private static boolean addMergedImage = AppPreferences.loadORAMergedImage();
 
     private OpenRaster() {
     }
 
+    public static boolean isAddMergedImage() {
+        return addMergedImage;
+    }
+
+    public static void setAddMergedImage(boolean addMergedImage) {
+        OpenRaster.addMergedImage = addMergedImage;
+    }
+
     public static void uncheckedWrite(Composition comp, File outFile) {
         try {
             write(comp, outFile);
@@ -62,89 +87,227 @@ public class OpenRaster {
     }
 
     public static void write(Composition comp, File outFile) throws IOException {
-        var mainTracker = new StatusBarProgressTracker("Writing " + outFile.getName(), 100);
-
-        var fos = new FileOutputStream(outFile);
-        var zos = new ZipOutputStream(fos);
+        write(comp, outFile, addMergedImage);
+    }
 
-        String stackXML = format("""
+    /**
+     * Writes the given composition. The PNG files of the layers are encoded
+     * in parallel into memory, and they are added to the zip file in the
+     * layer order as soon as they are ready. The encoded images waiting
+     * to be written are limited by their size, and their memory
+     * is charged to the {@link MemoryManager}.
+     */
+    public static void write(Composition comp, File outFile,
+                             boolean addMergedImage) throws IOException {
+        long startTime = System.nanoTime();
+
+        var stackXML = new StringBuilder(format("""
             <?xml version='1.0' encoding='UTF-8'?>
             <image w="%d" h="%d">
             <stack>
-            """, comp.getCanvasWidth(), comp.getCanvasHeight());
+            """, comp.getCanvasWidth(), comp.getCanvasHeight()));
 
-        int numLayers = comp.getNumLayers();
-        int numImageLayers = comp.getNumImageLayers() + 1; // +1 for the merged image
-        double workRatio = 1.0 / numImageLayers;
+        List<String> entryNames = new ArrayList<>();
+        List<BufferedImage> images = new ArrayList<>();
 
         // Reverse iteration: in stack.xml the first element in a stack is the uppermost.
-        for (int i = numLayers - 1; i >= 0; i--) {
+        for (int i = comp.getNumLayers() - 1; i >= 0; i--) {
             Layer layer = comp.getLayer(i);
             if (layer instanceof ImageLayer) {
                 ImageLayer imageLayer = (ImageLayer) layer;
-                var subTracker = new SubtaskProgressTracker(workRatio, mainTracker);
-                stackXML += writeLayer(imageLayer, i, zos, subTracker);
+                String entryName = format("data/%d.png", i);
+                appendLayerXML(stackXML, imageLayer, entryName);
+                entryNames.add(entryName);
+                images.add(imageLayer.getImage());
             }
         }
+        stackXML.append("</stack>\n</image>");
 
-        // add merged image
-        zos.putNextEntry(new ZipEntry(MERGED_IMAGE_NAME));
-        var subTaskTracker = new SubtaskProgressTracker(workRatio, mainTracker);
-        var img = comp.getCompositeImage();
-        TrackedIO.writeToStream(img, zos, "PNG", subTaskTracker);
-        zos.closeEntry();
+        BufferedImage mergedImage = addMergedImage ? comp.getCompositeImage() : null;
+        int numImages = images.size() + (mergedImage == null ? 0 : 1);
+        var tracker = new StatusBarProgressTracker("Writing " + outFile.getName(), numImages);
+        writeZip(outFile, stackXML.toString(), entryNames, images, mergedImage, tracker);
 
-        stackXML += "</stack>\n</image>";
+        tracker.finished();
+        Probe.ORA_WRITE.recordSince(startTime, outFile.length());
+    }
 
-        // write the stack.xml file
-        zos.putNextEntry(new ZipEntry("stack.xml"));
-        zos.write(stackXML.getBytes(UTF_8));
-        zos.closeEntry();
+    /**
+     * Writes the zip file with the given layer images and stack.xml.
+     * The merged image is added only if it isn't null.
+     */
+    static void writeZip(File outFile, String stackXML,
+                         List<String> entryNames, List<BufferedImage> images,
+                         BufferedImage mergedImage, ProgressTracker tracker) throws IOException {
+        if (mergedImage != null) {
+            entryNames = new ArrayList<>(entryNames);
+            entryNames.add(MERGED_IMAGE_NAME);
+            images = new ArrayList<>(images);
+            images.add(mergedImage);
+        }
 
-        // write the mimetype
-        zos.putNextEntry(new ZipEntry("mimetype"));
-        zos.write("image/openraster".getBytes(UTF_8));
-        zos.closeEntry();
-        zos.close();
+        try (var zos = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(outFile)))) {
+            // the OpenRaster spec requires the mimetype to be the first, uncompressed entry
+            writeStoredEntry(zos, "mimetype", MIME_TYPE.getBytes(UTF_8));
+
+            writeImages(zos, entryNames, images, tracker);
 
-        mainTracker.finished();
+            zos.putNextEntry(new ZipEntry("stack.xml"));
+            zos.write(stackXML.getBytes(UTF_8));
+            zos.closeEntry();
+        }
     }
 
-    private static String writeLayer(ImageLayer layer,
-                                     int layerIndex,
-                                     ZipOutputStream zos,
-                                     ProgressTracker pt) throws IOException {
-        String stackXML = format(Locale.ENGLISH,
+    private static void appendLayerXML(StringBuilder stackXML, ImageLayer layer, String src) {
+        stackXML.append(format(Locale.ENGLISH,
             "<layer name=\"%s\" visibility=\"%s\" composite-op=\"%s\" " +
-                "opacity=\"%f\" src=\"data/%d.png\" x=\"%d\" y=\"%d\"/>\n",
-            layer.getName(),
+                "opacity=\"%f\" src=\"%s\" x=\"%d\" y=\"%d\"/>\n",
+            escapeXML(layer.getName()),
             layer.getVisibilityAsORAString(),
             layer.getBlendingMode().toSVGName(),
             layer.getOpacity(),
-            layerIndex,
+            src,
             layer.getTx(),
-            layer.getTy());
+            layer.getTy()));
+    }
 
-        var entry = new ZipEntry(format("data/%d.png", layerIndex));
-        zos.putNextEntry(entry);
-        BufferedImage image = layer.getImage();
+    private static void writeImages(ZipOutputStream zos,
+                                    List<String> entryNames,
+                                    List<BufferedImage> images,
+                                    ProgressTracker tracker) throws IOException {
+        writeImages(zos, entryNames, images, tracker, OpenRaster::encodePNG,
+            ThreadPool.getExecutor(), Runtime.getRuntime().availableProcessors(),
+            MAX_WAITING_BYTES);
+    }
+
+    /**
+     * A zip entry can be written only by one thread, therefore the images
+     * are encoded into memory in parallel. About one encoding per core is
+     * kept running, as long as the encoded images waiting to be written
+     * fit into the given number of bytes.
+     */
+    static void writeImages(ZipOutputStream zos,
+                            List<String> entryNames,
+                            List<BufferedImage> images,
+                            ProgressTracker tracker,
+                            ImageEncoder encoder,
+                            Executor executor,
+                            int maxRunning,
+                            long maxWaitingBytes) throws IOException {
+        int numImages = images.size();
+        var encodings = new Encodings();
+        List<FutureTask<byte[]>> futures = new ArrayList<>(numImages);
+
+        try {
+            for (int i = 0; i < numImages; i++) {
+                while (futures.size() < numImages && (futures.size() == i
+                    || encodings.canStartMore(maxRunning, maxWaitingBytes))) {
+                    BufferedImage image = images.get(futures.size());
+                    futures.add(encodings.start(() -> encoder.encode(image), executor));
+                }
+
+                byte[] png = getResult(futures.get(i));
+                futures.set(i, null); // allow it to be garbage collected
+                writeStoredEntry(zos, entryNames.get(i), png);
+                encodings.written(png.length);
+                tracker.unitDone();
+            }
+        } finally {
+            // in case of an error, don't encode the remaining images
+            for (FutureTask<byte[]> future : futures) {
+                if (future != null) {
+                    future.cancel(false);
+                }
+            }
+            encodings.close();
+        }
+    }
+
+    private static byte[] encodePNG(BufferedImage image) throws IOException {
+        var bos = new ByteArrayOutputStream();
+        TrackedIO.writeToStream(image, bos, "PNG", ProgressTracker.NULL_TRACKER);
+        return bos.toByteArray();
+    }
+
+    interface ImageEncoder {
+        byte[] encode(BufferedImage image) throws IOException;
+    }
+
+    /**
+     * Tracks the running encodings and the encoded bytes that wait
+     * to be written. The waiting bytes are charged to the {@link MemoryManager}.
+     */
+    private static class Encodings {
+        private int numRunning;
+        private long waitingBytes;
+        private boolean closed;
+
+        FutureTask<byte[]> start(Callable<byte[]> encoding, Executor executor) {
+            synchronized (this) {
+                numRunning++;
+            }
+            var task = new FutureTask<>(() -> {
+                byte[] result = null;
+                try {
+                    result = encoding.call();
+                    return result;
+                } finally {
+                    finished(result);
+                }
+            });
+            executor.execute(task);
+            return task;
+        }
+
+        synchronized boolean canStartMore(int maxRunning, long maxWaitingBytes) {
+            return numRunning < maxRunning && waitingBytes <= maxWaitingBytes;
+        }
+
+        private synchronized void finished(byte[] result) {
+            numRunning--;
+            if (result != null && !closed) {
+                waitingBytes += result.length;
+                MemoryManager.reserve(result.length);
+            }
+        }
+
+        synchronized void written(long numBytes) {
+            waitingBytes -= numBytes;
+            MemoryManager.release(numBytes);
+        }
+
+        // the results that are not written are dropped
+        synchronized void close() {
+            closed = true;
+            MemoryManager.release(waitingBytes);
+            waitingBytes = 0;
+        }
+    }
+
+    // PNG files are already compressed, so they are stored as they are
+    private static void writeStoredEntry(ZipOutputStream zos, String name, byte[] data) throws IOException {
+        var crc = new CRC32();
+        crc.update(data);
 
-        TrackedIO.writeToStream(image, zos, "PNG", pt);
+        var entry = new ZipEntry(name);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(data.length);
+        entry.setCompressedSize(data.length);
+        entry.setCrc(crc.getValue());
 
+        zos.putNextEntry(entry);
+        zos.write(data);
         zos.closeEntry();
-        return stackXML;
     }
 
     public static Composition read(File file) throws IOException, ParserConfigurationException, SAXException {
+        long startTime = System.nanoTime();
         String stackXML = null;
-        var mainTracker = new StatusBarProgressTracker("Reading " + file.getName(), 100);
         Map<String, BufferedImage> images = new HashMap<>();
         try (ZipFile zipFile = new ZipFile(file)) {
-            // first iterate to count the image files...
-            int numImageFiles = countNumImageFiles(zipFile);
-            double workRatio = 1.0 / numImageFiles;
-
-            // ...then iterate again to actually read the files
+            // the layer images are decoded in parallel, while
+            // this thread reads the stack.xml file
+            Map<String, FutureTask<BufferedImage>> futures = new LinkedHashMap<>();
             var fileEntries = zipFile.entries();
             while (fileEntries.hasMoreElements()) {
                 ZipEntry entry = fileEntries.nextElement();
@@ -155,11 +318,20 @@ public class OpenRaster {
                 } else if (name.equalsIgnoreCase(MERGED_IMAGE_NAME)) {
                     // no need for that
                 } else if (FileUtils.hasPNGExtension(name)) {
-                    var subTracker = new SubtaskProgressTracker(workRatio, mainTracker);
-                    var stream = zipFile.getInputStream(entry);
-                    var image = TrackedIO.readFromStream(stream, subTracker);
-                    images.put(name, image);
+                    futures.put(name, submitDecoding(zipFile, entry));
+                }
+            }
+
+            var tracker = new StatusBarProgressTracker("Reading " + file.getName(), futures.size());
+            try {
+                for (var mapEntry : futures.entrySet()) {
+                    images.put(mapEntry.getKey(), getResult(mapEntry.getValue()));
+                    tracker.unitDone();
                 }
+            } finally {
+                // in case of an error, don't decode the remaining images
+                futures.values().forEach(future -> future.cancel(false));
+                tracker.finished();
             }
         }
 
@@ -196,8 +368,8 @@ public class OpenRaster {
             String layerX = element.getAttribute("x");
             String layerY = element.getAttribute("y");
 
+            // already converted to a system-compatible image
             BufferedImage image = images.get(layerImageSource);
-            image = ImageUtils.toSysCompatibleImage(image);
 
             if (layerVisibility == null || layerVisibility.isEmpty()) {
                 //workaround: paint.net exported files use "visible" attribute instead of "visibility"
@@ -220,22 +392,67 @@ public class OpenRaster {
             comp.addLayerInInitMode(layer);
         }
 
-        mainTracker.finished();
+        Probe.ORA_READ.recordSince(startTime, file.length());
 
         return comp;
     }
 
-    private static int countNumImageFiles(ZipFile zipFile) {
-        Enumeration<? extends ZipEntry> fileEntries = zipFile.entries();
-        int numImageFiles = 0;
-        while (fileEntries.hasMoreElements()) {
-            ZipEntry entry = fileEntries.nextElement();
-            String name = entry.getName().toLowerCase();
-            if (name.endsWith("png") && !name.equals(MERGED_IMAGE_NAME)) {
-                numImageFiles++;
+    private static FutureTask<BufferedImage> submitDecoding(ZipFile zipFile, ZipEntry entry) {
+        return submit(() -> {
+            BufferedImage image;
+            try (InputStream stream = zipFile.getInputStream(entry)) {
+                image = TrackedIO.readFromStream(stream, ProgressTracker.NULL_TRACKER);
+            }
+            return ImageUtils.toSysCompatibleImage(image);
+        });
+    }
+
+    private static <T> FutureTask<T> submit(Callable<T> task) {
+        var futureTask = new FutureTask<>(task);
+        ThreadPool.getExecutor().execute(futureTask);
+        return futureTask;
+    }
+
+    /**
+     * Waits for the result of a parallel encoding or decoding task,
+     * and rethrows its exception in the calling thread.
+     */
+    private static <T> T getResult(FutureTask<T> future) throws IOException {
+        // The IO tasks also run on the thread pool, so if all its threads
+        // are busy, the task might be still waiting in the queue. In this
+        // case it's run here, otherwise this call does nothing.
+        future.run();
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    static String escapeXML(String s) {
+        var sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '&' -> sb.append("&amp;");
+                case '<' -> sb.append("&lt;");
+                case '>' -> sb.append("&gt;");
+                case '"' -> sb.append("&quot;");
+                default -> sb.append(c);
             }
         }
-        return numImageFiles;
+        return sb.toString();
     }
 
     private static Document loadXMLFromString(String xml)
@@ -27,16 +27,17 @@ import pixelitor.tools.HandToolSupport;
 import pixelitor.utils.*;
 
 import javax.swing.*;
-import java.awt.BorderLayout;
-import java.awt.Dimension;
-import java.awt.FlowLayout;
-import java.awt.GridLayout;
+import java.awt.*;
+import java.awt.geom.Area;
 import java.awt.image.BufferedImage;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static java.awt.BorderLayout.CENTER;
 import static java.awt.BorderLayout.SOUTH;
 import static java.awt.FlowLayout.LEFT;
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static java.awt.image.BufferedImage.TYPE_INT_RGB;
 import static javax.swing.BorderFactory.createTitledBorder;
 import static pixelitor.gui.utils.SliderSpinner.TextPosition.WEST;
 import static pixelitor.utils.Threads.onEDT;
@@ -48,7 +49,40 @@ import static pixelitor.utils.Threads.onPool;
 public class OptimizedJpegSavePanel extends JPanel {
     private static final int GRID_HOR_GAP = 10;
     private static final int GRID_VER_GAP = 10;
+
+    // the size of the region that is previewed before the layout
+    private static final int INITIAL_PREVIEW_SIZE = 1024;
+
+    // the delay before the newly scrolled-in area is encoded
+    private static final int SCROLL_PREVIEW_DELAY_MILLIS = 150;
+
+    private static final Paint UNPREVIEWED_PAINT = createUnpreviewedPaint();
+
     private final BufferedImage image;
+
+    // Only the visible parts of this image are updated. The previews
+    // for the old settings stay in the other parts, but they are
+    // hatched until they are scrolled into view and updated.
+    private BufferedImage previewImage;
+
+    // the parts of the preview image that were
+    // updated with the current settings
+    private Area previewedArea = new Area();
+
+    // the region that is not hatched while its
+    // preview for the new settings is calculated
+    private Rectangle pendingRegion;
+
+    // incremented when the settings change
+    private final AtomicInteger generation = new AtomicInteger();
+
+    // incremented when a new region is previewed,
+    // which cancels the encoding of the previous region
+    private final AtomicInteger regionRequest = new AtomicInteger();
+
+    private final Timer scrollTimer = new Timer(SCROLL_PREVIEW_DELAY_MILLIS,
+        e -> previewScrolledArea());
+
     private ImagePanel optimized;
     private RangeParam qualityParam;
     private JLabel sizeLabel;
@@ -62,6 +96,8 @@ public class OptimizedJpegSavePanel extends JPanel {
         JPanel controlsPanel = createControlsPanel();
         JPanel comparePanel = createComparePanel(image);
 
+        scrollTimer.setRepeats(false);
+
         setLayout(new BorderLayout(3, 3));
         add(comparePanel, CENTER);
         add(controlsPanel, SOUTH);
@@ -77,7 +113,18 @@ public class OptimizedJpegSavePanel extends JPanel {
         original = createViewPanel(imageSize);
         original.setImage(image);
 
-        optimized = createViewPanel(imageSize);
+        optimized = new ImagePanel(false) {
+            @Override
+            protected void paintComponent(Graphics g) {
+                super.paintComponent(g);
+                markUnpreviewedAreas((Graphics2D) g);
+            }
+        };
+        optimized.setPreferredSize(imageSize);
+        // the original pixels are not copied, because
+        // they shouldn't look like the compressed ones
+        previewImage = new BufferedImage(image.getWidth(), image.getHeight(), TYPE_INT_RGB);
+        optimized.setImage(previewImage);
 
         setupScrollPanes(comparePanel);
 
@@ -92,6 +139,7 @@ public class OptimizedJpegSavePanel extends JPanel {
         comparePanel.add(optimizedSP);
 
         GUIUtils.shareScrollModels(originalSP, optimizedSP);
+        optimizedSP.getViewport().addChangeListener(e -> visibleAreaChanged());
     }
 
     private static JScrollPane createScrollPane(ImagePanel original, String borderTitle) {
@@ -134,24 +182,125 @@ public class OptimizedJpegSavePanel extends JPanel {
         return p;
     }
 
+    /**
+     * Called when the settings change: updates the visible part
+     * of the preview, the size estimate and the exact size.
+     */
     private void updatePreviewAsync() {
+        int gen = generation.incrementAndGet();
+        JpegInfo settings = getSettings();
+        scrollTimer.stop();
+
+        // the visible region is replaced soon, hatching
+        // it in the meantime would only cause flickering
+        pendingRegion = updateVisiblePreviewAsync(gen, settings);
+        previewedArea = new Area(pendingRegion);
+        optimized.repaint();
+
+        sizeLabel.setText("  Size: calculating...");
+        CompletableFuture
+            .supplyAsync(() -> JpegOutput.estimateSize(image, settings), onPool)
+            .thenAcceptAsync(estimate -> setSize(gen, estimate, true), onEDT)
+            .thenApplyAsync(v -> calcExactSize(gen, settings), onPool)
+            .thenAcceptAsync(exact -> setSize(gen, exact, false), onEDT)
+            .exceptionally(Messages::showExceptionOnEDT);
+    }
+
+    /**
+     * Encodes and decodes only the visible part of the image,
+     * and returns the region that will be updated.
+     */
+    private Rectangle updateVisiblePreviewAsync(int gen, JpegInfo settings) {
+        Rectangle visible = optimized.getVisibleRect()
+            .intersection(new Rectangle(0, 0, image.getWidth(), image.getHeight()));
+        if (visible.isEmpty()) {
+            // not yet laid out
+            visible = new Rectangle(0, 0,
+                Math.min(image.getWidth(), INITIAL_PREVIEW_SIZE),
+                Math.min(image.getHeight(), INITIAL_PREVIEW_SIZE));
+        }
+        Rectangle region = visible;
+        int request = regionRequest.incrementAndGet();
+
         CompletableFuture
-            .supplyAsync(() -> createPreview(getSettings()), onPool)
-            .thenAcceptAsync(this::setPreview, onEDT)
+            .supplyAsync(() -> createPreview(region, settings, request), onPool)
+            .thenAcceptAsync(preview -> setPreview(gen, preview), onEDT)
             .exceptionally(Messages::showExceptionOnEDT);
+        return region;
+    }
+
+    // called when the user scrolls the preview
+    private void visibleAreaChanged() {
+        if (previewedArea.contains(optimized.getVisibleRect())) {
+            scrollTimer.stop();
+            return;
+        }
+        // wait until the scrolling stops
+        scrollTimer.restart();
+    }
+
+    private void previewScrolledArea() {
+        if (pendingRegion != null) {
+            // its encoding will be cancelled by the new request
+            previewedArea.subtract(new Area(pendingRegion));
+            pendingRegion = null;
+            optimized.repaint();
+        }
+        updateVisiblePreviewAsync(generation.get(), getSettings());
     }
 
-    private ImageWithSize createPreview(JpegInfo config) {
+    private ImageWithSize createPreview(Rectangle region, JpegInfo config, int request) {
         var tracker = new JProgressBarTracker(progressPanel);
-        return JpegOutput.writeJPGtoPreviewImage(image, config, tracker);
+        return JpegOutput.writeJPGtoPreviewImage(image, region, config, tracker,
+            () -> request != regionRequest.get());
     }
 
-    private void setPreview(ImageWithSize imageWithSize) {
-        BufferedImage newPreview = imageWithSize.getImage();
-        optimized.changeImage(newPreview);
+    private void setPreview(int gen, ImageWithSize preview) {
+        if (preview == null || gen != generation.get()) {
+            return; // cancelled, or the settings have changed in the meantime
+        }
+        Rectangle region = preview.getRegion();
+        Graphics2D g = previewImage.createGraphics();
+        g.drawImage(preview.getImage(), region.x, region.y, null);
+        g.dispose();
+
+        previewedArea.add(new Area(region));
+        pendingRegion = null;
+        optimized.repaint(region);
+    }
+
+    private void markUnpreviewedAreas(Graphics2D g) {
+        var unpreviewed = new Area(new Rectangle(0, 0, image.getWidth(), image.getHeight()));
+        unpreviewed.subtract(previewedArea);
+        if (!unpreviewed.isEmpty()) {
+            g.setPaint(UNPREVIEWED_PAINT);
+            g.fill(unpreviewed);
+        }
+    }
+
+    private static Paint createUnpreviewedPaint() {
+        int size = 12;
+        var tile = new BufferedImage(size, size, TYPE_INT_ARGB);
+        Graphics2D g = tile.createGraphics();
+        g.setColor(new Color(128, 128, 128, 160));
+        g.fillRect(0, 0, size, size);
+        g.setColor(new Color(255, 255, 255, 160));
+        g.drawLine(0, size - 1, size - 1, 0);
+        g.dispose();
+        return new TexturePaint(tile, new Rectangle(0, 0, size, size));
+    }
+
+    private int calcExactSize(int gen, JpegInfo settings) {
+        return JpegOutput.calcExactSize(image, settings,
+            () -> gen != generation.get());
+    }
 
-        int numBytes = imageWithSize.getSize();
-        sizeLabel.setText("  Size: " + Utils.bytesToString(numBytes));
+    private void setSize(int gen, int numBytes, boolean estimated) {
+        if (gen != generation.get() || numBytes < 0) {
+            return;
+        }
+        String prefix = estimated ? "  Size: ~" : "  Size: ";
+        sizeLabel.setText(prefix + Utils.bytesToString(numBytes));
     }
 
     private JpegInfo getSettings() {
@@ -22,6 +22,8 @@ import pixelitor.utils.Messages;
 import pixelitor.utils.ProgressTracker;
 import pixelitor.utils.StatusBarProgressTracker;
 import pixelitor.utils.SubtaskProgressTracker;
+import pixelitor.utils.TileOccupancy;
+import pixelitor.utils.perf.Probe;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
@@ -40,12 +42,13 @@ import java.util.zip.GZIPOutputStream;
 
 import static java.awt.image.BufferedImage.TYPE_BYTE_GRAY;
 import static pixelitor.utils.ImageUtils.getPixelsAsArray;
+import static pixelitor.utils.TileOccupancy.TILE_SIZE;
 
 /**
  * PXC file format support.
  */
 public class PXCFormat {
-    private static final int CURRENT_PXC_VERSION_NUMBER = 0x03;
+    private static final int CURRENT_PXC_VERSION_NUMBER = 0x04;
 
     // tracks the reading-writing of the whole file
     private static ProgressTracker mainPT;
@@ -56,6 +59,7 @@ public class PXCFormat {
     }
 
     public static Composition read(File file) throws NotPxcFormatException {
+        long startTime = System.nanoTime();
         long fileSize = file.length();
         mainPT = new StatusBarProgressTracker(
                 "Reading " + file.getName(), (int) fileSize);
@@ -85,12 +89,11 @@ public class PXCFormat {
                         .getName() + " is in an obsolete pxc format, " +
                         "it can only be opened in the old Pixelitor versions 0.9.9-1.1.2");
             }
-            if (versionByte > 3) {
+            if (versionByte > CURRENT_PXC_VERSION_NUMBER) {
                 throw new NotPxcFormatException(file.getName() + " has unknown version byte " + versionByte);
             }
-
             try (GZIPInputStream gs = new GZIPInputStream(is)) {
-                try (ObjectInput ois = new ObjectInputStream(gs)) {
+                try (ObjectInput ois = new PxcInputStream(gs, versionByte)) {
                     comp = (Composition) ois.readObject();
                     mainPT.finished();
                     mainPT = null;
@@ -103,10 +106,14 @@ public class PXCFormat {
             Messages.showException(e);
         }
 
+        if (comp != null) {
+            Probe.PXC_READ.recordSince(startTime, fileSize);
+        }
         return comp;
     }
 
     public static void write(Composition comp, File f) {
+        long startTime = System.nanoTime();
         mainPT = new StatusBarProgressTracker(
                 "Writing " + f.getName(), 100);
         int numImages = comp.calcNumImages();
@@ -129,6 +136,8 @@ public class PXCFormat {
         }
         mainPT.finished();
         mainPT = null;
+
+        Probe.PXC_WRITE.recordSince(startTime, f.length());
     }
 
     public static void serializeImage(ObjectOutputStream out,
@@ -147,16 +156,33 @@ public class PXCFormat {
         if (imgType == TYPE_BYTE_GRAY) {
             ImageIO.write(img, "PNG", out);
         } else {
+            // the flags of the tiles are written first, then the
+            // pixels of the non-empty tiles, row by row within each tile
+            var tiles = TileOccupancy.ofNonZeroPixels(img);
+            int numTilesX = tiles.getNumTilesX();
+            int numTilesY = tiles.getNumTilesY();
+            for (int tileY = 0; tileY < numTilesY; tileY++) {
+                for (int tileX = 0; tileX < numTilesX; tileX++) {
+                    out.writeBoolean(tiles.isOccupied(tileX, tileY));
+                }
+            }
+
             int[] pixels = getPixelsAsArray(img);
-            int length = pixels.length;
-            int progress = 0;
-            int fiveUnits = length / 20;
-            for (int pixel : pixels) {
-                out.writeInt(pixel);
-                progress++;
-                if (progress > fiveUnits) {
-                    pt.unitsDone(5);
-                    progress = 0;
+            int unitsDone = 0;
+            for (int tileY = 0; tileY < numTilesY; tileY++) {
+                for (int tileX = 0; tileX < numTilesX; tileX++) {
+                    if (tiles.isOccupied(tileX, tileY)) {
+                        forEachTileRow(tileX, tileY, imgWidth, imgHeight, (start, end) -> {
+                            for (int i = start; i < end; i++) {
+                                out.writeInt(pixels[i]);
+                            }
+                        });
+                    }
+                }
+                int units = 100 * (tileY + 1) / numTilesY;
+                if (units - unitsDone >= 5) {
+                    pt.unitsDone(units - unitsDone);
+                    unitsDone = units;
                 }
             }
         }
@@ -175,14 +201,79 @@ public class PXCFormat {
             BufferedImage img = new BufferedImage(width, height, type);
             int[] pixels = getPixelsAsArray(img);
 
-            int length = pixels.length;
-            for (int i = 0; i < length; i++) {
-                pixels[i] = in.readInt();
+            // starting with version 4 the empty tiles of the images are not stored
+            if (getVersion(in) < 4) {
+                int length = pixels.length;
+                for (int i = 0; i < length; i++) {
+                    pixels[i] = in.readInt();
+                }
+                return img;
+            }
+
+            int numTilesX = (width + TILE_SIZE - 1) / TILE_SIZE;
+            int numTilesY = (height + TILE_SIZE - 1) / TILE_SIZE;
+            boolean[] occupied = new boolean[numTilesX * numTilesY];
+            for (int i = 0; i < occupied.length; i++) {
+                occupied[i] = in.readBoolean();
+            }
+            for (int tileY = 0; tileY < numTilesY; tileY++) {
+                for (int tileX = 0; tileX < numTilesX; tileX++) {
+                    if (occupied[tileX + tileY * numTilesX]) {
+                        forEachTileRow(tileX, tileY, width, height, (start, end) -> {
+                            for (int i = start; i < end; i++) {
+                                pixels[i] = in.readInt();
+                            }
+                        });
+                    }
+                }
             }
             return img;
         }
     }
 
+    /**
+     * Returns the version of the pxc file that is read by the given stream.
+     * Streams that don't read pxc files use the current format.
+     */
+    private static int getVersion(ObjectInputStream in) {
+        if (in instanceof PxcInputStream) {
+            return ((PxcInputStream) in).version;
+        }
+        return CURRENT_PXC_VERSION_NUMBER;
+    }
+
+    /**
+     * Calls the given action with the start (inclusive) and end (exclusive)
+     * pixel indexes of each row of the given tile.
+     */
+    private static void forEachTileRow(int tileX, int tileY, int width, int height,
+                                       TileRowAction action) throws IOException {
+        int x1 = tileX * TILE_SIZE;
+        int x2 = Math.min(width, x1 + TILE_SIZE);
+        int y1 = tileY * TILE_SIZE;
+        int y2 = Math.min(height, y1 + TILE_SIZE);
+        for (int y = y1; y < y2; y++) {
+            action.run(y * width + x1, y * width + x2);
+        }
+    }
+
+    private interface TileRowAction {
+        void run(int start, int end) throws IOException;
+    }
+
+    /**
+     * An {@link ObjectInputStream} that knows the version
+     * of the pxc file, so that the images can be read accordingly.
+     */
+    private static class PxcInputStream extends ObjectInputStream {
+        private final int version;
+
+        PxcInputStream(InputStream in, int version) throws IOException {
+            super(in);
+            this.version = version;
+        }
+    }
+
     private static ProgressTracker getImageTracker() {
         if (workRatioForOneImage == -1) {
             // a pxc without images
@@ -27,6 +27,7 @@ import javax.imageio.stream.ImageOutputStream;
 import java.awt.image.BufferedImage;
 import java.io.*;
 import java.util.Iterator;
+import java.util.function.BooleanSupplier;
 
 import static javax.imageio.ImageWriteParam.*;
 import static pixelitor.utils.ImageUtils.createThumbnail;
@@ -102,6 +103,18 @@ public class TrackedIO {
     public static void writeDetailedToStream(BufferedImage image, ImageOutputStream ios,
                                              ProgressTracker tracker, String formatName,
                                              boolean progressive, float quality) throws IOException {
+        writeDetailedToStream(image, ios, tracker, formatName, progressive, quality, () -> false);
+    }
+
+    /**
+     * Writes the image with the given settings. The writing is aborted
+     * (leaving an incomplete stream) when the given condition becomes true,
+     * which is checked only if there is a tracker.
+     */
+    public static void writeDetailedToStream(BufferedImage image, ImageOutputStream ios,
+                                             ProgressTracker tracker, String formatName,
+                                             boolean progressive, float quality,
+                                             BooleanSupplier cancelled) throws IOException {
         Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(formatName);
         if (!writers.hasNext()) {
             throw new IllegalStateException("No " + formatName + " writers found");
@@ -123,7 +136,7 @@ public class TrackedIO {
 
         writer.setOutput(ios);
         if (tracker != null) {
-            writer.addIIOWriteProgressListener(new TrackerWriteProgressListener(tracker));
+            writer.addIIOWriteProgressListener(new TrackerWriteProgressListener(tracker, cancelled));
         }
         writer.write(null, iioImage, imageWriteParam);
 
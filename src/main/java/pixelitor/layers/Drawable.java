@@ -47,6 +47,8 @@ public interface Drawable {
 
     void changePreviewImage(BufferedImage img, String filterName, ChangeReason cr);
 
+    void changePreviewProxy(BufferedImage proxy, double scale);
+
     void filterWithoutDialogFinished(BufferedImage transformedImage, ChangeReason cr, String filterName);
 
     void changeImageForUndoRedo(BufferedImage img, boolean ignoreSelection);
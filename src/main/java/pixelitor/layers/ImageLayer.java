@@ -43,6 +43,7 @@ import java.io.Serial;
 import java.util.concurrent.CompletableFuture;
 
 import static java.awt.RenderingHints.KEY_INTERPOLATION;
+import static java.awt.RenderingHints.VALUE_INTERPOLATION_BILINEAR;
 import static java.awt.RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR;
 import static java.lang.String.format;
 import static java.util.Objects.requireNonNull;
@@ -86,6 +87,14 @@ public class ImageLayer extends ContentLayer implements Drawable {
      */
     private transient BufferedImage previewImage;
 
+    /**
+     * A downscaled preview shown instead of the preview image
+     * while the user is dragging a filter control.
+     * The scale is relative to the filter source image.
+     */
+    private transient BufferedImage previewProxy;
+    private transient double previewProxyScale;
+
     /**
      * The source image passed to the filters.
      * It's different from the layer's image if there is a selection.
@@ -166,27 +175,43 @@ public class ImageLayer extends ContentLayer implements Drawable {
 
     private BufferedImage calcNewImageFromPasted(BufferedImage pastedImage) {
         Canvas canvas = comp.getCanvas();
-        int canvasWidth = canvas.getWidth();
-        int canvasHeight = canvas.getHeight();
+        return createImageFromPasted(pastedImage,
+            canvas.getWidth(), canvas.getHeight(), true);
+    }
 
+    /**
+     * Converts a pasted image into an image that can be used as the
+     * image of a new layer, copying the pixels at most once.
+     * If the pasted image is smaller than the canvas, then it is centered
+     * within a canvas-sized transparent image.
+     * If the pasted image is owned, then it can be used as the layer
+     * image without copying, otherwise it is never returned.
+     * Can be called outside the EDT.
+     */
+    public static BufferedImage createImageFromPasted(BufferedImage pastedImage,
+                                                      int canvasWidth, int canvasHeight,
+                                                      boolean owned) {
         int pastedWidth = pastedImage.getWidth();
         int pastedHeight = pastedImage.getHeight();
 
-        if (canvas.isFullyCoveredBy(pastedImage)) {
+        boolean coversCanvas = pastedWidth >= canvasWidth && pastedHeight >= canvasHeight;
+        if (coversCanvas && owned) {
+            // converts only if the type is not compatible
             return ImageUtils.toSysCompatibleImage(pastedImage);
         }
 
-        // the pasted image is too small: a new image is created,
-        // and the pasted image is centered within it
+        // the pasted image is too small or it can't be shared: a new image
+        // is created, and the pasted image is centered within it
         int newWidth = Math.max(canvasWidth, pastedWidth);
         int newHeight = Math.max(canvasHeight, pastedHeight);
-        BufferedImage newImage = createEmptyImageForLayer(newWidth, newHeight);
+        BufferedImage newImage = ImageUtils.createSysCompatibleImage(newWidth, newHeight);
         Graphics2D g = newImage.createGraphics();
 
         // center the pasted image within the new image
         int drawX = Math.max((canvasWidth - pastedWidth) / 2, 0);
         int drawY = Math.max((canvasHeight - pastedHeight) / 2, 0);
 
+        g.setComposite(AlphaComposite.Src);
         g.drawImage(pastedImage, drawX, drawY, null);
         g.dispose();
 
@@ -251,6 +276,7 @@ public class ImageLayer extends ContentLayer implements Drawable {
         state = newState;
         if (newState == NORMAL) { // back to normal: cleanup
             previewImage = null;
+            previewProxy = null;
             filterSourceImage = null;
         }
     }
@@ -296,6 +322,18 @@ public class ImageLayer extends ContentLayer implements Drawable {
         return image;
     }
 
+    /**
+     * Returns the approximate number of bytes used by
+     * the image and by the preview image, if there is one.
+     */
+    public long getMemoryUsage() {
+        long sum = MemoryManager.getMemoryUsage(image);
+        if (previewImage != null && previewImage != image) {
+            sum += MemoryManager.getMemoryUsage(previewImage);
+        }
+        return sum;
+    }
+
     @Override
     public BufferedImage getFilterSourceImage() {
         if (filterSourceImage == null) {
@@ -423,8 +461,17 @@ public class ImageLayer extends ContentLayer implements Drawable {
     }
 
     private void setPreviewWithSelection(BufferedImage newImage) {
+        previewProxy = null;
+        BufferedImage oldPreview = previewImage;
         previewImage = replaceSelectedRegion(previewImage, newImage, false);
 
+        if (previewImage != newImage) {
+            // the new image was copied into the preview
+            BufferPool.release(newImage);
+        } else if (oldPreview != image && oldPreview != newImage) {
+            BufferPool.release(oldPreview);
+        }
+
         setState(PREVIEW);
         imageRefChanged();
         comp.imageChanged();
@@ -553,6 +600,9 @@ public class ImageLayer extends ContentLayer implements Drawable {
         // from the real image after the previews
         imageRefChanged();
 
+        if (previewImage != image) {
+            BufferPool.release(previewImage);
+        }
         previewImage = null;
         comp.imageChanged();
     }
@@ -629,7 +679,11 @@ public class ImageLayer extends ContentLayer implements Drawable {
             // it still can happen that the image needs to be repainted
             // because the preview image can be different from the image
             // (the user does something, but then resets the params to a do-nothing state)
-            boolean shouldRefresh = image != previewImage;
+            boolean shouldRefresh = image != previewImage || previewProxy != null;
+            previewProxy = null;
+            if (image != previewImage) {
+                BufferPool.release(previewImage);
+            }
             previewImage = image;
 
             if (shouldRefresh) {
@@ -643,6 +697,30 @@ public class ImageLayer extends ContentLayer implements Drawable {
         }
     }
 
+    @Override
+    public void changePreviewProxy(BufferedImage proxy, double scale) {
+        assert state == PREVIEW || state == SHOW_ORIGINAL : "state was " + state;
+        assert !comp.hasSelection();
+
+        previewProxy = proxy;
+        previewProxyScale = scale;
+        if (state == SHOW_ORIGINAL) {
+            setState(PREVIEW);
+        }
+        comp.previewProxyChanged();
+    }
+
+    /**
+     * Returns whether a downscaled preview is shown instead of the preview image.
+     */
+    public boolean hasPreviewProxy() {
+        return previewProxy != null && state == PREVIEW;
+    }
+
+    public double getPreviewProxyScale() {
+        return previewProxyScale;
+    }
+
     @Override
     public void filterWithoutDialogFinished(BufferedImage transformedImage, ChangeReason cr, String filterName) {
         requireNonNull(transformedImage);
@@ -1148,11 +1226,22 @@ public class ImageLayer extends ContentLayer implements Drawable {
                                                   boolean firstVisibleLayer) {
         if (Tools.isShapesDrawing() && isActive() && !isMaskEditing()) {
             paintDraggedShapesIntoActiveLayer(g, visibleImage, firstVisibleLayer);
+        } else if (hasPreviewProxy()) {
+            paintPreviewProxy(g);
         } else { // the simple case
             g.drawImage(visibleImage, getTx(), getTy(), null);
         }
     }
 
+    private void paintPreviewProxy(Graphics2D g) {
+        Graphics2D pg = (Graphics2D) g.create();
+        pg.setRenderingHint(KEY_INTERPOLATION, VALUE_INTERPOLATION_BILINEAR);
+        pg.translate(getTx(), getTy());
+        pg.scale(1.0 / previewProxyScale, 1.0 / previewProxyScale);
+        pg.drawImage(previewProxy, 0, 0, null);
+        pg.dispose();
+    }
+
     protected void paintDraggedShapesIntoActiveLayer(Graphics2D g,
                                                      BufferedImage visibleImage,
                                                      boolean firstVisibleLayer) {
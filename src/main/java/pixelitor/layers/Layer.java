@@ -162,6 +162,14 @@ public abstract class Layer implements Serializable {
         return visible;
     }
 
+    /**
+     * Returns true for adjustment layers and watermarked
+     * text layers, which modify the layers below them.
+     */
+    public boolean isAdjustment() {
+        return isAdjustment;
+    }
+
     public void setVisible(boolean newVisibility, boolean addToHistory) {
         if (visible == newVisibility) {
             return;
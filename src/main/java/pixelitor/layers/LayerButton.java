@@ -20,7 +20,6 @@ package pixelitor.layers;
 import com.bric.util.JVM;
 import org.jdesktop.swingx.painter.CheckerboardPainter;
 import pixelitor.RunContext;
-import pixelitor.ThreadPool;
 import pixelitor.gui.PixelitorWindow;
 import pixelitor.gui.View;
 import pixelitor.utils.Icons;
@@ -37,7 +36,6 @@ import java.awt.image.BufferedImage;
 
 import static javax.swing.BorderFactory.*;
 import static pixelitor.layers.LayerButtonLayout.thumbSize;
-import static pixelitor.utils.ImageUtils.createThumbnail;
 import static pixelitor.utils.Threads.calledOnEDT;
 import static pixelitor.utils.Threads.threadInfo;
 
@@ -368,24 +366,30 @@ public class LayerButton extends JToggleButton implements LayerUI {
 
     @Override
     public void updateLayerIconImageAsync(ImageLayer layer) {
-        assert calledOnEDT() : threadInfo();
-
-        boolean isMask = layer instanceof LayerMask;
+        updateIconImageAsync(layer, true);
+    }
 
-        BufferedImage img = layer.getCanvasSizedSubImage();
+    /**
+     * Recalculates the thumbnails without a content change,
+     * for example because the thumbnail size changed.
+     */
+    public void refreshIconImagesAsync() {
+        if (layer instanceof ImageLayer) {
+            updateIconImageAsync((ImageLayer) layer, false);
+        }
+        if (hasMaskIcon()) {
+            updateIconImageAsync(layer.getMask(), false);
+        }
+    }
 
-        Runnable notEDT = () -> {
-            CheckerboardPainter painter = null;
-            if (!isMask) {
-                painter = checkerBoardPainter;
-            }
+    private void updateIconImageAsync(ImageLayer layer, boolean contentChanged) {
+        assert calledOnEDT() : threadInfo();
 
-            BufferedImage thumb = createThumbnail(img, thumbSize, painter);
+        boolean isMask = layer instanceof LayerMask;
+        CheckerboardPainter painter = isMask ? null : checkerBoardPainter;
 
-            SwingUtilities.invokeLater(() ->
-                updateIconOnEDT(layer, isMask, thumb));
-        };
-        ThreadPool.submit(notEDT);
+        LayerThumbnails.request(layer, contentChanged, painter,
+            thumb -> updateIconOnEDT(layer, isMask, thumb));
     }
 
     private void updateIconOnEDT(ImageLayer layer, boolean isMask, BufferedImage thumb) {
@@ -436,7 +440,7 @@ public class LayerButton extends JToggleButton implements LayerUI {
             maskAddedBeforeDragHandler = true;
         }
 
-        layer.getMask().updateIconImage();
+        updateIconImageAsync(layer.getMask(), false);
         revalidate();
     }
 
@@ -148,9 +148,12 @@ public class LayerButtonLayout implements LayoutManager {
 
         height = newThumbSize + 2 * GAP;
 
-        OpenImages.onActiveView(view -> {
-            //LayersContainer.showLayersFor(view);
-            view.getComp().updateAllIconImages();
-        });
+        // the content didn't change, the thumbnails
+        // can be recalculated from the cached levels
+        OpenImages.onActiveView(view -> view.getComp().forEachLayer(layer -> {
+            if (layer.getUI() instanceof LayerButton) {
+                ((LayerButton) layer.getUI()).refreshIconImagesAsync();
+            }
+        }));
     }
 }
@@ -0,0 +1,247 @@
+/*
+ * Copyright 2021 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.layers;
+
+import org.jdesktop.swingx.painter.CheckerboardPainter;
+
+import javax.swing.*;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.WritableRaster;
+import java.lang.ref.WeakReference;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static java.awt.RenderingHints.KEY_INTERPOLATION;
+import static java.awt.RenderingHints.VALUE_INTERPOLATION_BILINEAR;
+import static java.awt.RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static pixelitor.utils.ImageUtils.calcThumbDimensions;
+import static pixelitor.utils.ImageUtils.createSysCompatibleImage;
+import static pixelitor.utils.Threads.calledOnEDT;
+import static pixelitor.utils.Threads.threadInfo;
+
+/**
+ * Generates the layer and mask thumbnails of the {@link LayerButton}s
+ * on low-priority background threads.
+ *
+ * The requests are coalesced per layer: a new request cancels
+ * the pending request of the same layer, and a result is delivered
+ * only if it was not superseded in the meantime. The requests are
+ * started after a short delay, so that bursts of updates (for example
+ * while undoing a resize of many layers) result in a single
+ * thumbnail calculation per layer.
+ *
+ * For each layer, a low-resolution copy of the image is cached,
+ * and thumbnail updates that don't involve a content change
+ * (for example a new thumbnail size) are calculated from it.
+ */
+class LayerThumbnails {
+    private static final long DEBOUNCE_DELAY_MILLIS = 50;
+
+    // the size of the cached low-resolution levels,
+    // twice the largest thumbnail size
+    private static final int LEVEL_SIZE = 192;
+
+    private static final ScheduledExecutorService executor = createExecutor();
+
+    // the latest request for each layer, accessed only on the EDT
+    private static final Map<ImageLayer, Request> pending = new IdentityHashMap<>();
+
+    // the cached low-resolution levels, accessed only on the background threads
+    private static final Map<ImageLayer, Level> levels = new WeakHashMap<>();
+
+    private LayerThumbnails() {
+        // do not instantiate
+    }
+
+    private static ScheduledExecutorService createExecutor() {
+        int numThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger threadCount = new AtomicInteger();
+        var pool = new ScheduledThreadPoolExecutor(numThreads, r -> {
+            Thread t = new Thread(r, "thumbnails-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+        pool.setRemoveOnCancelPolicy(true);
+        return pool;
+    }
+
+    /**
+     * Schedules the thumbnail generation for the given layer.
+     *
+     * @param contentChanged if false, the thumbnail can be generated
+     *                       from the cached low-resolution level
+     * @param callback       receives the finished thumbnail on the EDT
+     */
+    static void request(ImageLayer layer, boolean contentChanged,
+                        CheckerboardPainter painter, Consumer<BufferedImage> callback) {
+        assert calledOnEDT() : threadInfo();
+
+        // must be read on the EDT
+        BufferedImage img = layer.getCanvasSizedSubImage();
+        int thumbSize = LayerButtonLayout.getThumbSize();
+
+        Request request = new Request(layer, img, thumbSize,
+            contentChanged, painter, callback);
+
+        Request prev = pending.put(layer, request);
+        if (prev != null) {
+            prev.cancel();
+            // the content change must not be forgotten
+            // just because the request was superseded
+            if (prev.contentChanged) {
+                request.contentChanged = true;
+            }
+        }
+
+        request.future = executor.schedule(request::run,
+            DEBOUNCE_DELAY_MILLIS, MILLISECONDS);
+    }
+
+    private static BufferedImage getLevel(Request request) {
+        BufferedImage img = request.img;
+        if (img.getWidth() <= LEVEL_SIZE && img.getHeight() <= LEVEL_SIZE) {
+            return img; // small enough
+        }
+
+        synchronized (levels) {
+            Level level = levels.get(request.layer);
+            if (!request.contentChanged && level != null && level.isFor(request.img)) {
+                return level.image;
+            }
+        }
+
+        BufferedImage levelImg = scale(request.img,
+            LEVEL_SIZE, VALUE_INTERPOLATION_NEAREST_NEIGHBOR, null);
+        synchronized (levels) {
+            levels.put(request.layer, new Level(request.img, levelImg));
+        }
+        return levelImg;
+    }
+
+    private static BufferedImage scale(BufferedImage src, int size,
+                                       Object interpolation,
+                                       CheckerboardPainter painter) {
+        Dimension dim = calcThumbDimensions(src.getWidth(), src.getHeight(), size);
+        BufferedImage dst = createSysCompatibleImage(dim.width, dim.height);
+        Graphics2D g = dst.createGraphics();
+        if (painter != null) {
+            painter.paint(g, null, dim.width, dim.height);
+        }
+        g.setRenderingHint(KEY_INTERPOLATION, interpolation);
+        g.drawImage(src, 0, 0, dim.width, dim.height, null);
+        g.dispose();
+        return dst;
+    }
+
+    /**
+     * A cached low-resolution copy of a layer image
+     */
+    private static class Level {
+        // canvas-sized sub-images are recreated for each
+        // request, therefore the shared data buffer is compared
+        private final WeakReference<DataBuffer> bufferRef;
+        private final int offsetX;
+        private final int offsetY;
+        private final int srcWidth;
+        private final int srcHeight;
+        private final BufferedImage image;
+
+        Level(BufferedImage src, BufferedImage image) {
+            WritableRaster raster = src.getRaster();
+            bufferRef = new WeakReference<>(raster.getDataBuffer());
+            offsetX = raster.getSampleModelTranslateX();
+            offsetY = raster.getSampleModelTranslateY();
+            srcWidth = src.getWidth();
+            srcHeight = src.getHeight();
+            this.image = image;
+        }
+
+        boolean isFor(BufferedImage src) {
+            WritableRaster raster = src.getRaster();
+            return bufferRef.get() == raster.getDataBuffer()
+                && offsetX == raster.getSampleModelTranslateX()
+                && offsetY == raster.getSampleModelTranslateY()
+                && srcWidth == src.getWidth()
+                && srcHeight == src.getHeight();
+        }
+    }
+
+    private static class Request {
+        private final ImageLayer layer;
+        private final BufferedImage img;
+        private final int thumbSize;
+        private final CheckerboardPainter painter;
+        private final Consumer<BufferedImage> callback;
+        private boolean contentChanged;
+
+        private volatile boolean cancelled;
+        private Future<?> future;
+
+        Request(ImageLayer layer, BufferedImage img, int thumbSize,
+                boolean contentChanged, CheckerboardPainter painter,
+                Consumer<BufferedImage> callback) {
+            this.layer = layer;
+            this.img = img;
+            this.thumbSize = thumbSize;
+            this.contentChanged = contentChanged;
+            this.painter = painter;
+            this.callback = callback;
+        }
+
+        void cancel() {
+            cancelled = true;
+            if (future != null) {
+                future.cancel(false);
+            }
+        }
+
+        void run() {
+            if (cancelled) {
+                return;
+            }
+            BufferedImage level = getLevel(this);
+            if (cancelled) {
+                return;
+            }
+            boolean downscaling = level.getWidth() > thumbSize
+                || level.getHeight() > thumbSize;
+            BufferedImage thumb = scale(level, thumbSize, downscaling
+                ? VALUE_INTERPOLATION_BILINEAR
+                : VALUE_INTERPOLATION_NEAREST_NEIGHBOR, painter);
+
+            SwingUtilities.invokeLater(() -> {
+                if (pending.get(layer) != this) {
+                    return; // superseded
+                }
+                pending.remove(layer);
+                callback.accept(thumb);
+            });
+        }
+    }
+}
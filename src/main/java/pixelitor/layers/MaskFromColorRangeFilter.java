@@ -19,9 +19,13 @@ package pixelitor.layers;
 
 import com.jhlabs.image.PointFilter;
 import net.jafama.FastMath;
+import pixelitor.colors.ColorSpaces;
 
 import java.awt.Color;
 
+import static pixelitor.colors.ColorSpaces.MAX_BRIGHTNESS;
+import static pixelitor.colors.ColorSpaces.ONE;
+
 /**
  * A filter used internally by the "Mask from Color Range".
  * It creates a grayscale mask.
@@ -31,6 +35,7 @@ class MaskFromColorRangeFilter extends PointFilter {
     public static final int HSB = 2;
     public static final int HUE = 3;
     public static final int SAT = 4;
+    public static final int LAB = 5;
     private int distType = HSB;
 
     private static final int WHITE_PIXEL = 0xFF_FF_FF_FF;
@@ -40,7 +45,8 @@ class MaskFromColorRangeFilter extends PointFilter {
     private double minTolerance;
 
     private int refR, refG, refB; // the reference color in RGB
-    private float refHue, refSat, refBri; // the reference color in HSB
+    private int refHue, refSat, refBri; // the reference color in fixed-point HSB
+    private final float[] refLab = new float[3]; // the reference color in Lab
 
     private boolean invert;
 
@@ -53,12 +59,13 @@ class MaskFromColorRangeFilter extends PointFilter {
         refG = c.getGreen();
         refB = c.getBlue();
 
-        if (distType != RGB) {
-            float[] hsb = Color.RGBtoHSB(refR, refG, refB, null);
-            refHue = hsb[0];
-            refSat = hsb[1];
-            refBri = hsb[2];
-        }
+        int[] hsb = new int[3];
+        ColorSpaces.rgbToHsb(c.getRGB(), hsb);
+        refHue = hsb[0];
+        refSat = hsb[1];
+        refBri = hsb[2];
+
+        ColorSpaces.rgbToLab(c.getRGB(), refLab);
     }
 
     public void setDistType(int distType) {
@@ -77,9 +84,24 @@ class MaskFromColorRangeFilter extends PointFilter {
         this.invert = invert;
     }
 
+    @Override
+    protected void filterLine(int y, int width, int[] inPixels, int[] outPixels, int offset) {
+        // one buffer for the Lab components of the whole line
+        float[] lab = distType == LAB ? new float[3] : null;
+        for (int x = 0; x < width; x++) {
+            int index = offset + x;
+            outPixels[index] = calcMaskPixel(inPixels[index], lab);
+        }
+    }
+
     @Override
     public int filterRGB(int x, int y, int rgb) {
-        double dist = calcDistance(rgb);
+        // not called by filterLine, which reuses the Lab buffer
+        return calcMaskPixel(rgb, distType == LAB ? new float[3] : null);
+    }
+
+    private int calcMaskPixel(int rgb, float[] lab) {
+        double dist = calcDistance(rgb, lab);
 
         if (dist > minTolerance) {
             if (invert) {
@@ -103,60 +125,54 @@ class MaskFromColorRangeFilter extends PointFilter {
         }
     }
 
-    private double calcDistance(int rgb) {
-        int r = (rgb >> 16) & 0xFF;
-        int g = (rgb >> 8) & 0xFF;
-        int b = rgb & 0xFF;
-
+    private double calcDistance(int rgb, float[] lab) {
         return switch (distType) {
-            case RGB -> calcRGBDistance(r, g, b);
-            case HSB -> calcHSBDistance(r, g, b);
-            case HUE -> calcHueDistance(r, g, b);
-            case SAT -> calcSatDistance(r, g, b);
+            case RGB -> calcRGBDistance(rgb);
+            case HSB -> calcHSBDistance(rgb);
+            case HUE -> calcHueDistance(rgb);
+            case SAT -> calcSatDistance(rgb);
+            case LAB -> calcLabDistance(rgb, lab);
             default -> throw new IllegalStateException("distType = " + distType);
         };
     }
 
-    private double calcRGBDistance(int r, int g, int b) {
-        int deltaR = r - refR;
-        int deltaG = g - refG;
-        int deltaB = b - refB;
+    private double calcRGBDistance(int rgb) {
+        int deltaR = ((rgb >> 16) & 0xFF) - refR;
+        int deltaG = ((rgb >> 8) & 0xFF) - refG;
+        int deltaB = (rgb & 0xFF) - refB;
 
         return FastMath.sqrtQuick(deltaR * deltaR + deltaG * deltaG + deltaB * deltaB);
     }
 
-    private double calcHSBDistance(int r, int g, int b) {
-        float[] hsb = Color.RGBtoHSB(r, g, b, null);
-
-        float deltaHue = hsb[0] - refHue;
-        float deltaSat = hsb[1] - refSat;
-        float deltaBri = hsb[2] - refBri;
-
+    private double calcHSBDistance(int rgb) {
         // hue is an angle
-        if (deltaHue > 0.5f) {
-            deltaHue = 1.0f - deltaHue;
-        } else if (deltaHue < -0.5f) {
-            deltaHue = 1.0f + deltaHue;
-        }
+        float deltaHue = ColorSpaces.hueDifference(ColorSpaces.hue(rgb), refHue);
+        float deltaSat = (ColorSpaces.saturation(rgb) - refSat) / (float) ONE;
+        float deltaBri = (ColorSpaces.brightness(rgb) - refBri) / (float) MAX_BRIGHTNESS;
 
         return 150 * FastMath.sqrtQuick(deltaHue * deltaHue + deltaSat * deltaSat + deltaBri * deltaBri);
     }
 
-    private double calcHueDistance(int r, int g, int b) {
-        float[] hsb = Color.RGBtoHSB(r, g, b, null);
-        float deltaHue = hsb[0] - refHue;
+    private double calcHueDistance(int rgb) {
         // hue is an angle
-        if (deltaHue > 0.5f) {
-            deltaHue = 1.0f - deltaHue;
-        } else if (deltaHue < -0.5f) {
-            deltaHue = 1.0f + deltaHue;
-        }
+        float deltaHue = ColorSpaces.hueDifference(ColorSpaces.hue(rgb), refHue);
         return Math.abs(1000 * deltaHue);
     }
 
-    private double calcSatDistance(int r, int g, int b) {
-        float[] hsb = Color.RGBtoHSB(r, g, b, null);
-        float deltaSat = hsb[1] - refSat;
+    private double calcSatDistance(int rgb) {
+        float deltaSat = (ColorSpaces.saturation(rgb) - refSat) / (float) ONE;
         return 150 * Math.abs(deltaSat);
     }
+
+    // the CIE76 color difference, which is approximately
+    // proportional to the perceived difference
+    private double calcLabDistance(int rgb, float[] lab) {
+        ColorSpaces.rgbToLab(rgb, lab);
+
+        float deltaL = lab[0] - refLab[0];
+        float deltaA = lab[1] - refLab[1];
+        float deltaB = lab[2] - refLab[2];
+
+        return FastMath.sqrtQuick(deltaL * deltaL + deltaA * deltaA + deltaB * deltaB);
+    }
 }
@@ -130,6 +130,7 @@ public class MaskFromColorRangePanel extends JPanel {
             new Item("Hue", MaskFromColorRangeFilter.HUE),
             new Item("Sat", MaskFromColorRangeFilter.SAT),
             new Item("RGB", MaskFromColorRangeFilter.RGB),
+            new Item("Lab", MaskFromColorRangeFilter.LAB),
         });
         distTypeCombo.setName("distTypeCombo");
     }
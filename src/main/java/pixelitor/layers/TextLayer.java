@@ -24,6 +24,7 @@ import pixelitor.Composition.LayerAdder;
 import pixelitor.OpenImages;
 import pixelitor.compactions.Flip;
 import pixelitor.compactions.Rotate;
+import pixelitor.filters.painters.AreaEffects;
 import pixelitor.filters.painters.TextSettings;
 import pixelitor.filters.painters.TextSettingsPanel;
 import pixelitor.filters.painters.TransformedTextPainter;
@@ -43,6 +44,7 @@ import java.io.ObjectInputStream;
 import java.io.Serial;
 import java.util.concurrent.CompletableFuture;
 
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB_PRE;
 import static org.jdesktop.swingx.painter.AbstractLayoutPainter.HorizontalAlignment.CENTER;
 import static org.jdesktop.swingx.painter.AbstractLayoutPainter.HorizontalAlignment.LEFT;
 import static org.jdesktop.swingx.painter.AbstractLayoutPainter.VerticalAlignment.TOP;
@@ -58,6 +60,9 @@ public class TextLayer extends ContentLayer {
     private transient TransformedTextPainter painter;
     private TextSettings settings;
 
+    // the rendered text with the effects, reused until something changes
+    private transient TextRaster raster;
+
     public TextLayer(Composition comp) {
         this(comp, "");
     }
@@ -229,10 +234,69 @@ public class TextLayer extends ContentLayer {
 
     @Override
     public void paintLayerOnGraphics(Graphics2D g, boolean firstVisibleLayer) {
+        if (!g.getTransform().isIdentity()) {
+            // the cached raster could be used only with a loss of quality
+            paintText(g);
+            return;
+        }
+        TextRaster r = getRaster();
+        if (r.image != null) {
+            g.drawImage(r.image, r.x, r.y, null);
+        }
+    }
+
+    private void paintText(Graphics2D g) {
         painter.setFillPaint(settings.getColor());
         painter.paint(g, null, comp.getCanvasWidth(), comp.getCanvasHeight());
     }
 
+    /**
+     * Returns the cached rendering of the text, re-rendering it
+     * if the settings, the translation or the canvas size have changed.
+     */
+    private TextRaster getRaster() {
+        int canvasWidth = comp.getCanvasWidth();
+        int canvasHeight = comp.getCanvasHeight();
+        if (raster != null && raster.isFor(settings, painter, canvasWidth, canvasHeight)) {
+            return raster;
+        }
+
+        Rectangle bounds = calcRenderedBounds();
+        BufferedImage image = null;
+        if (!bounds.isEmpty()) {
+            image = new BufferedImage(bounds.width, bounds.height, TYPE_INT_ARGB_PRE);
+            Graphics2D g = image.createGraphics();
+            g.translate(-bounds.x, -bounds.y);
+            paintText(g);
+            g.dispose();
+        }
+        raster = new TextRaster(image, bounds.x, bounds.y,
+            settings, painter, canvasWidth, canvasHeight);
+        return raster;
+    }
+
+    /**
+     * Returns a rectangle that contains everything painted by the
+     * text painter, including the effects around the text.
+     */
+    private Rectangle calcRenderedBounds() {
+        // also updates the bounding box of the painter
+        Rectangle bounds = getTextShape().getBounds();
+        bounds.add(painter.getBoundingBox());
+
+        AreaEffects effects = settings.getAreaEffects();
+        int margin = 2;
+        if (effects != null) {
+            margin += effects.getMaxEffectThickness();
+        }
+        bounds.grow(margin, margin);
+        return bounds;
+    }
+
+    private void invalidateRaster() {
+        raster = null;
+    }
+
     @Override
     public BufferedImage applyLayer(Graphics2D g, BufferedImage imageSoFar, boolean firstVisibleLayer) {
         if (settings == null) {
@@ -269,6 +333,8 @@ public class TextLayer extends ContentLayer {
 
     public void setSettings(TextSettings settings) {
         this.settings = settings;
+        // the settings could have been modified in place
+        invalidateRaster();
 
         isAdjustment = settings.isWatermark();
         settings.configurePainter(painter);
@@ -392,6 +458,42 @@ public class TextLayer extends ContentLayer {
         }
     }
 
+    /**
+     * A rendering of the text with its effects, with the state it depends on
+     */
+    private static class TextRaster {
+        private final BufferedImage image; // null if nothing is painted
+        private final int x;
+        private final int y;
+
+        private final TextSettings settings;
+        private final int tx;
+        private final int ty;
+        private final int canvasWidth;
+        private final int canvasHeight;
+
+        TextRaster(BufferedImage image, int x, int y, TextSettings settings,
+                   TransformedTextPainter painter, int canvasWidth, int canvasHeight) {
+            this.image = image;
+            this.x = x;
+            this.y = y;
+            this.settings = settings;
+            tx = painter.getTx();
+            ty = painter.getTy();
+            this.canvasWidth = canvasWidth;
+            this.canvasHeight = canvasHeight;
+        }
+
+        boolean isFor(TextSettings settings, TransformedTextPainter painter,
+                      int canvasWidth, int canvasHeight) {
+            return this.settings == settings
+                && tx == painter.getTx()
+                && ty == painter.getTy()
+                && this.canvasWidth == canvasWidth
+                && this.canvasHeight == canvasHeight;
+        }
+    }
+
     @Override
     public String toString() {
         return getClass().getSimpleName()
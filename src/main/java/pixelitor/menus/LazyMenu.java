@@ -0,0 +1,82 @@
+/*
+ * Copyright 2021 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.menus;
+
+import pixelitor.gui.utils.GUIUtils;
+
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static pixelitor.utils.Threads.calledOnEDT;
+import static pixelitor.utils.Threads.threadInfo;
+
+/**
+ * A submenu whose items are created only when it is first shown,
+ * which makes the startup faster. Since the keyboard shortcuts
+ * of the items wouldn't work before that, it should contain
+ * only items without shortcuts.
+ */
+public class LazyMenu extends PMenu {
+    private static final List<LazyMenu> menusWithoutItems = new ArrayList<>();
+
+    private Consumer<PMenu> itemsCreator;
+
+    public LazyMenu(String s, Consumer<PMenu> itemsCreator) {
+        super(s);
+        this.itemsCreator = itemsCreator;
+        menusWithoutItems.add(this);
+    }
+
+    @Override
+    public JPopupMenu getPopupMenu() {
+        createItems();
+        return super.getPopupMenu();
+    }
+
+    private void createItems() {
+        assert calledOnEDT() : threadInfo();
+
+        if (itemsCreator == null) {
+            return;
+        }
+        // cleared first, because adding the items can call getPopupMenu
+        Consumer<PMenu> creator = itemsCreator;
+        itemsCreator = null;
+        menusWithoutItems.remove(this);
+
+        creator.accept(this);
+    }
+
+    /**
+     * Creates the items of all the menus that were not shown yet.
+     * This is necessary before listing all the filters, because
+     * the filters are registered when their menu items are created.
+     */
+    public static void createAllItems() {
+        if (!calledOnEDT()) {
+            // the menu items are Swing components
+            GUIUtils.invokeAndWait(LazyMenu::createAllItems);
+            return;
+        }
+        for (LazyMenu menu : List.copyOf(menusWithoutItems)) {
+            menu.createItems();
+        }
+    }
+}
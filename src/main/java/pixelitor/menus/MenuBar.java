@@ -52,6 +52,7 @@ import pixelitor.gui.utils.Themes;
 import pixelitor.guides.Guides;
 import pixelitor.history.History;
 import pixelitor.io.FileChoosers;
+import pixelitor.io.FileUtils;
 import pixelitor.io.IO;
 import pixelitor.io.OptimizedJpegSavePanel;
 import pixelitor.layers.*;
@@ -67,16 +68,21 @@ import pixelitor.selection.SelectionActions;
 import pixelitor.tools.brushes.CopyBrush;
 import pixelitor.utils.*;
 import pixelitor.utils.debug.Debug;
+import pixelitor.utils.perf.PerfReport;
+import pixelitor.utils.perf.PerformanceOverlay;
 import pixelitor.utils.test.Events;
 import pixelitor.utils.test.RandomGUITest;
 import pixelitor.utils.test.SplashImageCreator;
 
 import javax.swing.*;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import java.awt.GraphicsConfiguration;
 import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.event.ActionEvent;
 import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
 import java.util.ResourceBundle;
 
 import static pixelitor.Composition.ImageChangeActions.FULL;
@@ -665,16 +671,14 @@ public class MenuBar extends JMenuBar {
         colorsMenu.addFilter(ChannelInvert.NAME, ChannelInvert::new);
         colorsMenu.addFilter(ChannelMixer.NAME, ChannelMixer::new);
 
-        colorsMenu.add(createExtractChannelsSubmenu());
-        colorsMenu.add(createReduceColorsSubmenu());
+        colorsMenu.add(new LazyMenu("Extract Channels", MenuBar::addExtractChannelsItems));
+        colorsMenu.add(new LazyMenu("Reduce Colors", MenuBar::addReduceColorsItems));
         colorsMenu.add(createFillSubmenu(texts));
 
         return colorsMenu;
     }
 
-    private static JMenu createExtractChannelsSubmenu() {
-        PMenu sub = new PMenu("Extract Channels");
-
+    private static void addExtractChannelsItems(PMenu sub) {
         sub.addFilter("Extract Channel", ExtractChannel::new);
 
         sub.addSeparator();
@@ -692,13 +696,9 @@ public class MenuBar extends JMenuBar {
         sub.addFilter(ExtractChannelFilter.getHueChannelFA());
         sub.addFilter(ExtractChannelFilter.getHueInColorsChannelFA());
         sub.addFilter(ExtractChannelFilter.getSaturationChannelFA());
-
-        return sub;
     }
 
-    private static JMenu createReduceColorsSubmenu() {
-        PMenu sub = new PMenu("Reduce Colors");
-
+    private static void addReduceColorsItems(PMenu sub) {
         sub.addFilter(JHQuantize.NAME, JHQuantize::new);
         sub.addFilter(Posterize.NAME, Posterize::new);
         sub.addFilter(Threshold.NAME, Threshold::new);
@@ -712,8 +712,6 @@ public class MenuBar extends JMenuBar {
         sub.addSeparator();
 
         sub.addFilter(JHDither.NAME, JHDither::new);
-
-        return sub;
     }
 
     private static JMenu createFillSubmenu(ResourceBundle texts) {
@@ -753,15 +751,16 @@ public class MenuBar extends JMenuBar {
 
         filterMenu.addSeparator();
 
-        filterMenu.add(createBlurSharpenSubmenu(texts));
-        filterMenu.add(createDistortSubmenu(texts));
-        filterMenu.add(createDisplaceSubmenu(texts));
-        filterMenu.add(createLightSubmenu(texts));
-        filterMenu.add(createNoiseSubmenu(texts));
-        filterMenu.add(createRenderSubmenu(texts));
-        filterMenu.add(createArtisticSubmenu(texts));
-        filterMenu.add(createFindEdgesSubmenu(texts));
-        filterMenu.add(createOtherSubmenu(texts));
+        filterMenu.add(new LazyMenu(texts.getString("blur") + "/" + texts.getString("sharpen"),
+            MenuBar::addBlurSharpenItems));
+        filterMenu.add(new LazyMenu(texts.getString("distort"), MenuBar::addDistortItems));
+        filterMenu.add(new LazyMenu(texts.getString("displace"), MenuBar::addDisplaceItems));
+        filterMenu.add(new LazyMenu(texts.getString("light"), MenuBar::addLightItems));
+        filterMenu.add(new LazyMenu(texts.getString("noise"), MenuBar::addNoiseItems));
+        filterMenu.add(new LazyMenu(texts.getString("render"), sub -> addRenderItems(sub, texts)));
+        filterMenu.add(new LazyMenu(texts.getString("artistic"), MenuBar::addArtisticItems));
+        filterMenu.add(new LazyMenu(texts.getString("find_edges"), MenuBar::addFindEdgesItems));
+        filterMenu.add(new LazyMenu("Other", MenuBar::addOtherItems));
 
         // the text as filter is still useful for batch operations
         filterMenu.addFilter("Text", TextFilter::new);
@@ -769,10 +768,7 @@ public class MenuBar extends JMenuBar {
         return filterMenu;
     }
 
-    private static JMenu createBlurSharpenSubmenu(ResourceBundle texts) {
-        PMenu sub = new PMenu(texts.getString("blur")
-            + "/" + texts.getString("sharpen"));
-
+    private static void addBlurSharpenItems(PMenu sub) {
         sub.addFilter(JHBoxBlur.NAME, JHBoxBlur::new);
         sub.addFilter(JHFocus.NAME, JHFocus::new);
         sub.addFilter(JHGaussianBlur.NAME, JHGaussianBlur::new);
@@ -782,13 +778,9 @@ public class MenuBar extends JMenuBar {
         sub.addFilter(SPIN_ZOOM_BLUR.createFilterAction());
         sub.addSeparator();
         sub.addFilter(JHUnsharpMask.NAME, JHUnsharpMask::new);
-
-        return sub;
     }
 
-    private static JMenu createDistortSubmenu(ResourceBundle texts) {
-        PMenu sub = new PMenu(texts.getString("distort"));
-
+    private static void addDistortItems(PMenu sub) {
         sub.addFilter(JHSwirlPinchBulge.NAME, JHSwirlPinchBulge::new);
         sub.addFilter(CircleToSquare.NAME, CircleToSquare::new);
         sub.addFilter(JHPerspective.NAME, JHPerspective::new);
@@ -818,38 +810,26 @@ public class MenuBar extends JMenuBar {
         sub.addFilter(LittlePlanet.NAME, LittlePlanet::new);
         sub.addFilter(JHPolarCoordinates.NAME, JHPolarCoordinates::new);
         sub.addFilter(JHWrapAroundArc.NAME, JHWrapAroundArc::new);
-
-        return sub;
     }
 
-    private static JMenu createDisplaceSubmenu(ResourceBundle texts) {
-        PMenu sub = new PMenu(texts.getString("displace"));
-
+    private static void addDisplaceItems(PMenu sub) {
         sub.addFilter(DrunkVision.NAME, DrunkVision::new);
         sub.addFilter(JHKaleidoscope.NAME, JHKaleidoscope::new);
         sub.addFilter(JHOffset.NAME, JHOffset::new);
         sub.addFilter(Mirror.NAME, Mirror::new);
         sub.addFilter(Slice.NAME, Slice::new);
         sub.addFilter(JHVideoFeedback.NAME, JHVideoFeedback::new);
-
-        return sub;
     }
 
-    private static JMenu createLightSubmenu(ResourceBundle texts) {
-        PMenu sub = new PMenu(texts.getString("light"));
-
+    private static void addLightItems(PMenu sub) {
         sub.addFilter(Flashlight.NAME, Flashlight::new);
         sub.addFilter(JHGlint.NAME, JHGlint::new);
         sub.addFilter(JHGlow.NAME, JHGlow::new);
         sub.addFilter(JHRays.NAME, JHRays::new);
         sub.addFilter(JHSparkle.NAME, JHSparkle::new);
-
-        return sub;
     }
 
-    private static JMenu createNoiseSubmenu(ResourceBundle texts) {
-        PMenu sub = new PMenu(texts.getString("noise"));
-
+    private static void addNoiseItems(PMenu sub) {
         sub.buildFilter(JHReduceNoise.NAME, JHReduceNoise::new)
             .noGUI()
             .add();
@@ -861,13 +841,9 @@ public class MenuBar extends JMenuBar {
 
         sub.addFilter(AddNoise.NAME, AddNoise::new);
         sub.addFilter(JHPixelate.NAME, JHPixelate::new);
-
-        return sub;
     }
 
-    private static JMenu createRenderSubmenu(ResourceBundle texts) {
-        PMenu sub = new PMenu(texts.getString("render"));
-
+    private static void addRenderItems(PMenu sub, ResourceBundle texts) {
         sub.addFilter(Clouds.NAME, Clouds::new);
         sub.addFilter(JHPlasma.NAME, JHPlasma::new);
         sub.addFilter(ValueNoise.NAME, ValueNoise::new);
@@ -886,8 +862,6 @@ public class MenuBar extends JMenuBar {
         sub.add(createRenderFractalsSubmenu(texts));
         sub.add(createRenderGeometrySubmenu());
         sub.add(createRenderShapesSubmenu());
-
-        return sub;
     }
 
     private static JMenu createRenderShapesSubmenu() {
@@ -924,9 +898,7 @@ public class MenuBar extends JMenuBar {
         return sub;
     }
 
-    private static JMenu createArtisticSubmenu(ResourceBundle texts) {
-        PMenu sub = new PMenu(texts.getString("artistic"));
-
+    private static void addArtisticItems(PMenu sub) {
         sub.addFilter(JHCrystallize.NAME, JHCrystallize::new);
         sub.addFilter(JHEmboss.NAME, JHEmboss::new);
         sub.addFilter(JHOilPainting.NAME, JHOilPainting::new);
@@ -939,8 +911,6 @@ public class MenuBar extends JMenuBar {
         sub.addFilter(JHWeave.NAME, JHWeave::new);
 
         sub.add(createHalftoneSubmenu());
-
-        return sub;
     }
 
     private static JMenu createHalftoneSubmenu() {
@@ -953,21 +923,15 @@ public class MenuBar extends JMenuBar {
         return sub;
     }
 
-    private static JMenu createFindEdgesSubmenu(ResourceBundle texts) {
-        PMenu sub = new PMenu(texts.getString("find_edges"));
-
+    private static void addFindEdgesItems(PMenu sub) {
         sub.addFilter(JHConvolutionEdge.NAME, JHConvolutionEdge::new);
         sub.addAction(new FilterAction(JHLaplacian.NAME, JHLaplacian::new)
             .withoutGUI());
         sub.addFilter(JHDifferenceOfGaussians.NAME, JHDifferenceOfGaussians::new);
         sub.addFilter("Canny", Canny::new);
-
-        return sub;
     }
 
-    private static JMenu createOtherSubmenu(ResourceBundle texts) {
-        PMenu sub = new PMenu("Other");
-
+    private static void addOtherItems(PMenu sub) {
         sub.addFilter(JHDropShadow.NAME, JHDropShadow::new);
         sub.addFilter(Morphology.NAME, Morphology::new);
         sub.addFilter("Random Filter", RandomFilter::new);
@@ -985,8 +949,6 @@ public class MenuBar extends JMenuBar {
         sub.buildFilter(JHInvertTransparency.NAME, JHInvertTransparency::new)
             .noGUI()
             .add();
-
-        return sub;
     }
 
     private static JMenu createViewMenu(PixelitorWindow pw, ResourceBundle texts) {
@@ -1445,6 +1407,18 @@ public class MenuBar extends JMenuBar {
             }
         });
 
+        var perfOverlayMI = new JCheckBoxMenuItem("Performance Overlay");
+        perfOverlayMI.addActionListener(e ->
+            PerformanceOverlay.setShown(perfOverlayMI.getState()));
+        helpMenu.add(perfOverlayMI);
+
+        helpMenu.add(new MenuAction("Export Performance Data...") {
+            @Override
+            public void onClick() {
+                exportPerformanceData();
+            }
+        });
+
         helpMenu.add(new MenuAction("Check for Update...") {
             @Override
             public void onClick() {
@@ -1462,4 +1436,21 @@ public class MenuBar extends JMenuBar {
 
         return helpMenu;
     }
+
+    private static void exportPerformanceData() {
+        File file = FileChoosers.selectSaveFileForSpecificFormat(
+            new FileNameExtensionFilter("CSV files", "csv"));
+        if (file == null) {
+            return;
+        }
+        if (FileUtils.findExtension(file.getName()).isEmpty()) {
+            file = new File(file.getParentFile(), file.getName() + ".csv");
+        }
+        try {
+            PerfReport.exportCSV(file);
+            Messages.showFileSavedMessage(file);
+        } catch (IOException ex) {
+            Messages.showException(ex);
+        }
+    }
 }
@@ -28,7 +28,8 @@ import javax.swing.*;
 public class OpenImageAwareMenuItem extends JMenuItem implements ViewActivationListener {
     public OpenImageAwareMenuItem(Action a) {
         super(a);
-        setEnabled(false);
+        // it can be created after the view activation (for example in a lazy menu)
+        setEnabled(OpenImages.getActiveView() != null);
         OpenImages.addActivationListener(this);
     }
 
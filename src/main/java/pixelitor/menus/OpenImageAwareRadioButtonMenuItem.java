@@ -30,7 +30,8 @@ public class OpenImageAwareRadioButtonMenuItem extends JRadioButtonMenuItem impl
     public OpenImageAwareRadioButtonMenuItem(String name) {
         super(name);
         setName(name);
-        setEnabled(false);
+        // it can be created after the view activation (for example in a lazy menu)
+        setEnabled(OpenImages.getActiveView() != null);
         OpenImages.addActivationListener(this);
     }
 
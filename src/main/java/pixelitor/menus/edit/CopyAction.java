@@ -20,7 +20,6 @@ package pixelitor.menus.edit;
 import pixelitor.Composition;
 import pixelitor.OpenImages;
 import pixelitor.gui.utils.Dialogs;
-import pixelitor.utils.ImageUtils;
 import pixelitor.utils.Messages;
 import pixelitor.utils.Result;
 
@@ -61,11 +60,9 @@ public class CopyAction extends AbstractAction {
             Dialogs.showErrorDialog("Error", msg);
             return;
         }
-        BufferedImage activeImage = result.get();
-        // make a copy, because otherwise changing the image
-        // will also change the clipboard contents
-        BufferedImage copy = ImageUtils.copySubImage(activeImage);
-        Transferable imageTransferable = new ImageTransferable(copy);
+        // the copy source already returns an image
+        // that is not modified by later edits
+        Transferable imageTransferable = new ImageTransferable(result.get());
         Clipboard clipboard = Toolkit.getDefaultToolkit().getSystemClipboard();
 
         // TODO JDK bug? a stack trace is printed, but the image is copied.
@@ -49,10 +49,14 @@ public enum CopySource {
 
             BufferedImage canvasSizedImage = null;
 
+            // the layer images are modified in place, therefore they have to be
+            // copied, but the rasterized text layer images are not shared
+            boolean mutable = false;
             if (layer instanceof AdjustmentLayer) {
                 return Result.error("adjustment layers cannot be copied");
             } else if (layer instanceof ImageLayer) {
                 canvasSizedImage = ((ImageLayer) layer).getCanvasSizedSubImage();
+                mutable = true;
             } else if (layer instanceof TextLayer) {
                 // TODO Text layers are rasterized, but they should be probably copied
                 //   in other formats as well (as a string, as a serialized object)
@@ -65,7 +69,7 @@ public enum CopySource {
                 return Result.error("program error (no image from layer)");
             }
 
-            return createImageWithSelectedPixels(canvasSizedImage, comp);
+            return createImageWithSelectedPixels(canvasSizedImage, mutable, comp);
         }
 
         @Override
@@ -75,7 +79,10 @@ public enum CopySource {
     }, COMPOSITE {
         @Override
         Result<BufferedImage, String> getImage(Composition comp) {
-            return createImageWithSelectedPixels(comp.getCompositeImage(), comp);
+            // the cached composite image is not modified in place (it is
+            // replaced when it becomes invalid, and it is copied when it
+            // becomes a layer image), so it can be shared
+            return createImageWithSelectedPixels(comp.getCompositeImage(), false, comp);
         }
 
         @Override
@@ -85,8 +92,11 @@ public enum CopySource {
     };
 
     private static Result<BufferedImage, String> createImageWithSelectedPixels(
-        BufferedImage canvasSizedImage, Composition comp) {
+        BufferedImage canvasSizedImage, boolean mutable, Composition comp) {
         if (!comp.hasSelection()) {
+            if (mutable) {
+                return Result.ok(ImageUtils.copySubImage(canvasSizedImage));
+            }
             return Result.ok(canvasSizedImage);
         }
 
@@ -96,7 +106,7 @@ public enum CopySource {
             // for rectangular selections a simple crop is needed
             Rectangle2D selRect = (Rectangle2D) selectionShape;
             Rectangle selBounds = Shapes.roundCropRect(selRect);
-            return cropToSelectionBounds(canvasSizedImage, comp.getCanvas(), selBounds);
+            return cropToSelectionBounds(canvasSizedImage, mutable, comp.getCanvas(), selBounds);
         }
 
         // in the case of a nonrectangular selection
@@ -114,6 +124,7 @@ public enum CopySource {
     }
 
     private static Result<BufferedImage, String> cropToSelectionBounds(BufferedImage canvasSizedImage,
+                                                                       boolean mutable,
                                                                        Canvas canvas,
                                                                        Rectangle selBounds) {
         // just to be sure that the bounds are inside the canvas
@@ -124,9 +135,17 @@ public enum CopySource {
         if (selBounds.isEmpty()) {
             return Result.error("the selection is outside the image");
         }
-        return Result.ok(ImageUtils.crop(canvasSizedImage, selBounds));
+        if (mutable) {
+            return Result.ok(ImageUtils.crop(canvasSizedImage, selBounds));
+        }
+        return Result.ok(canvasSizedImage.getSubimage(
+            selBounds.x, selBounds.y, selBounds.width, selBounds.height));
     }
 
+    /**
+     * Returns an image that can be put on the clipboard without
+     * further copying: either a snapshot or an image that is never modified.
+     */
     abstract Result<BufferedImage, String> getImage(Composition comp);
 
     abstract String toResourceKey();
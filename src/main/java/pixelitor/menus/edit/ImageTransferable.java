@@ -21,7 +21,11 @@ import java.awt.datatransfer.Transferable;
 import java.awt.image.BufferedImage;
 
 /**
- * A transferable for putting images on the clipboard
+ * A transferable for putting images on the clipboard.
+ *
+ * When Pixelitor pastes its own clipboard contents, the image is
+ * taken directly from this object, and it is never modified, because
+ * the paste destinations create their own images from it.
  */
 class ImageTransferable implements Transferable {
     private final BufferedImage image;
@@ -44,4 +48,8 @@ class ImageTransferable implements Transferable {
     public Object getTransferData(DataFlavor flavor) {
         return image;
     }
+
+    BufferedImage getImage() {
+        return image;
+    }
 }
@@ -27,7 +27,6 @@ import java.awt.datatransfer.UnsupportedFlavorException;
 import java.awt.event.ActionEvent;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
-import java.util.Optional;
 
 import static pixelitor.utils.Texts.i18n;
 
@@ -46,37 +45,43 @@ public class PasteAction extends AbstractAction {
     @Override
     public void actionPerformed(ActionEvent e) {
         try {
-            getImageFromClipboard().ifPresent(this::pasteImage);
+            pasteFromClipboard();
         } catch (Exception ex) {
             Messages.showException(ex);
         }
     }
 
-    private void pasteImage(BufferedImage pastedImage) {
-        // the pasted image could have an unexpected type
-        // (such as RGB, without transparency ), but the
-        // later executing code is responsible for converting it.
-        destination.paste(pastedImage);
-    }
-
-    private static Optional<BufferedImage> getImageFromClipboard() {
+    private void pasteFromClipboard() {
         Transferable clipboardContents = Toolkit.getDefaultToolkit().getSystemClipboard().getContents(null);
         if (clipboardContents == null) {
             Messages.showInfo("Paste", "There is nothing to paste.");
-            return Optional.empty();
+            return;
         }
 
-        BufferedImage pastedImage = null;
-        if (clipboardContents.isDataFlavorSupported(DataFlavor.imageFlavor)) {
-            try {
-                pastedImage = (BufferedImage) clipboardContents.getTransferData(DataFlavor.imageFlavor);
-            } catch (UnsupportedFlavorException | IOException ex) {
-                Messages.showException(ex);
-            }
-        } else {
+        if (clipboardContents instanceof ImageTransferable) {
+            // copied within Pixelitor: the clipboard image is shared,
+            // and the destination makes the only necessary copy
+            BufferedImage image = ((ImageTransferable) clipboardContents).getImage();
+            destination.pasteAsync(image, false);
+            return;
+        }
+
+        if (!clipboardContents.isDataFlavorSupported(DataFlavor.imageFlavor)) {
             Messages.showInfo("Paste", "The clipboard content is not an image.");
-            return Optional.empty();
+            return;
         }
-        return Optional.of(pastedImage);
+
+        BufferedImage pastedImage;
+        try {
+            pastedImage = (BufferedImage) clipboardContents.getTransferData(DataFlavor.imageFlavor);
+        } catch (UnsupportedFlavorException | IOException ex) {
+            Messages.showException(ex);
+            return;
+        }
+
+        // The image from the system clipboard is created for this call, so it
+        // can be used directly. It could have an unexpected type (such as RGB,
+        // without transparency), but the destination converts it only once.
+        destination.pasteAsync(pastedImage, true);
     }
 }
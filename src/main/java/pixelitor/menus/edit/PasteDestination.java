@@ -18,16 +18,23 @@
 package pixelitor.menus.edit;
 
 import pixelitor.Canvas;
+import pixelitor.Composition;
 import pixelitor.OpenImages;
 import pixelitor.colors.Colors;
+import pixelitor.layers.ImageLayer;
 import pixelitor.layers.Layer;
 import pixelitor.layers.LayerMask;
+import pixelitor.utils.ImageUtils;
+import pixelitor.utils.Messages;
 
 import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
+import java.util.concurrent.CompletableFuture;
 
 import static java.awt.image.BufferedImage.TYPE_BYTE_GRAY;
+import static pixelitor.utils.Threads.onEDT;
+import static pixelitor.utils.Threads.onPool;
 
 /**
  * Represents the destination of a pasted image
@@ -40,9 +47,17 @@ public enum PasteDestination {
         }
 
         @Override
-        void paste(BufferedImage pastedImage) {
-            var comp = OpenImages.getActiveComp();
-            comp.addExternalImageAsNewLayer(pastedImage,
+        BufferedImage prepare(BufferedImage pastedImage, boolean owned, Composition comp) {
+            Canvas canvas = comp.getCanvas();
+            return ImageLayer.createImageFromPasted(pastedImage,
+                canvas.getWidth(), canvas.getHeight(), owned);
+        }
+
+        @Override
+        void paste(BufferedImage preparedImage, Composition comp) {
+            // the prepared image is compatible and covers the
+            // canvas, therefore it will not be copied again
+            comp.addExternalImageAsNewLayer(preparedImage,
                     "Pasted Layer", "New Pasted Layer");
         }
     }, NEW_IMAGE {
@@ -54,10 +69,20 @@ public enum PasteDestination {
         }
 
         @Override
-        void paste(BufferedImage pastedImage) {
+        BufferedImage prepare(BufferedImage pastedImage, boolean owned, Composition comp) {
+            if (owned) {
+                // converts only if the type is not compatible
+                return ImageUtils.toSysCompatibleImage(pastedImage);
+            }
+            return ImageLayer.createImageFromPasted(pastedImage,
+                pastedImage.getWidth(), pastedImage.getHeight(), false);
+        }
+
+        @Override
+        void paste(BufferedImage preparedImage, Composition comp) {
             String title = "Pasted Image " + pastedCount;
 
-            OpenImages.addAsNewComp(pastedImage, null, title);
+            OpenImages.addAsNewComp(preparedImage, null, title);
 
             pastedCount++;
         }
@@ -68,8 +93,7 @@ public enum PasteDestination {
         }
 
         @Override
-        void paste(BufferedImage pastedImage) {
-            var comp = OpenImages.getActiveComp();
+        BufferedImage prepare(BufferedImage pastedImage, boolean owned, Composition comp) {
             Canvas canvas = comp.getCanvas();
             int canvasWidth = canvas.getWidth();
             int canvasHeight = canvas.getHeight();
@@ -92,7 +116,11 @@ public enum PasteDestination {
             g.drawImage(pastedImage, x, y, null);
 
             g.dispose();
+            return bwImage;
+        }
 
+        @Override
+        void paste(BufferedImage bwImage, Composition comp) {
             Layer layer = comp.getActiveLayer();
             if (layer.hasMask()) {
                 LayerMask mask = layer.getMask();
@@ -103,7 +131,38 @@ public enum PasteDestination {
         }
     };
 
-    abstract void paste(BufferedImage pastedImage);
+    /**
+     * Pastes the given image into the active composition (if there is one).
+     * The slow image conversions run outside the EDT.
+     *
+     * @param owned true if the pasted image is not referenced elsewhere,
+     *              and therefore it can be used without copying
+     */
+    void pasteAsync(BufferedImage pastedImage, boolean owned) {
+        // the target composition is determined when the action starts
+        var comp = OpenImages.getActiveComp();
+        if (comp == null && this != NEW_IMAGE) {
+            return;
+        }
+
+        var progressHandler = Messages.startProgress("Pasting", -1);
+        CompletableFuture
+            .supplyAsync(() -> prepare(pastedImage, owned, comp), onPool)
+            .thenAcceptAsync(preparedImage -> paste(preparedImage, comp), onEDT)
+            .whenCompleteAsync((v, e) -> progressHandler.stopProgress(), onEDT)
+            .exceptionally(Messages::showExceptionOnEDT);
+    }
+
+    /**
+     * Converts the pasted image into the format needed
+     * by this destination. Called outside the EDT.
+     */
+    abstract BufferedImage prepare(BufferedImage pastedImage, boolean owned, Composition comp);
+
+    /**
+     * Adds the prepared image to the composition. Called on the EDT.
+     */
+    abstract void paste(BufferedImage preparedImage, Composition comp);
 
     abstract String toResourceKey();
 }
@@ -30,7 +30,6 @@ import pixelitor.utils.debug.DebugNode;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.geom.AffineTransform;
-import java.awt.geom.Area;
 import java.awt.geom.Rectangle2D;
 
 import static java.awt.BasicStroke.CAP_BUTT;
@@ -226,14 +225,8 @@ public class Selection {
     }
 
     public void modify(SelectionModifyType type, float amount) {
-        Stroke outlineStroke = new BasicStroke(amount);
-        Shape outlineShape = outlineStroke.createStrokedShape(shape);
-
-        Area oldArea = new Area(shape);
-        Area outlineArea = new Area(outlineShape);
-
         Shape backupShape = shape;
-        shape = type.modify(oldArea, outlineArea);
+        shape = type.modify(shape, amount);
 
         var comp = view.getComp();
         boolean notEmpty = clipToCanvasSize(comp);
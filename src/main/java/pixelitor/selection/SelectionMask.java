@@ -0,0 +1,556 @@
+/*
+ * Copyright 2021 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.selection;
+
+import java.awt.*;
+import java.awt.color.ColorSpace;
+import java.awt.geom.*;
+import java.awt.image.*;
+
+import static java.awt.RenderingHints.KEY_ANTIALIASING;
+import static java.awt.RenderingHints.VALUE_ANTIALIAS_ON;
+import static pixelitor.utils.DistanceTransform.INF;
+import static pixelitor.utils.DistanceTransform.calcSquaredDistances;
+
+/**
+ * A selection stored as an 8-bit antialiased coverage mask.
+ * The pixels with at least half coverage are selected.
+ *
+ * The cost of the {@link Area} operations grows faster than the
+ * number of path segments, and they can take a very long time for
+ * complex selections (for example for a traced bitmap or a text).
+ * On a mask, the same operations are linear in the number of pixels.
+ * The results are converted back into vector outlines only
+ * when the path of the selection is actually needed.
+ */
+public class SelectionMask {
+    // shapes with more path segments are processed as masks
+    private static final int COMPLEX_SHAPE_SEGMENTS = 1_000;
+
+    // for larger bounds the masks would need too much memory
+    private static final long MAX_PIXELS = 16_000_000L;
+
+    // the minimum coverage of a selected pixel
+    private static final int THRESHOLD = 128;
+
+    // the coverage at the outline, halfway between
+    // the last unselected and the first selected value
+    private static final float OUTLINE_COVERAGE = THRESHOLD - 0.5f;
+
+    // the edges of an outline tracing cell, in clockwise order
+    private static final int TOP = 0;
+    private static final int RIGHT = 1;
+    private static final int BOTTOM = 2;
+    private static final int LEFT = 3;
+
+    private final int x;
+    private final int y;
+    private final int width;
+    private final int height;
+    private final byte[] coverage;
+
+    private SelectionMask(int x, int y, int width, int height) {
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+        coverage = new byte[width * height];
+    }
+
+    /**
+     * Returns true if the given shape is complex enough
+     * to be processed as a mask instead of an {@link Area}.
+     */
+    public static boolean isComplex(Shape shape) {
+        if (shape instanceof MaskShape) {
+            return true;
+        }
+        if (shape instanceof Rectangle2D) {
+            return false;
+        }
+        int numSegments = 0;
+        PathIterator it = shape.getPathIterator(null);
+        while (!it.isDone()) {
+            numSegments++;
+            if (numSegments > COMPLEX_SHAPE_SEGMENTS) {
+                return true;
+            }
+            it.next();
+        }
+        return false;
+    }
+
+    /**
+     * Returns true if a mask with the given bounds can be created.
+     */
+    public static boolean canRasterize(Rectangle bounds) {
+        return !bounds.isEmpty()
+            && (long) bounds.width * bounds.height <= MAX_PIXELS;
+    }
+
+    /**
+     * Creates a mask with the given bounds from the given shape.
+     */
+    static SelectionMask of(Shape shape, Rectangle bounds) {
+        var mask = new SelectionMask(bounds.x, bounds.y, bounds.width, bounds.height);
+        if (shape instanceof MaskShape) {
+            mask.copyFrom(((MaskShape) shape).mask);
+        } else {
+            mask.fill(shape);
+        }
+        return mask;
+    }
+
+    /**
+     * Creates a shape from a bitmap of selected pixels, where each row
+     * of the bitmap starts at a new word. The given bounds specify
+     * the location and the size of the bitmap.
+     */
+    public static Shape fromBitmap(long[] bits, int wordsPerRow, Rectangle bounds) {
+        int minX = bounds.width;
+        int minY = bounds.height;
+        int maxX = -1;
+        int maxY = -1;
+        for (int row = 0; row < bounds.height; row++) {
+            int wordOffset = row * wordsPerRow;
+            for (int i = 0; i < wordsPerRow; i++) {
+                long word = bits[wordOffset + i];
+                if (word != 0) {
+                    minX = Math.min(minX, (i << 6) + Long.numberOfTrailingZeros(word));
+                    maxX = Math.max(maxX, (i << 6) + 63 - Long.numberOfLeadingZeros(word));
+                    minY = Math.min(minY, row);
+                    maxY = row;
+                }
+            }
+        }
+        if (maxX < 0) {
+            return new Path2D.Float();
+        }
+
+        var mask = new SelectionMask(bounds.x + minX, bounds.y + minY,
+            maxX - minX + 1, maxY - minY + 1);
+        for (int py = 0; py < mask.height; py++) {
+            int wordOffset = (py + minY) * wordsPerRow;
+            for (int px = 0; px < mask.width; px++) {
+                int bx = px + minX;
+                if ((bits[wordOffset + (bx >> 6)] & (1L << bx)) != 0) {
+                    mask.coverage[py * mask.width + px] = (byte) 255;
+                }
+            }
+        }
+        return new MaskShape(mask);
+    }
+
+    /**
+     * Combines the given shapes within the given bounds.
+     */
+    static Shape combine(ShapeCombination combination,
+                         Shape oldShape, Shape newShape, Rectangle bounds) {
+        SelectionMask oldMask = of(oldShape, bounds);
+        SelectionMask newMask = of(newShape, bounds);
+        byte[] oldCoverage = oldMask.coverage;
+        byte[] newCoverage = newMask.coverage;
+        for (int i = 0; i < oldCoverage.length; i++) {
+            oldCoverage[i] = (byte) combination.combineCoverage(
+                oldCoverage[i] & 0xFF, newCoverage[i] & 0xFF);
+        }
+        return oldMask.toShape();
+    }
+
+    /**
+     * Modifies the given shape based on the signed distances of
+     * the pixels from its outline. Returns null if the shape
+     * is too large to be processed as a mask.
+     */
+    static Shape modify(Shape shape, SelectionModifyType type, float amount) {
+        // the modifications correspond to a stroke with the given width
+        float radius = amount / 2.0f;
+        int margin = (int) Math.ceil(radius) + 1;
+        Rectangle bounds = shape.getBounds();
+        bounds.grow(margin, margin);
+        if (!canRasterize(bounds)) {
+            return null;
+        }
+
+        SelectionMask mask = of(shape, bounds);
+        byte[] coverage = mask.coverage;
+        int numPixels = coverage.length;
+        float[] toInside = new float[numPixels];
+        float[] toOutside = new float[numPixels];
+        for (int i = 0; i < numPixels; i++) {
+            boolean inside = (coverage[i] & 0xFF) >= THRESHOLD;
+            toInside[i] = inside ? 0 : INF;
+            toOutside[i] = inside ? INF : 0;
+        }
+        calcSquaredDistances(toInside, mask.width, mask.height);
+        calcSquaredDistances(toOutside, mask.width, mask.height);
+
+        for (int i = 0; i < numPixels; i++) {
+            // negative inside the shape, the outline
+            // is half a pixel from the pixel centers
+            float dist;
+            if (toInside[i] == 0) {
+                dist = 0.5f - (float) Math.sqrt(toOutside[i]);
+            } else {
+                dist = (float) Math.sqrt(toInside[i]) - 0.5f;
+            }
+            coverage[i] = (byte) type.calcCoverage(dist, radius);
+        }
+        return mask.toShape();
+    }
+
+    private void fill(Shape shape) {
+        // the image draws directly into the coverage array
+        var buffer = new DataBufferByte(coverage, coverage.length);
+        WritableRaster raster = Raster.createInterleavedRaster(buffer,
+            width, height, width, 1, new int[]{0}, null);
+        var colorModel = new ComponentColorModel(
+            ColorSpace.getInstance(ColorSpace.CS_GRAY), false, false,
+            Transparency.OPAQUE, DataBuffer.TYPE_BYTE);
+        var img = new BufferedImage(colorModel, raster, false, null);
+
+        Graphics2D g = img.createGraphics();
+        g.setRenderingHint(KEY_ANTIALIASING, VALUE_ANTIALIAS_ON);
+        g.translate(-x, -y);
+        g.setColor(Color.WHITE);
+        g.fill(shape);
+        g.dispose();
+    }
+
+    private void copyFrom(SelectionMask other) {
+        int minX = Math.max(x, other.x);
+        int maxX = Math.min(x + width, other.x + other.width);
+        int minY = Math.max(y, other.y);
+        int maxY = Math.min(y + height, other.y + other.height);
+        int rowLength = maxX - minX;
+        if (rowLength <= 0) {
+            return;
+        }
+        for (int row = minY; row < maxY; row++) {
+            System.arraycopy(other.coverage,
+                (row - other.y) * other.width + minX - other.x,
+                coverage, (row - y) * width + minX - x, rowLength);
+        }
+    }
+
+    private boolean isSelected(int px, int py) {
+        if (px < 0 || py < 0 || px >= width || py >= height) {
+            return false;
+        }
+        return (coverage[py * width + px] & 0xFF) >= THRESHOLD;
+    }
+
+    /**
+     * Returns the shape of the selection, or an empty shape if no pixel is
+     * selected. The partially covered pixels are kept, because they
+     * determine the subpixel position of the outline.
+     */
+    Shape toShape() {
+        int minX = width;
+        int minY = height;
+        int maxX = -1;
+        int maxY = -1;
+        for (int py = 0; py < height; py++) {
+            for (int px = 0; px < width; px++) {
+                if (coverage[py * width + px] != 0) {
+                    minX = Math.min(minX, px);
+                    maxX = Math.max(maxX, px);
+                    minY = Math.min(minY, py);
+                    maxY = Math.max(maxY, py);
+                }
+            }
+        }
+        if (maxX < 0) {
+            return new Path2D.Float();
+        }
+
+        var trimmed = new SelectionMask(x + minX, y + minY,
+            maxX - minX + 1, maxY - minY + 1);
+        trimmed.copyFrom(this);
+        return new MaskShape(trimmed);
+    }
+
+    /**
+     * Returns the coverage at the given point of the grid of pixel
+     * centers, which has an unselected border of one pixel around the mask.
+     */
+    private int getSample(int gx, int gy) {
+        int px = gx - 1;
+        int py = gy - 1;
+        if (px < 0 || py < 0 || px >= width || py >= height) {
+            return 0;
+        }
+        return coverage[py * width + px] & 0xFF;
+    }
+
+    /**
+     * Traces the outline of the selection with marching squares.
+     * The cells are the squares between four neighboring pixel centers,
+     * and the outline crosses the cell edges where the interpolated
+     * coverage is halfway, so the antialiased edges are kept with
+     * subpixel precision. The loops are oriented so that the selection
+     * is on the same side of all of them, which makes the holes work
+     * with the non-zero winding rule.
+     */
+    private Path2D createOutline() {
+        int cellsX = width + 1;
+        int cellsY = height + 1;
+        // the already traced starting edges of each cell
+        byte[] traced = new byte[cellsX * cellsY];
+
+        var path = new Path2D.Float(Path2D.WIND_NON_ZERO);
+        for (int cy = 0; cy < cellsY; cy++) {
+            for (int cx = 0; cx < cellsX; cx++) {
+                int corners = getCorners(cx, cy);
+                if (corners == 0 || corners == 0xF) {
+                    continue;
+                }
+                for (int edge = TOP; edge <= LEFT; edge++) {
+                    if (isLeaving(corners, edge)
+                        && (traced[cy * cellsX + cx] & (1 << edge)) == 0) {
+                        traceLoop(cx, cy, edge, cellsX, traced, path);
+                    }
+                }
+            }
+        }
+        return path;
+    }
+
+    /**
+     * Returns the selected corners of a cell as bits, in the clockwise
+     * order top-left, top-right, bottom-right, bottom-left. Edge i
+     * goes from corner i to the next corner.
+     */
+    private int getCorners(int cx, int cy) {
+        int corners = 0;
+        if (getSample(cx, cy) >= THRESHOLD) {
+            corners |= 1;
+        }
+        if (getSample(cx + 1, cy) >= THRESHOLD) {
+            corners |= 2;
+        }
+        if (getSample(cx + 1, cy + 1) >= THRESHOLD) {
+            corners |= 4;
+        }
+        if (getSample(cx, cy + 1) >= THRESHOLD) {
+            corners |= 8;
+        }
+        return corners;
+    }
+
+    // the outline leaves the selection at this edge, going clockwise
+    private static boolean isLeaving(int corners, int edge) {
+        return (corners & (1 << edge)) != 0
+            && (corners & (1 << ((edge + 1) & 3))) == 0;
+    }
+
+    private static boolean isEntering(int corners, int edge) {
+        return (corners & (1 << edge)) == 0
+            && (corners & (1 << ((edge + 1) & 3))) != 0;
+    }
+
+    /**
+     * Returns the edge where the outline exits a cell,
+     * if it started at the given leaving edge.
+     */
+    private int findExit(int cx, int cy, int corners, int start) {
+        int step = 1;
+        if (corners == 0b0101 || corners == 0b1010) {
+            // a saddle: the selected corners are connected
+            // only if the center of the cell is selected
+            int sum = getSample(cx, cy) + getSample(cx + 1, cy)
+                + getSample(cx + 1, cy + 1) + getSample(cx, cy + 1);
+            if (sum < 4 * OUTLINE_COVERAGE) {
+                step = 3;
+            }
+        }
+        int edge = start;
+        do {
+            edge = (edge + step) & 3;
+        } while (!isEntering(corners, edge));
+        return edge;
+    }
+
+    private void traceLoop(int startX, int startY, int startEdge,
+                           int cellsX, byte[] traced, Path2D path) {
+        var builder = new OutlineBuilder(path);
+        builder.add(calcCrossingX(startX, startY, startEdge),
+            calcCrossingY(startX, startY, startEdge));
+        int cx = startX;
+        int cy = startY;
+        int edge = startEdge;
+        while (true) {
+            traced[cy * cellsX + cx] |= 1 << edge;
+            int exit = findExit(cx, cy, getCorners(cx, cy), edge);
+
+            // continue in the neighboring cell, where
+            // the same edge is a leaving edge
+            switch (exit) {
+                case TOP -> cy--;
+                case RIGHT -> cx++;
+                case BOTTOM -> cy++;
+                default -> cx--;
+            }
+            edge = (exit + 2) & 3;
+            if (cx == startX && cy == startY && edge == startEdge) {
+                break;
+            }
+            builder.add(calcCrossingX(cx, cy, edge), calcCrossingY(cx, cy, edge));
+        }
+        builder.close();
+    }
+
+    private float calcCrossingX(int cx, int cy, int edge) {
+        return switch (edge) {
+            case TOP -> x + cx - 0.5f + calcCrossing(getSample(cx, cy), getSample(cx + 1, cy));
+            case BOTTOM -> x + cx - 0.5f + calcCrossing(getSample(cx, cy + 1), getSample(cx + 1, cy + 1));
+            case RIGHT -> x + cx + 0.5f;
+            default -> x + cx - 0.5f;
+        };
+    }
+
+    private float calcCrossingY(int cx, int cy, int edge) {
+        return switch (edge) {
+            case LEFT -> y + cy - 0.5f + calcCrossing(getSample(cx, cy), getSample(cx, cy + 1));
+            case RIGHT -> y + cy - 0.5f + calcCrossing(getSample(cx + 1, cy), getSample(cx + 1, cy + 1));
+            case BOTTOM -> y + cy + 0.5f;
+            default -> y + cy - 0.5f;
+        };
+    }
+
+    // the relative position of the outline between two pixel centers
+    private static float calcCrossing(int from, int to) {
+        return (OUTLINE_COVERAGE - from) / (to - from);
+    }
+
+    /**
+     * Adds the points of a loop to a path, merging the
+     * consecutive horizontal or vertical segments.
+     */
+    private static class OutlineBuilder {
+        private final Path2D path;
+        private int numPoints = 0;
+        private float lastX, lastY;
+        private float pendingX, pendingY;
+
+        OutlineBuilder(Path2D path) {
+            this.path = path;
+        }
+
+        void add(float px, float py) {
+            if (numPoints == 0) {
+                path.moveTo(px, py);
+                lastX = px;
+                lastY = py;
+            } else if (numPoints == 1) {
+                pendingX = px;
+                pendingY = py;
+            } else if ((lastX == pendingX && pendingX == px)
+                || (lastY == pendingY && pendingY == py)) {
+                // extend the pending segment
+                pendingX = px;
+                pendingY = py;
+            } else {
+                path.lineTo(pendingX, pendingY);
+                lastX = pendingX;
+                lastY = pendingY;
+                pendingX = px;
+                pendingY = py;
+            }
+            numPoints++;
+        }
+
+        void close() {
+            if (numPoints > 1) {
+                path.lineTo(pendingX, pendingY);
+            }
+            path.closePath();
+        }
+    }
+
+    /**
+     * The shape of a mask, with the outline created only on demand.
+     */
+    private static class MaskShape implements Shape {
+        private final SelectionMask mask;
+        private Path2D outline;
+
+        MaskShape(SelectionMask mask) {
+            this.mask = mask;
+        }
+
+        private synchronized Path2D getOutline() {
+            if (outline == null) {
+                outline = mask.createOutline();
+            }
+            return outline;
+        }
+
+        @Override
+        public Rectangle getBounds() {
+            return new Rectangle(mask.x, mask.y, mask.width, mask.height);
+        }
+
+        @Override
+        public Rectangle2D getBounds2D() {
+            return getBounds();
+        }
+
+        @Override
+        public boolean contains(double px, double py) {
+            return mask.isSelected(
+                (int) Math.floor(px) - mask.x,
+                (int) Math.floor(py) - mask.y);
+        }
+
+        @Override
+        public boolean contains(Point2D p) {
+            return contains(p.getX(), p.getY());
+        }
+
+        @Override
+        public boolean intersects(double rx, double ry, double rw, double rh) {
+            return getOutline().intersects(rx, ry, rw, rh);
+        }
+
+        @Override
+        public boolean intersects(Rectangle2D r) {
+            return getOutline().intersects(r);
+        }
+
+        @Override
+        public boolean contains(double rx, double ry, double rw, double rh) {
+            return getOutline().contains(rx, ry, rw, rh);
+        }
+
+        @Override
+        public boolean contains(Rectangle2D r) {
+            return getOutline().contains(r);
+        }
+
+        @Override
+        public PathIterator getPathIterator(AffineTransform at) {
+            return getOutline().getPathIterator(at);
+        }
+
+        @Override
+        public PathIterator getPathIterator(AffineTransform at, double flatness) {
+            return getOutline().getPathIterator(at, flatness);
+        }
+    }
+}
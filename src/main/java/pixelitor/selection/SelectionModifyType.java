@@ -20,7 +20,9 @@ package pixelitor.selection;
 import pixelitor.filters.gui.EnumParam;
 import pixelitor.gui.GUIText;
 
+import java.awt.BasicStroke;
 import java.awt.Shape;
+import java.awt.Stroke;
 import java.awt.geom.Area;
 
 /**
@@ -33,29 +35,54 @@ public enum SelectionModifyType {
             previous.add(outlineShape);
             return previous;
         }
+
+        @Override
+        int calcCoverage(float dist, float radius) {
+            return calcBandCoverage(dist, Float.NEGATIVE_INFINITY, radius);
+        }
     }, CONTRACT("Contract") {
         @Override
         public Shape modify(Area previous, Area outlineShape) {
             previous.subtract(outlineShape);
             return previous;
         }
+
+        @Override
+        int calcCoverage(float dist, float radius) {
+            return calcBandCoverage(dist, Float.NEGATIVE_INFINITY, -radius);
+        }
     }, BORDER("Border") {
         @Override
         public Shape modify(Area previous, Area outlineShape) {
             return outlineShape;
         }
+
+        @Override
+        int calcCoverage(float dist, float radius) {
+            return calcBandCoverage(dist, -radius, radius);
+        }
     }, BORDER_OUT("Border Outwards Only") {
         @Override
         public Shape modify(Area previous, Area outlineShape) {
             outlineShape.subtract(previous);
             return outlineShape;
         }
+
+        @Override
+        int calcCoverage(float dist, float radius) {
+            return calcBandCoverage(dist, 0, radius);
+        }
     }, BORDER_IN("Border Inwards Only") {
         @Override
         public Shape modify(Area previous, Area outlineShape) {
             previous.intersect(outlineShape);
             return previous;
         }
+
+        @Override
+        int calcCoverage(float dist, float radius) {
+            return calcBandCoverage(dist, -radius, 0);
+        }
     };
 
     private final String guiName;
@@ -70,6 +97,43 @@ public enum SelectionModifyType {
      */
     public abstract Shape modify(Area previous, Area outlineShape);
 
+    /**
+     * Calculates the modified shape for a stroke with the given width.
+     * Complex shapes are modified as {@link SelectionMask}s.
+     */
+    public Shape modify(Shape shape, float amount) {
+        if (SelectionMask.isComplex(shape)) {
+            Shape modified = SelectionMask.modify(shape, this, amount);
+            if (modified != null) {
+                return modified;
+            }
+        }
+        Stroke outlineStroke = new BasicStroke(amount);
+        Shape outlineShape = outlineStroke.createStrokedShape(shape);
+        return modify(new Area(shape), new Area(outlineShape));
+    }
+
+    /**
+     * Returns the coverage (0-255) of a pixel with the given signed distance
+     * from the outline (negative inside the shape) after the modification.
+     */
+    abstract int calcCoverage(float dist, float radius);
+
+    /**
+     * Returns the coverage of a pixel by the band of the given signed
+     * distances, assuming that the distance changes linearly within the pixel.
+     */
+    private static int calcBandCoverage(float dist, float minDist, float maxDist) {
+        float overlap = Math.min(dist + 0.5f, maxDist) - Math.max(dist - 0.5f, minDist);
+        if (overlap <= 0) {
+            return 0;
+        }
+        if (overlap >= 1) {
+            return 255;
+        }
+        return Math.round(overlap * 255);
+    }
+
     public static EnumParam<SelectionModifyType> asParam() {
         return new EnumParam<>(GUIText.TYPE, SelectionModifyType.class);
     }
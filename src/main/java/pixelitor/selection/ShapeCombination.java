@@ -16,6 +16,7 @@
  */
 package pixelitor.selection;
 
+import java.awt.Rectangle;
 import java.awt.Shape;
 import java.awt.geom.Area;
 
@@ -29,29 +30,66 @@ public enum ShapeCombination {
         public Shape combine(Shape oldShape, Shape newShape) {
             return newShape;
         }
+
+        @Override
+        Rectangle calcBounds(Rectangle oldBounds, Rectangle newBounds) {
+            return newBounds;
+        }
+
+        @Override
+        void combine(Area oldArea, Area newArea) {
+            oldArea.reset();
+            oldArea.add(newArea);
+        }
+
+        @Override
+        int combineCoverage(int oldCoverage, int newCoverage) {
+            return newCoverage;
+        }
     }, ADD("Add") {
         @Override
-        public Shape combine(Shape oldShape, Shape newShape) {
-            Area oldArea = new Area(oldShape);
-            Area newArea = new Area(newShape);
+        Rectangle calcBounds(Rectangle oldBounds, Rectangle newBounds) {
+            return oldBounds.union(newBounds);
+        }
+
+        @Override
+        void combine(Area oldArea, Area newArea) {
             oldArea.add(newArea);
-            return oldArea;
+        }
+
+        @Override
+        int combineCoverage(int oldCoverage, int newCoverage) {
+            return oldCoverage + newCoverage - (oldCoverage * newCoverage + 127) / 255;
         }
     }, SUBTRACT("Subtract") {
         @Override
-        public Shape combine(Shape oldShape, Shape newShape) {
-            Area oldArea = new Area(oldShape);
-            Area newArea = new Area(newShape);
+        Rectangle calcBounds(Rectangle oldBounds, Rectangle newBounds) {
+            return oldBounds;
+        }
+
+        @Override
+        void combine(Area oldArea, Area newArea) {
             oldArea.subtract(newArea);
-            return oldArea;
+        }
+
+        @Override
+        int combineCoverage(int oldCoverage, int newCoverage) {
+            return (oldCoverage * (255 - newCoverage) + 127) / 255;
         }
     }, INTERSECT("Intersect") {
         @Override
-        public Shape combine(Shape oldShape, Shape newShape) {
-            Area oldArea = new Area(oldShape);
-            Area newArea = new Area(newShape);
+        Rectangle calcBounds(Rectangle oldBounds, Rectangle newBounds) {
+            return oldBounds.intersection(newBounds);
+        }
+
+        @Override
+        void combine(Area oldArea, Area newArea) {
             oldArea.intersect(newArea);
-            return oldArea;
+        }
+
+        @Override
+        int combineCoverage(int oldCoverage, int newCoverage) {
+            return (oldCoverage * newCoverage + 127) / 255;
         }
     };
 
@@ -62,9 +100,35 @@ public enum ShapeCombination {
     }
 
     /**
-     * Calculates the combined shape from the existing shape and the new one
+     * Calculates the combined shape from the existing shape and the new one.
+     * Complex shapes are combined as {@link SelectionMask}s.
+     */
+    public Shape combine(Shape oldShape, Shape newShape) {
+        if (SelectionMask.isComplex(oldShape) || SelectionMask.isComplex(newShape)) {
+            Rectangle bounds = calcBounds(oldShape.getBounds(), newShape.getBounds());
+            if (SelectionMask.canRasterize(bounds)) {
+                return SelectionMask.combine(this, oldShape, newShape, bounds);
+            }
+        }
+        Area oldArea = new Area(oldShape);
+        combine(oldArea, new Area(newShape));
+        return oldArea;
+    }
+
+    /**
+     * Returns the bounds of the combined shape, given the bounds of the inputs
+     */
+    abstract Rectangle calcBounds(Rectangle oldBounds, Rectangle newBounds);
+
+    /**
+     * Combines the areas by modifying the old one
+     */
+    abstract void combine(Area oldArea, Area newArea);
+
+    /**
+     * Combines two antialiased mask values (0-255)
      */
-    public abstract Shape combine(Shape oldShape, Shape newShape);
+    abstract int combineCoverage(int oldCoverage, int newCoverage);
 
     @Override
     public String toString() {
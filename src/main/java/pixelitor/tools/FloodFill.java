@@ -0,0 +1,280 @@
+/*
+ * Copyright 2021 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.tools;
+
+import pixelitor.selection.SelectionMask;
+
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Finds the pixels of an image that are similar to a target color,
+ * either in the connected region around a seed pixel or in the whole
+ * image. The found pixels are stored in a bitmap, which can be used
+ * both for filling and for creating a selection.
+ */
+class FloodFill {
+    private final int[] pixels;
+    private final int width;
+    private final int height;
+    private final int targetRGB;
+    private final int tolerance;
+
+    // one bit for each pixel, with each row starting at a
+    // new word, so that the rows can be processed in parallel
+    private final int wordsPerRow;
+    private final long[] bits;
+
+    // the bounds of the found pixels
+    private int minX;
+    private int minY;
+    private int maxX = -1;
+    private int maxY = -1;
+
+    // the stack of the spans to be examined, with four ints for each:
+    // the y of an already filled span, its first and last x, and
+    // the direction (1 or -1) of the neighboring row to be examined
+    private int[] stack = new int[64];
+    private int stackSize;
+
+    private FloodFill(int[] pixels, int width, int height, int targetRGB, int tolerance) {
+        this.pixels = pixels;
+        this.width = width;
+        this.height = height;
+        this.targetRGB = targetRGB;
+        this.tolerance = tolerance;
+
+        wordsPerRow = (width + 63) >> 6;
+        bits = new long[wordsPerRow * height];
+        minX = width;
+        minY = height;
+    }
+
+    /**
+     * Finds the pixels that are similar to the seed pixel and
+     * connected to it through similar pixels.
+     */
+    static FloodFill local(int[] pixels, int width, int height,
+                           int x, int y, int tolerance) {
+        var fill = new FloodFill(pixels, width, height,
+            pixels[x + y * width], tolerance);
+        fill.fillSpans(x, y);
+        return fill;
+    }
+
+    /**
+     * Finds all the pixels that are similar to the given color.
+     */
+    static FloodFill global(int[] pixels, int width, int height,
+                            int targetRGB, int tolerance) {
+        var fill = new FloodFill(pixels, width, height, targetRGB, tolerance);
+        fill.findAllSimilar();
+        return fill;
+    }
+
+    /**
+     * The seed fill algorithm of Paul Heckbert (Graphics Gems, 1990),
+     * which examines each pixel only a few times.
+     */
+    private void fillSpans(int seedX, int seedY) {
+        push(seedY, seedX, seedX, 1);
+        push(seedY + 1, seedX, seedX, -1); // popped first
+
+        while (stackSize > 0) {
+            stackSize -= 4;
+            int dy = stack[stackSize + 3];
+            int x1 = stack[stackSize + 1];
+            int x2 = stack[stackSize + 2];
+            int y = stack[stackSize] + dy;
+            int offset = y * width;
+
+            // extend the span to the left of x1
+            int x = x1;
+            while (x >= 0 && isFillable(x, y, offset)) {
+                x--;
+            }
+            boolean skip = x >= x1;
+            int left = x + 1;
+            if (!skip) {
+                if (left < x1) {
+                    // leaking to the left, check the previous row too
+                    push(y, left, x1 - 1, -dy);
+                }
+                x = x1;
+            }
+            do {
+                if (!skip) {
+                    // extend the span to the right of
+                    // the already found pixel at x
+                    x++;
+                    while (x < width && isFillable(x, y, offset)) {
+                        x++;
+                    }
+                    setSpan(y, left, x - 1);
+                    push(y, left, x - 1, dy);
+                    if (x > x2 + 1) {
+                        // leaking to the right, check the previous row too
+                        push(y, x2 + 1, x - 1, -dy);
+                    }
+                }
+                skip = false;
+
+                // find the start of the next span within [x1, x2]
+                x++;
+                while (x <= x2 && !isFillable(x, y, offset)) {
+                    x++;
+                }
+                left = x;
+            } while (x <= x2);
+        }
+    }
+
+    /**
+     * Returns true if the pixel is similar to the target color
+     * and was not found yet. Sets the bit of the pixel if true.
+     */
+    private boolean isFillable(int x, int y, int offset) {
+        int word = y * wordsPerRow + (x >> 6);
+        long mask = 1L << x;
+        if ((bits[word] & mask) != 0) {
+            return false;
+        }
+        if (isSimilar(pixels[offset + x], targetRGB, tolerance)) {
+            bits[word] |= mask;
+            return true;
+        }
+        return false;
+    }
+
+    private void setSpan(int y, int x1, int x2) {
+        minX = Math.min(minX, x1);
+        maxX = Math.max(maxX, x2);
+        minY = Math.min(minY, y);
+        maxY = Math.max(maxY, y);
+    }
+
+    private void push(int y, int x1, int x2, int dy) {
+        int nextY = y + dy;
+        if (nextY < 0 || nextY >= height) {
+            return;
+        }
+        if (stackSize + 4 > stack.length) {
+            stack = Arrays.copyOf(stack, stack.length * 2);
+        }
+        stack[stackSize] = y;
+        stack[stackSize + 1] = x1;
+        stack[stackSize + 2] = x2;
+        stack[stackSize + 3] = dy;
+        stackSize += 4;
+    }
+
+    private void findAllSimilar() {
+        // the bounds of each row
+        int[] rowMinX = new int[height];
+        int[] rowMaxX = new int[height];
+        IntStream.range(0, height).parallel().forEach(y -> {
+            int offset = y * width;
+            int wordOffset = y * wordsPerRow;
+            int rowMin = width;
+            int rowMax = -1;
+            for (int x = 0; x < width; x++) {
+                if (isSimilar(pixels[offset + x], targetRGB, tolerance)) {
+                    bits[wordOffset + (x >> 6)] |= 1L << x;
+                    rowMin = Math.min(rowMin, x);
+                    rowMax = x;
+                }
+            }
+            rowMinX[y] = rowMin;
+            rowMaxX[y] = rowMax;
+        });
+
+        for (int y = 0; y < height; y++) {
+            if (rowMaxX[y] >= 0) {
+                setSpan(y, rowMinX[y], rowMaxX[y]);
+            }
+        }
+    }
+
+    /**
+     * Sets the found pixels to the given color.
+     */
+    void fill(int newRGB) {
+        IntStream.rangeClosed(minY, maxY).parallel().forEach(y -> {
+            int offset = y * width;
+            int wordOffset = y * wordsPerRow;
+            for (int i = 0; i < wordsPerRow; i++) {
+                long word = bits[wordOffset + i];
+                while (word != 0) {
+                    int x = (i << 6) + Long.numberOfTrailingZeros(word);
+                    pixels[offset + x] = newRGB;
+                    word &= word - 1;
+                }
+            }
+        });
+    }
+
+    boolean isEmpty() {
+        return maxX < 0;
+    }
+
+    boolean contains(int x, int y) {
+        return (bits[y * wordsPerRow + (x >> 6)] & (1L << x)) != 0;
+    }
+
+    /**
+     * Returns the bounds of the found pixels, or null if none were found.
+     */
+    Rectangle getBounds() {
+        if (isEmpty()) {
+            return null;
+        }
+        return new Rectangle(minX, minY, maxX - minX + 1, maxY - minY + 1);
+    }
+
+    /**
+     * Returns the shape of the found pixels, with the
+     * top-left corner of the image at the given location.
+     */
+    Shape toShape(int x, int y) {
+        return SelectionMask.fromBitmap(bits, wordsPerRow,
+            new Rectangle(x, y, width, height));
+    }
+
+    static boolean isSimilar(int color1, int color2, int tolerance) {
+        if (color1 == color2) {
+            return true;
+        }
+
+        int a1 = (color1 >>> 24) & 0xFF;
+        int r1 = (color1 >>> 16) & 0xFF;
+        int g1 = (color1 >>> 8) & 0xFF;
+        int b1 = color1 & 0xFF;
+
+        int a2 = (color2 >>> 24) & 0xFF;
+        int r2 = (color2 >>> 16) & 0xFF;
+        int g2 = (color2 >>> 8) & 0xFF;
+        int b2 = color2 & 0xFF;
+
+        return (r2 <= r1 + tolerance) && (r2 >= r1 - tolerance) &&
+            (g2 <= g1 + tolerance) && (g2 >= g1 - tolerance) &&
+            (b2 <= b1 + tolerance) && (b2 >= b1 - tolerance) &&
+            (a2 <= a1 + tolerance) && (a2 >= a1 - tolerance);
+    }
+}
@@ -22,6 +22,7 @@ import pixelitor.gui.GUIText;
 import pixelitor.gui.utils.SliderSpinner;
 import pixelitor.history.History;
 import pixelitor.history.PartialImageEdit;
+import pixelitor.history.PixelitorEdit;
 import pixelitor.layers.Drawable;
 import pixelitor.tools.util.PMouseEvent;
 import pixelitor.utils.Cursors;
@@ -31,11 +32,8 @@ import pixelitor.utils.debug.DebugNode;
 import javax.swing.*;
 import java.awt.AlphaComposite;
 import java.awt.Graphics2D;
-import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
-import java.util.ArrayDeque;
-import java.util.Deque;
 
 import static pixelitor.colors.FgBgColors.getBGColor;
 import static pixelitor.colors.FgBgColors.getFGColor;
@@ -47,6 +45,8 @@ import static pixelitor.gui.utils.SliderSpinner.TextPosition.WEST;
 public class PaintBucketTool extends Tool {
     private static final String ACTION_LOCAL = "Local";
     private static final String ACTION_GLOBAL = "Global";
+    private static final String ACTION_SELECT_LOCAL = "Local Selection";
+    private static final String ACTION_SELECT_GLOBAL = "Global Selection";
 
     private static final String FILL_FOREGROUND = GUIText.FG_COLOR;
     private static final String FILL_BACKGROUND = GUIText.BG_COLOR;
@@ -59,12 +59,13 @@ public class PaintBucketTool extends Tool {
             FILL_TRANSPARENT, FILL_CLICKED}
     );
     private final JComboBox<String> actionCB = new JComboBox<>(
-        new String[]{ACTION_LOCAL, ACTION_GLOBAL});
+        new String[]{ACTION_LOCAL, ACTION_GLOBAL,
+            ACTION_SELECT_LOCAL, ACTION_SELECT_GLOBAL});
 
     public PaintBucketTool() {
         super("Paint Bucket", 'N',
                 "paint_bucket_tool_icon.png",
-                "<b>click</b> to fill with the selected color.",
+                "<b>click</b> to fill with the selected color or to select similar pixels.",
                 Cursors.DEFAULT, true,
                 true, ClipStrategy.CANVAS);
     }
@@ -109,6 +110,20 @@ public class PaintBucketTool extends Tool {
             return;
         }
 
+        String action = (String) actionCB.getSelectedItem();
+        int tolerance = toleranceParam.getValue();
+        if (action.equals(ACTION_SELECT_LOCAL) || action.equals(ACTION_SELECT_GLOBAL)) {
+            // the magic wand mode
+            int[] pixels = ImageUtils.getPixelsAsArray(image);
+            FloodFill region = findRegion(action, pixels,
+                imgWidth, imgHeight, x, y, tolerance, pixels[x + y * imgWidth]);
+            PixelitorEdit edit = comp.changeSelection(region.toShape(tx, ty));
+            if (edit != null) {
+                History.add(edit);
+            }
+            return;
+        }
+
         BufferedImage backupForUndo = ImageUtils.copyImage(image);
         boolean thereIsSelection = comp.hasSelection();
         BufferedImage workingImage;
@@ -134,15 +149,11 @@ public class PaintBucketTool extends Tool {
             throw new IllegalStateException("fill = " + fill);
         }
 
-        String action = (String) actionCB.getSelectedItem();
-        int tolerance = toleranceParam.getValue();
-        Rectangle replacedArea = switch (action) {
-            case ACTION_LOCAL -> scanlineFloodFill(workingImage,
-                x, y, tolerance, rgbAtMouse, fillRGB);
-            case ACTION_GLOBAL -> globalReplaceColor(workingImage,
-                tolerance, rgbAtMouse, fillRGB);
-            default -> throw new IllegalStateException("action = " + action);
-        };
+        int[] pixels = ImageUtils.getPixelsAsArray(workingImage);
+        FloodFill region = findRegion(action, pixels,
+            imgWidth, imgHeight, x, y, tolerance, rgbAtMouse);
+        region.fill(fillRGB);
+        Rectangle replacedArea = region.getBounds();
 
         if (replacedArea != null) { // something was replaced
             PartialImageEdit edit = History.createPartialImageEdit(replacedArea, backupForUndo, dr,
@@ -172,156 +183,16 @@ public class PaintBucketTool extends Tool {
         }
     }
 
-    /**
-     * Uses the "Scanline fill" algorithm described at
-     * http://en.wikipedia.org/wiki/Flood_fill
-     */
-    private static Rectangle scanlineFloodFill(BufferedImage img,
-                                               int x, int y, int tolerance,
-                                               int rgbAtMouse, int newRGB) {
-        int minX = x;
-        int maxX = x;
-        int minY = y;
-        int maxY = y;
-        int imgHeight = img.getHeight();
-        int imgWidth = img.getWidth();
-
-        int[] pixels = ImageUtils.getPixelsAsArray(img);
-
-        // Needed because the tolerance: we cannot assume that
-        // if the pixel is within the target range, it has been processed
-        boolean[] checkedPixels = new boolean[pixels.length];
-
-        // the double-ended queue is used as a simple LIFO stack
-        Deque<Point> stack = new ArrayDeque<>();
-        stack.push(new Point(x, y));
-
-        while (!stack.isEmpty()) {
-            Point p = stack.pop();
-
-            x = p.x;
-            y = p.y;
-
-            // find the last replaceable point to the left
-            int scanlineMinX = x - 1;
-            int offset = y * imgWidth;
-            while (scanlineMinX >= 0
-                    && isSimilar(pixels[scanlineMinX + offset], rgbAtMouse, tolerance)) {
-                scanlineMinX--;
-            }
-            scanlineMinX++;
-
-            // find the last replaceable point to the right
-            int scanlineMaxX = x + 1;
-            while (scanlineMaxX < img.getWidth()
-                    && isSimilar(pixels[scanlineMaxX + offset], rgbAtMouse, tolerance)) {
-                scanlineMaxX++;
-            }
-            scanlineMaxX--;
-
-            // set the minX, maxX, minY, maxY variables
-            // that will be used to calculate the affected area
-            if (scanlineMinX < minX) {
-                minX = scanlineMinX;
-            }
-            if (scanlineMaxX > maxX) {
-                maxX = scanlineMaxX;
-            }
-            if (y > maxY) {
-                maxY = y;
-            } else if (y < minY) {
-                minY = y;
-            }
-
-            // draw a line between (scanlineMinX, y) and (scanlineMaxX, y)
-            for (int i = scanlineMinX; i <= scanlineMaxX; i++) {
-                int index = i + offset;
-                pixels[index] = newRGB;
-                checkedPixels[index] = true;
-            }
-
-            // look upwards for new points to be inspected later
-            if (y > 0) {
-                // if there are multiple pixels to be replaced
-                // that are horizontal neighbours,
-                // only one of them has to be inspected later
-                boolean pointsInLine = false;
-
-                int upOffset = (y - 1) * imgWidth;
-
-                for (int i = scanlineMinX; i <= scanlineMaxX; i++) {
-                    int upIndex = i + upOffset;
-                    boolean shouldBeReplaced = !checkedPixels[upIndex]
-                            && isSimilar(pixels[upIndex], rgbAtMouse, tolerance);
-
-                    if (!pointsInLine && shouldBeReplaced) {
-                        Point inspectLater = new Point(i, y - 1);
-                        stack.push(inspectLater);
-                        pointsInLine = true;
-                    } else if (pointsInLine && !shouldBeReplaced) {
-                        pointsInLine = false;
-                    }
-                }
-            }
-
-            // look downwards for new points to be inspected later
-            if (y < imgHeight - 1) {
-                boolean pointsInLine = false;
-                int downOffset = (y + 1) * imgWidth;
-
-                for (int i = scanlineMinX; i <= scanlineMaxX; i++) {
-                    int downIndex = i + downOffset;
-                    boolean shouldBeReplaced = !checkedPixels[downIndex]
-                            && isSimilar(pixels[downIndex], rgbAtMouse, tolerance);
-
-                    if (!pointsInLine && shouldBeReplaced) {
-                        Point inspectLater = new Point(i, y + 1);
-                        stack.push(inspectLater);
-                        pointsInLine = true;
-                    } else if (pointsInLine && !shouldBeReplaced) {
-                        pointsInLine = false;
-                    }
-                }
-            }
-        }
-
-        // return the affected area
-        return new Rectangle(minX, minY, maxX - minX + 1, maxY - minY + 1);
-    }
-
-    private static Rectangle globalReplaceColor(BufferedImage img,
-                                                int tolerance,
-                                                int rgbAtMouse, int newRGB) {
-        int[] pixels = ImageUtils.getPixelsAsArray(img);
-        for (int i = 0; i < pixels.length; i++) {
-            if (isSimilar(pixels[i], rgbAtMouse, tolerance)) {
-                pixels[i] = newRGB;
-            }
-        }
-
-        // return the replaced area, which is the whole image
-        return new Rectangle(0, 0, img.getWidth(), img.getHeight());
-    }
-
-    private static boolean isSimilar(int color1, int color2, int tolerance) {
-        if (color1 == color2) {
-            return true;
-        }
-
-        int a1 = (color1 >>> 24) & 0xFF;
-        int r1 = (color1 >>> 16) & 0xFF;
-        int g1 = (color1 >>> 8) & 0xFF;
-        int b1 = color1 & 0xFF;
-
-        int a2 = (color2 >>> 24) & 0xFF;
-        int r2 = (color2 >>> 16) & 0xFF;
-        int g2 = (color2 >>> 8) & 0xFF;
-        int b2 = color2 & 0xFF;
-
-        return (r2 <= r1 + tolerance) && (r2 >= r1 - tolerance) &&
-                (g2 <= g1 + tolerance) && (g2 >= g1 - tolerance) &&
-            (b2 <= b1 + tolerance) && (b2 >= b1 - tolerance) &&
-            (a2 <= a1 + tolerance) && (a2 >= a1 - tolerance);
+    private static FloodFill findRegion(String action, int[] pixels,
+                                        int width, int height, int x, int y,
+                                        int tolerance, int rgbAtMouse) {
+        return switch (action) {
+            case ACTION_LOCAL, ACTION_SELECT_LOCAL -> FloodFill.local(
+                pixels, width, height, x, y, tolerance);
+            case ACTION_GLOBAL, ACTION_SELECT_GLOBAL -> FloodFill.global(
+                pixels, width, height, rgbAtMouse, tolerance);
+            default -> throw new IllegalStateException("action = " + action);
+        };
     }
 
     @Override
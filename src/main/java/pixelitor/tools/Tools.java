@@ -123,6 +123,7 @@ public class Tools {
         }
 
         currentTool = newTool;
+        ToolSettingsPanelContainer.get().initSettingsPanelFor(newTool);
         newTool.toolStarted();
         ToolSettingsPanelContainer.get().showSettingsFor(newTool);
     }
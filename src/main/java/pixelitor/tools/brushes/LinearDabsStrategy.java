@@ -18,6 +18,7 @@
 package pixelitor.tools.brushes;
 
 import pixelitor.tools.util.PPoint;
+import pixelitor.utils.perf.Probe;
 import pixelitor.utils.test.RandomGUITest;
 
 /**
@@ -55,6 +56,7 @@ public class LinearDabsStrategy implements DabsStrategy {
             distFromLastDab = spacing.getSpacing(brush.getRadius()) * 0.8;
         } else {
             brush.putDab(p, 0);
+            Probe.BRUSH_DABS.increment();
         }
     }
 
@@ -104,6 +106,7 @@ public class LinearDabsStrategy implements DabsStrategy {
             // we called a special version that does not update the region
             // and then we updated the region at the end
             brush.putDab(p, theta);
+            Probe.BRUSH_DABS.increment();
             drew = true;
         }
 
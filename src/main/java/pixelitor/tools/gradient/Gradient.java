@@ -22,6 +22,7 @@ import pixelitor.gui.View;
 import pixelitor.layers.BlendingMode;
 import pixelitor.layers.Drawable;
 import pixelitor.layers.LayerMask;
+import pixelitor.tools.gradient.paints.AbstractGradientPaint;
 import pixelitor.tools.util.ImDrag;
 
 import java.awt.Color;
@@ -101,12 +102,22 @@ public class Gradient {
 
         g.setRenderingHint(KEY_ANTIALIASING, VALUE_ANTIALIAS_ON);
         Paint paint = type.createPaint(imDrag, colors, cycleMethod);
-        g.setPaint(paint);
+        int width = canvasWidth;
+        int height = canvasHeight;
         if (smallImage) {
             Rectangle bounds = comp.getSelection().getShapeBounds();
-            g.fillRect(0, 0, bounds.width, bounds.height);
+            width = bounds.width;
+            height = bounds.height;
+        }
+        if (paint instanceof AbstractGradientPaint) {
+            // rendered in parallel, and drawn with the same
+            // composite and clipping as a paint would be
+            var gradientPaint = (AbstractGradientPaint) paint;
+            boolean gray = dr instanceof LayerMask;
+            g.drawImage(gradientPaint.createImage(width, height, gray), 0, 0, null);
         } else {
-            g.fillRect(0, 0, canvasWidth, canvasHeight);
+            g.setPaint(paint);
+            g.fillRect(0, 0, width, height);
         }
 
         g.dispose();
@@ -0,0 +1,280 @@
+/*
+ * Copyright 2021 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.tools.gradient.paints;
+
+import pixelitor.ThreadPool;
+import pixelitor.tools.util.ImDrag;
+import pixelitor.utils.ProgressTracker;
+
+import java.awt.Color;
+import java.awt.MultipleGradientPaint.CycleMethod;
+import java.awt.Paint;
+import java.awt.PaintContext;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.*;
+import java.util.concurrent.Future;
+
+import static java.awt.image.BufferedImage.TYPE_BYTE_GRAY;
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+
+/**
+ * The common superclass of the custom gradient paints, where
+ * the color of a pixel depends on a single interpolation value.
+ *
+ * The colors are taken from precomputed lookup tables, and only
+ * the pixels near the color discontinuities are supersampled.
+ * Besides working as a {@link Paint}, which is called by Java2D
+ * tile by tile on a single thread, the gradient can also be
+ * rendered into a new image on multiple threads.
+ */
+public abstract class AbstractGradientPaint implements Paint {
+    private static final int AA_RES = 4; // the resolution of AA supersampling
+    private static final int AA_RES2 = AA_RES * AA_RES;
+
+    private static final int LUT_SIZE = 1024;
+
+    protected final ImDrag imDrag;
+    protected final CycleMethod cycleMethod;
+    private final Color startColor;
+    private final Color endColor;
+
+    // the non-premultiplied ARGB colors and the gray values
+    // for the interpolation values between 0 and 1
+    private final int[] colorLUT = new int[LUT_SIZE];
+    private final int[] grayLUT = new int[LUT_SIZE];
+
+    protected AbstractGradientPaint(ImDrag imDrag, Color startColor,
+                                    Color endColor, CycleMethod cycleMethod) {
+        this.imDrag = imDrag;
+        this.startColor = startColor;
+        this.endColor = endColor;
+        this.cycleMethod = cycleMethod;
+
+        initLUTs();
+    }
+
+    private void initLUTs() {
+        int startAlpha = startColor.getAlpha();
+        int startRed = startColor.getRed();
+        int startGreen = startColor.getGreen();
+        int startBlue = startColor.getBlue();
+
+        int endAlpha = endColor.getAlpha();
+        int endRed = endColor.getRed();
+        int endGreen = endColor.getGreen();
+        int endBlue = endColor.getBlue();
+
+        for (int i = 0; i < LUT_SIZE; i++) {
+            double interpolation = i / (double) (LUT_SIZE - 1);
+            int a = (int) (startAlpha + interpolation * (endAlpha - startAlpha));
+            int r = (int) (startRed + interpolation * (endRed - startRed));
+            int g = (int) (startGreen + interpolation * (endGreen - startGreen));
+            int b = (int) (startBlue + interpolation * (endBlue - startBlue));
+            colorLUT[i] = a << 24 | r << 16 | g << 8 | b;
+
+            // in gray images the red channel of the colors is used
+            grayLUT[i] = r;
+        }
+    }
+
+    /**
+     * Returns the interpolation value between 0 and 1
+     * for the given (possibly subpixel) coordinates.
+     */
+    protected abstract double getInterpolation(double x, double y);
+
+    /**
+     * Returns whether the pixel at the given coordinates, with the given
+     * interpolation value, is close to a color discontinuity.
+     */
+    protected abstract boolean needsAA(double interpolation, int x, int y);
+
+    private static int toLUTIndex(double interpolation) {
+        int index = (int) (interpolation * (LUT_SIZE - 1) + 0.5);
+        if (index < 0) {
+            return 0;
+        }
+        return Math.min(index, LUT_SIZE - 1);
+    }
+
+    /**
+     * Returns the non-premultiplied ARGB color of the given pixel.
+     */
+    private int calcColor(int x, int y) {
+        double interpolation = getInterpolation(x, y);
+        if (!needsAA(interpolation, x, y)) {
+            return colorLUT[toLUTIndex(interpolation)];
+        }
+
+        int a = 0;
+        int r = 0;
+        int g = 0;
+        int b = 0;
+        for (int m = 0; m < AA_RES; m++) {
+            double yy = y + 1.0 / AA_RES * m - 0.5;
+            for (int n = 0; n < AA_RES; n++) {
+                double xx = x + 1.0 / AA_RES * n - 0.5;
+
+                int color = colorLUT[toLUTIndex(getInterpolation(xx, yy))];
+                a += color >>> 24;
+                r += (color >>> 16) & 0xFF;
+                g += (color >>> 8) & 0xFF;
+                b += color & 0xFF;
+            }
+        }
+        return (a / AA_RES2) << 24 | (r / AA_RES2) << 16 | (g / AA_RES2) << 8 | (b / AA_RES2);
+    }
+
+    /**
+     * Returns the gray value of the given pixel.
+     */
+    private int calcGray(int x, int y) {
+        double interpolation = getInterpolation(x, y);
+        if (!needsAA(interpolation, x, y)) {
+            return grayLUT[toLUTIndex(interpolation)];
+        }
+
+        int gray = 0;
+        for (int m = 0; m < AA_RES; m++) {
+            double yy = y + 1.0 / AA_RES * m - 0.5;
+            for (int n = 0; n < AA_RES; n++) {
+                double xx = x + 1.0 / AA_RES * n - 0.5;
+                gray += grayLUT[toLUTIndex(getInterpolation(xx, yy))];
+            }
+        }
+        return gray / AA_RES2;
+    }
+
+    /**
+     * Renders the gradient into a new image (with the top-left corner at 0, 0)
+     * in parallel horizontal stripes. The image type is TYPE_BYTE_GRAY
+     * if gray is true, and TYPE_INT_ARGB otherwise.
+     */
+    public BufferedImage createImage(int width, int height, boolean gray) {
+        BufferedImage img = new BufferedImage(width, height, gray ? TYPE_BYTE_GRAY : TYPE_INT_ARGB);
+        DataBuffer dataBuffer = img.getRaster().getDataBuffer();
+        int[] colorPixels = gray ? null : ((DataBufferInt) dataBuffer).getData();
+        byte[] grayPixels = gray ? ((DataBufferByte) dataBuffer).getData() : null;
+
+        int numStripes = Math.min(height, 4 * Runtime.getRuntime().availableProcessors());
+        int stripeHeight = (height + numStripes - 1) / numStripes;
+        Future<?>[] futures = new Future<?>[numStripes];
+        for (int i = 0; i < numStripes; i++) {
+            int stripeStart = i * stripeHeight;
+            int stripeEnd = Math.min(height, stripeStart + stripeHeight);
+            futures[i] = ThreadPool.submit(() -> {
+                for (int y = stripeStart; y < stripeEnd; y++) {
+                    int offset = y * width;
+                    if (gray) {
+                        for (int x = 0; x < width; x++) {
+                            grayPixels[offset + x] = (byte) calcGray(x, y);
+                        }
+                    } else {
+                        for (int x = 0; x < width; x++) {
+                            colorPixels[offset + x] = calcColor(x, y);
+                        }
+                    }
+                }
+            });
+        }
+        ThreadPool.waitFor(futures, ProgressTracker.NULL_TRACKER);
+
+        return img;
+    }
+
+    @Override
+    public PaintContext createContext(ColorModel cm,
+                                      Rectangle deviceBounds, Rectangle2D userBounds,
+                                      AffineTransform xform, RenderingHints hints) {
+        return new GradientPaintContext(cm);
+    }
+
+    @Override
+    public int getTransparency() {
+        int a1 = startColor.getAlpha();
+        int a2 = endColor.getAlpha();
+        return (a1 & a2) == 0xFF ? OPAQUE : TRANSLUCENT;
+    }
+
+    private class GradientPaintContext implements PaintContext {
+        private final ColorModel cm;
+        private final boolean gray;
+
+        // the default ARGB rasters can be filled with packed ints
+        private final boolean packed;
+
+        private GradientPaintContext(ColorModel cm) {
+            this.cm = cm;
+            gray = cm.getNumComponents() == 1;
+            packed = ColorModel.getRGBdefault().equals(cm);
+        }
+
+        @Override
+        public void dispose() {
+
+        }
+
+        @Override
+        public ColorModel getColorModel() {
+            return cm;
+        }
+
+        @Override
+        public Raster getRaster(int startX, int startY, int width, int height) {
+            WritableRaster raster = cm.createCompatibleWritableRaster(width, height);
+
+            if (gray) {
+                int[] rasterData = new int[width * height];
+                for (int j = 0; j < height; j++) {
+                    int y = startY + j;
+                    for (int i = 0; i < width; i++) {
+                        rasterData[j * width + i] = calcGray(startX + i, y);
+                    }
+                }
+                raster.setPixels(0, 0, width, height, rasterData);
+            } else if (packed) {
+                int[] rasterData = new int[width * height];
+                for (int j = 0; j < height; j++) {
+                    int y = startY + j;
+                    for (int i = 0; i < width; i++) {
+                        rasterData[j * width + i] = calcColor(startX + i, y);
+                    }
+                }
+                raster.setDataElements(0, 0, width, height, rasterData);
+            } else {
+                int[] rasterData = new int[width * height * 4];
+                for (int j = 0; j < height; j++) {
+                    int y = startY + j;
+                    for (int i = 0; i < width; i++) {
+                        int base = (j * width + i) * 4;
+                        int color = calcColor(startX + i, y);
+                        rasterData[base] = (color >>> 16) & 0xFF;
+                        rasterData[base + 1] = (color >>> 8) & 0xFF;
+                        rasterData[base + 2] = color & 0xFF;
+                        rasterData[base + 3] = color >>> 24;
+                    }
+                }
+                raster.setPixels(0, 0, width, height, rasterData);
+            }
+            return raster;
+        }
+    }
+}
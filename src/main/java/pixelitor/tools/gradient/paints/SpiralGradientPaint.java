@@ -1,5 +1,5 @@
 /*
- * Copyright 2020 Laszlo Balazs-Csiki and Contributors
+ * Copyright 2021 Laszlo Balazs-Csiki and Contributors
  *
  * This file is part of Pixelitor. Pixelitor is free software: you
  * can redistribute it and/or modify it under the terms of the GNU
@@ -21,15 +21,6 @@ import pixelitor.tools.util.ImDrag;
 
 import java.awt.Color;
 import java.awt.MultipleGradientPaint.CycleMethod;
-import java.awt.Paint;
-import java.awt.PaintContext;
-import java.awt.Rectangle;
-import java.awt.RenderingHints;
-import java.awt.geom.AffineTransform;
-import java.awt.geom.Rectangle2D;
-import java.awt.image.ColorModel;
-import java.awt.image.Raster;
-import java.awt.image.WritableRaster;
 
 import static java.awt.MultipleGradientPaint.CycleMethod.NO_CYCLE;
 import static java.awt.MultipleGradientPaint.CycleMethod.REFLECT;
@@ -38,276 +29,73 @@ import static java.awt.MultipleGradientPaint.CycleMethod.REPEAT;
 /**
  * A Paint that creates an "spiral gradient"
  */
-public class SpiralGradientPaint implements Paint {
+public class SpiralGradientPaint extends AbstractGradientPaint {
     private final boolean clockwise;
-    private final ImDrag imDrag;
-    private final Color startColor;
-    private final Color endColor;
-    private final CycleMethod cycleMethod;
-
-    private static final int AA_RES = 4; // the resolution of AA supersampling
-    private static final int AA_RES2 = AA_RES * AA_RES;
+    private final double drawAngle;
+    private final double dragDistance;
 
     public SpiralGradientPaint(boolean clockwise, ImDrag imDrag,
                                Color startColor, Color endColor,
                                CycleMethod cycleMethod) {
+        super(imDrag, startColor, endColor, cycleMethod);
         this.clockwise = clockwise;
-        this.imDrag = imDrag;
-        this.startColor = startColor;
-        this.endColor = endColor;
-        this.cycleMethod = cycleMethod;
+
+        drawAngle = imDrag.getDrawAngle() + Math.PI;  // between 0 and 2*PI
+        dragDistance = imDrag.getDistance();
     }
 
     @Override
-    public PaintContext createContext(ColorModel cm,
-                                      Rectangle deviceBounds, Rectangle2D userBounds,
-                                      AffineTransform xform, RenderingHints hints) {
-        int numComponents = cm.getNumComponents();
-
-        if (numComponents == 1) {
-            return new GraySpiralGradientPaintContext(clockwise, imDrag, startColor, endColor, cm, cycleMethod);
+    protected boolean needsAA(double interpolation, int x, int y) {
+        if (cycleMethod == REFLECT) {
+            return false;
         }
-
-        return new SpiralGradientPaintContext(clockwise, imDrag, startColor, endColor, cm, cycleMethod);
+        double threshold;
+        if (cycleMethod == NO_CYCLE) {
+            threshold = 0.5 / dragDistance;
+        } else { // REPEAT
+            threshold = 1.0 / dragDistance;
+        }
+        return interpolation > 1.0 - threshold || interpolation < threshold;
     }
 
     @Override
-    public int getTransparency() {
-        int a1 = startColor.getAlpha();
-        int a2 = endColor.getAlpha();
-        return (a1 & a2) == 0xFF ? OPAQUE : TRANSLUCENT;
-    }
-
-    static class SpiralGradientPaintContext implements PaintContext {
-        protected final boolean clockwise;
-        protected final ImDrag imDrag;
-        protected final CycleMethod cycleMethod;
-
-        private final int startAlpha;
-        private final int startRed;
-        private final int startGreen;
-        private final int startBlue;
-
-        private final int endAlpha;
-        private final int endRed;
-        private final int endGreen;
-        private final int endBlue;
-
-        protected final ColorModel cm;
-        protected final double drawAngle;
-        protected final double dragDistance;
-
-        private SpiralGradientPaintContext(boolean clockwise, ImDrag imDrag,
-                                           Color startColor, Color endColor,
-                                           ColorModel cm, CycleMethod cycleMethod) {
-            this.clockwise = clockwise;
-            this.imDrag = imDrag;
-            this.cycleMethod = cycleMethod;
-
-            startAlpha = startColor.getAlpha();
-            startRed = startColor.getRed();
-            startGreen = startColor.getGreen();
-            startBlue = startColor.getBlue();
-
-            endAlpha = endColor.getAlpha();
-            endRed = endColor.getRed();
-            endGreen = endColor.getGreen();
-            endBlue = endColor.getBlue();
-
-            this.cm = cm;
-            drawAngle = imDrag.getDrawAngle() + Math.PI;  // between 0 and 2*PI
-
-            dragDistance = imDrag.getDistance();
+    protected double getInterpolation(double x, double y) {
+        double renderAngle = imDrag.getAngleFromStartTo(x, y) + Math.PI;
+        double relativeAngle;
+        if (clockwise) {
+            relativeAngle = renderAngle - drawAngle;
+        } else {
+            relativeAngle = drawAngle - renderAngle;
         }
-
-        @Override
-        public void dispose() {
-
+        if (relativeAngle < 0) {
+            relativeAngle += 2 * Math.PI;
         }
+        relativeAngle /= 2.0 * Math.PI;
 
-        @Override
-        public ColorModel getColorModel() {
-            return cm;
-        }
-
-        // Warning: gray subclass has exact copy of the algorithm
-        @Override
-        public Raster getRaster(int startX, int startY, int width, int height) {
-            WritableRaster raster = cm.createCompatibleWritableRaster(width, height);
-            int[] rasterData = new int[width * height * 4];
-
-            for (int j = 0; j < height; j++) {
-                for (int i = 0; i < width; i++) {
-                    int base = (j * width + i) * 4;
-
-                    int x = startX + i;
-                    int y = startY + j;
+        double renderDist = imDrag.getStartDistanceFrom(x, y);
 
-                    double interpolation = getInterpolation(x, y);
+        double relativeDist = renderDist / dragDistance;
 
-                    boolean needsAA = false;
-                    if (cycleMethod != REFLECT) {
-                        double threshold;
-                        if (cycleMethod == NO_CYCLE) {
-                            threshold = 0.5 / dragDistance;
-                        } else { // REPEAT
-                            threshold = 1.0 / dragDistance;
-                        }
-                        needsAA = interpolation > 1.0 - threshold || interpolation < threshold;
-                    }
+        // relativeAngle alone would be a kind of angle gradient,
+        // and relativeDist alone would be a kind of radial gradient
+        // but together...
+        double interpolation = relativeAngle + relativeDist;
 
-                    if (needsAA) {
-                        int a = 0;
-                        int r = 0;
-                        int g = 0;
-                        int b = 0;
+        interpolation %= 1.0f; // between 0..1
 
-                        for (int m = 0; m < AA_RES; m++) {
-                            double yy = y + 1.0 / AA_RES * m - 0.5;
-                            for (int n = 0; n < AA_RES; n++) {
-                                double xx = x + 1.0 / AA_RES * n - 0.5;
-
-                                double interpolationAA = getInterpolation(xx, yy);
-
-                                a += (int) (startAlpha + interpolationAA * (endAlpha - startAlpha));
-                                r += (int) (startRed + interpolationAA * (endRed - startRed));
-                                g += (int) (startGreen + interpolationAA * (endGreen - startGreen));
-                                b += (int) (startBlue + interpolationAA * (endBlue - startBlue));
-                            }
-                        }
-                        a /= AA_RES2;
-                        r /= AA_RES2;
-                        g /= AA_RES2;
-                        b /= AA_RES2;
-
-                        rasterData[base] = r;
-                        rasterData[base + 1] = g;
-                        rasterData[base + 2] = b;
-                        rasterData[base + 3] = a;
-                    } else { // no AA
-                        int a = (int) (startAlpha + interpolation * (endAlpha - startAlpha));
-                        int r = (int) (startRed + interpolation * (endRed - startRed));
-                        int g = (int) (startGreen + interpolation * (endGreen - startGreen));
-                        int b = (int) (startBlue + interpolation * (endBlue - startBlue));
-
-                        rasterData[base] = r;
-                        rasterData[base + 1] = g;
-                        rasterData[base + 2] = b;
-                        rasterData[base + 3] = a;
-                    }
-                }
-            }
-
-            raster.setPixels(0, 0, width, height, rasterData);
-            return raster;
-        }
-
-        public double getInterpolation(double x, double y) {
-            double renderAngle = imDrag.getAngleFromStartTo(x, y) + Math.PI;
-            double relativeAngle;
-            if (clockwise) {
-                relativeAngle = renderAngle - drawAngle;
+        if (cycleMethod == REFLECT) {
+            if (interpolation < 0.5) {
+                interpolation = 2.0f * interpolation;
             } else {
-                relativeAngle = drawAngle - renderAngle;
-            }
-            if (relativeAngle < 0) {
-                relativeAngle += 2 * Math.PI;
-            }
-            relativeAngle /= 2.0 * Math.PI;
-
-//                    double renderDist = Math.sqrt(renderRelativeX*renderRelativeX + renderRelativeY*renderRelativeY);
-            double renderDist = imDrag.getStartDistanceFrom(x, y);
-
-            double relativeDist = renderDist / dragDistance;
-
-            // relativeAngle alone would be a kind of angle gradient,
-            // and relativeDist alone would be a kind of radial gradient
-            // but together...
-            double interpolation = relativeAngle + relativeDist;
-
-            interpolation %= 1.0f; // between 0..1
-
-            if (cycleMethod == REFLECT) {
-                if (interpolation < 0.5) {
-                    interpolation = 2.0f * interpolation;
-                } else {
-                    interpolation = 2.0f * (1 - interpolation);
-                }
-            } else if (cycleMethod == REPEAT) {
-                if (interpolation < 0.5) {
-                    interpolation = 2.0f * interpolation;
-                } else {
-                    interpolation = 2.0f * (interpolation - 0.5);
-                }
+                interpolation = 2.0f * (1 - interpolation);
             }
-            return interpolation;
-        }
-    }
-
-    private static class GraySpiralGradientPaintContext extends SpiralGradientPaintContext {
-        private final int startGray;
-        private final int endGray;
-
-        private GraySpiralGradientPaintContext(boolean clockwise, ImDrag imDrag,
-                                               Color startColor, Color endColor,
-                                               ColorModel cm, CycleMethod cycleMethod) {
-            super(clockwise, imDrag, startColor, endColor, cm, cycleMethod);
-
-            startGray = startColor.getRed();
-            endGray = endColor.getRed();
-        }
-
-        @Override
-        public Raster getRaster(int startX, int startY, int width, int height) {
-            WritableRaster raster = cm.createCompatibleWritableRaster(width, height);
-            int[] rasterData = new int[width * height];
-
-            for (int j = 0; j < height; j++) {
-                for (int i = 0; i < width; i++) {
-                    int base = j * width + i;
-
-                    int x = startX + i;
-                    int y = startY + j;
-
-                    double interpolation = getInterpolation(x, y);
-
-                    boolean needsAA = false;
-                    if (cycleMethod != REFLECT) {
-                        double threshold;
-                        if (cycleMethod == NO_CYCLE) {
-                            threshold = 0.5 / dragDistance;
-                        } else { // REPEAT
-                            threshold = 1.0 / dragDistance;
-                        }
-                        needsAA = interpolation > 1.0 - threshold || interpolation < threshold;
-                    }
-
-                    if (needsAA) {
-                        int g = 0;
-
-                        for (int m = 0; m < AA_RES; m++) {
-                            double yy = y + 1.0 / AA_RES * m - 0.5;
-                            for (int n = 0; n < AA_RES; n++) {
-                                double xx = x + 1.0 / AA_RES * n - 0.5;
-
-                                double interpolationAA = getInterpolation(xx, yy);
-
-                                g += (int) (startGray + interpolationAA * (endGray - startGray));
-                            }
-                        }
-                        g /= AA_RES2;
-
-                        rasterData[base] = g;
-                    } else { // no AA
-                        int g = (int) (startGray + interpolation * (endGray - startGray));
-
-                        rasterData[base] = g;
-                    }
-                }
+        } else if (cycleMethod == REPEAT) {
+            if (interpolation < 0.5) {
+                interpolation = 2.0f * interpolation;
+            } else {
+                interpolation = 2.0f * (interpolation - 0.5);
             }
-
-            raster.setPixels(0, 0, width, height, rasterData);
-            return raster;
         }
+        return interpolation;
     }
-}
\ No newline at end of file
+}
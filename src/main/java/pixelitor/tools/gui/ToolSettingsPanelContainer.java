@@ -23,13 +23,19 @@ import pixelitor.utils.VisibleForTesting;
 
 import javax.swing.*;
 import java.awt.CardLayout;
+import java.util.HashSet;
+import java.util.Set;
 
 /**
- * The {@link ToolSettingsPanel}s for each tool in a CardLayout
+ * The {@link ToolSettingsPanel}s for each tool in a CardLayout.
+ * The contents of a panel are created only when the tool is
+ * activated or when {@link #initAllSettingsPanels()} is called.
  */
 public class ToolSettingsPanelContainer extends JPanel {
     private static ToolSettingsPanelContainer instance;
 
+    private final Set<Tool> initializedTools = new HashSet<>();
+
     private ToolSettingsPanelContainer() {
         setLayout(new CardLayout());
 
@@ -37,11 +43,31 @@ public class ToolSettingsPanelContainer extends JPanel {
         for (Tool tool : tools) {
             var p = new ToolSettingsPanel();
             tool.setSettingsPanel(p);
-            tool.initSettingsPanel();
             add(p, tool.getName());
         }
     }
 
+    /**
+     * Creates the contents of the given tool's settings panel, if necessary.
+     */
+    public void initSettingsPanelFor(Tool tool) {
+        if (initializedTools.add(tool)) {
+            tool.initSettingsPanel();
+        }
+    }
+
+    /**
+     * Creates the contents of all settings panels. This is called
+     * after the main window is shown, because the tools
+     * can also access each other's settings.
+     */
+    public void initAllSettingsPanels() {
+        for (Tool tool : Tools.getAll()) {
+            initSettingsPanelFor(tool);
+        }
+        revalidate();
+    }
+
     public static ToolSettingsPanelContainer get() {
         if (instance == null) {
             instance = new ToolSettingsPanelContainer();
@@ -55,6 +81,7 @@ public class ToolSettingsPanelContainer extends JPanel {
     }
 
     public void showSettingsFor(Tool tool) {
+        initSettingsPanelFor(tool);
         CardLayout cl = (CardLayout) getLayout();
         cl.show(this, tool.getName());
     }
@@ -101,7 +101,7 @@ public class Path implements Serializable {
     }
 
     public void paintForBuilding(Graphics2D g) {
-        Shapes.drawVisible(g, toComponentSpaceShape());
+        paintOutlines(g);
 
         for (SubPath sp : subPaths) {
             sp.paintHandlesForBuilding(g, buildState);
@@ -109,7 +109,7 @@ public class Path implements Serializable {
     }
 
     public void paintForEditing(Graphics2D g) {
-        Shapes.drawVisible(g, toComponentSpaceShape());
+        paintOutlines(g);
 
         for (SubPath sp : subPaths) {
             sp.paintHandlesForEditing(g);
@@ -117,7 +117,52 @@ public class Path implements Serializable {
     }
 
     public void paintForTransforming(Graphics2D g) {
-        Shapes.drawVisible(g, toComponentSpaceShape());
+        paintOutlines(g);
+    }
+
+    /**
+     * Paints the outlines of {@link Shapes#drawVisible(Graphics2D, Shape)}
+     * for the component space shape, including the joins and the caps,
+     * but only the segments that changed since the last painting are stroked again.
+     */
+    private void paintOutlines(Graphics2D g) {
+        int numSubPaths = subPaths.size();
+        SegmentOutlines[] outlines = new SegmentOutlines[numSubPaths];
+        for (int i = 0; i < numSubPaths; i++) {
+            outlines[i] = subPaths.get(i).updateOutlines();
+            outlines[i].takeChangedRegion();
+        }
+
+        Rectangle clip = g.getClipBounds();
+
+        // all the black parts must be painted first, as in drawVisible
+        g.setColor(Color.BLACK);
+        for (SegmentOutlines subPathOutlines : outlines) {
+            subPathOutlines.fillOuter(g, clip);
+        }
+        g.setColor(Color.WHITE);
+        for (SegmentOutlines subPathOutlines : outlines) {
+            subPathOutlines.fillInner(g, clip);
+        }
+    }
+
+    /**
+     * Returns the component-space region affected by the point
+     * movements since the last painting, or null if nothing changed.
+     */
+    public Rectangle getChangedRegion() {
+        Rectangle region = null;
+        for (SubPath sp : subPaths) {
+            Rectangle changed = sp.updateOutlines().takeChangedRegion();
+            if (changed != null) {
+                if (region == null) {
+                    region = changed;
+                } else {
+                    region.add(changed);
+                }
+            }
+        }
+        return region;
     }
 
     public DraggablePoint handleWasHit(double x, double y, boolean altDown) {
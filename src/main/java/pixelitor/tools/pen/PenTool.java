@@ -39,6 +39,7 @@ import pixelitor.utils.test.RandomGUITest;
 import javax.swing.*;
 import java.awt.EventQueue;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.Shape;
 import java.awt.event.ActionEvent;
 import java.awt.event.MouseEvent;
@@ -261,7 +262,17 @@ public class PenTool extends Tool {
     @Override
     public void mouseDragged(PMouseEvent e) {
         mode.mouseDragged(e);
-        e.repaint();
+
+        if (mode == EDIT && path != null) {
+            // in edit mode only the moved points and
+            // their segments have to be repainted
+            Rectangle changedRegion = path.getChangedRegion();
+            if (changedRegion != null) {
+                e.getView().repaint(changedRegion);
+            }
+        } else {
+            e.repaint();
+        }
     }
 
     @Override
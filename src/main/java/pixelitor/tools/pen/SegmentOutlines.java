@@ -0,0 +1,322 @@
+/*
+ * Copyright 2021 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.tools.pen;
+
+import pixelitor.tools.util.DraggablePoint;
+import pixelitor.utils.Shapes;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.geom.CubicCurve2D;
+import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+
+/**
+ * The cached component-space outlines of the segments of a {@link SubPath}.
+ *
+ * When the outlines are updated, only the segments whose points
+ * moved are stroked again, and the bounds of these segments
+ * (before and after the change) are collected, so that
+ * only this region has to be repainted.
+ *
+ * The segments are stroked without caps, and the joins between them
+ * and the caps at the ends of open subpaths are separate entries,
+ * so that the outlines look the same as stroking the whole subpath.
+ */
+class SegmentOutlines {
+    // start point, two control points, end point
+    private static final int COORDS_PER_ENTRY = 8;
+
+    // the space around the points that is covered by
+    // the painted handles and their shadows
+    private static final int HANDLES_MARGIN = DraggablePoint.HANDLE_RADIUS + 3;
+
+    // the length of the two lines that are stroked together
+    // in order to get the join between two segments
+    private static final double JOIN_ARM_LENGTH = 0.25;
+
+    private enum Kind {
+        // a stroked segment
+        SEGMENT,
+        // the line between an anchor and a control point that is
+        // not part of a segment, but whose handle is painted
+        HANDLE,
+        // the join of two segments at an anchor point
+        JOIN,
+        // the square cap at the end of an open subpath
+        CAP
+    }
+
+    // For joins and caps the coordinates are the anchor point and
+    // the directions of the segments, instead of the control points.
+    private double[] coords = new double[0];
+    private Kind[] kinds = new Kind[0];
+    private Shape[] outerOutlines = new Shape[0];
+    private Shape[] innerOutlines = new Shape[0];
+    private Rectangle[] bounds = new Rectangle[0];
+
+    private int numEntries;
+    private int updateIndex;
+
+    // the first and last non-degenerate segments since the start of the update
+    private boolean hasSegments;
+    private double firstX, firstY, firstDirX, firstDirY;
+    private double lastX, lastY, lastDirX, lastDirY;
+
+    // the region that changed since the last call to takeChangedRegion
+    private Rectangle changedRegion;
+
+    void startUpdate() {
+        updateIndex = 0;
+        hasSegments = false;
+    }
+
+    /**
+     * Adds a segment, which continues the previously added segment.
+     */
+    void addSegment(DraggablePoint start, DraggablePoint ctrl1,
+                    DraggablePoint ctrl2, DraggablePoint end) {
+        double x0 = start.x, y0 = start.y;
+        double c1x = ctrl1.x, c1y = ctrl1.y;
+        double c2x = ctrl2.x, c2y = ctrl2.y;
+        double x1 = end.x, y1 = end.y;
+        add(Kind.SEGMENT, x0, y0, c1x, c1y, c2x, c2y, x1, y1);
+
+        // the directions at the ends are given by the first and
+        // last control points that don't coincide with the end point
+        double startDirX, startDirY;
+        if (c1x != x0 || c1y != y0) {
+            startDirX = c1x - x0;
+            startDirY = c1y - y0;
+        } else if (c2x != x0 || c2y != y0) {
+            startDirX = c2x - x0;
+            startDirY = c2y - y0;
+        } else if (x1 != x0 || y1 != y0) {
+            startDirX = x1 - x0;
+            startDirY = y1 - y0;
+        } else {
+            // a degenerate segment is skipped by the stroking,
+            // the neighboring segments are joined directly
+            return;
+        }
+        double endDirX, endDirY;
+        if (c2x != x1 || c2y != y1) {
+            endDirX = x1 - c2x;
+            endDirY = y1 - c2y;
+        } else if (c1x != x1 || c1y != y1) {
+            endDirX = x1 - c1x;
+            endDirY = y1 - c1y;
+        } else {
+            endDirX = x1 - x0;
+            endDirY = y1 - y0;
+        }
+
+        if (hasSegments) {
+            addJoin(x0, y0, lastDirX, lastDirY, startDirX, startDirY);
+        } else {
+            hasSegments = true;
+            firstX = x0;
+            firstY = y0;
+            firstDirX = startDirX;
+            firstDirY = startDirY;
+        }
+        lastX = x1;
+        lastY = y1;
+        lastDirX = endDirX;
+        lastDirY = endDirY;
+    }
+
+    /**
+     * Adds the join between the last and the first segments of a closed subpath.
+     */
+    void addClosingJoin() {
+        if (hasSegments) {
+            addJoin(firstX, firstY, lastDirX, lastDirY, firstDirX, firstDirY);
+        }
+    }
+
+    /**
+     * Adds the caps at the two ends of an open subpath.
+     */
+    void addCaps() {
+        if (hasSegments) {
+            add(Kind.CAP, firstX, firstY, -firstDirX, -firstDirY, 0, 0, firstX, firstY);
+            add(Kind.CAP, lastX, lastY, lastDirX, lastDirY, 0, 0, lastX, lastY);
+        }
+    }
+
+    private void addJoin(double x, double y,
+                         double inDirX, double inDirY,
+                         double outDirX, double outDirY) {
+        add(Kind.JOIN, x, y, inDirX, inDirY, outDirX, outDirY, x, y);
+    }
+
+    void addHandle(DraggablePoint anchor, DraggablePoint ctrl) {
+        add(Kind.HANDLE, anchor.x, anchor.y, ctrl.x, ctrl.y, ctrl.x, ctrl.y, ctrl.x, ctrl.y);
+    }
+
+    private void add(Kind kind,
+                     double x0, double y0,
+                     double c1x, double c1y,
+                     double c2x, double c2y,
+                     double x1, double y1) {
+        int i = updateIndex++;
+        int offset = i * COORDS_PER_ENTRY;
+        if (i < numEntries
+            && kinds[i] == kind
+            && coords[offset] == x0 && coords[offset + 1] == y0
+            && coords[offset + 2] == c1x && coords[offset + 3] == c1y
+            && coords[offset + 4] == c2x && coords[offset + 5] == c2y
+            && coords[offset + 6] == x1 && coords[offset + 7] == y1) {
+            return; // the cached entry is still valid
+        }
+
+        if (i >= coords.length / COORDS_PER_ENTRY) {
+            grow();
+        }
+        if (i < numEntries) {
+            addToChangedRegion(bounds[i]);
+        }
+
+        coords[offset] = x0;
+        coords[offset + 1] = y0;
+        coords[offset + 2] = c1x;
+        coords[offset + 3] = c1y;
+        coords[offset + 4] = c2x;
+        coords[offset + 5] = c2y;
+        coords[offset + 6] = x1;
+        coords[offset + 7] = y1;
+        kinds[i] = kind;
+
+        Rectangle2D pointBounds = new Rectangle2D.Double(x0, y0, 0, 0);
+        if (kind == Kind.SEGMENT || kind == Kind.HANDLE) {
+            pointBounds.add(c1x, c1y);
+            pointBounds.add(c2x, c2y);
+            pointBounds.add(x1, y1);
+        }
+
+        switch (kind) {
+            case SEGMENT -> {
+                boolean degenerate = x0 == x1 && y0 == y1 && x0 == c1x && y0 == c1y && x0 == c2x && y0 == c2y;
+                if (degenerate) {
+                    outerOutlines[i] = null;
+                    innerOutlines[i] = null;
+                } else {
+                    Shape segment;
+                    if (c1x == x0 && c1y == y0 && c2x == x1 && c2y == y1) {
+                        segment = new Line2D.Double(x0, y0, x1, y1);
+                    } else {
+                        segment = new CubicCurve2D.Double(x0, y0, c1x, c1y, c2x, c2y, x1, y1);
+                    }
+                    outerOutlines[i] = Shapes.createVisibleOuterOutline(segment);
+                    innerOutlines[i] = Shapes.createVisibleInnerOutline(segment);
+                }
+            }
+            case JOIN -> {
+                // two short lines along the segments, stroked together
+                double inScale = JOIN_ARM_LENGTH / Math.hypot(c1x, c1y);
+                double outScale = JOIN_ARM_LENGTH / Math.hypot(c2x, c2y);
+                Path2D join = new Path2D.Double();
+                join.moveTo(x0 - c1x * inScale, y0 - c1y * inScale);
+                join.lineTo(x0, y0);
+                join.lineTo(x0 + c2x * outScale, y0 + c2y * outScale);
+                outerOutlines[i] = Shapes.createVisibleOuterOutline(join);
+                innerOutlines[i] = Shapes.createVisibleInnerOutline(join);
+            }
+            case CAP -> {
+                outerOutlines[i] = Shapes.createVisibleOuterCap(x0, y0, c1x, c1y);
+                innerOutlines[i] = Shapes.createVisibleInnerCap(x0, y0, c1x, c1y);
+            }
+            case HANDLE -> {
+                outerOutlines[i] = null;
+                innerOutlines[i] = null;
+            }
+        }
+        if (outerOutlines[i] != null) {
+            pointBounds.add(outerOutlines[i].getBounds2D());
+        }
+
+        Rectangle entryBounds = pointBounds.getBounds();
+        entryBounds.grow(HANDLES_MARGIN, HANDLES_MARGIN);
+        bounds[i] = entryBounds;
+        addToChangedRegion(entryBounds);
+    }
+
+    void finishUpdate() {
+        for (int i = updateIndex; i < numEntries; i++) {
+            addToChangedRegion(bounds[i]);
+            outerOutlines[i] = null;
+            innerOutlines[i] = null;
+            bounds[i] = null;
+        }
+        numEntries = updateIndex;
+    }
+
+    private void grow() {
+        int newCapacity = Math.max(8, kinds.length * 2);
+        coords = Arrays.copyOf(coords, newCapacity * COORDS_PER_ENTRY);
+        kinds = Arrays.copyOf(kinds, newCapacity);
+        outerOutlines = Arrays.copyOf(outerOutlines, newCapacity);
+        innerOutlines = Arrays.copyOf(innerOutlines, newCapacity);
+        bounds = Arrays.copyOf(bounds, newCapacity);
+    }
+
+    private void addToChangedRegion(Rectangle r) {
+        if (changedRegion == null) {
+            changedRegion = new Rectangle(r);
+        } else {
+            changedRegion.add(r);
+        }
+    }
+
+    /**
+     * Returns the region that changed since the last call,
+     * or null if nothing changed.
+     */
+    Rectangle takeChangedRegion() {
+        Rectangle retVal = changedRegion;
+        changedRegion = null;
+        return retVal;
+    }
+
+    /**
+     * Fills the black outer outlines that intersect the given clip (which can be null).
+     */
+    void fillOuter(Graphics2D g, Rectangle clip) {
+        fill(g, outerOutlines, clip);
+    }
+
+    /**
+     * Fills the white inner outlines that intersect the given clip (which can be null).
+     */
+    void fillInner(Graphics2D g, Rectangle clip) {
+        fill(g, innerOutlines, clip);
+    }
+
+    private void fill(Graphics2D g, Shape[] outlines, Rectangle clip) {
+        for (int i = 0; i < numEntries; i++) {
+            Shape outline = outlines[i];
+            if (outline != null && (clip == null || clip.intersects(bounds[i]))) {
+                g.fill(outline);
+            }
+        }
+    }
+}
@@ -73,6 +73,9 @@ public class SubPath implements Serializable, Transformable {
     private boolean closed = false;
     private boolean finished = false;
 
+    // the cached outlines for painting, created lazily
+    private transient SegmentOutlines outlines;
+
     public SubPath(Path path, Composition comp) {
         assert path != null;
         assert comp != null;
@@ -231,6 +234,47 @@ public class SubPath implements Serializable, Transformable {
         }
     }
 
+    /**
+     * Updates the cached component-space outlines so that they
+     * correspond to the same segments as {@link #addToComponentSpaceShape}.
+     */
+    SegmentOutlines updateOutlines() {
+        if (outlines == null) {
+            outlines = new SegmentOutlines();
+        }
+        outlines.startUpdate();
+
+        if (!anchorPoints.isEmpty()) {
+            AnchorPoint first = getFirst();
+            AnchorPoint prev = first;
+            for (int i = 1; i < anchorPoints.size(); i++) {
+                AnchorPoint curr = anchorPoints.get(i);
+                outlines.addSegment(prev, prev.ctrlOut, curr.ctrlIn, curr);
+                prev = curr;
+            }
+
+            AnchorPoint last = getLast();
+            if (moving != null && path.getBuildState() == MOVING_TO_NEXT_ANCHOR && Tools.PEN.showRubberBand()) {
+                outlines.addSegment(last, last.ctrlOut, moving, moving);
+            }
+
+            if (closed) {
+                outlines.addSegment(last, last.ctrlOut, first.ctrlIn, first);
+                outlines.addClosingJoin();
+            } else {
+                outlines.addCaps();
+
+                // the outer handles of the first and last anchors
+                // are also painted, but they are not part of a segment
+                outlines.addHandle(first, first.ctrlIn);
+                outlines.addHandle(last, last.ctrlOut);
+            }
+        }
+
+        outlines.finishUpdate();
+        return outlines;
+    }
+
     public void paintHandlesForBuilding(Graphics2D g, BuildState state) {
         assert checkConsistency();
 
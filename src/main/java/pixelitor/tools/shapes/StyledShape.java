@@ -90,6 +90,19 @@ public class StyledShape implements Cloneable, Transformable {
     private Color fgColor;
     private Color bgColor;
 
+    // Cached results that depend only on some of the fields above.
+    // They are not modified after creation, therefore they can be
+    // shared with the clones made for the undo.
+    private Shape strokeOutline; // depends on the shape and the stroke
+    private Shape effectsArea; // depends also on the shape type and the stroke paint
+    private BufferedImage effectsImage; // depends also on the effects
+    private int effectsImageX;
+    private int effectsImageY;
+
+    // the transform of the untransformed shape for which the
+    // cached shapes were calculated, or null if unknown
+    private AffineTransform cacheTransform;
+
     public StyledShape(ShapesTool tool) {
         setType(tool.getSelectedType(), tool);
 
@@ -156,59 +169,118 @@ public class StyledShape implements Cloneable, Transformable {
     }
 
     private void paintStroke(Graphics2D g) {
-        g.setStroke(stroke);
+        // filling the cached outline is the same as drawing with the stroke
         strokePaintType.prepare(g, transformedImDrag);
-        g.draw(shape);
+        g.fill(getStrokeOutline());
         strokePaintType.finish(g);
     }
 
+    private Shape getStrokeOutline() {
+        if (strokeOutline == null) {
+            strokeOutline = stroke.createStrokedShape(shape);
+        }
+        return strokeOutline;
+    }
+
     private void paintEffects(Graphics2D g) {
-        if (hasStroke()) {
-            if (shapeType.isClosed()) {
-                paintEffectsForClosedShapeWithStroke(g);
+        AffineTransform at = g.getTransform();
+        if (!isIntegerTranslation(at)) {
+            // the cached image would not have the same pixels
+            effects.drawOn(g, getEffectsArea());
+            return;
+        }
+
+        if (effectsImage == null) {
+            createEffectsImage();
+        }
+        if (effectsImage != null) {
+            g.drawImage(effectsImage, effectsImageX, effectsImageY, null);
+        }
+    }
+
+    private static boolean isIntegerTranslation(AffineTransform at) {
+        return (at.getType() & ~AffineTransform.TYPE_TRANSLATION) == 0
+            && at.getTranslateX() == (int) at.getTranslateX()
+            && at.getTranslateY() == (int) at.getTranslateY();
+    }
+
+    /**
+     * Renders the effects into an image, which can be reused
+     * until the shape, the stroke or the effects change.
+     */
+    private void createEffectsImage() {
+        Shape area = getEffectsArea();
+        Rectangle imageBounds = area.getBounds();
+        int margin = effects.getMaxEffectThickness() + 2;
+        imageBounds.grow(margin, margin);
+        if (imageBounds.isEmpty()) {
+            return;
+        }
+
+        effectsImage = new BufferedImage(imageBounds.width, imageBounds.height,
+            BufferedImage.TYPE_INT_ARGB_PRE);
+        effectsImageX = imageBounds.x;
+        effectsImageY = imageBounds.y;
+
+        Graphics2D g = effectsImage.createGraphics();
+        g.translate(-effectsImageX, -effectsImageY);
+        g.setRenderingHint(KEY_ANTIALIASING, VALUE_ANTIALIAS_ON);
+        effects.drawOn(g, area);
+        g.dispose();
+    }
+
+    /**
+     * Returns the shape on which the effects are applied.
+     */
+    private Shape getEffectsArea() {
+        if (effectsArea == null) {
+            if (hasStroke()) {
+                effectsArea = shapeType.isClosed()
+                    ? calcEffectsAreaForClosedShapeWithStroke()
+                    : calcEffectsAreaForOpenShapeWithStroke();
             } else {
-                paintEffectsForOpenShapeWithStroke(g);
+                effectsArea = calcEffectsAreaNoStroke();
             }
-        } else {
-            paintEffectsNoStroke(g);
         }
+        return effectsArea;
     }
 
-    private void paintEffectsForClosedShapeWithStroke(Graphics2D g) {
+    private Shape calcEffectsAreaForClosedShapeWithStroke() {
         // add the outline area of the stroke to the shape area
         // to get the shape for the effects, but these Area operations
         // could be too slow for the WobbleStroke
         if (stroke instanceof WobbleStroke) {
             // give up, just draw something
-            effects.drawOn(g, shape);
-        } else {
-            // do the correct thing
-            Shape strokeOutline = stroke.createStrokedShape(shape);
-            Area strokeOutlineArea = new Area(strokeOutline);
-            Area combined = new Area(shape);
-            combined.add(strokeOutlineArea);
-            effects.drawOn(g, combined);
+            return shape;
         }
+        // do the correct thing
+        Area strokeOutlineArea = new Area(getStrokeOutline());
+        Area combined = new Area(shape);
+        combined.add(strokeOutlineArea);
+        return combined;
     }
 
-    private void paintEffectsForOpenShapeWithStroke(Graphics2D g) {
+    private Shape calcEffectsAreaForOpenShapeWithStroke() {
         if (stroke instanceof WobbleStroke) {
             // be careful and consistent with the behavior above
-            effects.drawOn(g, shape);
-        } else {
-            // Open shape with stroke: apply the effects on the stroke outline
-            Shape outline = stroke.createStrokedShape(shape);
-            effects.drawOn(g, outline);
+            return shape;
         }
+        // Open shape with stroke: apply the effects on the stroke outline
+        return getStrokeOutline();
     }
 
-    private void paintEffectsNoStroke(Graphics2D g) {
+    private Shape calcEffectsAreaNoStroke() {
         if (shapeType.isClosed()) {
-            effects.drawOn(g, shape); // simplest case
-        } else {
-            Shape defaultOutline = STROKE_FOR_OPEN_SHAPES.createStrokedShape(shape);
-            effects.drawOn(g, defaultOutline);
+            return shape; // simplest case
         }
+        return STROKE_FOR_OPEN_SHAPES.createStrokedShape(shape);
+    }
+
+    private void invalidateCaches() {
+        strokeOutline = null;
+        effectsArea = null;
+        effectsImage = null;
+        cacheTransform = null;
     }
 
     private boolean hasStroke() {
@@ -234,28 +306,78 @@ public class StyledShape implements Cloneable, Transformable {
         // since there is no transform box yet
         transformedImDrag = imDrag;
         shape = unTransformedShape;
+        invalidateCaches();
     }
 
     @Override
     public void transformWith(AffineTransform at) {
         shape = at.createTransformedShape(unTransformedShape);
         transformedImDrag = origImDrag.transform(at);
+
+        if (cacheTransform != null && hasSameLinearPart(at, cacheTransform)) {
+            // the box was only moved: the cached shapes can be moved
+            // instead of recalculating the stroke and the effect areas
+            double dx = at.getTranslateX() - cacheTransform.getTranslateX();
+            double dy = at.getTranslateY() - cacheTransform.getTranslateY();
+            translateCaches(dx, dy);
+        } else {
+            invalidateCaches();
+        }
+        cacheTransform = new AffineTransform(at);
+    }
+
+    private static boolean hasSameLinearPart(AffineTransform a, AffineTransform b) {
+        return a.getScaleX() == b.getScaleX() && a.getShearX() == b.getShearX()
+            && a.getShearY() == b.getShearY() && a.getScaleY() == b.getScaleY();
+    }
+
+    private void translateCaches(double dx, double dy) {
+        if (dx == 0 && dy == 0) {
+            return;
+        }
+        AffineTransform translation = AffineTransform.getTranslateInstance(dx, dy);
+        if (strokeOutline != null) {
+            strokeOutline = translation.createTransformedShape(strokeOutline);
+        }
+        if (effectsArea != null) {
+            effectsArea = translation.createTransformedShape(effectsArea);
+        }
+        if (effectsImage != null) {
+            if (dx == (int) dx && dy == (int) dy) {
+                effectsImageX += (int) dx;
+                effectsImageY += (int) dy;
+            } else {
+                // the image will be rendered again from the moved area
+                effectsImage = null;
+            }
+        }
     }
 
     private void setFillPaintType(TwoPointPaintType fillPaintType) {
+        // the fill is not cached
         this.fillPaintType = fillPaintType;
     }
 
     private void setStrokePaintType(TwoPointPaintType strokePaintType) {
+        boolean hadStroke = this.strokePaintType != null && hasStroke();
         this.strokePaintType = strokePaintType;
+        if (hadStroke != hasStroke()) {
+            // the stroke is part of the effects area only if it is painted
+            effectsArea = null;
+            effectsImage = null;
+        }
     }
 
     private void setStroke(Stroke stroke) {
         this.stroke = stroke;
+        strokeOutline = null;
+        effectsArea = null;
+        effectsImage = null;
     }
 
     private void setEffects(AreaEffects effects) {
         this.effects = effects;
+        effectsImage = null;
     }
 
     private void changeTypeInBox(ShapesTool tool) {
@@ -271,6 +393,7 @@ public class StyledShape implements Cloneable, Transformable {
         } else {
             unTransformedShape = shapeType.createShape(origImDrag, shapeTypeSettings);
         }
+        invalidateCaches();
         // the new transformed shape will be calculated later,
         // after the other parameters have been set
     }
@@ -325,6 +448,7 @@ public class StyledShape implements Cloneable, Transformable {
         // It could also be rotated backwards with an AffineTransform.
         ImDrag imDrag = userDrag.toImDrag();
         unTransformedShape = shapeType.createHorizontalShape(imDrag, shapeTypeSettings);
+        invalidateCaches();
 
         // Set the original drag to the diagonal of the back-rotated transform box,
         // so that after a shape-type change the new shape is created correctly
@@ -532,7 +656,7 @@ public class StyledShape implements Cloneable, Transformable {
             return shape;
         } else if (hasStroke()) {
             // the shape is not closed, but there is a stroke
-            return stroke.createStrokedShape(shape);
+            return getStrokeOutline();
         } else {
             // the shape is not closed, and there is no stroke
             return STROKE_FOR_OPEN_SHAPES.createStrokedShape(shape);
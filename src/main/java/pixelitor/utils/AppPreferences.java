@@ -30,6 +30,7 @@ import pixelitor.guides.GuideStrokeType;
 import pixelitor.guides.GuideStyle;
 import pixelitor.history.History;
 import pixelitor.io.Dirs;
+import pixelitor.io.OpenRaster;
 import pixelitor.layers.LayerButtonLayout;
 import pixelitor.menus.file.RecentFile;
 import pixelitor.menus.file.RecentFilesMenu;
@@ -82,6 +83,8 @@ public final class AppPreferences {
     private static final String LAST_SAVE_DIR_KEY = "last_save_dir";
 
     private static final String UNDO_LEVELS_KEY = "undo_levels";
+    private static final String MEMORY_BUDGET_KEY = "memory_budget";
+    private static final String ORA_MERGED_IMAGE_KEY = "ora_merged_image";
     private static final String THUMB_SIZE_KEY = "thumb_size";
     private static final String LAST_TOOL_KEY = "last_tool";
     private static final String THEME_KEY = "theme";
@@ -295,6 +298,22 @@ public final class AppPreferences {
         mainNode.putInt(UNDO_LEVELS_KEY, History.getUndoLevels());
     }
 
+    public static int loadMemoryBudgetPercent() {
+        return mainNode.getInt(MEMORY_BUDGET_KEY, MemoryManager.DEFAULT_BUDGET_PERCENT);
+    }
+
+    private static void saveMemoryBudgetPercent() {
+        mainNode.putInt(MEMORY_BUDGET_KEY, MemoryManager.getBudgetPercent());
+    }
+
+    public static boolean loadORAMergedImage() {
+        return mainNode.getBoolean(ORA_MERGED_IMAGE_KEY, true);
+    }
+
+    private static void saveORAMergedImage() {
+        mainNode.putBoolean(ORA_MERGED_IMAGE_KEY, OpenRaster.isAddMergedImage());
+    }
+
     public static int loadThumbSize() {
         return mainNode.getInt(THUMB_SIZE_KEY, LayerButtonLayout.SMALL_THUMB_SIZE);
     }
@@ -353,6 +372,8 @@ public final class AppPreferences {
         saveFgBgColors();
         WorkSpace.saveVisibility();
         saveUndoLevels();
+        saveMemoryBudgetPercent();
+        saveORAMergedImage();
         saveThumbSize();
         TipsOfTheDay.saveNextTipNr();
         saveNewImageSize();
@@ -0,0 +1,238 @@
+/*
+ * Copyright 2021 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.utils;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.awt.image.BufferedImage.TYPE_BYTE_GRAY;
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB_PRE;
+import static java.awt.image.BufferedImage.TYPE_INT_RGB;
+
+/**
+ * A pool of the large scratch buffers (int, float and byte arrays and images)
+ * that are needed again and again while a filter preview is adjusted.
+ * Reusing them instead of allocating new ones avoids most of the
+ * garbage collection pauses during slider dragging.
+ *
+ * The buffers are bucketed by their exact size, because the same sizes
+ * are requested at every preview run, and because some algorithms
+ * rely on the array lengths. The leased buffers must be released
+ * only when nothing references them anymore. The pool can be used
+ * from any thread, and the memory of the idle buffers is capped.
+ */
+public final class BufferPool {
+    // smaller arrays are cheap to allocate
+    private static final int MIN_POOLED_LENGTH = 16 * 1024;
+
+    // more buffers of the same size are only needed
+    // if they are leased by several threads at the same time
+    private static final int MAX_BUFFERS_PER_SIZE = 4;
+
+    private static final long MAX_IDLE_BYTES = Runtime.getRuntime().maxMemory() / 10;
+
+    private static final Map<Integer, Deque<int[]>> intArrays = new ConcurrentHashMap<>();
+    private static final Map<Integer, Deque<float[]>> floatArrays = new ConcurrentHashMap<>();
+    private static final Map<Integer, Deque<byte[]>> byteArrays = new ConcurrentHashMap<>();
+    private static final Map<ImageKey, Deque<BufferedImage>> images = new ConcurrentHashMap<>();
+
+    // only the images created by this class are accepted back
+    private static final Set<BufferedImage> leasedImages =
+        Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+
+    private static final AtomicLong idleBytes = new AtomicLong();
+
+    private BufferPool() {
+        // should not be instantiated
+    }
+
+    /**
+     * Returns an int array with the given length.
+     * The contents of the returned array are undefined.
+     */
+    public static int[] leaseInts(int length) {
+        int[] array = poll(intArrays, length, length * 4L);
+        return array != null ? array : new int[length];
+    }
+
+    /**
+     * Returns a float array with the given length.
+     * The contents of the returned array are undefined.
+     */
+    public static float[] leaseFloats(int length) {
+        float[] array = poll(floatArrays, length, length * 4L);
+        return array != null ? array : new float[length];
+    }
+
+    /**
+     * Returns a byte array with the given length.
+     * The contents of the returned array are undefined.
+     */
+    public static byte[] leaseBytes(int length) {
+        byte[] array = poll(byteArrays, length, length);
+        return array != null ? array : new byte[length];
+    }
+
+    public static void release(int[] array) {
+        if (array != null && array.length >= MIN_POOLED_LENGTH) {
+            offer(intArrays, array.length, array, array.length * 4L);
+        }
+    }
+
+    public static void release(float[] array) {
+        if (array != null && array.length >= MIN_POOLED_LENGTH) {
+            offer(floatArrays, array.length, array, array.length * 4L);
+        }
+    }
+
+    public static void release(byte[] array) {
+        if (array != null && array.length >= MIN_POOLED_LENGTH) {
+            offer(byteArrays, array.length, array, array.length);
+        }
+    }
+
+    /**
+     * Returns a transparent image with the same size and color model
+     * as the given image, like {@link ImageUtils#createImageWithSameCM}.
+     */
+    public static BufferedImage leaseImageWithSameCM(BufferedImage src) {
+        int type = src.getType();
+        if (!isPooledType(type)) {
+            return ImageUtils.createImageWithSameCM(src);
+        }
+
+        var key = new ImageKey(src.getWidth(), src.getHeight(), type);
+        BufferedImage img = poll(images, key, key.getNumBytes());
+        if (img != null) {
+            clear(img);
+        } else {
+            img = ImageUtils.createImageWithSameCM(src);
+        }
+        leasedImages.add(img);
+        return img;
+    }
+
+    /**
+     * Gives back an image that is no longer referenced anywhere.
+     * Images that were not leased from this pool are ignored.
+     */
+    public static void release(BufferedImage img) {
+        if (img == null || !leasedImages.remove(img)) {
+            return;
+        }
+        var key = new ImageKey(img.getWidth(), img.getHeight(), img.getType());
+        offer(images, key, img, key.getNumBytes());
+    }
+
+    /**
+     * Returns the memory used by the idle buffers, in bytes.
+     */
+    public static long getIdleBytes() {
+        return idleBytes.get();
+    }
+
+    public static void clear() {
+        intArrays.clear();
+        floatArrays.clear();
+        byteArrays.clear();
+        images.clear();
+        idleBytes.set(0);
+    }
+
+    private static <K, T> T poll(Map<K, Deque<T>> pool, K key, long numBytes) {
+        Deque<T> buffers = pool.get(key);
+        if (buffers == null) {
+            return null;
+        }
+        T buffer = buffers.pollFirst();
+        if (buffer != null) {
+            idleBytes.addAndGet(-numBytes);
+        }
+        return buffer;
+    }
+
+    private static <K, T> void offer(Map<K, Deque<T>> pool, K key, T buffer, long numBytes) {
+        if (idleBytes.get() + numBytes > MAX_IDLE_BYTES) {
+            return; // let the garbage collector take it
+        }
+        Deque<T> buffers = pool.computeIfAbsent(key, k -> new ConcurrentLinkedDeque<>());
+        if (buffers.size() >= MAX_BUFFERS_PER_SIZE) {
+            return;
+        }
+        idleBytes.addAndGet(numBytes);
+        buffers.offerFirst(buffer);
+    }
+
+    // the color models of these types don't depend on anything else
+    private static boolean isPooledType(int type) {
+        return type == TYPE_INT_ARGB_PRE || type == TYPE_INT_ARGB
+            || type == TYPE_INT_RGB || type == TYPE_BYTE_GRAY;
+    }
+
+    private static void clear(BufferedImage img) {
+        Graphics2D g = img.createGraphics();
+        g.setComposite(AlphaComposite.Clear);
+        g.fillRect(0, 0, img.getWidth(), img.getHeight());
+        g.dispose();
+    }
+
+    private static final class ImageKey {
+        private final int width;
+        private final int height;
+        private final int type;
+
+        private ImageKey(int width, int height, int type) {
+            this.width = width;
+            this.height = height;
+            this.type = type;
+        }
+
+        private long getNumBytes() {
+            int bytesPerPixel = type == TYPE_BYTE_GRAY ? 1 : 4;
+            return (long) width * height * bytesPerPixel;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            ImageKey other = (ImageKey) o;
+            return width == other.width && height == other.height && type == other.type;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(width, height, type);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2021 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.utils;
+
+/**
+ * The exact Euclidean distance transform of Felzenszwalb and
+ * Huttenlocher, which runs in linear time, independently
+ * of the distances involved.
+ */
+public class DistanceTransform {
+    /**
+     * The value marking the pixels that are not feature pixels.
+     */
+    public static final float INF = 1.0e20f;
+
+    private DistanceTransform() {
+        // do not instantiate
+    }
+
+    /**
+     * Replaces the values (0 for the feature pixels, {@link #INF} for the
+     * others) with the squared Euclidean distances to the nearest feature pixel.
+     */
+    public static void calcSquaredDistances(float[] grid, int width, int height) {
+        int maxSize = Math.max(width, height);
+        float[] f = new float[maxSize];
+        float[] d = new float[maxSize];
+        int[] v = new int[maxSize];
+        float[] z = new float[maxSize + 1];
+
+        // transform the columns
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                f[y] = grid[y * width + x];
+            }
+            transform1D(f, height, d, v, z);
+            for (int y = 0; y < height; y++) {
+                grid[y * width + x] = d[y];
+            }
+        }
+
+        // transform the rows
+        for (int y = 0; y < height; y++) {
+            int offset = y * width;
+            System.arraycopy(grid, offset, f, 0, width);
+            transform1D(f, width, d, v, z);
+            System.arraycopy(d, 0, grid, offset, width);
+        }
+    }
+
+    /**
+     * The 1D squared distance transform as the lower envelope of parabolas.
+     */
+    private static void transform1D(float[] f, int n, float[] d, int[] v, float[] z) {
+        int k = 0;
+        v[0] = 0;
+        z[0] = -INF;
+        z[1] = INF;
+        for (int q = 1; q < n; q++) {
+            float s = intersection(f, q, v[k]);
+            while (s <= z[k]) {
+                k--;
+                s = intersection(f, q, v[k]);
+            }
+            k++;
+            v[k] = q;
+            z[k] = s;
+            z[k + 1] = INF;
+        }
+
+        k = 0;
+        for (int q = 0; q < n; q++) {
+            while (z[k + 1] < q) {
+                k++;
+            }
+            float dq = q - v[k];
+            d[q] = dq * dq + f[v[k]];
+        }
+    }
+
+    private static float intersection(float[] f, int q, int p) {
+        // calculated with doubles, because the
+        // large values would lose the small ones
+        double fq = f[q] + (double) q * q;
+        double fp = f[p] + (double) p * p;
+        return (float) ((fq - fp) / (2.0 * q - 2.0 * p));
+    }
+}
@@ -20,34 +20,35 @@ import javax.swing.*;
 import java.net.URL;
 
 /**
- * Icon-related static utility methods
+ * Icon-related static utility methods.
+ * The icons are loaded only when they are first needed.
  */
 public final class Icons {
-    private static final Icon westArrowIcon = load("west_arrow.gif");
-    private static final Icon diceIcon = load("dice.png");
-    private static final Icon dice2Icon = load("dice2.png");
-    private static final Icon northArrowIcon = load("north_arrow.gif");
-    private static final Icon southArrowIcon = load("south_arrow.gif");
-    private static final Icon textLayerIcon = load("text_layer_icon.png");
-    private static final Icon adjLayerIcon = load("adj_layer_icon.png");
-    private static final Icon undoIcon = load("undo.png");
-    private static final Icon redoIcon = load("redo.png");
-    private static final Icon searchIcon = load("search.png");
+    private static final Lazy<Icon> westArrowIcon = Lazy.of(() -> load("west_arrow.gif"));
+    private static final Lazy<Icon> diceIcon = Lazy.of(() -> load("dice.png"));
+    private static final Lazy<Icon> dice2Icon = Lazy.of(() -> load("dice2.png"));
+    private static final Lazy<Icon> northArrowIcon = Lazy.of(() -> load("north_arrow.gif"));
+    private static final Lazy<Icon> southArrowIcon = Lazy.of(() -> load("south_arrow.gif"));
+    private static final Lazy<Icon> textLayerIcon = Lazy.of(() -> load("text_layer_icon.png"));
+    private static final Lazy<Icon> adjLayerIcon = Lazy.of(() -> load("adj_layer_icon.png"));
+    private static final Lazy<Icon> undoIcon = Lazy.of(() -> load("undo.png"));
+    private static final Lazy<Icon> redoIcon = Lazy.of(() -> load("redo.png"));
+    private static final Lazy<Icon> searchIcon = Lazy.of(() -> load("search.png"));
 
     private Icons() {
         // should not be instantiated
     }
 
     public static Icon getWestArrowIcon() {
-        return westArrowIcon;
+        return westArrowIcon.get();
     }
 
     public static Icon getDiceIcon() {
-        return diceIcon;
+        return diceIcon.get();
     }
 
     public static Icon getTwoDicesIcon() {
-        return dice2Icon;
+        return dice2Icon.get();
     }
 
     public static Icon load(String iconFileName) {
@@ -58,30 +59,30 @@ public final class Icons {
     }
 
     public static Icon getNorthArrowIcon() {
-        return northArrowIcon;
+        return northArrowIcon.get();
     }
 
     public static Icon getSouthArrowIcon() {
-        return southArrowIcon;
+        return southArrowIcon.get();
     }
 
     public static Icon getTextLayerIcon() {
-        return textLayerIcon;
+        return textLayerIcon.get();
     }
 
     public static Icon getAdjLayerIcon() {
-        return adjLayerIcon;
+        return adjLayerIcon.get();
     }
 
     public static Icon getUndoIcon() {
-        return undoIcon;
+        return undoIcon.get();
     }
 
     public static Icon getRedoIcon() {
-        return redoIcon;
+        return redoIcon.get();
     }
 
     public static Icon getSearchIcon() {
-        return searchIcon;
+        return searchIcon.get();
     }
 }
\ No newline at end of file
@@ -19,8 +19,6 @@ package pixelitor.utils;
 
 import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
-import java.awt.image.WritableRaster;
-
 
 /**
  * Trim image from transparent pixels
@@ -37,60 +35,15 @@ public class ImageTrimUtil {
     }
 
     /**
-     * Returns image bounding box trimmed from transparent pixels (alpha channel = 0)
+     * Returns image bounding box trimmed from transparent pixels (alpha channel = 0).
+     * For a fully transparent image a 1x1 rectangle at the bottom-right corner is returned.
      */
     public static Rectangle getTrimRect(BufferedImage image) {
-        WritableRaster raster = image.getAlphaRaster();
-        int width = raster.getWidth();
-        int height = raster.getHeight();
-        int left = 0;
-        int top = 0;
-        int right = width - 1;
-        int bottom = height - 1;
-        int minRight = width - 1;
-        int minBottom = height - 1;
-
-        top:
-        for (; top < bottom; top++) {
-            for (int x = 0; x < width; x++) {
-                if (raster.getSample(x, top, 0) != 0) {
-                    minRight = x;
-                    minBottom = top;
-                    break top;
-                }
-            }
+        Rectangle rect = new TileOccupancy(image).getContentBounds();
+        if (rect == null) {
+            return new Rectangle(image.getWidth() - 1, image.getHeight() - 1, 1, 1);
         }
-
-        left:
-        for (; left < minRight; left++) {
-            for (int y = height - 1; y > top; y--) {
-                if (raster.getSample(left, y, 0) != 0) {
-                    minBottom = y;
-                    break left;
-                }
-            }
-        }
-
-        bottom:
-        for (; bottom > minBottom; bottom--) {
-            for (int x = width - 1; x >= left; x--) {
-                if (raster.getSample(x, bottom, 0) != 0) {
-                    minRight = x;
-                    break bottom;
-                }
-            }
-        }
-
-        right:
-        for (; right > minRight; right--) {
-            for (int y = bottom; y >= top; y--) {
-                if (raster.getSample(right, y, 0) != 0) {
-                    break right;
-                }
-            }
-        }
-
-        return new Rectangle(left, top, right - left + 1, bottom - top + 1);
+        return rect;
     }
 
     public static BufferedImage trimImage(BufferedImage image) {
@@ -135,6 +135,14 @@ public class ImageUtils {
     public static CompletableFuture<BufferedImage> resizeAsync(BufferedImage img,
                                                                int targetWidth,
                                                                int targetHeight) {
+        if (Resampler.isSupported(img)) {
+            // The resampler is parallel itself, but the resizing of several
+            // layers can still overlap, because it uses the fork-join pool
+            return CompletableFuture.supplyAsync(() ->
+                Resampler.resize(img, targetWidth, targetHeight,
+                    Resampler.Kernel.MITCHELL), onPool);
+        }
+
         boolean progressiveBilinear = false;
         if (targetWidth < img.getWidth() / 2
             || targetHeight < img.getHeight() / 2) {
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2021 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.utils;
+
+import com.jhlabs.image.TransformFilter;
+import pixelitor.Composition;
+import pixelitor.OpenImages;
+import pixelitor.gui.View;
+import pixelitor.history.History;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * Keeps the memory used by the images of the open compositions,
+ * the undo history, the preview buffers and the caches within a
+ * budget, which is a configurable percentage of the maximum heap.
+ *
+ * When the budget would be exceeded, memory is freed in the following order:
+ * <ol>
+ * <li>the idle buffers of the {@link BufferPool} and the
+ * cached displacement maps of the distortion filters</li>
+ * <li>the cached composite images of the compositions that are not active</li>
+ * <li>the images of the old undo edits, which are moved into temporary files
+ * (the files are written on the IO thread, and the images are released
+ * when the writing is finished)</li>
+ * </ol>
+ * The images of the compositions themselves are never evicted.
+ * The buffers of the background tasks can't be evicted either,
+ * but they are counted, if they are reserved.
+ *
+ * All methods must be called on the EDT, except for
+ * {@link #reserve(long)}, {@link #release(long)}
+ * and {@link #getMemoryUsage(BufferedImage)}.
+ */
+public final class MemoryManager {
+    public static final int DEFAULT_BUDGET_PERCENT = 75;
+    public static final int MIN_BUDGET_PERCENT = 10;
+    public static final int MAX_BUDGET_PERCENT = 95;
+
+    private static int budgetPercent = AppPreferences.loadMemoryBudgetPercent();
+
+    // the memory used temporarily by the background tasks
+    private static final AtomicLong reservedBytes = new AtomicLong();
+
+    private MemoryManager() {
+        // should not be instantiated
+    }
+
+    public static int getBudgetPercent() {
+        return budgetPercent;
+    }
+
+    public static void setBudgetPercent(int newPercent) {
+        if (newPercent < MIN_BUDGET_PERCENT || newPercent > MAX_BUDGET_PERCENT) {
+            throw new IllegalArgumentException("newPercent = " + newPercent);
+        }
+        budgetPercent = newPercent;
+        ensureAvailable(0);
+    }
+
+    /**
+     * Returns the memory budget in bytes.
+     */
+    public static long getBudget() {
+        return Runtime.getRuntime().maxMemory() / 100 * budgetPercent;
+    }
+
+    /**
+     * Returns the approximate number of bytes used by
+     * the images of the open compositions (including the previews
+     * and the cached composites), the undo history, the pooled buffers
+     * and the filter caches.
+     */
+    public static long getTrackedUsage() {
+        return getCompositionsUsage() + History.getImageMemoryUsage()
+            + BufferPool.getIdleBytes() + TransformFilter.getDisplacementMapBytes()
+            + reservedBytes.get();
+    }
+
+    /**
+     * Records that a background task temporarily uses
+     * approximately the given number of bytes.
+     */
+    public static void reserve(long numBytes) {
+        reservedBytes.addAndGet(numBytes);
+    }
+
+    /**
+     * Records that a background task no longer
+     * uses the given number of reserved bytes.
+     */
+    public static void release(long numBytes) {
+        reservedBytes.addAndGet(-numBytes);
+    }
+
+    private static long getCompositionsUsage() {
+        long sum = 0;
+        for (View view : OpenImages.getViews()) {
+            sum += view.getComp().getMemoryUsage();
+        }
+        return sum;
+    }
+
+    /**
+     * Makes room for an operation which needs approximately the given number
+     * of bytes, by evicting cached data if necessary. Returns false if the
+     * operation would not fit into the budget even after the eviction.
+     */
+    public static boolean ensureAvailable(long numBytes) {
+        // each step is more expensive to undo than the previous one
+        return ensureAvailable(numBytes, getBudget(), getTrackedUsage(),
+            bytesToFree -> releasePooledBuffers(),
+            bytesToFree -> releaseInactiveComposites(),
+            History::spillOldEdits);
+    }
+
+    /**
+     * Runs the given eviction steps in order until the given number
+     * of bytes fits into the budget. Each step receives the number
+     * of bytes that still have to be freed, and returns the number
+     * of bytes it freed.
+     */
+    static boolean ensureAvailable(long numBytes, long budget, long used,
+                                   LongUnaryOperator... steps) {
+        for (LongUnaryOperator step : steps) {
+            if (used + numBytes <= budget) {
+                return true;
+            }
+            used -= step.applyAsLong(used + numBytes - budget);
+        }
+        return used + numBytes <= budget;
+    }
+
+    private static long releasePooledBuffers() {
+        long freed = BufferPool.getIdleBytes();
+        BufferPool.clear();
+        return freed + TransformFilter.releaseDisplacementMaps();
+    }
+
+    private static long releaseInactiveComposites() {
+        long freed = 0;
+        View activeView = OpenImages.getActiveView();
+        for (View view : OpenImages.getViews()) {
+            if (view != activeView) {
+                Composition comp = view.getComp();
+                freed += comp.releaseCompositeCache();
+            }
+        }
+        return freed;
+    }
+
+    /**
+     * Returns the approximate number of bytes used by the given image.
+     */
+    public static long getMemoryUsage(BufferedImage img) {
+        if (img == null) {
+            return 0;
+        }
+        DataBuffer buffer = img.getRaster().getDataBuffer();
+        return (long) buffer.getSize() * buffer.getNumBanks()
+            * DataBuffer.getDataTypeSize(buffer.getDataType()) / 8;
+    }
+}
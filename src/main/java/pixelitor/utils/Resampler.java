@@ -0,0 +1,413 @@
+/*
+ * Copyright 2021 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.utils;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.util.stream.IntStream;
+
+import static java.awt.image.BufferedImage.TYPE_BYTE_GRAY;
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB_PRE;
+import static java.awt.image.BufferedImage.TYPE_INT_RGB;
+
+/**
+ * Image resampling with separable filter kernels.
+ *
+ * The weights are precomputed once per axis, and the destination
+ * is calculated in parallel horizontal stripes. Each stripe filters
+ * only the source rows it needs horizontally, and then vertically
+ * into the destination, so no full-size intermediate image is allocated.
+ * Transparent images are filtered in premultiplied space.
+ */
+public class Resampler {
+    /**
+     * The number of destination rows calculated by a task
+     */
+    private static final int STRIPE_HEIGHT = 64;
+
+    public enum Kernel {
+        BILINEAR("Bilinear", 1.0) {
+            @Override
+            double weight(double x) {
+                x = Math.abs(x);
+                return x < 1.0 ? 1.0 - x : 0.0;
+            }
+        }, MITCHELL("Mitchell", 2.0) {
+            @Override
+            double weight(double x) {
+                // Mitchell-Netravali with B = C = 1/3
+                final double b = 1.0 / 3.0;
+                final double c = 1.0 / 3.0;
+                x = Math.abs(x);
+                double x2 = x * x;
+                double x3 = x2 * x;
+                if (x < 1.0) {
+                    return ((12 - 9 * b - 6 * c) * x3
+                        + (-18 + 12 * b + 6 * c) * x2
+                        + (6 - 2 * b)) / 6.0;
+                }
+                if (x < 2.0) {
+                    return ((-b - 6 * c) * x3
+                        + (6 * b + 30 * c) * x2
+                        + (-12 * b - 48 * c) * x
+                        + (8 * b + 24 * c)) / 6.0;
+                }
+                return 0.0;
+            }
+        }, LANCZOS3("Lanczos", 3.0) {
+            @Override
+            double weight(double x) {
+                x = Math.abs(x);
+                if (x < 1.0e-8) {
+                    return 1.0;
+                }
+                if (x >= 3.0) {
+                    return 0.0;
+                }
+                double px = Math.PI * x;
+                return 3.0 * Math.sin(px) * Math.sin(px / 3.0) / (px * px);
+            }
+        };
+
+        private final String guiName;
+        private final double support;
+
+        Kernel(String guiName, double support) {
+            this.guiName = guiName;
+            this.support = support;
+        }
+
+        abstract double weight(double x);
+
+        @Override
+        public String toString() {
+            return guiName;
+        }
+    }
+
+    private Resampler() {
+        // do not instantiate
+    }
+
+    /**
+     * Returns true if the given image can be resampled by this class.
+     */
+    public static boolean isSupported(BufferedImage img) {
+        int type = img.getType();
+        return type == TYPE_INT_ARGB
+            || type == TYPE_INT_ARGB_PRE
+            || type == TYPE_INT_RGB
+            || type == TYPE_BYTE_GRAY;
+    }
+
+    /**
+     * Returns a new image of the same type with the given size.
+     */
+    public static BufferedImage resize(BufferedImage src,
+                                       int targetWidth, int targetHeight,
+                                       Kernel kernel) {
+        ColorModel cm = src.getColorModel();
+        var dst = new BufferedImage(cm,
+            cm.createCompatibleWritableRaster(targetWidth, targetHeight),
+            cm.isAlphaPremultiplied(), null);
+        resample(src, dst, kernel);
+        return dst;
+    }
+
+    /**
+     * Resamples the source image into the already allocated destination,
+     * which must have the same type.
+     */
+    public static void resample(BufferedImage src, BufferedImage dst, Kernel kernel) {
+        if (!isSupported(src) || src.getType() != dst.getType()) {
+            throw new IllegalArgumentException("src type = " + src.getType()
+                + ", dst type = " + dst.getType());
+        }
+
+        int srcWidth = src.getWidth();
+        int srcHeight = src.getHeight();
+        int dstWidth = dst.getWidth();
+        int dstHeight = dst.getHeight();
+
+        Weights xWeights = new Weights(srcWidth, dstWidth, kernel);
+        Weights yWeights = new Weights(srcHeight, dstHeight, kernel);
+
+        int numStripes = (dstHeight + STRIPE_HEIGHT - 1) / STRIPE_HEIGHT;
+        if (src.getType() == TYPE_BYTE_GRAY) {
+            GrayAccess srcAccess = new GrayAccess(src.getRaster());
+            GrayAccess dstAccess = new GrayAccess(dst.getRaster());
+            // the parallel stream uses the common fork-join pool, which
+            // is safe to call from the thread pool's threads as well
+            IntStream.range(0, numStripes).parallel().forEach(stripe ->
+                grayStripe(srcAccess, dstAccess, xWeights, yWeights, stripe));
+        } else {
+            boolean unPremultiplied = src.getType() == TYPE_INT_ARGB;
+            boolean hasAlpha = src.getType() != TYPE_INT_RGB;
+            IntAccess srcAccess = new IntAccess(src.getRaster());
+            IntAccess dstAccess = new IntAccess(dst.getRaster());
+            IntStream.range(0, numStripes).parallel().forEach(stripe ->
+                argbStripe(srcAccess, dstAccess, xWeights, yWeights,
+                    stripe, unPremultiplied, hasAlpha));
+        }
+    }
+
+    private static void argbStripe(IntAccess src, IntAccess dst,
+                                   Weights xw, Weights yw, int stripe,
+                                   boolean unPremultiplied, boolean hasAlpha) {
+        int dstY1 = stripe * STRIPE_HEIGHT;
+        int dstY2 = Math.min(dst.height, dstY1 + STRIPE_HEIGHT);
+        int srcY1 = yw.start[dstY1];
+        int srcY2 = yw.start[dstY2 - 1] + yw.count[dstY2 - 1];
+        int dstWidth = dst.width;
+
+        // the horizontally filtered source rows, 4 channels per pixel
+        float[] tmp = new float[(srcY2 - srcY1) * dstWidth * 4];
+        float[] srcRow = new float[src.width * 4];
+
+        for (int sy = srcY1; sy < srcY2; sy++) {
+            // load and premultiply the source row
+            int srcOffset = src.offset + sy * src.scanline;
+            for (int x = 0, i = 0; x < src.width; x++, i += 4) {
+                int rgb = src.data[srcOffset + x];
+                float a = hasAlpha ? (rgb >>> 24) : 255.0f;
+                float r = (rgb >>> 16) & 0xFF;
+                float g = (rgb >>> 8) & 0xFF;
+                float b = rgb & 0xFF;
+                if (unPremultiplied && a < 255.0f) {
+                    float f = a / 255.0f;
+                    r *= f;
+                    g *= f;
+                    b *= f;
+                }
+                srcRow[i] = a;
+                srcRow[i + 1] = r;
+                srcRow[i + 2] = g;
+                srcRow[i + 3] = b;
+            }
+
+            int tmpOffset = (sy - srcY1) * dstWidth * 4;
+            for (int dx = 0; dx < dstWidth; dx++) {
+                int start = xw.start[dx];
+                int count = xw.count[dx];
+                int wOffset = dx * xw.maxCount;
+                float a = 0, r = 0, g = 0, b = 0;
+                for (int k = 0; k < count; k++) {
+                    float w = xw.weights[wOffset + k];
+                    int i = (start + k) * 4;
+                    a += w * srcRow[i];
+                    r += w * srcRow[i + 1];
+                    g += w * srcRow[i + 2];
+                    b += w * srcRow[i + 3];
+                }
+                int t = tmpOffset + dx * 4;
+                tmp[t] = a;
+                tmp[t + 1] = r;
+                tmp[t + 2] = g;
+                tmp[t + 3] = b;
+            }
+        }
+
+        int rowLength = dstWidth * 4;
+        for (int dy = dstY1; dy < dstY2; dy++) {
+            int start = yw.start[dy] - srcY1;
+            int count = yw.count[dy];
+            int wOffset = dy * yw.maxCount;
+            int dstOffset = dst.offset + dy * dst.scanline;
+            for (int dx = 0; dx < dstWidth; dx++) {
+                float a = 0, r = 0, g = 0, b = 0;
+                int t = start * rowLength + dx * 4;
+                for (int k = 0; k < count; k++, t += rowLength) {
+                    float w = yw.weights[wOffset + k];
+                    a += w * tmp[t];
+                    r += w * tmp[t + 1];
+                    g += w * tmp[t + 2];
+                    b += w * tmp[t + 3];
+                }
+                int ia = clamp(a);
+                int ir, ig, ib;
+                if (unPremultiplied) {
+                    if (ia == 0) {
+                        ir = ig = ib = 0;
+                    } else {
+                        float f = 255.0f / a;
+                        ir = clamp(r * f);
+                        ig = clamp(g * f);
+                        ib = clamp(b * f);
+                    }
+                } else {
+                    // premultiplied components can't exceed alpha
+                    ir = Math.min(ia, clamp(r));
+                    ig = Math.min(ia, clamp(g));
+                    ib = Math.min(ia, clamp(b));
+                }
+                dst.data[dstOffset + dx] = ia << 24 | ir << 16 | ig << 8 | ib;
+            }
+        }
+    }
+
+    private static void grayStripe(GrayAccess src, GrayAccess dst,
+                                   Weights xw, Weights yw, int stripe) {
+        int dstY1 = stripe * STRIPE_HEIGHT;
+        int dstY2 = Math.min(dst.height, dstY1 + STRIPE_HEIGHT);
+        int srcY1 = yw.start[dstY1];
+        int srcY2 = yw.start[dstY2 - 1] + yw.count[dstY2 - 1];
+        int dstWidth = dst.width;
+
+        float[] tmp = new float[(srcY2 - srcY1) * dstWidth];
+        for (int sy = srcY1; sy < srcY2; sy++) {
+            int srcOffset = src.offset + sy * src.scanline;
+            int tmpOffset = (sy - srcY1) * dstWidth;
+            for (int dx = 0; dx < dstWidth; dx++) {
+                int start = srcOffset + xw.start[dx];
+                int count = xw.count[dx];
+                int wOffset = dx * xw.maxCount;
+                float v = 0;
+                for (int k = 0; k < count; k++) {
+                    v += xw.weights[wOffset + k] * (src.data[start + k] & 0xFF);
+                }
+                tmp[tmpOffset + dx] = v;
+            }
+        }
+
+        for (int dy = dstY1; dy < dstY2; dy++) {
+            int start = yw.start[dy] - srcY1;
+            int count = yw.count[dy];
+            int wOffset = dy * yw.maxCount;
+            int dstOffset = dst.offset + dy * dst.scanline;
+            for (int dx = 0; dx < dstWidth; dx++) {
+                float v = 0;
+                int t = start * dstWidth + dx;
+                for (int k = 0; k < count; k++, t += dstWidth) {
+                    v += yw.weights[wOffset + k] * tmp[t];
+                }
+                dst.data[dstOffset + dx] = (byte) clamp(v);
+            }
+        }
+    }
+
+    private static int clamp(float v) {
+        int i = (int) (v + 0.5f);
+        if (i < 0) {
+            return 0;
+        }
+        return Math.min(i, 255);
+    }
+
+    /**
+     * The precomputed, normalized filter weights for one axis.
+     * For each destination coordinate, the contributing source
+     * pixels are start...start+count-1.
+     */
+    static class Weights {
+        final int[] start;
+        final int[] count;
+        final float[] weights;
+        final int maxCount;
+
+        Weights(int srcSize, int dstSize, Kernel kernel) {
+            double scale = dstSize / (double) srcSize;
+
+            // when downscaling, the kernel is stretched
+            // so that it also acts as a low-pass filter
+            double filterScale = scale < 1.0 ? 1.0 / scale : 1.0;
+            double support = kernel.support * filterScale;
+            maxCount = (int) Math.ceil(2 * support) + 2;
+
+            start = new int[dstSize];
+            count = new int[dstSize];
+            weights = new float[dstSize * maxCount];
+
+            for (int d = 0; d < dstSize; d++) {
+                double center = (d + 0.5) / scale;
+                int first = Math.max(0, (int) Math.floor(center - support));
+                int last = Math.min(srcSize - 1, (int) Math.ceil(center + support));
+                int n = Math.min(maxCount, last - first + 1);
+
+                double sum = 0;
+                int offset = d * maxCount;
+                for (int k = 0; k < n; k++) {
+                    double w = kernel.weight((first + k + 0.5 - center) / filterScale);
+                    weights[offset + k] = (float) w;
+                    sum += w;
+                }
+                if (sum != 0) {
+                    for (int k = 0; k < n; k++) {
+                        weights[offset + k] /= sum;
+                    }
+                } else {
+                    // can happen only for degenerate sizes
+                    weights[offset] = 1.0f;
+                    n = 1;
+                }
+                start[d] = first;
+                count[d] = n;
+            }
+        }
+    }
+
+    private static class IntAccess {
+        final int[] data;
+        final int offset;
+        final int scanline;
+        final int width;
+        final int height;
+
+        IntAccess(Raster raster) {
+            data = ((DataBufferInt) raster.getDataBuffer()).getData();
+            scanline = scanlineStride(raster);
+            offset = raster.getDataBuffer().getOffset()
+                - raster.getSampleModelTranslateY() * scanline
+                - raster.getSampleModelTranslateX();
+            width = raster.getWidth();
+            height = raster.getHeight();
+        }
+    }
+
+    private static class GrayAccess {
+        final byte[] data;
+        final int offset;
+        final int scanline;
+        final int width;
+        final int height;
+
+        GrayAccess(Raster raster) {
+            data = ((DataBufferByte) raster.getDataBuffer()).getData();
+            scanline = scanlineStride(raster);
+            offset = raster.getDataBuffer().getOffset()
+                - raster.getSampleModelTranslateY() * scanline
+                - raster.getSampleModelTranslateX();
+            width = raster.getWidth();
+            height = raster.getHeight();
+        }
+    }
+
+    private static int scanlineStride(Raster raster) {
+        SampleModel sm = raster.getSampleModel();
+        if (sm instanceof SinglePixelPackedSampleModel) {
+            return ((SinglePixelPackedSampleModel) sm).getScanlineStride();
+        }
+        return ((ComponentSampleModel) sm).getScanlineStride();
+    }
+}
@@ -37,6 +37,10 @@ import static java.awt.geom.PathIterator.*;
 public class Shapes {
     private static final Stroke BIG_STROKE = new BasicStroke(3);
     private static final Stroke SMALL_STROKE = new BasicStroke(1);
+
+    // the same strokes without the square caps, for the pieces of a path
+    private static final BasicStroke BIG_PIECE_STROKE = new BasicStroke(3, BasicStroke.CAP_BUTT, BasicStroke.JOIN_MITER);
+    private static final BasicStroke SMALL_PIECE_STROKE = new BasicStroke(1, BasicStroke.CAP_BUTT, BasicStroke.JOIN_MITER);
     public static final float UNIT_ARROW_HEAD_WIDTH = 0.7f;
 
     private Shapes() {
@@ -96,6 +100,48 @@ public class Shapes {
         g.draw(shape);
     }
 
+    /**
+     * Returns the black outer outline of {@link #drawVisible(Graphics2D, Shape)}
+     * for a piece of a path, so that it can be cached and filled later.
+     * The ends of the piece are not capped, because they can be continued
+     * by other pieces: the caps are created by {@link #createVisibleOuterCap}.
+     */
+    public static Shape createVisibleOuterOutline(Shape piece) {
+        return BIG_PIECE_STROKE.createStrokedShape(piece);
+    }
+
+    /**
+     * Returns the white inner outline of {@link #drawVisible(Graphics2D, Shape)}
+     * for a piece of a path, the counterpart of {@link #createVisibleOuterOutline}.
+     */
+    public static Shape createVisibleInnerOutline(Shape piece) {
+        return SMALL_PIECE_STROKE.createStrokedShape(piece);
+    }
+
+    /**
+     * Returns the black square cap of {@link #drawVisible(Graphics2D, Shape)}
+     * at the given end point of an open path, where (dirX, dirY)
+     * is the direction in which the path leaves the end point.
+     */
+    public static Shape createVisibleOuterCap(double x, double y, double dirX, double dirY) {
+        return createCap(BIG_PIECE_STROKE, x, y, dirX, dirY);
+    }
+
+    /**
+     * Returns the white square cap of {@link #drawVisible(Graphics2D, Shape)},
+     * the counterpart of {@link #createVisibleOuterCap}.
+     */
+    public static Shape createVisibleInnerCap(double x, double y, double dirX, double dirY) {
+        return createCap(SMALL_PIECE_STROKE, x, y, dirX, dirY);
+    }
+
+    private static Shape createCap(BasicStroke stroke, double x, double y, double dirX, double dirY) {
+        // a square cap extends the path by half the line width
+        double scale = stroke.getLineWidth() / 2.0 / Math.hypot(dirX, dirY);
+        return stroke.createStrokedShape(new Line2D.Double(
+            x, y, x + dirX * scale, y + dirY * scale));
+    }
+
     public static void fillVisible(Graphics2D g, Shape shape) {
         assert shape != null;
 
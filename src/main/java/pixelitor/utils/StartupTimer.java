@@ -0,0 +1,85 @@
+/*
+ * Copyright 2021 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.utils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.lang.String.format;
+
+/**
+ * Measures the duration of the startup phases.
+ * The timings are printed if the app is started
+ * with -Dpixelitor.startupTiming=true
+ */
+public final class StartupTimer {
+    private static final boolean ENABLED = Boolean.getBoolean("pixelitor.startupTiming");
+
+    private static long startNanos;
+    private static Instant startInstant;
+
+    private static long lastPhaseEnd;
+    private static final List<String> phases = new ArrayList<>();
+    private static boolean finished = false;
+
+    private StartupTimer() {
+        // should not be instantiated
+    }
+
+    /**
+     * Called at the beginning of the main method.
+     */
+    public static synchronized void start() {
+        startNanos = System.nanoTime();
+        startInstant = Instant.now();
+        lastPhaseEnd = startNanos;
+    }
+
+    /**
+     * Records the time since the end of the previous phase
+     * (or since the start of the main method).
+     */
+    public static synchronized void phaseEnded(String phaseName) {
+        if (!ENABLED || finished) {
+            return;
+        }
+        long now = System.nanoTime();
+        phases.add(format("%-28s %6.1f ms (total %6.1f ms)", phaseName,
+            (now - lastPhaseEnd) / 1.0e6, (now - startNanos) / 1.0e6));
+        lastPhaseEnd = now;
+    }
+
+    /**
+     * Records the last phase and prints the report.
+     */
+    public static synchronized void startupFinished(String lastPhaseName) {
+        if (!ENABLED || finished) {
+            return;
+        }
+        phaseEnded(lastPhaseName);
+        finished = true;
+
+        System.out.println("Startup timings:");
+        ProcessHandle.current().info().startInstant().ifPresent(jvmStart ->
+            System.out.printf("%-28s %6d ms%n", "JVM start to main",
+                Duration.between(jvmStart, startInstant).toMillis()));
+        phases.forEach(System.out::println);
+    }
+}
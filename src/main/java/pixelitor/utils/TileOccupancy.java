@@ -0,0 +1,207 @@
+/*
+ * Copyright 2021 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.utils;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.util.stream.IntStream;
+
+/**
+ * Records which square tiles of an image contain pixels that are not
+ * fully transparent. The empty tiles can be skipped when processing the
+ * image, and the content bounds can be found by examining only the
+ * tiles at the border of the content.
+ *
+ * Since fully transparent pixels can still have color values, there is
+ * also a stricter mode, where only the tiles with all-zero pixels are empty.
+ */
+public class TileOccupancy {
+    public static final int TILE_SIZE = 64;
+
+    private final int width;
+    private final int height;
+    private final int numTilesX;
+    private final int numTilesY;
+    private final boolean[] occupied;
+
+    // a pixel is empty if it has no bits in common with this mask
+    private final int contentMask;
+
+    // the packed ARGB pixels with their layout, or null
+    // if the alpha values must be read through the raster
+    private final int[] pixels;
+    private final int offset;
+    private final int stride;
+    private final WritableRaster alphaRaster;
+
+    /**
+     * Finds the tiles with pixels that are not fully transparent.
+     */
+    public TileOccupancy(BufferedImage image) {
+        this(image, 0xFF_00_00_00);
+    }
+
+    /**
+     * Finds the tiles with pixels that are not all zero, so that
+     * skipping the empty tiles doesn't lose any information.
+     */
+    public static TileOccupancy ofNonZeroPixels(BufferedImage image) {
+        return new TileOccupancy(image, 0xFF_FF_FF_FF);
+    }
+
+    private TileOccupancy(BufferedImage image, int contentMask) {
+        this.contentMask = contentMask;
+        width = image.getWidth();
+        height = image.getHeight();
+        numTilesX = (width + TILE_SIZE - 1) / TILE_SIZE;
+        numTilesY = (height + TILE_SIZE - 1) / TILE_SIZE;
+
+        WritableRaster raster = image.getRaster();
+        ColorModel cm = image.getColorModel();
+        if (cm instanceof DirectColorModel
+            && ((DirectColorModel) cm).getAlphaMask() == 0xFF_00_00_00
+            && raster.getDataBuffer() instanceof DataBufferInt
+            && raster.getSampleModel() instanceof SinglePixelPackedSampleModel) {
+            var sampleModel = (SinglePixelPackedSampleModel) raster.getSampleModel();
+            pixels = ((DataBufferInt) raster.getDataBuffer()).getData();
+            stride = sampleModel.getScanlineStride();
+            offset = raster.getDataBuffer().getOffset()
+                - raster.getSampleModelTranslateY() * stride
+                - raster.getSampleModelTranslateX();
+            alphaRaster = null;
+        } else {
+            pixels = null;
+            offset = 0;
+            stride = 0;
+            alphaRaster = image.getAlphaRaster();
+        }
+
+        occupied = new boolean[numTilesX * numTilesY];
+        IntStream.range(0, numTilesY).parallel().forEach(tileY -> {
+            int y1 = tileY * TILE_SIZE;
+            int y2 = Math.min(height, y1 + TILE_SIZE);
+            for (int tileX = 0; tileX < numTilesX; tileX++) {
+                int x1 = tileX * TILE_SIZE;
+                int x2 = Math.min(width, x1 + TILE_SIZE);
+                occupied[tileX + tileY * numTilesX] = hasContent(x1, y1, x2, y2);
+            }
+        });
+    }
+
+    /**
+     * Returns true if the given area (with exclusive end
+     * coordinates) has a pixel that is not fully transparent.
+     */
+    private boolean hasContent(int x1, int y1, int x2, int y2) {
+        if (pixels != null) {
+            for (int y = y1; y < y2; y++) {
+                int rowStart = offset + y * stride;
+                for (int i = rowStart + x1, end = rowStart + x2; i < end; i++) {
+                    if ((pixels[i] & contentMask) != 0) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+        if (alphaRaster == null || contentMask != 0xFF_00_00_00) {
+            // without alpha every pixel is opaque, and the color
+            // values are not checked through the raster
+            return x1 < x2 && y1 < y2;
+        }
+        for (int y = y1; y < y2; y++) {
+            for (int x = x1; x < x2; x++) {
+                if (alphaRaster.getSample(x, y, 0) != 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    public int getNumTilesX() {
+        return numTilesX;
+    }
+
+    public int getNumTilesY() {
+        return numTilesY;
+    }
+
+    public boolean isOccupied(int tileX, int tileY) {
+        return occupied[tileX + tileY * numTilesX];
+    }
+
+    public boolean isEmpty() {
+        for (boolean tile : occupied) {
+            if (tile) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the bounds of the non-empty pixels,
+     * or null if there are no such pixels.
+     */
+    public Rectangle getContentBounds() {
+        int minTileX = numTilesX;
+        int maxTileX = -1;
+        int minTileY = numTilesY;
+        int maxTileY = -1;
+        for (int tileY = 0; tileY < numTilesY; tileY++) {
+            for (int tileX = 0; tileX < numTilesX; tileX++) {
+                if (occupied[tileX + tileY * numTilesX]) {
+                    minTileX = Math.min(minTileX, tileX);
+                    maxTileX = Math.max(maxTileX, tileX);
+                    minTileY = Math.min(minTileY, tileY);
+                    maxTileY = tileY;
+                }
+            }
+        }
+        if (maxTileX == -1) {
+            return null;
+        }
+
+        // refine the bounds within the border tiles
+        int x1 = minTileX * TILE_SIZE;
+        int x2 = Math.min(width, (maxTileX + 1) * TILE_SIZE);
+        int top = minTileY * TILE_SIZE;
+        while (!hasContent(x1, top, x2, top + 1)) {
+            top++;
+        }
+        int bottom = Math.min(height, (maxTileY + 1) * TILE_SIZE) - 1;
+        while (!hasContent(x1, bottom, x2, bottom + 1)) {
+            bottom--;
+        }
+        int left = x1;
+        while (!hasContent(left, top, left + 1, bottom + 1)) {
+            left++;
+        }
+        int right = x2 - 1;
+        while (!hasContent(right, top, right + 1, bottom + 1)) {
+            right--;
+        }
+        return new Rectangle(left, top, right - left + 1, bottom - top + 1);
+    }
+}
@@ -19,6 +19,7 @@ package pixelitor.utils;
 
 import javax.imageio.ImageWriter;
 import javax.imageio.event.IIOWriteProgressListener;
+import java.util.function.BooleanSupplier;
 
 /**
  * Tracks the writing of a large file
@@ -26,10 +27,19 @@ import javax.imageio.event.IIOWriteProgressListener;
  */
 public class TrackerWriteProgressListener implements IIOWriteProgressListener {
     private final ProgressTracker tracker;
+    private final BooleanSupplier cancelled;
     private int workDone = 0;
 
     public TrackerWriteProgressListener(ProgressTracker tracker) {
+        this(tracker, () -> false);
+    }
+
+    /**
+     * The writing is aborted when the given condition becomes true.
+     */
+    public TrackerWriteProgressListener(ProgressTracker tracker, BooleanSupplier cancelled) {
         this.tracker = tracker;
+        this.cancelled = cancelled;
     }
 
     @Override
@@ -39,6 +49,10 @@ public class TrackerWriteProgressListener implements IIOWriteProgressListener {
 
     @Override
     public void imageProgress(ImageWriter source, float percentageDone) {
+        if (cancelled.getAsBoolean()) {
+            source.abort();
+            return;
+        }
         int progress = (int) percentageDone;
         if (progress > workDone) {
             tracker.unitsDone(progress - workDone);
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2021 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.utils;
+
+import pixelitor.ThreadPool;
+
+import java.util.concurrent.Future;
+
+/**
+ * The sites of a Voronoi diagram, with a spatial index for
+ * finding the exact nearest site of any point.
+ *
+ * The sites are sorted into a uniform grid with about two sites
+ * per cell, and the cells are searched in growing rings around
+ * the point until no unsearched site can be closer, therefore the
+ * lookup cost doesn't depend on the number of sites.
+ */
+public class VoronoiDiagram {
+    // the expected number of sites in a grid cell
+    private static final double SITES_PER_CELL = 2.0;
+
+    private final Metric metric;
+    private final int numSites;
+
+    private final double cellSize;
+    private final int numCols;
+    private final int numRows;
+
+    // the sites of the cell i are at the positions
+    // from cellStart[i] (inclusive) to cellStart[i + 1]
+    private final int[] cellStart;
+    private final double[] sortedX;
+    private final double[] sortedY;
+    private final int[] sortedIndex;
+
+    /**
+     * Creates the diagram of the given sites, which are expected
+     * to be within the area of the given width and height.
+     */
+    public VoronoiDiagram(double[] xs, double[] ys, int width, int height, Metric metric) {
+        assert xs.length == ys.length;
+        assert xs.length > 0;
+
+        this.metric = metric;
+        numSites = xs.length;
+
+        cellSize = Math.max(1.0, Math.sqrt(SITES_PER_CELL * width * height / numSites));
+        numCols = Math.max(1, (int) Math.ceil(width / cellSize));
+        numRows = Math.max(1, (int) Math.ceil(height / cellSize));
+
+        // a counting sort of the sites by their cells
+        int[] siteCells = new int[numSites];
+        cellStart = new int[numCols * numRows + 1];
+        for (int i = 0; i < numSites; i++) {
+            int cell = cellOf(xs[i], ys[i]);
+            siteCells[i] = cell;
+            cellStart[cell + 1]++;
+        }
+        for (int i = 0; i < cellStart.length - 1; i++) {
+            cellStart[i + 1] += cellStart[i];
+        }
+
+        sortedX = new double[numSites];
+        sortedY = new double[numSites];
+        sortedIndex = new int[numSites];
+        int[] nextPos = new int[cellStart.length - 1];
+        System.arraycopy(cellStart, 0, nextPos, 0, nextPos.length);
+        for (int i = 0; i < numSites; i++) {
+            int pos = nextPos[siteCells[i]]++;
+            sortedX[pos] = xs[i];
+            sortedY[pos] = ys[i];
+            sortedIndex[pos] = i;
+        }
+    }
+
+    private int cellOf(double x, double y) {
+        int col = Math.max(0, Math.min(numCols - 1, (int) Math.floor(x / cellSize)));
+        int row = Math.max(0, Math.min(numRows - 1, (int) Math.floor(y / cellSize)));
+        return col + row * numCols;
+    }
+
+    public int getNumSites() {
+        return numSites;
+    }
+
+    /**
+     * Returns the index of the site that is the
+     * closest to the given point according to the metric.
+     */
+    public int findNearest(double x, double y) {
+        int col = Math.max(0, Math.min(numCols - 1, (int) Math.floor(x / cellSize)));
+        int row = Math.max(0, Math.min(numRows - 1, (int) Math.floor(y / cellSize)));
+
+        double minDist = Double.POSITIVE_INFINITY;
+        int nearest = -1;
+        for (int ring = 0; ; ring++) {
+            int minCol = col - ring;
+            int maxCol = col + ring;
+            int minRow = row - ring;
+            int maxRow = row + ring;
+            if (minCol < 0 && minRow < 0 && maxCol >= numCols && maxRow >= numRows) {
+                break; // all cells were searched
+            }
+
+            if (nearest != -1) {
+                // the unsearched sites are all outside the already searched block,
+                // at least "gap" away along one of the axes
+                double gap = Double.POSITIVE_INFINITY;
+                if (minCol >= 0) {
+                    gap = Math.min(gap, x - (minCol + 1) * cellSize);
+                }
+                if (maxCol < numCols) {
+                    gap = Math.min(gap, maxCol * cellSize - x);
+                }
+                if (minRow >= 0) {
+                    gap = Math.min(gap, y - (minRow + 1) * cellSize);
+                }
+                if (maxRow < numRows) {
+                    gap = Math.min(gap, maxRow * cellSize - y);
+                }
+                if (gap > 0 && metric.distanceDouble(0, gap, 0, 0) > minDist) {
+                    break;
+                }
+            }
+
+            for (int r = Math.max(0, minRow); r <= Math.min(numRows - 1, maxRow); r++) {
+                // the inner rows of the ring have only two cells
+                boolean fullRow = r == minRow || r == maxRow;
+                int step = fullRow ? 1 : 2 * ring;
+                for (int c = minCol; c <= maxCol; c += step) {
+                    if (c < 0 || c >= numCols) {
+                        continue;
+                    }
+                    int cell = c + r * numCols;
+                    for (int i = cellStart[cell], end = cellStart[cell + 1]; i < end; i++) {
+                        double dist = metric.distanceDouble(x, sortedX[i], y, sortedY[i]);
+                        if (dist < minDist) {
+                            minDist = dist;
+                            nearest = sortedIndex[i];
+                        }
+                    }
+                }
+            }
+        }
+        return nearest;
+    }
+
+    /**
+     * Returns the index of the nearest site for the center of each pixel,
+     * calculating the rows in parallel.
+     */
+    public int[] findNearestForPixels(int width, int height, ProgressTracker pt) {
+        int[] nearest = new int[width * height];
+        Future<?>[] futures = new Future[height];
+        for (int y = 0; y < height; y++) {
+            int finalY = y;
+            futures[y] = ThreadPool.submit(() -> {
+                int offset = finalY * width;
+                for (int x = 0; x < width; x++) {
+                    nearest[offset + x] = findNearest(x, finalY);
+                }
+            });
+        }
+        ThreadPool.waitFor(futures, pt);
+        return nearest;
+    }
+
+    /**
+     * Returns true if the given pixel has a 4-connected neighbor
+     * with a different nearest site in the given pixel map.
+     */
+    public static boolean isEdge(int[] nearest, int width, int height, int x, int y) {
+        int i = x + y * width;
+        int site = nearest[i];
+        return (x > 0 && nearest[i - 1] != site)
+            || (x < width - 1 && nearest[i + 1] != site)
+            || (y > 0 && nearest[i - width] != site)
+            || (y < height - 1 && nearest[i + width] != site);
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2021 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.utils.perf;
+
+import jdk.jfr.FlightRecorder;
+import pixelitor.ThreadPool;
+import pixelitor.history.History;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Values that are sampled when they are displayed or exported,
+ * instead of being collected continuously like the {@link Probe}s.
+ */
+public final class Gauges {
+    private Gauges() {
+        // should not be instantiated
+    }
+
+    /**
+     * Registers the periodic flight recorder event, if the
+     * app was started with a flight recording.
+     */
+    public static void registerJFREvent() {
+        if (FlightRecorder.isInitialized()) {
+            GaugesEvent.register();
+        }
+    }
+
+    public static long getUndoImageMemory() {
+        return History.getImageMemoryUsage();
+    }
+
+    public static int getThreadPoolQueueSize() {
+        return ThreadPool.getQueueSize();
+    }
+
+    public static long getUsedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    public static long getGCCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    public static long getGCTimeMillis() {
+        long time = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += Math.max(0, gc.getCollectionTime());
+        }
+        return time;
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2021 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.utils.perf;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+
+/**
+ * A periodic Java Flight Recorder event with
+ * the current values of the {@link Gauges}.
+ */
+@Name("pixelitor.Gauges")
+@Label("Pixelitor Gauges")
+@Category("Pixelitor")
+@Period("1 s")
+@StackTrace(false)
+class GaugesEvent extends Event {
+    @Label("Undo Image Memory")
+    @DataAmount
+    long undoMemory;
+
+    @Label("Thread Pool Queue Size")
+    int queueSize;
+
+    @Label("Brush Dabs")
+    long brushDabs;
+
+    private static boolean registered = false;
+
+    static synchronized void register() {
+        if (!registered) {
+            FlightRecorder.addPeriodicEvent(GaugesEvent.class, () -> {
+                var event = new GaugesEvent();
+                event.undoMemory = Gauges.getUndoImageMemory();
+                event.queueSize = Gauges.getThreadPoolQueueSize();
+                event.brushDabs = Probe.BRUSH_DABS.getCount();
+                event.commit();
+            });
+            registered = true;
+        }
+    }
+}
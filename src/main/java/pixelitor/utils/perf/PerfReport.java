@@ -0,0 +1,92 @@
+/*
+ * Copyright 2021 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.utils.perf;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static java.lang.String.format;
+import static pixelitor.utils.MemoryInfo.ONE_MEGABYTE;
+
+/**
+ * Formats the collected performance data.
+ */
+public final class PerfReport {
+    private PerfReport() {
+        // should not be instantiated
+    }
+
+    /**
+     * Returns short, human-readable lines for the performance overlay.
+     */
+    public static List<String> getSummaryLines() {
+        List<String> lines = new ArrayList<>();
+        for (Probe probe : Probe.values()) {
+            long count = probe.getCount();
+            if (count == 0) {
+                continue;
+            }
+            if (!probe.isTimed()) {
+                lines.add(format("%s: %d", probe.getDisplayName(), count));
+            } else if (probe.getBytes() > 0) {
+                lines.add(format("%s: %d, mean %.1f ms, %.1f MB/s",
+                    probe.getDisplayName(), count,
+                    probe.getMeanMillis(), probe.getThroughputMBps()));
+            } else {
+                lines.add(format("%s: %d, mean %.1f ms, p95 %.1f ms, max %.1f ms",
+                    probe.getDisplayName(), count, probe.getMeanMillis(),
+                    probe.getPercentileMillis(95), probe.getMaxMillis()));
+            }
+        }
+        lines.add(format("Undo image memory: %d MB", Gauges.getUndoImageMemory() / ONE_MEGABYTE));
+        lines.add(format("Thread pool queue: %d", Gauges.getThreadPoolQueueSize()));
+        lines.add(format("Heap: %d MB, GC: %d (%d ms)",
+            Gauges.getUsedHeap() / ONE_MEGABYTE, Gauges.getGCCount(), Gauges.getGCTimeMillis()));
+        return lines;
+    }
+
+    /**
+     * Exports the collected data as comma-separated values.
+     */
+    public static void exportCSV(File file) throws IOException {
+        try (var out = new PrintWriter(file, StandardCharsets.UTF_8)) {
+            out.println("probe,count,total ms,mean ms,p50 ms,p95 ms,p99 ms,max ms,bytes,MB/s");
+            for (Probe probe : Probe.values()) {
+                // the US locale ensures the decimal points
+                out.println(format(Locale.US, "%s,%d,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f,%d,%.2f",
+                    probe.getDisplayName(), probe.getCount(),
+                    probe.getTotalMillis(), probe.getMeanMillis(),
+                    probe.getPercentileMillis(50), probe.getPercentileMillis(95),
+                    probe.getPercentileMillis(99), probe.getMaxMillis(),
+                    probe.getBytes(), probe.getThroughputMBps()));
+            }
+            out.println();
+            out.println("gauge,value");
+            out.println("undo image memory bytes," + Gauges.getUndoImageMemory());
+            out.println("thread pool queue size," + Gauges.getThreadPoolQueueSize());
+            out.println("used heap bytes," + Gauges.getUsedHeap());
+            out.println("gc count," + Gauges.getGCCount());
+            out.println("gc time ms," + Gauges.getGCTimeMillis());
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2021 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.utils.perf;
+
+import pixelitor.gui.PixelitorWindow;
+
+import javax.swing.*;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.util.List;
+
+import static pixelitor.utils.Threads.calledOnEDT;
+import static pixelitor.utils.Threads.threadInfo;
+
+/**
+ * Shows the collected performance data in the lower right
+ * corner of the main window, and updates it periodically.
+ * It doesn't handle mouse events, so it doesn't block the components below.
+ */
+public class PerformanceOverlay extends JComponent {
+    private static final int UPDATE_MILLIS = 500;
+    private static final int MARGIN = 6;
+    private static final Color BG_COLOR = new Color(0, 0, 0, 160);
+
+    private static PerformanceOverlay instance;
+
+    private final Timer timer = new Timer(UPDATE_MILLIS, e -> update());
+    private List<String> lines = List.of();
+
+    private PerformanceOverlay() {
+        setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+    }
+
+    public static void setShown(boolean show) {
+        assert calledOnEDT() : threadInfo();
+
+        if (show) {
+            if (instance == null) {
+                instance = new PerformanceOverlay();
+                PixelitorWindow.get().getLayeredPane()
+                    .add(instance, JLayeredPane.PALETTE_LAYER);
+            }
+            instance.setVisible(true);
+            instance.update();
+            instance.timer.start();
+        } else if (instance != null) {
+            instance.timer.stop();
+            instance.setVisible(false);
+        }
+    }
+
+    private void update() {
+        lines = PerfReport.getSummaryLines();
+
+        FontMetrics metrics = getFontMetrics(getFont());
+        int width = 0;
+        for (String line : lines) {
+            width = Math.max(width, metrics.stringWidth(line));
+        }
+        width += 2 * MARGIN;
+        int height = lines.size() * metrics.getHeight() + 2 * MARGIN;
+
+        // above the status bar in the lower right corner
+        JComponent parent = (JComponent) getParent();
+        setBounds(parent.getWidth() - width - 20,
+            parent.getHeight() - height - 40, width, height);
+        repaint();
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        g.setColor(BG_COLOR);
+        g.fillRect(0, 0, getWidth(), getHeight());
+
+        g.setColor(Color.WHITE);
+        FontMetrics metrics = g.getFontMetrics();
+        int y = MARGIN + metrics.getAscent();
+        for (String line : lines) {
+            g.drawString(line, MARGIN, y);
+            y += metrics.getHeight();
+        }
+    }
+}
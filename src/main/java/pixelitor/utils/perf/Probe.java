@@ -0,0 +1,179 @@
+/*
+ * Copyright 2021 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.utils.perf;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An instrumented place in the code, which collects the
+ * number of calls, the durations and optionally the processed bytes.
+ * The recording is cheap enough to be always enabled.
+ *
+ * Typical usage:
+ * <pre>
+ * long start = System.nanoTime();
+ * ...
+ * Probe.VIEW_PAINT.recordSince(start);
+ * </pre>
+ */
+public enum Probe {
+    FILTER_SOURCE("Filter: source image"),
+    FILTER_TRANSFORM("Filter: transform"),
+    FILTER_APPLY("Filter: apply result"),
+    COMPOSITE_IMAGE("Composite image"),
+    VIEW_PAINT("View paint"),
+    BRUSH_DABS("Brush dabs", false),
+    PXC_READ("PXC read"),
+    PXC_WRITE("PXC write"),
+    ORA_READ("ORA read"),
+    ORA_WRITE("ORA write");
+
+    // the durations are counted in buckets of powers of two nanoseconds
+    private static final int NUM_BUCKETS = 40;
+
+    private final String displayName;
+    private final boolean timed;
+
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder bytes = new LongAdder();
+    private final AtomicLongArray histogram = new AtomicLongArray(NUM_BUCKETS);
+
+    Probe(String displayName) {
+        this(displayName, true);
+    }
+
+    Probe(String displayName, boolean timed) {
+        this.displayName = displayName;
+        this.timed = timed;
+    }
+
+    /**
+     * Records a call that started at the given System.nanoTime() value.
+     */
+    public void recordSince(long startNanos) {
+        recordSince(startNanos, 0);
+    }
+
+    /**
+     * Records a call that started at the given System.nanoTime()
+     * value and processed the given number of bytes.
+     */
+    public void recordSince(long startNanos, long numBytes) {
+        long nanos = System.nanoTime() - startNanos;
+
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+        if (numBytes > 0) {
+            bytes.add(numBytes);
+        }
+        int bucket = Math.min(NUM_BUCKETS - 1, 63 - Long.numberOfLeadingZeros(Math.max(1, nanos)));
+        histogram.incrementAndGet(bucket);
+
+        ProbeEvent.commitIfEnabled(this, nanos, numBytes);
+    }
+
+    /**
+     * Records an event without a duration, such as a brush dab.
+     */
+    public void increment() {
+        count.increment();
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public boolean isTimed() {
+        return timed;
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public double getTotalMillis() {
+        return totalNanos.sum() / 1.0e6;
+    }
+
+    public double getMeanMillis() {
+        long n = count.sum();
+        return n == 0 ? 0 : totalNanos.sum() / 1.0e6 / n;
+    }
+
+    public double getMaxMillis() {
+        return maxNanos.get() / 1.0e6;
+    }
+
+    public long getBytes() {
+        return bytes.sum();
+    }
+
+    /**
+     * Returns the bytes processed per second of measured time, in megabytes.
+     */
+    public double getThroughputMBps() {
+        long nanos = totalNanos.sum();
+        return nanos == 0 ? 0 : bytes.sum() * 1.0e9 / nanos / (1024 * 1024);
+    }
+
+    /**
+     * Returns an upper estimate of the given percentile of the durations.
+     */
+    public double getPercentileMillis(double percentile) {
+        long total = 0;
+        long[] counts = new long[NUM_BUCKETS];
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            counts[i] = histogram.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long threshold = (long) Math.ceil(total * percentile / 100.0);
+        long soFar = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            soFar += counts[i];
+            if (soFar >= threshold) {
+                // the upper bound of the bucket, but not more than the max
+                return Math.min((1L << (i + 1)) / 1.0e6, getMaxMillis());
+            }
+        }
+        return getMaxMillis();
+    }
+
+    public void reset() {
+        count.reset();
+        totalNanos.reset();
+        maxNanos.reset();
+        bytes.reset();
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            histogram.set(i, 0);
+        }
+    }
+
+    public static void resetAll() {
+        for (Probe probe : values()) {
+            probe.reset();
+        }
+    }
+}
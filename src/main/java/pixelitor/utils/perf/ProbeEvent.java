@@ -0,0 +1,58 @@
+/*
+ * Copyright 2021 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.utils.perf;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A Java Flight Recorder event for a timed {@link Probe}.
+ * It is recorded only if the app runs with a flight recording,
+ * for example with -XX:StartFlightRecording=filename=pixelitor.jfr
+ */
+@Name("pixelitor.Probe")
+@Label("Pixelitor Probe")
+@Category("Pixelitor")
+@StackTrace(false)
+class ProbeEvent extends Event {
+    @Label("Probe")
+    String probe;
+
+    @Label("Duration")
+    @Timespan(Timespan.NANOSECONDS)
+    long nanos;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    static void commitIfEnabled(Probe probe, long nanos, long bytes) {
+        var event = new ProbeEvent();
+        if (event.isEnabled()) {
+            event.probe = probe.getDisplayName();
+            event.nanos = nanos;
+            event.bytes = bytes;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2021 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jhlabs.math;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+@DisplayName("PerlinNoise tests")
+class PerlinNoiseTest {
+    private static final int LENGTH = 500;
+
+    @Test
+    void sameSeedGivesSameNoise() {
+        var a = new PerlinNoise(42);
+        var b = new PerlinNoise(42);
+        var c = new PerlinNoise(43);
+
+        boolean differs = false;
+        for (float x = -20; x < 20; x += 0.37f) {
+            float y = x * 0.7f + 3;
+            assertThat(a.noise1(x)).isEqualTo(b.noise1(x));
+            assertThat(a.noise2(x, y)).isEqualTo(b.noise2(x, y));
+            assertThat(a.noise3(x, y, 0.5f)).isEqualTo(b.noise3(x, y, 0.5f));
+            if (a.noise2(x, y) != c.noise2(x, y)) {
+                differs = true;
+            }
+        }
+        assertThat(differs).isTrue();
+    }
+
+    @ParameterizedTest
+    @ValueSource(floats = {1.0f, 3.0f, 16.0f})
+    void horizontalLineMatchesPoints(float octaves) {
+        var noise = new PerlinNoise(7);
+        float x0 = -3.3f;
+        float y = 12.71f;
+        float dx = 0.013f;
+
+        float[] turbulence = new float[LENGTH];
+        float[] smooth = new float[LENGTH];
+        noise.turbulence2Line(x0, y, dx, 0, octaves, true, turbulence, LENGTH);
+        noise.turbulence2Line(x0, y, dx, 0, octaves, false, smooth, LENGTH);
+
+        for (int i = 0; i < LENGTH; i++) {
+            float x = x0 + i * dx;
+            assertThat(turbulence[i]).isEqualTo(noise.turbulence2(x, y, octaves));
+            assertThat(smooth[i]).isEqualTo(noise.turbulence2B(x, y, octaves));
+        }
+    }
+
+    @Test
+    void diagonalLineMatchesPoints() {
+        var noise = new PerlinNoise(7);
+        float[] out = new float[LENGTH];
+        noise.noise2Line(1.5f, -2.5f, 0.05f, 0.03f, out, LENGTH);
+
+        for (int i = 0; i < LENGTH; i++) {
+            float expected = noise.noise2(1.5f + i * 0.05f, -2.5f + i * 0.03f);
+            assertThat(out[i]).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void diagonalTurbulenceMatchesPoints() {
+        var noise = new PerlinNoise(7);
+        float[] out = new float[LENGTH];
+        noise.turbulence2Line(-4.2f, 0.5f, 0.02f, -0.07f, 8.0f, true, out, LENGTH);
+
+        for (int i = 0; i < LENGTH; i++) {
+            float expected = noise.turbulence2(-4.2f + i * 0.02f, 0.5f + i * -0.07f, 8.0f);
+            assertThat(out[i]).isCloseTo(expected, within(1.0e-6f));
+        }
+    }
+
+    @Test
+    void line3DMatchesPoints() {
+        var noise = new PerlinNoise(11);
+        float[] out = new float[LENGTH];
+        noise.noise3Line(0.7f, -1.3f, 2.0f, 0.031f, 0.017f, -0.011f, out, LENGTH);
+
+        for (int i = 0; i < LENGTH; i++) {
+            float expected = noise.noise3(0.7f + i * 0.031f, -1.3f + i * 0.017f, 2.0f + i * -0.011f);
+            assertThat(out[i]).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void jitteredPointsMatchPoints() {
+        var noise = new PerlinNoise(11);
+        var random = new Random(3);
+        float[] xs = new float[LENGTH];
+        float[] ys = new float[LENGTH];
+        float[] zs = new float[LENGTH];
+        for (int i = 0; i < LENGTH; i++) {
+            xs[i] = (i + random.nextFloat()) / 32.0f;
+            ys[i] = (5 + random.nextFloat()) / 32.0f;
+            zs[i] = xs[i] - 0.3f;
+        }
+
+        float[] out = new float[LENGTH];
+        noise.noise3(xs, ys, zs, out, LENGTH);
+        for (int i = 0; i < LENGTH; i++) {
+            assertThat(out[i]).isEqualTo(noise.noise3(xs[i], ys[i], zs[i]));
+        }
+    }
+
+    @Test
+    void staticApiUsesTheSeed() {
+        Noise.reseed(1234);
+        PerlinNoise instance = Noise.getInstance();
+        assertThat(instance.getSeed()).isEqualTo(1234);
+        assertThat(Noise.noise2(0.3f, 0.6f))
+            .isEqualTo(new PerlinNoise(1234).noise2(0.3f, 0.6f));
+
+        Noise.reseed();
+        // the old instance is not modified by reseeding
+        assertThat(instance.noise2(0.3f, 0.6f))
+            .isEqualTo(new PerlinNoise(1234).noise2(0.3f, 0.6f));
+    }
+}
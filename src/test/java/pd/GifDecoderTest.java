@@ -0,0 +1,171 @@
+/*
+ * Copyright 2021 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pd;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+import static java.awt.image.BufferedImage.TYPE_BYTE_INDEXED;
+import static java.awt.image.BufferedImage.TYPE_INT_RGB;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("GifDecoder tests")
+class GifDecoderTest {
+    @Test
+    void matchesImageIOForTestFile() throws IOException {
+        File file = new File("src/test/resources/gif_test_input.gif");
+        BufferedImage expected = ImageIO.read(file);
+
+        GifDecoder.GifImage gif = GifDecoder.read(Files.readAllBytes(file.toPath()));
+
+        assertSameOpaquePixels(gif.getFrame(0), expected);
+    }
+
+    @Test
+    void matchesImageIOForInterlacedNoise() throws IOException {
+        // large enough to be drawn in parallel, with many LZW table resets
+        var src = new BufferedImage(357, 311, TYPE_BYTE_INDEXED);
+        Random random = new Random(11);
+        for (int y = 0; y < src.getHeight(); y++) {
+            for (int x = 0; x < src.getWidth(); x++) {
+                int sample = random.nextInt(4) == 0 ? random.nextInt(256) : (x / 16 + y / 8) % 256;
+                src.getRaster().setSample(x, y, 0, sample);
+            }
+        }
+        var out = new ByteArrayOutputStream();
+        ImageIO.write(src, "gif", out);
+        byte[] data = out.toByteArray();
+
+        BufferedImage expected = ImageIO.read(new ByteArrayInputStream(data));
+        GifDecoder.GifImage gif = GifDecoder.read(data);
+
+        assertSameOpaquePixels(gif.getFrame(0), expected);
+    }
+
+    @Test
+    void randomAccessMatchesSequentialAccess() throws IOException {
+        File file = File.createTempFile("anim", ".gif");
+        file.deleteOnExit();
+        var encoder = new AnimatedGifEncoder();
+        encoder.start(file);
+        encoder.setDelay(100);
+        encoder.setTransparent(Color.BLACK);
+        for (int i = 0; i < 5; i++) {
+            encoder.setDispose(i % 3 + 1);
+            var frame = new BufferedImage(60, 40, TYPE_INT_RGB);
+            Graphics2D g = frame.createGraphics();
+            g.setColor(new Color(50 * i, 255 - 40 * i, 120));
+            g.fillRect(i * 8, i * 5, 20, 15);
+            g.dispose();
+            encoder.addFrame(frame);
+        }
+        encoder.finish();
+
+        byte[] data = Files.readAllBytes(file.toPath());
+        GifDecoder.GifImage sequential = GifDecoder.read(data);
+        BufferedImage[] frames = new BufferedImage[sequential.getFrameCount()];
+        for (int i = 0; i < frames.length; i++) {
+            frames[i] = sequential.getFrame(i);
+        }
+        assertThat(frames.length).isEqualTo(5);
+
+        GifDecoder.GifImage randomAccess = GifDecoder.read(data);
+        for (int i : new int[]{3, 1, 4, 4, 0, 2}) {
+            BufferedImage frame = randomAccess.getFrame(i);
+            for (int y = 0; y < frame.getHeight(); y++) {
+                for (int x = 0; x < frame.getWidth(); x++) {
+                    assertThat(frame.getRGB(x, y)).isEqualTo(frames[i].getRGB(x, y));
+                }
+            }
+        }
+    }
+
+    @Test
+    void truncatedFrameKeepsThePreviousPixels() throws IOException {
+        BufferedImage first = createNoiseFrame(1);
+        BufferedImage second = createNoiseFrame(2);
+        byte[] firstOnly = encodeAnimation(first);
+        byte[] both = encodeAnimation(first, second);
+
+        // cut the file in the middle of the data of the second frame
+        int length = firstOnly.length + (both.length - firstOnly.length) / 2;
+        GifDecoder.GifImage gif = GifDecoder.read(Arrays.copyOf(both, length));
+        BufferedImage firstDecoded = gif.getFrame(0);
+        BufferedImage secondDecoded = gif.getFrame(1);
+
+        // the last row can't be decoded, and the first frame
+        // is not disposed, so it should be still visible there
+        int lastRow = second.getHeight() - 1;
+        for (int x = 0; x < second.getWidth(); x++) {
+            assertThat(secondDecoded.getRGB(x, lastRow))
+                .as("x = %d", x)
+                .isEqualTo(firstDecoded.getRGB(x, lastRow));
+        }
+    }
+
+    private static BufferedImage createNoiseFrame(int seed) {
+        var frame = new BufferedImage(64, 48, TYPE_INT_RGB);
+        Random random = new Random(seed);
+        for (int y = 0; y < frame.getHeight(); y++) {
+            for (int x = 0; x < frame.getWidth(); x++) {
+                frame.setRGB(x, y, random.nextInt(0x1000000));
+            }
+        }
+        return frame;
+    }
+
+    private static byte[] encodeAnimation(BufferedImage... frames) throws IOException {
+        File file = File.createTempFile("anim", ".gif");
+        file.deleteOnExit();
+        var encoder = new AnimatedGifEncoder();
+        encoder.start(file);
+        encoder.setDispose(1); // no disposal
+        for (BufferedImage frame : frames) {
+            encoder.addFrame(frame);
+        }
+        encoder.finish();
+        return Files.readAllBytes(file.toPath());
+    }
+
+    private static void assertSameOpaquePixels(BufferedImage actual, BufferedImage expected) {
+        assertThat(actual.getWidth()).isEqualTo(expected.getWidth());
+        assertThat(actual.getHeight()).isEqualTo(expected.getHeight());
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                int rgb = expected.getRGB(x, y);
+                if (rgb >>> 24 == 0) {
+                    assertThat(actual.getRGB(x, y) >>> 24).isEqualTo(0);
+                } else {
+                    assertThat(actual.getRGB(x, y)).isEqualTo(rgb);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2021 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.colors;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static pixelitor.colors.ColorSpaces.HUE_RANGE;
+import static pixelitor.colors.ColorSpaces.MAX_BRIGHTNESS;
+import static pixelitor.colors.ColorSpaces.ONE;
+
+@DisplayName("ColorSpaces tests")
+class ColorSpacesTest {
+    @Test
+    void hsbRoundTrip() {
+        int[] hsb = new int[3];
+        Random random = new Random(3);
+        for (int i = 0; i < 100_000; i++) {
+            int rgb = 0xFF_00_00_00 | random.nextInt();
+            ColorSpaces.rgbToHsb(rgb, hsb);
+
+            assertThat(ColorSpaces.hsbToRgb(hsb[0], hsb[1], hsb[2])).isEqualTo(rgb);
+            assertThat(ColorSpaces.hue(rgb)).isEqualTo(hsb[0]);
+            assertThat(ColorSpaces.saturation(rgb)).isEqualTo(hsb[1]);
+            assertThat(ColorSpaces.brightness(rgb)).isEqualTo(hsb[2]);
+        }
+    }
+
+    @Test
+    void closeToAWT() {
+        int[] hsb = new int[3];
+        float[] awtHSB = new float[3];
+        Random random = new Random(7);
+        for (int i = 0; i < 100_000; i++) {
+            int r = random.nextInt(256);
+            int g = random.nextInt(256);
+            int b = random.nextInt(256);
+            ColorSpaces.rgbToHsb(r << 16 | g << 8 | b, hsb);
+            Color.RGBtoHSB(r, g, b, awtHSB);
+
+            assertThat(hsb[0] / (float) HUE_RANGE).isCloseTo(awtHSB[0], within(0.001f));
+            assertThat(hsb[1] / (float) ONE).isCloseTo(awtHSB[1], within(0.001f));
+            assertThat(hsb[2] / (float) MAX_BRIGHTNESS).isCloseTo(awtHSB[2], within(0.001f));
+
+            // shift the hue and compare the results
+            int hue = hsb[0] + HUE_RANGE / 3;
+            int rgb = ColorSpaces.hsbToRgb(hue, hsb[1], hsb[2]);
+            int awtRGB = Color.HSBtoRGB(awtHSB[0] + 1 / 3.0f, awtHSB[1], awtHSB[2]);
+            for (int shift = 0; shift <= 16; shift += 8) {
+                int channel = (rgb >> shift) & 0xFF;
+                int awtChannel = (awtRGB >> shift) & 0xFF;
+                assertThat(channel).isCloseTo(awtChannel, within(1));
+            }
+        }
+    }
+
+    @Test
+    void hueDifferenceWrapsAround() {
+        assertThat(ColorSpaces.hueDifference(HUE_RANGE / 10, HUE_RANGE * 9 / 10))
+            .isCloseTo(0.2f, within(0.0001f));
+        assertThat(ColorSpaces.hueDifference(HUE_RANGE * 9 / 10, HUE_RANGE / 10))
+            .isCloseTo(-0.2f, within(0.0001f));
+    }
+
+    @Test
+    void lab() {
+        float[] lab = new float[3];
+
+        ColorSpaces.rgbToLab(0xFF_FF_FF_FF, lab);
+        assertThat(lab[0]).isCloseTo(100.0f, within(0.01f));
+        assertThat(lab[1]).isCloseTo(0.0f, within(0.01f));
+        assertThat(lab[2]).isCloseTo(0.0f, within(0.01f));
+
+        ColorSpaces.rgbToLab(0xFF_FF_00_00, lab);
+        assertThat(lab[0]).isCloseTo(53.24f, within(0.1f));
+        assertThat(lab[1]).isCloseTo(80.09f, within(0.1f));
+        assertThat(lab[2]).isCloseTo(67.20f, within(0.1f));
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2021 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.filters.impl;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pixelitor.utils.ProgressTracker;
+
+import java.awt.image.BufferedImage;
+
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("ComplexFractalImpl tests")
+class ComplexFractalImplTest {
+    private static final int MAX_ITERATIONS = 300;
+
+    @Test
+    void periodicityCheckKeepsIterationCounts() {
+        var fractal = new TestMandelbrot();
+        for (double cy = -1.2; cy <= 1.2; cy += 0.013) {
+            for (double cx = -2.2; cx <= 0.7; cx += 0.017) {
+                assertThat(fractal.iterate(0, 0, cx, cy))
+                    .isEqualTo(naiveIterate(cx, cy));
+            }
+        }
+    }
+
+    @Test
+    void boundaryTracingMatchesFullCalculation() {
+        var fractal = new TestMandelbrot();
+        int width = 400;
+        int height = 300;
+        var src = new BufferedImage(width, height, TYPE_INT_ARGB);
+        BufferedImage dst = fractal.filter(src, null);
+
+        int differences = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int expected = fractal.calcIterations(x, y);
+                if ((dst.getRGB(x, y) & 0xFF_FF_FF) != expected) {
+                    differences++;
+                }
+            }
+        }
+        // the filling of uniform rectangles is an approximation,
+        // but it should be wrong only for very few pixels
+        assertThat(differences).isLessThan(width * height / 500);
+    }
+
+    // the same escape condition as in ComplexFractalImpl,
+    // but without the periodicity check
+    private static int naiveIterate(double cx, double cy) {
+        int it = MAX_ITERATIONS;
+        double x = 0;
+        double y = 0;
+        double x2 = 0;
+        double y2 = 0;
+        while (x2 + y2 <= 4 && it > 0) {
+            it--;
+            double xy = x * y;
+            x2 = x * x;
+            y2 = y * y;
+            x = x2 - y2 + cx;
+            y = xy + xy + cy;
+        }
+        return it;
+    }
+
+    private static class TestMandelbrot extends ComplexFractalImpl {
+        TestMandelbrot() {
+            super("Test", -2.2f, 0.7f, -1.2f, 1.2f);
+            setMaxIterations(MAX_ITERATIONS);
+            setProgressTracker(ProgressTracker.NULL_TRACKER);
+
+            // encode the iteration counts as colors
+            int[] colors = new int[MAX_ITERATIONS + 1];
+            for (int i = 0; i < colors.length; i++) {
+                colors[i] = 0xFF_00_00_00 | i;
+            }
+            setColors(colors);
+        }
+
+        @Override
+        protected int calcIterations(int x, int y) {
+            return iterate(0, 0, cxStart + x * xMultiplier, cyStart + y * yMultiplier);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2021 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.filters.impl;
+
+import com.jhlabs.image.TransformFilter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pixelitor.utils.ProgressTracker;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("TransformFilter displacement map tests")
+class DisplacementMapTest {
+    private static final int WIDTH = 53;
+    private static final int HEIGHT = 41;
+
+    private BufferedImage src;
+
+    @BeforeEach
+    void beforeEachTest() {
+        src = new BufferedImage(WIDTH, HEIGHT, TYPE_INT_ARGB);
+        Random random = new Random(1);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                src.setRGB(x, y, random.nextInt());
+            }
+        }
+    }
+
+    @Test
+    void reusedWhileTheGeometryIsTheSame() {
+        var filter = new CountingSwirl(true);
+        var uncached = new CountingSwirl(false);
+
+        filter.setAmount(0.3f);
+        uncached.setAmount(0.3f);
+        assertSameResult(filter, uncached);
+        assertThat(filter.numCalls.get()).isEqualTo(WIDTH * HEIGHT);
+
+        // only the sampling changed
+        filter.setEdgeAction(TransformFilter.WRAP_AROUND);
+        uncached.setEdgeAction(TransformFilter.WRAP_AROUND);
+        filter.setInterpolation(TransformFilter.NEAREST_NEIGHBOUR);
+        uncached.setInterpolation(TransformFilter.NEAREST_NEIGHBOUR);
+        assertSameResult(filter, uncached);
+        assertThat(filter.numCalls.get()).isEqualTo(WIDTH * HEIGHT);
+
+        // the geometry changed
+        filter.setAmount(0.7f);
+        uncached.setAmount(0.7f);
+        assertSameResult(filter, uncached);
+        assertThat(filter.numCalls.get()).isEqualTo(2 * WIDTH * HEIGHT);
+    }
+
+    @Test
+    void notReusedForOtherSizes() {
+        var filter = new CountingSwirl(true);
+        filter.filter(src, new BufferedImage(WIDTH, HEIGHT, TYPE_INT_ARGB));
+        filter.filter(src.getSubimage(0, 0, WIDTH, HEIGHT - 1),
+            new BufferedImage(WIDTH, HEIGHT - 1, TYPE_INT_ARGB));
+
+        assertThat(filter.numCalls.get()).isEqualTo(WIDTH * HEIGHT + WIDTH * (HEIGHT - 1));
+    }
+
+    private void assertSameResult(CountingSwirl filter, CountingSwirl uncached) {
+        BufferedImage expected = uncached.filter(src, new BufferedImage(WIDTH, HEIGHT, TYPE_INT_ARGB));
+        BufferedImage actual = filter.filter(src, new BufferedImage(WIDTH, HEIGHT, TYPE_INT_ARGB));
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                assertThat(actual.getRGB(x, y)).isEqualTo(expected.getRGB(x, y));
+            }
+        }
+    }
+
+    private static class CountingSwirl extends CenteredTransformFilter {
+        private final boolean cached;
+        private final AtomicInteger numCalls = new AtomicInteger();
+        private float amount;
+
+        CountingSwirl(boolean cached) {
+            super("Counting Swirl");
+            this.cached = cached;
+            setRelCenter(0.5f, 0.5f);
+            setProgressTracker(ProgressTracker.NULL_TRACKER);
+        }
+
+        void setAmount(float amount) {
+            this.amount = amount;
+        }
+
+        @Override
+        protected Object getGeometryKey() {
+            return cached ? amount : null;
+        }
+
+        @Override
+        protected void transformInverse(int x, int y, float[] out) {
+            numCalls.incrementAndGet();
+            float dx = x - cx;
+            float dy = y - cy;
+            double angle = amount * Math.hypot(dx, dy) / 10;
+            out[0] = (float) (cx + dx * Math.cos(angle) - dy * Math.sin(angle));
+            out[1] = (float) (cy + dx * Math.sin(angle) + dy * Math.cos(angle));
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2021 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.filters.impl;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static pixelitor.filters.impl.MorphologyFilter.*;
+
+@DisplayName("MorphologyFilter tests")
+class MorphologyFilterTest {
+    private static final int WIDTH = 53;
+    private static final int HEIGHT = 37;
+
+    @ParameterizedTest
+    @ValueSource(ints = {KERNEL_SQUARE, KERNEL_DIAMOND, KERNEL_DISC})
+    void matchesBruteForce(int kernel) {
+        Random random = new Random(kernel);
+        byte[] channel = new byte[WIDTH * HEIGHT];
+        for (int i = 0; i < channel.length; i++) {
+            // sparse peaks make the shape of the kernel visible
+            channel[i] = (byte) (random.nextInt(30) == 0 ? random.nextInt(256) : random.nextInt(40));
+        }
+
+        for (int op : new int[]{OP_DILATE, OP_ERODE}) {
+            for (int radius : new int[]{1, 2, 3, 4, 7, 12, 40}) {
+                byte[] result = filterChannel(channel, WIDTH, HEIGHT, op, kernel, radius);
+                for (int y = 0; y < HEIGHT; y++) {
+                    for (int x = 0; x < WIDTH; x++) {
+                        int expected = bruteForce(channel, x, y, op, kernel, radius);
+                        assertThat(result[y * WIDTH + x] & 0xFF)
+                            .as("op = %d, radius = %d, x = %d, y = %d", op, radius, x, y)
+                            .isEqualTo(expected);
+                    }
+                }
+            }
+        }
+    }
+
+    private static int bruteForce(byte[] channel, int x, int y, int op, int kernel, int radius) {
+        int result = op == OP_DILATE ? 0 : 255;
+        for (int dy = -radius; dy <= radius; dy++) {
+            for (int dx = -radius; dx <= radius; dx++) {
+                boolean inKernel = switch (kernel) {
+                    case KERNEL_SQUARE -> true;
+                    case KERNEL_DIAMOND -> Math.abs(dx) + Math.abs(dy) <= radius;
+                    default -> dx * dx + dy * dy <= radius * (radius + 1);
+                };
+                int nx = x + dx;
+                int ny = y + dy;
+                if (!inKernel || nx < 0 || ny < 0 || nx >= WIDTH || ny >= HEIGHT) {
+                    continue;
+                }
+                int value = channel[ny * WIDTH + nx] & 0xFF;
+                result = op == OP_DILATE ? Math.max(result, value) : Math.min(result, value);
+            }
+        }
+        return result;
+    }
+}
@@ -147,6 +147,47 @@ class PixelitorUndoManagerTest {
         verify(edit2, never()).redo();
     }
 
+    @Test
+    void spillingStopsWhenEnoughIsFreed() {
+        when(edit0.spillToDisk()).thenReturn(100L);
+        when(edit1.spillToDisk()).thenReturn(100L);
+
+        assertThat(undoManager.spillOldEdits(50)).isEqualTo(100);
+
+        // expect that only the oldest edit is spilled
+        verify(edit0, times(1)).spillToDisk();
+        verify(edit1, never()).spillToDisk();
+        verify(edit2, never()).spillToDisk();
+    }
+
+    @Test
+    void nextUndoEditIsNotSpilled() {
+        when(edit0.spillToDisk()).thenReturn(100L);
+        when(edit1.spillToDisk()).thenReturn(100L);
+        when(edit2.spillToDisk()).thenReturn(100L);
+
+        assertThat(undoManager.spillOldEdits(1000)).isEqualTo(200);
+
+        verify(edit0, times(1)).spillToDisk();
+        verify(edit1, times(1)).spillToDisk();
+        verify(edit2, never()).spillToDisk();
+    }
+
+    @Test
+    void undoneEditsAreNotSpilled() {
+        when(edit0.spillToDisk()).thenReturn(100L);
+        when(edit1.spillToDisk()).thenReturn(100L);
+        when(edit2.spillToDisk()).thenReturn(100L);
+
+        undoManager.undo();
+        assertThat(undoManager.spillOldEdits(1000)).isEqualTo(100);
+
+        // edit 1 is the next undo edit, and edit 2 can be redone
+        verify(edit0, times(1)).spillToDisk();
+        verify(edit1, never()).spillToDisk();
+        verify(edit2, never()).spillToDisk();
+    }
+
     private void selectIndex(int index) {
         ListSelectionModel selectionModel = undoManager.getSelectionModel();
         selectionModel.setSelectionInterval(index, index);
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2021 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.history;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Random;
+
+import static java.awt.image.BufferedImage.TYPE_BYTE_BINARY;
+import static java.awt.image.BufferedImage.TYPE_BYTE_GRAY;
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB_PRE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("SpilledImage tests")
+class SpilledImageTest {
+    @ParameterizedTest
+    @ValueSource(ints = {TYPE_INT_ARGB_PRE, TYPE_BYTE_GRAY, TYPE_BYTE_BINARY})
+    void readBackSubImage(int type) throws IOException {
+        // large enough to need several chunks, and packed
+        // binary pixels can't be read directly into the raster
+        var img = new BufferedImage(1500, 1200, type);
+        Random random = new Random(1);
+        for (int y = 0; y < img.getHeight(); y += 7) {
+            for (int x = 0; x < img.getWidth(); x += 3) {
+                img.setRGB(x, y, 0xFF000000 | random.nextInt());
+            }
+        }
+        BufferedImage subImage = img.getSubimage(11, 13, 1400, 1100);
+
+        SpilledImage spilled = SpilledImage.write(subImage);
+        BufferedImage readBack = spilled.read();
+        spilled.delete();
+
+        assertThat(readBack.getType()).isEqualTo(type);
+        assertThat(readBack.getWidth()).isEqualTo(subImage.getWidth());
+        assertThat(readBack.getHeight()).isEqualTo(subImage.getHeight());
+        for (int y = 0; y < readBack.getHeight(); y++) {
+            for (int x = 0; x < readBack.getWidth(); x++) {
+                if (readBack.getRGB(x, y) != subImage.getRGB(x, y)) {
+                    assertThat(readBack.getRGB(x, y)).isEqualTo(subImage.getRGB(x, y));
+                }
+            }
+        }
+    }
+}
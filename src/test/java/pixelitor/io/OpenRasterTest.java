@@ -0,0 +1,207 @@
+/*
+ * Copyright 2021 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.io;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.xml.sax.InputSource;
+import pixelitor.utils.ProgressTracker;
+
+import javax.imageio.ImageIO;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("OpenRaster tests")
+class OpenRasterTest {
+    private static final int NUM_LAYERS = 6;
+    private static final String STACK_XML = "<image w=\"10\" h=\"10\"><stack/></image>";
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    void writesEntriesInOrder() throws Exception {
+        List<BufferedImage> images = createImages();
+        File file = new File(tempDir, "test.ora");
+
+        OpenRaster.writeZip(file, STACK_XML, createEntryNames(),
+            images, null, ProgressTracker.NULL_TRACKER);
+
+        try (var zipFile = new ZipFile(file)) {
+            List<? extends ZipEntry> entries = Collections.list(zipFile.entries());
+            assertThat(entries).extracting(ZipEntry::getName).containsExactly(
+                "mimetype", "data/5.png", "data/4.png", "data/3.png",
+                "data/2.png", "data/1.png", "data/0.png", "stack.xml");
+
+            ZipEntry mimeType = entries.get(0);
+            assertThat(mimeType.getMethod()).isEqualTo(ZipEntry.STORED);
+            assertThat(readString(zipFile, mimeType)).isEqualTo("image/openraster");
+
+            for (int i = 0; i < NUM_LAYERS; i++) {
+                BufferedImage read = ImageIO.read(zipFile.getInputStream(entries.get(i + 1)));
+                assertSameImage(read, images.get(i));
+            }
+            assertThat(readString(zipFile, entries.get(NUM_LAYERS + 1))).isEqualTo(STACK_XML);
+        }
+    }
+
+    @Test
+    void addsMergedImageBeforeStackXML() throws Exception {
+        BufferedImage merged = createImage(20, 0xFF_12_34_56);
+        File file = new File(tempDir, "merged.ora");
+
+        OpenRaster.writeZip(file, STACK_XML, createEntryNames(),
+            createImages(), merged, ProgressTracker.NULL_TRACKER);
+
+        try (var zipFile = new ZipFile(file)) {
+            List<? extends ZipEntry> entries = Collections.list(zipFile.entries());
+            assertThat(entries).hasSize(NUM_LAYERS + 3);
+            assertThat(entries.get(0).getName()).isEqualTo("mimetype");
+
+            ZipEntry mergedEntry = entries.get(NUM_LAYERS + 1);
+            assertThat(mergedEntry.getName()).isEqualTo("mergedimage.png");
+            assertSameImage(ImageIO.read(zipFile.getInputStream(mergedEntry)), merged);
+
+            assertThat(entries.get(NUM_LAYERS + 2).getName()).isEqualTo("stack.xml");
+        }
+    }
+
+    @Test
+    void encodingsOverlapWithLargeLayers() throws Exception {
+        int encodedSize = 1000;
+        long maxWaitingBytes = encodedSize / 2;
+
+        // the first two encodings wait for each other,
+        // so they must run at the same time
+        var bothStarted = new CountDownLatch(2);
+        AtomicBoolean overlapped = new AtomicBoolean(true);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        OpenRaster.ImageEncoder encoder = image -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            bothStarted.countDown();
+            try {
+                if (!bothStarted.await(5, TimeUnit.SECONDS)) {
+                    overlapped.set(false);
+                }
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            running.decrementAndGet();
+            return new byte[encodedSize];
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        var bos = new ByteArrayOutputStream();
+        try (var zos = new ZipOutputStream(bos)) {
+            OpenRaster.writeImages(zos, createEntryNames(), createImages(),
+                ProgressTracker.NULL_TRACKER, encoder, executor, 2, maxWaitingBytes);
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(overlapped).isTrue();
+        assertThat(maxRunning.get()).isEqualTo(2);
+
+        List<String> names = new ArrayList<>();
+        try (var zis = new ZipInputStream(new ByteArrayInputStream(bos.toByteArray()))) {
+            for (ZipEntry entry = zis.getNextEntry(); entry != null; entry = zis.getNextEntry()) {
+                names.add(entry.getName());
+                assertThat(zis.readAllBytes()).hasSize(encodedSize);
+            }
+        }
+        assertThat(names).isEqualTo(createEntryNames());
+    }
+
+    @Test
+    void escapedNamesCanBeParsed() throws Exception {
+        String name = "<Layer> \"1\" & 2";
+        String escaped = OpenRaster.escapeXML(name);
+        assertThat(escaped).isEqualTo("&lt;Layer&gt; &quot;1&quot; &amp; 2");
+
+        String xml = "<layer name=\"" + escaped + "\"/>";
+        var builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+        var doc = builder.parse(new InputSource(new StringReader(xml)));
+        assertThat(doc.getDocumentElement().getAttribute("name")).isEqualTo(name);
+    }
+
+    private static List<String> createEntryNames() {
+        // in the same order as in OpenRaster.write: the uppermost layer first
+        List<String> names = new ArrayList<>();
+        for (int i = NUM_LAYERS - 1; i >= 0; i--) {
+            names.add("data/" + i + ".png");
+        }
+        return names;
+    }
+
+    private static List<BufferedImage> createImages() {
+        List<BufferedImage> images = new ArrayList<>();
+        for (int i = 0; i < NUM_LAYERS; i++) {
+            // different sizes and colors, so that the order can be checked
+            images.add(createImage(10 + i, 0xFF_00_00_00 | (i * 40) << 16 | 0x80));
+        }
+        return images;
+    }
+
+    private static BufferedImage createImage(int size, int color) {
+        var img = new BufferedImage(size, size, TYPE_INT_ARGB);
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                img.setRGB(x, y, color);
+            }
+        }
+        return img;
+    }
+
+    private static void assertSameImage(BufferedImage actual, BufferedImage expected) {
+        assertThat(actual.getWidth()).isEqualTo(expected.getWidth());
+        assertThat(actual.getHeight()).isEqualTo(expected.getHeight());
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                assertThat(actual.getRGB(x, y)).isEqualTo(expected.getRGB(x, y));
+            }
+        }
+    }
+
+    private static String readString(ZipFile zipFile, ZipEntry entry) throws IOException {
+        return new String(zipFile.getInputStream(entry).readAllBytes(), UTF_8);
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2021 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.selection;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.geom.Area;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+
+import static java.awt.RenderingHints.KEY_STROKE_CONTROL;
+import static java.awt.RenderingHints.VALUE_STROKE_PURE;
+import static java.awt.image.BufferedImage.TYPE_BYTE_GRAY;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+@DisplayName("SelectionMask tests")
+class SelectionMaskTest {
+    private static final Rectangle AREA = new Rectangle(-5, -5, 110, 110);
+
+    @ParameterizedTest
+    @EnumSource(value = ShapeCombination.class, names = {"ADD", "SUBTRACT", "INTERSECT"})
+    void combineMatchesArea(ShapeCombination combination) {
+        Shape flower = createFlower(50, 50, 35, 10, 1200);
+        Shape ellipse = new Ellipse2D.Double(30, 15, 65, 45);
+        assertThat(SelectionMask.isComplex(flower)).isTrue();
+
+        Shape combined = combination.combine(flower, ellipse);
+
+        Area expected = new Area(flower);
+        combination.combine(expected, new Area(ellipse));
+        assertSimilar(combined, expected);
+    }
+
+    @ParameterizedTest
+    @EnumSource(SelectionModifyType.class)
+    void modifyMatchesArea(SelectionModifyType type) {
+        Shape flower = createFlower(50, 50, 30, 8, 1200);
+        assertThat(SelectionMask.isComplex(flower)).isTrue();
+        float amount = 6;
+
+        Shape modified = type.modify(flower, amount);
+
+        var stroke = new BasicStroke(amount);
+        Shape expected = type.modify(new Area(flower),
+            new Area(stroke.createStrokedShape(flower)));
+        assertSimilar(modified, expected);
+    }
+
+    @Test
+    void outlineMatchesPixels() {
+        // a ring with a hole and two pixels touching diagonally
+        var shape = new Area(new Rectangle(10, 10, 30, 30));
+        shape.subtract(new Area(new Rectangle(20, 20, 10, 10)));
+        shape.add(new Area(new Rectangle(40, 40, 1, 1)));
+        shape.add(new Area(new Rectangle(41, 41, 1, 1)));
+
+        Shape result = SelectionMask.of(shape, new Rectangle(0, 0, 50, 50)).toShape();
+        assertThat(result.getBounds()).isEqualTo(new Rectangle(10, 10, 32, 32));
+
+        // the traced path is used, and not the mask
+        var outline = new Path2D.Double(result);
+        for (int y = 0; y < 50; y++) {
+            for (int x = 0; x < 50; x++) {
+                boolean expected = shape.contains(x + 0.5, y + 0.5);
+                assertThat(outline.contains(x + 0.5, y + 0.5)).isEqualTo(expected);
+                assertThat(result.contains(x + 0.5, y + 0.5)).isEqualTo(expected);
+            }
+        }
+    }
+
+    @Test
+    void outlineKeepsSubpixelEdges() {
+        var shape = new Rectangle2D.Double(10.25, 10, 20.5, 20);
+
+        Shape result = SelectionMask.of(shape, new Rectangle(0, 0, 50, 50)).toShape();
+
+        // the outline is traced from the antialiased coverage,
+        // and not rounded to the pixel grid
+        Rectangle2D bounds = new Path2D.Double(result).getBounds2D();
+        assertThat(bounds.getMinX()).isCloseTo(10.25, within(0.1));
+        assertThat(bounds.getMaxX()).isCloseTo(30.75, within(0.1));
+        assertThat(bounds.getMinY()).isCloseTo(10, within(0.01));
+        assertThat(bounds.getMaxY()).isCloseTo(30, within(0.01));
+    }
+
+    @Test
+    void emptyResult() {
+        Shape flower = createFlower(50, 50, 30, 10, 1200);
+        Shape result = ShapeCombination.SUBTRACT.combine(flower, new Rectangle(0, 0, 100, 100));
+        assertThat(result.getBounds().isEmpty()).isTrue();
+    }
+
+    @Test
+    void simpleShapesAreNotComplex() {
+        assertThat(SelectionMask.isComplex(new Rectangle2D.Double(0, 0, 1000, 1000))).isFalse();
+        assertThat(SelectionMask.isComplex(new Ellipse2D.Double(0, 0, 1000, 1000))).isFalse();
+    }
+
+    private static Shape createFlower(double cx, double cy, double radius, double amplitude, int numPoints) {
+        var path = new Path2D.Double();
+        for (int i = 0; i < numPoints; i++) {
+            double angle = 2 * Math.PI * i / numPoints;
+            double r = radius + amplitude * Math.sin(7 * angle);
+            double x = cx + r * Math.cos(angle);
+            double y = cy + r * Math.sin(angle);
+            if (i == 0) {
+                path.moveTo(x, y);
+            } else {
+                path.lineTo(x, y);
+            }
+        }
+        path.closePath();
+        return path;
+    }
+
+    /**
+     * Checks that the two shapes differ only in pixels near their outlines.
+     * The expected shape is rasterized, because the point queries on
+     * a complex Area would be slow, but the mask can be queried directly.
+     */
+    private static void assertSimilar(Shape actual, Shape expected) {
+        boolean[] exp = rasterize(expected);
+        int numPixels = 0;
+        int numDifferent = 0;
+        for (int y = 0; y < AREA.height; y++) {
+            for (int x = 0; x < AREA.width; x++) {
+                int i = y * AREA.width + x;
+                boolean act = actual.contains(AREA.x + x + 0.5, AREA.y + y + 0.5);
+                if (exp[i]) {
+                    numPixels++;
+                }
+                if (act != exp[i]) {
+                    numDifferent++;
+                    // a difference is allowed only at the edge
+                    assertThat(isAtEdge(exp, x, y)).isTrue();
+                }
+            }
+        }
+        assertThat(numDifferent)
+            .as("different pixels out of %d selected pixels", numPixels)
+            .isLessThan(numPixels / 10);
+    }
+
+    private static boolean[] rasterize(Shape shape) {
+        var img = new BufferedImage(AREA.width, AREA.height, TYPE_BYTE_GRAY);
+        Graphics2D g = img.createGraphics();
+        // no normalization, the pixel centers should be sampled
+        g.setRenderingHint(KEY_STROKE_CONTROL, VALUE_STROKE_PURE);
+        g.translate(-AREA.x, -AREA.y);
+        g.setColor(Color.WHITE);
+        g.fill(shape);
+        g.dispose();
+
+        byte[] pixels = ((DataBufferByte) img.getRaster().getDataBuffer()).getData();
+        boolean[] inside = new boolean[pixels.length];
+        for (int i = 0; i < pixels.length; i++) {
+            inside[i] = pixels[i] != 0;
+        }
+        return inside;
+    }
+
+    private static boolean isAtEdge(boolean[] inside, int x, int y) {
+        boolean value = inside[y * AREA.width + x];
+        for (int ny = Math.max(0, y - 1); ny <= Math.min(AREA.height - 1, y + 1); ny++) {
+            for (int nx = Math.max(0, x - 1); nx <= Math.min(AREA.width - 1, x + 1); nx++) {
+                if (inside[ny * AREA.width + nx] != value) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2021 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.tools;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("FloodFill tests")
+class FloodFillTest {
+    private static final int WIDTH = 131;
+    private static final int HEIGHT = 67;
+    private static final int TOLERANCE = 10;
+
+    @Test
+    void localMatchesFourConnectedSearch() {
+        Random random = new Random(7);
+        for (int round = 0; round < 20; round++) {
+            int[] pixels = createMaze(random);
+            int seedX = random.nextInt(WIDTH);
+            int seedY = random.nextInt(HEIGHT);
+
+            FloodFill fill = FloodFill.local(pixels, WIDTH, HEIGHT, seedX, seedY, TOLERANCE);
+            boolean[] expected = searchConnected(pixels, seedX, seedY);
+
+            assertMatches(fill, expected);
+        }
+    }
+
+    @Test
+    void globalFindsAllSimilar() {
+        int[] pixels = createMaze(new Random(3));
+        int target = pixels[0];
+
+        FloodFill fill = FloodFill.global(pixels, WIDTH, HEIGHT, target, TOLERANCE);
+
+        boolean[] expected = new boolean[pixels.length];
+        for (int i = 0; i < pixels.length; i++) {
+            expected[i] = FloodFill.isSimilar(pixels[i], target, TOLERANCE);
+        }
+        assertMatches(fill, expected);
+    }
+
+    @Test
+    void fillAndShape() {
+        int[] pixels = createMaze(new Random(5));
+        FloodFill fill = FloodFill.local(pixels, WIDTH, HEIGHT, 10, 10, TOLERANCE);
+        boolean[] found = new boolean[pixels.length];
+        for (int i = 0; i < pixels.length; i++) {
+            found[i] = fill.contains(i % WIDTH, i / WIDTH);
+        }
+
+        Shape shape = fill.toShape(5, -3);
+        fill.fill(0xFF_12_34_56);
+
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int i = x + y * WIDTH;
+                if (found[i]) {
+                    assertThat(pixels[i]).isEqualTo(0xFF_12_34_56);
+                }
+                assertThat(shape.contains(x + 5.5, y - 2.5)).isEqualTo(found[i]);
+            }
+        }
+    }
+
+    // random walls of dark pixels on a slightly noisy light background
+    private static int[] createMaze(Random random) {
+        int[] pixels = new int[WIDTH * HEIGHT];
+        for (int i = 0; i < pixels.length; i++) {
+            boolean wall = random.nextInt(3) == 0;
+            int gray = wall ? 20 : 200 + random.nextInt(8);
+            pixels[i] = 0xFF_00_00_00 | gray << 16 | gray << 8 | gray;
+        }
+        return pixels;
+    }
+
+    private static boolean[] searchConnected(int[] pixels, int seedX, int seedY) {
+        int target = pixels[seedX + seedY * WIDTH];
+        boolean[] found = new boolean[pixels.length];
+        Deque<int[]> queue = new ArrayDeque<>();
+        queue.add(new int[]{seedX, seedY});
+        found[seedX + seedY * WIDTH] = true;
+        int[][] neighbors = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+        while (!queue.isEmpty()) {
+            int[] p = queue.poll();
+            for (int[] n : neighbors) {
+                int x = p[0] + n[0];
+                int y = p[1] + n[1];
+                if (x < 0 || y < 0 || x >= WIDTH || y >= HEIGHT) {
+                    continue;
+                }
+                int i = x + y * WIDTH;
+                if (!found[i] && FloodFill.isSimilar(pixels[i], target, TOLERANCE)) {
+                    found[i] = true;
+                    queue.add(new int[]{x, y});
+                }
+            }
+        }
+        return found;
+    }
+
+    private static void assertMatches(FloodFill fill, boolean[] expected) {
+        int minX = WIDTH;
+        int minY = HEIGHT;
+        int maxX = -1;
+        int maxY = -1;
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                boolean exp = expected[x + y * WIDTH];
+                assertThat(fill.contains(x, y)).isEqualTo(exp);
+                if (exp) {
+                    minX = Math.min(minX, x);
+                    maxX = Math.max(maxX, x);
+                    minY = Math.min(minY, y);
+                    maxY = Math.max(maxY, y);
+                }
+            }
+        }
+        assertThat(fill.getBounds()).isEqualTo(
+            new Rectangle(minX, minY, maxX - minX + 1, maxY - minY + 1));
+    }
+}
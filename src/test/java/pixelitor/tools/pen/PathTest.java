@@ -23,11 +23,18 @@ import pixelitor.gui.View;
 import pixelitor.history.History;
 import pixelitor.utils.Shapes;
 
+import java.awt.BasicStroke;
+import java.awt.Graphics2D;
+import java.awt.Polygon;
 import java.awt.Rectangle;
 import java.awt.Shape;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Ellipse2D;
+import java.awt.image.BufferedImage;
+import java.util.function.Consumer;
 
+import static java.awt.Color.BLACK;
+import static java.awt.Color.WHITE;
 import static pixelitor.assertions.PixelitorAssertions.assertThat;
 
 @DisplayName("Path tests")
@@ -99,6 +106,66 @@ class PathTest {
         assertThat(sp).firstAnchorIsAt(20, 30);
     }
 
+    @Test
+    void changedRegion() {
+        var shape = new Polygon(
+            new int[]{10, 50, 90, 130, 130, 10},
+            new int[]{10, 10, 10, 10, 50, 50}, 6);
+        Path path = Shapes.shapeToPath(shape, view);
+        SubPath sp = path.getActiveSubpath();
+
+        // initially everything is new
+        assertThat(path.getChangedRegion()).isNotNull();
+        assertThat(path.getChangedRegion()).isNull();
+
+        AnchorPoint moved = sp.getAnchor(3);
+        moved.setLocation(moved.x + 20, moved.y + 20);
+        Rectangle changed = path.getChangedRegion();
+        assertThat(changed).isNotNull();
+        assertThat(changed.contains(moved.x, moved.y)).isTrue();
+
+        // the segments of the first anchor were not affected
+        AnchorPoint first = sp.getAnchor(0);
+        assertThat(changed.contains(first.x, first.y)).isFalse();
+        assertThat(path.getChangedRegion()).isNull();
+    }
+
+    @Test
+    void outlinesHaveTheJoinsOfTheWholeShape() {
+        var shape = new Polygon(
+            new int[]{20, 180, 40, 170, 60},
+            new int[]{20, 30, 60, 170, 150}, 5);
+        Path path = Shapes.shapeToPath(shape, view);
+        Shape coShape = path.toComponentSpaceShape();
+
+        int[] expected = renderScaled(g -> {
+            g.setColor(BLACK);
+            g.fill(new BasicStroke(3).createStrokedShape(coShape));
+            g.setColor(WHITE);
+            g.fill(new BasicStroke(1).createStrokedShape(coShape));
+        });
+        int[] painted = renderScaled(path::paintForTransforming);
+
+        int numDifferent = 0;
+        for (int i = 0; i < expected.length; i++) {
+            if (expected[i] != painted[i]) {
+                numDifferent++;
+            }
+        }
+        // the separately stroked pieces can differ only in rounding
+        assertThat(numDifferent).isLessThan(10);
+    }
+
+    private static int[] renderScaled(Consumer<Graphics2D> painter) {
+        int size = 4 * 200;
+        var img = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = img.createGraphics();
+        g.scale(4, 4);
+        painter.accept(g);
+        g.dispose();
+        return img.getRGB(0, 0, size, size, null, 0, size);
+    }
+
     private void testConversionsFor(Shape shape) {
         Path path = Shapes.shapeToPath(shape, view);
         Path copy = path.deepCopy(view.getComp());
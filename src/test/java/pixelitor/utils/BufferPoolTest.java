@@ -0,0 +1,81 @@
+/*
+ * Copyright 2021 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.utils;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("BufferPool tests")
+class BufferPoolTest {
+    private static final int LENGTH = 100_000;
+
+    @BeforeEach
+    void beforeEachTest() {
+        BufferPool.clear();
+    }
+
+    @Test
+    void releasedArraysAreReused() {
+        int[] ints = BufferPool.leaseInts(LENGTH);
+        BufferPool.release(ints);
+        assertThat(BufferPool.getIdleBytes()).isEqualTo(LENGTH * 4L);
+
+        assertThat(BufferPool.leaseInts(LENGTH)).isSameAs(ints);
+        assertThat(BufferPool.getIdleBytes()).isZero();
+
+        float[] floats = BufferPool.leaseFloats(LENGTH);
+        BufferPool.release(floats);
+        assertThat(BufferPool.leaseFloats(LENGTH)).isSameAs(floats);
+
+        byte[] bytes = BufferPool.leaseBytes(LENGTH);
+        BufferPool.release(bytes);
+        assertThat(BufferPool.getIdleBytes()).isEqualTo(LENGTH);
+        assertThat(BufferPool.leaseBytes(LENGTH)).isSameAs(bytes);
+    }
+
+    @Test
+    void arraysAreBucketedByExactLength() {
+        int[] ints = BufferPool.leaseInts(LENGTH);
+        BufferPool.release(ints);
+
+        int[] other = BufferPool.leaseInts(LENGTH - 1);
+        assertThat(other).isNotSameAs(ints).hasSize(LENGTH - 1);
+    }
+
+    @Test
+    void smallArraysAreNotPooled() {
+        int[] ints = BufferPool.leaseInts(10);
+        BufferPool.release(ints);
+
+        assertThat(BufferPool.getIdleBytes()).isZero();
+        assertThat(BufferPool.leaseInts(10)).isNotSameAs(ints);
+    }
+
+    @Test
+    void notLeasedImagesAreIgnored() {
+        var img = new BufferedImage(200, 200, BufferedImage.TYPE_INT_ARGB);
+        BufferPool.release(img);
+
+        assertThat(BufferPool.getIdleBytes()).isZero();
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2021 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("DistanceTransform tests")
+class DistanceTransformTest {
+    @Test
+    void distanceTransformMatchesBruteForce() {
+        int width = 47;
+        int height = 31;
+        Random random = new Random(1);
+        boolean[] features = new boolean[width * height];
+        float[] grid = new float[width * height];
+        for (int i = 0; i < grid.length; i++) {
+            features[i] = random.nextInt(40) == 0;
+            grid[i] = features[i] ? 0 : DistanceTransform.INF;
+        }
+
+        DistanceTransform.calcSquaredDistances(grid, width, height);
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int expected = Integer.MAX_VALUE;
+                for (int fy = 0; fy < height; fy++) {
+                    for (int fx = 0; fx < width; fx++) {
+                        if (features[fy * width + fx]) {
+                            int dx = fx - x;
+                            int dy = fy - y;
+                            expected = Math.min(expected, dx * dx + dy * dy);
+                        }
+                    }
+                }
+                assertThat(grid[y * width + x]).isEqualTo(expected);
+            }
+        }
+    }
+
+    @Test
+    void withoutFeaturesEverythingIsFar() {
+        float[] grid = new float[20 * 10];
+        Arrays.fill(grid, DistanceTransform.INF);
+
+        DistanceTransform.calcSquaredDistances(grid, 20, 10);
+
+        for (float v : grid) {
+            assertThat(v).isGreaterThan(1.0e19f);
+        }
+    }
+}
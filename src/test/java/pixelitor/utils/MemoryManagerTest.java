@@ -0,0 +1,84 @@
+/*
+ * Copyright 2021 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongUnaryOperator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("MemoryManager tests")
+class MemoryManagerTest {
+    private static final long BUDGET = 1000;
+
+    private final List<String> calledSteps = new ArrayList<>();
+    private final List<Long> requestedBytes = new ArrayList<>();
+
+    @Test
+    void nothingIsEvictedWithinBudget() {
+        boolean fits = ensureAvailable(100, 900);
+
+        assertThat(fits).isTrue();
+        assertThat(calledSteps).isEmpty();
+    }
+
+    @Test
+    void evictionStopsWhenTheBudgetFits() {
+        boolean fits = ensureAvailable(200, 1000);
+
+        assertThat(fits).isTrue();
+        assertThat(calledSteps).containsExactly("pool", "composites");
+        assertThat(requestedBytes).containsExactly(200L, 50L);
+    }
+
+    @Test
+    void evictionRunsAllStepsInOrder() {
+        boolean fits = ensureAvailable(500, 1000);
+
+        assertThat(fits).isTrue();
+        assertThat(calledSteps).containsExactly("pool", "composites", "history");
+        assertThat(requestedBytes).containsExactly(500L, 350L, 250L);
+    }
+
+    @Test
+    void reportsWhenEvictionIsNotEnough() {
+        boolean fits = ensureAvailable(1000, 1000);
+
+        assertThat(fits).isFalse();
+        assertThat(calledSteps).containsExactly("pool", "composites", "history");
+    }
+
+    private boolean ensureAvailable(long numBytes, long used) {
+        return MemoryManager.ensureAvailable(numBytes, BUDGET, used,
+            step("pool", 150),
+            step("composites", 100),
+            step("history", 300));
+    }
+
+    private LongUnaryOperator step(String name, long freed) {
+        return bytesToFree -> {
+            calledSteps.add(name);
+            requestedBytes.add(bytesToFree);
+            return freed;
+        };
+    }
+}
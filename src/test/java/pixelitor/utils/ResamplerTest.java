@@ -0,0 +1,105 @@
+/*
+ * Copyright 2021 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import pixelitor.utils.Resampler.Kernel;
+
+import java.awt.image.BufferedImage;
+
+import static java.awt.image.BufferedImage.TYPE_BYTE_GRAY;
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Resampler tests")
+class ResamplerTest {
+    @ParameterizedTest
+    @EnumSource(Kernel.class)
+    void uniformImageStaysUniform(Kernel kernel) {
+        int color = 0xFF_40_80_C0;
+        var src = new BufferedImage(300, 200, TYPE_INT_ARGB);
+        fill(src, color);
+
+        for (int[] size : new int[][]{{37, 23}, {300, 200}, {611, 401}}) {
+            BufferedImage dst = Resampler.resize(src, size[0], size[1], kernel);
+
+            assertThat(dst.getType()).isEqualTo(TYPE_INT_ARGB);
+            assertThat(dst.getWidth()).isEqualTo(size[0]);
+            assertThat(dst.getHeight()).isEqualTo(size[1]);
+            for (int y = 0; y < dst.getHeight(); y++) {
+                for (int x = 0; x < dst.getWidth(); x++) {
+                    assertThat(dst.getRGB(x, y)).isEqualTo(color);
+                }
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(Kernel.class)
+    void transparentPixelsDontBleed(Kernel kernel) {
+        // left half transparent black, right half opaque white
+        var src = new BufferedImage(100, 10, TYPE_INT_ARGB);
+        for (int y = 0; y < 10; y++) {
+            for (int x = 50; x < 100; x++) {
+                src.setRGB(x, y, 0xFF_FF_FF_FF);
+            }
+        }
+
+        BufferedImage dst = Resampler.resize(src, 30, 3, kernel);
+        for (int x = 0; x < 30; x++) {
+            int rgb = dst.getRGB(x, 1);
+            if ((rgb >>> 24) != 0) {
+                // the partially transparent pixels are still white
+                assertThat(rgb & 0xFF_FF_FF).isEqualTo(0xFF_FF_FF);
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(Kernel.class)
+    void grayAndSubImages(Kernel kernel) {
+        var src = new BufferedImage(200, 200, TYPE_BYTE_GRAY);
+        var raster = src.getRaster();
+        for (int y = 0; y < 200; y++) {
+            for (int x = 0; x < 200; x++) {
+                raster.setSample(x, y, 0, x < 100 ? 0 : 200);
+            }
+        }
+
+        // the right half of the image is uniform
+        BufferedImage sub = src.getSubimage(100, 50, 100, 100);
+        BufferedImage dst = Resampler.resize(sub, 33, 45, kernel);
+
+        assertThat(dst.getType()).isEqualTo(TYPE_BYTE_GRAY);
+        for (int y = 0; y < dst.getHeight(); y++) {
+            for (int x = 0; x < dst.getWidth(); x++) {
+                assertThat(dst.getRaster().getSample(x, y, 0)).isEqualTo(200);
+            }
+        }
+    }
+
+    private static void fill(BufferedImage img, int color) {
+        for (int y = 0; y < img.getHeight(); y++) {
+            for (int x = 0; x < img.getWidth(); x++) {
+                img.setRGB(x, y, color);
+            }
+        }
+    }
+}
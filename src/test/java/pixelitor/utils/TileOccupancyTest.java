@@ -0,0 +1,90 @@
+/*
+ * Copyright 2021 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB_PRE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("TileOccupancy tests")
+class TileOccupancyTest {
+    private static final int WIDTH = 300;
+    private static final int HEIGHT = 170;
+
+    @Test
+    void contentBoundsMatchPixels() {
+        Random random = new Random(5);
+        for (int round = 0; round < 50; round++) {
+            var img = new BufferedImage(WIDTH, HEIGHT, round % 2 == 0 ? TYPE_INT_ARGB : TYPE_INT_ARGB_PRE);
+            int numPixels = 1 + random.nextInt(5);
+            for (int i = 0; i < numPixels; i++) {
+                img.setRGB(random.nextInt(WIDTH), random.nextInt(HEIGHT), 0xFF_00_00_00);
+            }
+
+            assertThat(new TileOccupancy(img).getContentBounds()).isEqualTo(findBounds(img));
+            assertThat(ImageTrimUtil.getTrimRect(img)).isEqualTo(findBounds(img));
+        }
+    }
+
+    @Test
+    void subImage() {
+        var img = new BufferedImage(WIDTH, HEIGHT, TYPE_INT_ARGB);
+        img.setRGB(10, 10, 0xFF_00_00_00);
+        img.setRGB(200, 150, 0xFF_00_00_00);
+        BufferedImage sub = img.getSubimage(5, 7, 100, 100);
+
+        assertThat(new TileOccupancy(sub).getContentBounds())
+            .isEqualTo(new Rectangle(5, 3, 1, 1));
+    }
+
+    @Test
+    void transparentColors() {
+        var img = new BufferedImage(WIDTH, HEIGHT, TYPE_INT_ARGB);
+        img.setRGB(100, 100, 0x00_FF_00_00);
+
+        var tiles = new TileOccupancy(img);
+        assertThat(tiles.isEmpty()).isTrue();
+        assertThat(tiles.getContentBounds()).isNull();
+
+        var nonZeroTiles = TileOccupancy.ofNonZeroPixels(img);
+        assertThat(nonZeroTiles.isEmpty()).isFalse();
+        assertThat(nonZeroTiles.isOccupied(1, 1)).isTrue();
+        assertThat(nonZeroTiles.isOccupied(0, 0)).isFalse();
+        assertThat(nonZeroTiles.getContentBounds()).isEqualTo(new Rectangle(100, 100, 1, 1));
+    }
+
+    private static Rectangle findBounds(BufferedImage img) {
+        Rectangle bounds = null;
+        for (int y = 0; y < img.getHeight(); y++) {
+            for (int x = 0; x < img.getWidth(); x++) {
+                if (img.getRGB(x, y) >>> 24 != 0) {
+                    var pixel = new Rectangle(x, y, 1, 1);
+                    bounds = bounds == null ? pixel : bounds.union(pixel);
+                }
+            }
+        }
+        return bounds;
+    }
+}
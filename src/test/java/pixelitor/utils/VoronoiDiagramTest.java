@@ -0,0 +1,61 @@
+/*
+ * Copyright 2021 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("VoronoiDiagram tests")
+class VoronoiDiagramTest {
+    private static final int WIDTH = 157;
+    private static final int HEIGHT = 89;
+
+    @ParameterizedTest
+    @EnumSource(Metric.class)
+    void findsTheNearestSite(Metric metric) {
+        Random random = new Random(11);
+        for (int numSites : new int[]{1, 2, 7, 100, 3000}) {
+            double[] xs = new double[numSites];
+            double[] ys = new double[numSites];
+            for (int i = 0; i < numSites; i++) {
+                xs[i] = random.nextInt(WIDTH);
+                ys[i] = random.nextInt(HEIGHT);
+            }
+            var diagram = new VoronoiDiagram(xs, ys, WIDTH, HEIGHT, metric);
+
+            for (int i = 0; i < 500; i++) {
+                // also test points outside the area
+                double x = random.nextDouble() * (WIDTH + 20) - 10;
+                double y = random.nextDouble() * (HEIGHT + 20) - 10;
+
+                int found = diagram.findNearest(x, y);
+
+                double minDist = Double.POSITIVE_INFINITY;
+                for (int j = 0; j < numSites; j++) {
+                    minDist = Math.min(minDist, metric.distanceDouble(x, xs[j], y, ys[j]));
+                }
+                assertThat(metric.distanceDouble(x, xs[found], y, ys[found])).isEqualTo(minDist);
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2021 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.utils.perf;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Probe tests")
+class ProbeTest {
+    // a probe that is not used in unit tests
+    private static final Probe PROBE = Probe.ORA_WRITE;
+
+    @AfterEach
+    void afterEachTest() {
+        PROBE.reset();
+    }
+
+    @Test
+    void statistics() {
+        // make sure that the class initialization doesn't distort the timings
+        PROBE.recordSince(System.nanoTime());
+        PROBE.reset();
+
+        for (int i = 0; i < 99; i++) {
+            PROBE.recordSince(System.nanoTime() - 1_000_000, 1024);
+        }
+        PROBE.recordSince(System.nanoTime() - 100_000_000, 1024);
+
+        assertThat(PROBE.getCount()).isEqualTo(100);
+        assertThat(PROBE.getBytes()).isEqualTo(100 * 1024);
+        assertThat(PROBE.getMaxMillis()).isGreaterThanOrEqualTo(100.0);
+        assertThat(PROBE.getMeanMillis()).isGreaterThanOrEqualTo(1.99);
+
+        // the percentiles are upper bounds within a factor of two
+        assertThat(PROBE.getPercentileMillis(50)).isBetween(1.0, 2.2);
+        assertThat(PROBE.getPercentileMillis(100)).isEqualTo(PROBE.getMaxMillis());
+
+        PROBE.reset();
+        assertThat(PROBE.getCount()).isZero();
+        assertThat(PROBE.getPercentileMillis(50)).isZero();
+    }
+
+    @Test
+    void counting() {
+        Probe probe = Probe.BRUSH_DABS;
+        long before = probe.getCount();
+        probe.increment();
+        probe.increment();
+
+        assertThat(probe.getCount()).isEqualTo(before + 2);
+        assertThat(probe.isTimed()).isFalse();
+    }
+}